@@ -0,0 +1,932 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+// Command-line front end for AdvisorEngine. Runs without a display, so the advisor can be
+// used on headless servers and in CI:
+//   java AdvisorCli --requirements sorted,kv --import data.csv --benchmark --format json
+// Launching through "java CollectionAdvisor <options>" works too, but loads the Swing
+// classes first; AdvisorCli itself never touches AWT.
+public final class AdvisorCli {
+
+    private static final String USAGE =
+        "Usage: java AdvisorCli [options]\n"
+        + "  --requirements a,b,...   ordered, duplicates, search, insert, delete, kv, thread-safe,\n"
+        + "                           sorted, large, read-mostly, write-heavy, many-threads,\n"
+        + "                           cache, ttl\n"
+        + "  --input FILE.json        Read options from a JSON object (\"-\" for stdin)\n"
+        + "  --class NAME             Use this collection instead of the recommendation\n"
+        + "  --import FILE.csv        Load the CSV into the collection and report import stats\n"
+        + "  --expected-size N        Pre-size the collection for N elements (default: estimated\n"
+        + "                           from the CSV length)\n"
+        + "  --load-factor F          Hash table load factor, between 0 and 1 (default 0.75)\n"
+        + "  --follow                 After --import, keep appending rows as they are written to\n"
+        + "                           the file (like tail -f) and report lag\n"
+        + "  --follow-seconds N       Stop following after N seconds (default: until interrupted)\n"
+        + "  --dedup                  Share one String between repeated list elements or map\n"
+        + "                           values during --import\n"
+        + "  --dedup-slots N          Size of the --dedup canonicalization table (default 65536)\n"
+        + "  --benchmark              Rank candidate collections with timed trials\n"
+        + "  --sample N               Rows per benchmark trial (default 100000)\n"
+        + "  --mix G/P/R              Benchmark get/put/remove percentages\n"
+        + "  --trial-ms N             Time per benchmark trial or replayed class (default 500)\n"
+        + "  --rank-by throughput|allocation\n"
+        + "                           Benchmark ranking order (default throughput)\n"
+        + "  --allocation             Profile bytes allocated per add/put/contains/remove for\n"
+        + "                           every candidate and rank them by allocation\n"
+        + "  --footprint              Report the heap footprint after import\n"
+        + "  --hash-diagnostics       Report how the imported keys spread over the hash table\n"
+        + "  --probe FILE             Look up every key in FILE (one per line) in the imported\n"
+        + "                           collection and report hits and misses\n"
+        + "  --probe-remove           Remove the --probe keys instead of looking them up\n"
+        + "  --bloom                  Reject --probe misses with a Bloom filter first\n"
+        + "  --bloom-fpp F            Bloom filter false-positive rate (default 0.01)\n"
+        + "  --matches-out FILE       Write the keys (key,value for maps) that --probe found\n"
+        + "  --prefix TEXT            List the imported keys that start with TEXT\n"
+        + "  --range-from KEY         List the imported keys from KEY (with --range-to: up to and\n"
+        + "                           including that key)\n"
+        + "  --range-to KEY           List the imported keys up to and including KEY\n"
+        + "  --fuzzy TEXT             List the imported keys within --max-edits edits of TEXT\n"
+        + "  --max-edits N            Edit distance for --fuzzy, 0 to 4 (default 2)\n"
+        + "  --search-limit N         Keys listed per search (default 20)\n"
+        + "  --replay FILE            Replay a workload trace against every candidate class\n"
+        + "  --log-pattern REGEX      Read the --replay file as an access log with this pattern\n"
+        + "                           (named groups op, key, optional value)\n"
+        + "  --replay-classes a,b     Also replay these classes (registry or fully qualified names)\n"
+        + "  --cache-sim              Simulate every cache policy on the keys of the --replay trace\n"
+        + "                           or the --import file and report hit ratios\n"
+        + "  --cache-capacity N       Cache capacity in entries (default 10000)\n"
+        + "  --ttl-ms N               Cache time-to-live (default 60000)\n"
+        + "  --request-rate N         Simulated requests per second, for TTL expiry (default 1000)\n"
+        + "  --format text|json|csv   Output format (default text)\n"
+        + "  --out FILE               Write output to FILE instead of stdout\n"
+        + "  --list                   List the known collection classes and exit\n"
+        + "  --quiet                  No progress messages on stderr";
+
+    private AdvisorEngine.Requirements requirements = new AdvisorEngine.Requirements();
+    private String className;
+    private File importFile;
+    private int expectedSize;
+    private float loadFactor = CollectionRegistry.DEFAULT_LOAD_FACTOR;
+    private boolean follow;
+    private long followSeconds;
+    private boolean dedup;
+    private int dedupSlots = StringDeduplicator.DEFAULT_SLOTS;
+    private boolean benchmark;
+    private int sample = 100_000;
+    private EmpiricalAdvisor.Workload mix;
+    private long trialMillis = 500;
+    private EmpiricalAdvisor.Rank rankBy = EmpiricalAdvisor.Rank.THROUGHPUT;
+    private boolean allocation;
+    private boolean footprint;
+    private boolean hashDiagnostics;
+    private File probeFile;
+    private boolean probeRemove;
+    private boolean bloom;
+    private double bloomFpp = BloomFilter.DEFAULT_FALSE_POSITIVE_RATE;
+    private File matchesOut;
+    private String prefixQuery;
+    private String rangeFrom;
+    private String rangeTo;
+    private String fuzzyQuery;
+    private int maxEdits = KeySearchIndex.DEFAULT_MAX_EDITS;
+    private int searchLimit = 20;
+    private File replayFile;
+    private String logPattern;
+    private List<String> replayClasses = new ArrayList<>();
+    private boolean cacheSim;
+    private int cacheCapacity = LruLinkedHashMap.DEFAULT_CAPACITY;
+    private long ttlMillis = TtlCache.DEFAULT_TTL_MILLIS;
+    private double requestRate = CacheSimulator.DEFAULT_REQUESTS_PER_SECOND;
+    private String format = "text";
+    private File outFile;
+    private boolean quiet;
+    private List<String> sampleKeys;
+    private List<String> sampleValues;
+
+    private AdvisorCli() {
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.exit(run(args, System.out, System.err));
+    }
+
+    // Returns the process exit code: 0 on success, 1 on failure, 2 on bad usage
+    static int run(String[] args, PrintStream stdout, PrintStream stderr) {
+        AdvisorCli cli = new AdvisorCli();
+        try {
+            if (!cli.parse(args, stdout)) return 0;
+        } catch (IllegalArgumentException | IOException e) {
+            stderr.println("Error: " + e.getMessage());
+            stderr.println(USAGE);
+            return 2;
+        }
+
+        try {
+            Map<String, Object> result = cli.execute(stderr);
+            String output = cli.render(result);
+            if (cli.outFile != null) {
+                Files.write(cli.outFile.toPath(), output.getBytes(StandardCharsets.UTF_8));
+            } else {
+                stdout.print(output);
+                stdout.flush();
+            }
+            return 0;
+        } catch (Exception e) {
+            stderr.println("Error: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+            return 1;
+        }
+    }
+
+    // False when the command was fully handled here (--help, --list)
+    private boolean parse(String[] args, PrintStream stdout) throws IOException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--help": case "-h":
+                    stdout.println(USAGE);
+                    return false;
+                case "--list":
+                    for (String name : CollectionRegistry.names()) {
+                        stdout.println(name + "\t" + CollectionRegistry.traits(name));
+                    }
+                    return false;
+                case "--requirements": mergeRequirements(value(args, ++i, arg)); break;
+                case "--input": applyJson(readInput(value(args, ++i, arg))); break;
+                case "--class": className = value(args, ++i, arg); break;
+                case "--import": importFile = new File(value(args, ++i, arg)); break;
+                case "--expected-size": expectedSize = parsePositive(value(args, ++i, arg), arg); break;
+                case "--load-factor": loadFactor = parseLoadFactor(value(args, ++i, arg)); break;
+                case "--follow": follow = true; break;
+                case "--follow-seconds": followSeconds = parsePositive(value(args, ++i, arg), arg); follow = true; break;
+                case "--dedup": dedup = true; break;
+                case "--dedup-slots": dedupSlots = parsePositive(value(args, ++i, arg), arg); dedup = true; break;
+                case "--benchmark": benchmark = true; break;
+                case "--sample": sample = parsePositive(value(args, ++i, arg), arg); break;
+                case "--mix": mix = EmpiricalAdvisor.Workload.parse(value(args, ++i, arg)); break;
+                case "--trial-ms": trialMillis = parsePositive(value(args, ++i, arg), arg); break;
+                case "--rank-by": rankBy = parseRank(value(args, ++i, arg)); break;
+                case "--allocation": allocation = true; break;
+                case "--footprint": footprint = true; break;
+                case "--hash-diagnostics": hashDiagnostics = true; break;
+                case "--probe": probeFile = new File(value(args, ++i, arg)); break;
+                case "--probe-remove": probeRemove = true; break;
+                case "--bloom": bloom = true; break;
+                case "--bloom-fpp": bloomFpp = parseFalsePositiveRate(value(args, ++i, arg)); bloom = true; break;
+                case "--matches-out": matchesOut = new File(value(args, ++i, arg)); break;
+                case "--prefix": prefixQuery = value(args, ++i, arg); break;
+                case "--range-from": rangeFrom = value(args, ++i, arg); break;
+                case "--range-to": rangeTo = value(args, ++i, arg); break;
+                case "--fuzzy": fuzzyQuery = value(args, ++i, arg); break;
+                case "--max-edits": maxEdits = parseMaxEdits(value(args, ++i, arg)); break;
+                case "--search-limit": searchLimit = parsePositive(value(args, ++i, arg), arg); break;
+                case "--replay": replayFile = new File(value(args, ++i, arg)); break;
+                case "--log-pattern": logPattern = value(args, ++i, arg); break;
+                case "--replay-classes": replayClasses.addAll(splitList(value(args, ++i, arg))); break;
+                case "--cache-sim": cacheSim = true; break;
+                case "--cache-capacity": cacheCapacity = parsePositive(value(args, ++i, arg), arg); break;
+                case "--ttl-ms": ttlMillis = parsePositive(value(args, ++i, arg), arg); break;
+                case "--request-rate": requestRate = parsePositive(value(args, ++i, arg), arg); break;
+                case "--format": format = value(args, ++i, arg).toLowerCase(Locale.ROOT); break;
+                case "--out": outFile = new File(value(args, ++i, arg)); break;
+                case "--quiet": quiet = true; break;
+                default: throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (!Arrays.asList("text", "json", "csv").contains(format)) {
+            throw new IllegalArgumentException("Unknown format: " + format);
+        }
+        if (className != null && !CollectionRegistry.contains(className)) {
+            throw new IllegalArgumentException("Unknown collection: " + className);
+        }
+        if (importFile != null && !importFile.isFile()) {
+            throw new IllegalArgumentException("File not found: " + importFile);
+        }
+        if (replayFile != null && !replayFile.isFile()) {
+            throw new IllegalArgumentException("File not found: " + replayFile);
+        }
+        return true;
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) throw new IllegalArgumentException(option + " needs a value");
+        return args[i];
+    }
+
+    private static int parsePositive(String text, String option) {
+        try {
+            int value = Integer.parseInt(text.trim());
+            if (value > 0) return value;
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException(option + " must be a positive integer: " + text);
+    }
+
+    // JSON numbers get the same check as the matching command-line option
+    private static int jsonPositive(Object value, String key) {
+        if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            if (number > 0 && number <= Integer.MAX_VALUE && number == Math.rint(number)) return (int) number;
+        }
+        throw new IllegalArgumentException(key + " must be a positive integer: " + Json.write(value));
+    }
+
+    private static float parseLoadFactor(String text) {
+        try {
+            float value = Float.parseFloat(text.trim());
+            CollectionRegistry.checkLoadFactor(value);
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--load-factor must be a number between 0 and 1: " + text);
+        }
+    }
+
+    private static int parseMaxEdits(String text) {
+        try {
+            int value = Integer.parseInt(text.trim());
+            if (value >= 0 && value <= KeySearchIndex.MAX_EDITS) return value;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("--max-edits must be between 0 and " + KeySearchIndex.MAX_EDITS + ": " + text);
+    }
+
+    private static double parseFalsePositiveRate(String text) {
+        try {
+            double value = Double.parseDouble(text.trim());
+            if (value > 0 && value < 1) return value;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("--bloom-fpp must be a number between 0 and 1: " + text);
+    }
+
+    private static EmpiricalAdvisor.Rank parseRank(String text) {
+        try {
+            return EmpiricalAdvisor.Rank.valueOf(text.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("--rank-by must be throughput or allocation: " + text);
+        }
+    }
+
+    private static List<String> splitList(String text) {
+        List<String> items = new ArrayList<>();
+        for (String item : text.split(",")) {
+            if (!item.trim().isEmpty()) items.add(item.trim());
+        }
+        return items;
+    }
+
+    private void mergeRequirements(String flags) {
+        for (String flag : flags.split(",")) {
+            if (!flag.trim().isEmpty()) requirements.set(flag.trim(), true);
+        }
+    }
+
+    private static String readInput(String path) throws IOException {
+        if (path.equals("-")) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = System.in.read(buffer)) > 0) bytes.write(buffer, 0, n);
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+        return new String(Files.readAllBytes(new File(path).toPath()), StandardCharsets.UTF_8);
+    }
+
+    // {"requirements": ["sorted", "kv"], "readWriteMix": "write-heavy", "import": "data.csv",
+    //  "benchmark": true, ...}; boolean keys named after requirement flags also work
+    private void applyJson(String text) {
+        Object parsed = Json.parse(text);
+        if (!(parsed instanceof Map)) throw new IllegalArgumentException("JSON input must be an object");
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) parsed).entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            Object value = entry.getValue();
+            switch (key) {
+                case "requirements":
+                    if (value instanceof List) {
+                        for (Object flag : (List<?>) value) requirements.set(String.valueOf(flag), true);
+                    } else {
+                        mergeRequirements(String.valueOf(value));
+                    }
+                    break;
+                case "readWriteMix": {
+                    String mixName = String.valueOf(value);
+                    requirements.readWriteMix = mixName.equalsIgnoreCase("mixed")
+                        ? AdvisorEngine.ReadWriteMix.MIXED
+                        : AdvisorEngine.ReadWriteMix.valueOf(mixName.toUpperCase(Locale.ROOT).replace('-', '_'));
+                    break;
+                }
+                case "class": className = String.valueOf(value); break;
+                case "import": importFile = new File(String.valueOf(value)); break;
+                case "expectedSize": expectedSize = jsonPositive(value, key); break;
+                case "loadFactor": loadFactor = parseLoadFactor(String.valueOf(value)); break;
+                case "follow": follow = Boolean.TRUE.equals(value); break;
+                case "followSeconds": followSeconds = jsonPositive(value, key); follow = true; break;
+                case "dedup": dedup = Boolean.TRUE.equals(value); break;
+                case "dedupSlots": dedupSlots = jsonPositive(value, key); dedup = true; break;
+                case "benchmark": benchmark = Boolean.TRUE.equals(value); break;
+                case "sample": sample = jsonPositive(value, key); break;
+                case "mix": mix = EmpiricalAdvisor.Workload.parse(String.valueOf(value)); break;
+                case "trialMs": trialMillis = jsonPositive(value, key); break;
+                case "rankBy": rankBy = parseRank(String.valueOf(value)); break;
+                case "allocation": allocation = Boolean.TRUE.equals(value); break;
+                case "footprint": footprint = Boolean.TRUE.equals(value); break;
+                case "hashDiagnostics": hashDiagnostics = Boolean.TRUE.equals(value); break;
+                case "probe": probeFile = new File(String.valueOf(value)); break;
+                case "probeRemove": probeRemove = Boolean.TRUE.equals(value); break;
+                case "bloom": bloom = Boolean.TRUE.equals(value); break;
+                case "bloomFpp": bloomFpp = parseFalsePositiveRate(String.valueOf(value)); bloom = true; break;
+                case "matchesOut": matchesOut = new File(String.valueOf(value)); break;
+                case "prefix": prefixQuery = String.valueOf(value); break;
+                case "rangeFrom": rangeFrom = String.valueOf(value); break;
+                case "rangeTo": rangeTo = String.valueOf(value); break;
+                case "fuzzy": fuzzyQuery = String.valueOf(value); break;
+                case "maxEdits": maxEdits = parseMaxEdits(String.valueOf(value)); break;
+                case "searchLimit": searchLimit = jsonPositive(value, key); break;
+                case "replay": replayFile = new File(String.valueOf(value)); break;
+                case "logPattern": logPattern = String.valueOf(value); break;
+                case "replayClasses":
+                    if (value instanceof List) {
+                        for (Object name : (List<?>) value) replayClasses.add(String.valueOf(name));
+                    } else {
+                        replayClasses.addAll(splitList(String.valueOf(value)));
+                    }
+                    break;
+                case "cacheSim": cacheSim = Boolean.TRUE.equals(value); break;
+                case "cacheCapacity": cacheCapacity = jsonPositive(value, key); break;
+                case "ttlMs": ttlMillis = jsonPositive(value, key); break;
+                case "requestRate": requestRate = jsonPositive(value, key); break;
+                case "format": format = String.valueOf(value).toLowerCase(Locale.ROOT); break;
+                default:
+                    if (!(value instanceof Boolean)) throw new IllegalArgumentException("Unknown JSON key: " + key);
+                    requirements.set(key, (Boolean) value);
+            }
+        }
+    }
+
+    private Map<String, Object> execute(PrintStream stderr) throws Exception {
+        Map<String, Object> result = new LinkedHashMap<>();
+        String recommended = AdvisorEngine.recommend(requirements);
+        String target = className != null ? className : recommended;
+        result.put("requirements", requirements.flags());
+        result.put("recommendation", recommended);
+        result.put("collection", target);
+        result.put("traits", new ArrayList<>(CollectionRegistry.traits(target)));
+
+        if (importFile != null) {
+            LatencyRecorder latency = new LatencyRecorder();
+            CsvImporter importer = new CsvImporter(importFile, CollectionRegistry.isKeyValue(target));
+            // Leave a line still being written for the follower
+            if (follow) importer.completeLinesOnly();
+            StringDeduplicator deduplicator = dedup ? new StringDeduplicator(dedupSlots) : null;
+            if (deduplicator != null && !AdvisorEngine.deduplicate(importer, target, deduplicator)) {
+                throw new IllegalArgumentException("--dedup has no repeated strings to share in " + target);
+            }
+            long presizeFor = expectedSize > 0 ? expectedSize : importer.estimateRows();
+            // A cache keeps its capacity however long the file is
+            Object instance = CollectionRegistry.isBounded(target)
+                ? CollectionRegistry.newCache(target, cacheCapacity, ttlMillis)
+                : CollectionRegistry.newInstance(target, (int) Math.min(Integer.MAX_VALUE, presizeFor), loadFactor);
+            CollectionOps ops = latency.instrument(CollectionOps.of(instance), target, true);
+            AllocationProfiler.GcWatch gcWatch = AllocationProfiler.watchGc();
+            long allocatedBefore = AllocationProfiler.totalAllocatedBytes();
+            AdvisorEngine.ImportResult imported;
+            try {
+                imported = AdvisorEngine.importCsv(importer, ops,
+                    quiet ? null : stats -> stderr.print("\r" + stats.summary()));
+            } finally {
+                gcWatch.stop();
+            }
+            long allocated = allocatedBefore < 0 ? -1 : AllocationProfiler.totalAllocatedBytes() - allocatedBefore;
+            AllocationProfiler.GcStats gc = gcWatch.stop();
+            if (!quiet) stderr.println();
+
+            CsvImporter.Stats stats = imported.stats;
+            Map<String, Object> importInfo = new LinkedHashMap<>();
+            importInfo.put("file", importFile.getPath());
+            importInfo.put("rows", stats.rows);
+            importInfo.put("size", ops.size());
+            if (CollectionRegistry.isSizable(target)) importInfo.put("presizedFor", presizeFor);
+            importInfo.put("seconds", stats.seconds());
+            importInfo.put("rowsPerSecond", stats.rowsPerSecond());
+            importInfo.put("megabytesPerSecond", stats.megabytesPerSecond());
+            if (allocated >= 0) importInfo.put("allocatedBytes", Math.max(0, allocated));
+            importInfo.put("youngGcs", gc.youngCount);
+            importInfo.put("youngGcPauseMillis", gc.youngPauseMillis);
+            importInfo.put("oldGcs", gc.oldCount);
+            importInfo.put("oldGcPauseMillis", gc.oldPauseMillis);
+            if (imported.bulkBuilt) {
+                importInfo.put("presorted", imported.presorted);
+                importInfo.put("sortSeconds", imported.sortNanos / 1e9);
+                importInfo.put("buildSeconds", imported.buildNanos / 1e9);
+                importInfo.put("bulkBuildSummary", imported.bulkBuildSummary());
+            }
+            if (deduplicator != null) {
+                StringDeduplicator.Stats d = deduplicator.stats();
+                importInfo.put("dedupStrings", d.strings);
+                importInfo.put("dedupDuplicates", d.duplicates);
+                importInfo.put("dedupSavedBytes", d.savedBytes);
+                importInfo.put("dedupSummary", d.summary());
+            }
+            String alternative = CollectionRegistry.primitiveAlternative(target, imported.keyProfile);
+            if (alternative != null) importInfo.put("primitiveAlternative", alternative);
+            result.put("import", importInfo);
+
+            List<Object> latencies = new ArrayList<>();
+            for (LatencyRecorder.Row row : latency.rows()) {
+                LatencyHistogram.Snapshot s = row.latency;
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("operation", row.operation);
+                entry.put("count", s.totalCount);
+                entry.put("p50Nanos", s.percentile(50));
+                entry.put("p99Nanos", s.percentile(99));
+                entry.put("p999Nanos", s.percentile(99.9));
+                entry.put("maxNanos", s.max);
+                latencies.add(entry);
+            }
+            result.put("latency", latencies);
+
+            if (footprint) result.put("footprint", footprint(HeapFootprint.analyze(instance)));
+            if (hashDiagnostics) {
+                if (!HashDiagnostics.appliesTo(target)) {
+                    throw new IllegalArgumentException("--hash-diagnostics needs a hash-based class, not " + target);
+                }
+                result.put("hashDiagnostics", hashDiagnostics(HashDiagnostics.analyze(target, instance)));
+            }
+            if (searching()) result.put("search", search(target, instance));
+            // Last, since --probe-remove changes the collection the sections above describe
+            if (probeFile != null) result.put("batch", batch(target, instance, stderr));
+            // After everything else, since it may run until the process is stopped
+            if (follow) result.put("follow", follow(importer, stats.totalBytes, ops, stderr));
+        } else if (footprint) {
+            throw new IllegalArgumentException("--footprint needs --import");
+        } else if (hashDiagnostics) {
+            throw new IllegalArgumentException("--hash-diagnostics needs --import");
+        } else if (probeFile != null) {
+            throw new IllegalArgumentException("--probe needs --import");
+        } else if (searching()) {
+            throw new IllegalArgumentException("--prefix, --range-from, --range-to and --fuzzy need --import");
+        } else if (follow) {
+            throw new IllegalArgumentException("--follow needs --import");
+        }
+
+        if (benchmark) result.put("benchmark", benchmark(stderr));
+        if (allocation) result.put("allocation", allocation(stderr));
+        if (replayFile != null && !cacheSim) result.put("replay", replay(stderr));
+        if (cacheSim) result.put("cacheSimulation", cacheSimulation(stderr));
+        return result;
+    }
+
+    private static Map<String, Object> footprint(HeapFootprint.Analysis analysis) {
+        HeapFootprint.Report r = analysis.current;
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("measured", r.measured);
+        info.put("totalBytes", r.totalBytes());
+        info.put("structureBytes", r.structureBytes());
+        info.put("payloadBytes", r.payloadBytes);
+        info.put("bytesPerElement", r.bytesPerElement());
+        if (r.slots >= 0) {
+            info.put("loadFactor", r.loadFactor());
+            info.put("wastedBytes", r.wastedBytes);
+        }
+        if (r.nativeBytes > 0) info.put("nativeBytes", r.nativeBytes);
+        Map<String, Object> alternatives = new LinkedHashMap<>();
+        for (HeapFootprint.Report other : analysis.projections) alternatives.put(other.className, other.totalBytes());
+        info.put("alternatives", alternatives);
+        info.put("report", HeapFootprint.report(analysis));
+        return info;
+    }
+
+    private static Map<String, Object> hashDiagnostics(HashDiagnostics.Analysis analysis) {
+        HashDiagnostics.Distribution current = analysis.currentDistribution();
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("keys", analysis.keys);
+        info.put("distinctHashCodes", analysis.distinctHashCodes);
+        info.put("keysSharingHashCode", analysis.keysSharingHashCode);
+        info.put("hashCodeNanos", analysis.nanosPerHashCode);
+        info.put("tableSize", current.tableSize);
+        info.put("longest", current.longest);
+        info.put("treeifiedBins", current.treeifiedBins);
+        info.put("poor", current.isPoor());
+        List<Object> strategies = new ArrayList<>();
+        for (HashDiagnostics.Distribution d : analysis.distributions) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("strategy", d.strategy.name().toLowerCase(Locale.ROOT));
+            entry.put("probes", d.probes);
+            entry.put("expectedProbes", d.expectedProbes);
+            entry.put("longest", d.longest);
+            strategies.add(entry);
+        }
+        info.put("strategies", strategies);
+        info.put("report", HashDiagnostics.report(analysis));
+        return info;
+    }
+
+    // Only the follower thread touches the collection while this thread waits
+    private Map<String, Object> follow(CsvImporter importer, long start, CollectionOps ops, PrintStream stderr)
+            throws Exception {
+        CsvFollower follower = new CsvFollower(importer, start, batch -> {
+            if (batch.values != null) {
+                ops.putAll(batch.keys, batch.values, batch.count);
+            } else {
+                ops.addAll(batch.keys, batch.count);
+            }
+            return true;
+        });
+        follower.start();
+        long deadline = followSeconds > 0 ? System.nanoTime() + followSeconds * 1_000_000_000L : Long.MAX_VALUE;
+        try {
+            while (follower.stats().running) {
+                long remaining = (deadline - System.nanoTime()) / 1_000_000;
+                if (remaining <= 0) break;
+                Thread.sleep(Math.min(1000, remaining));
+                if (!quiet) stderr.print("\r" + follower.stats().summary());
+            }
+        } finally {
+            follower.close();
+        }
+        if (!quiet) stderr.println();
+
+        CsvFollower.Stats s = follower.stats();
+        if (s.failure instanceof Exception) throw (Exception) s.failure;
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("file", s.file.getPath());
+        info.put("rows", s.rows);
+        info.put("batches", s.batches);
+        info.put("size", ops.size());
+        info.put("lastLagMillis", s.lastLagMillis);
+        info.put("maxLagMillis", s.maxLagMillis);
+        info.put("bytesBehind", s.bytesBehind());
+        info.put("restarts", s.restarts);
+        info.put("report", s.summary() + String.format("\nSize after following: %,d\n", ops.size()));
+        return info;
+    }
+
+    private boolean searching() {
+        return prefixQuery != null || rangeFrom != null || rangeTo != null || fuzzyQuery != null;
+    }
+
+    private Map<String, Object> search(String target, Object instance) {
+        KeySearchIndex index = new KeySearchIndex(target, instance);
+        List<KeySearchIndex.Result> results = new ArrayList<>();
+        if (prefixQuery != null) results.add(index.prefix(prefixQuery));
+        if (rangeFrom != null || rangeTo != null) results.add(index.range(rangeFrom, rangeTo));
+        if (fuzzyQuery != null) results.add(index.fuzzy(fuzzyQuery, maxEdits));
+
+        List<Object> searches = new ArrayList<>();
+        StringBuilder report = new StringBuilder();
+        for (KeySearchIndex.Result r : results) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("kind", r.kind.name().toLowerCase(Locale.ROOT));
+            entry.put("query", r.query);
+            entry.put("matches", r.count);
+            entry.put("seconds", r.searchNanos / 1e9);
+            entry.put("buildSeconds", r.buildNanos / 1e9);
+            entry.put("fromCollection", r.fromCollection);
+            List<Object> keys = new ArrayList<>();
+            Iterator<?> rows = r.rows instanceof Map ? ((Map<?, ?>) r.rows).keySet().iterator()
+                : ((Collection<?>) r.rows).iterator();
+            while (keys.size() < searchLimit && rows.hasNext()) keys.add(String.valueOf(rows.next()));
+            entry.put("keys", keys);
+            if (r.distances != null) {
+                List<Object> distances = new ArrayList<>();
+                for (int i = 0; i < keys.size(); i++) distances.add(r.distances[i]);
+                entry.put("distances", distances);
+            }
+            searches.add(entry);
+            report.append(KeySearchIndex.report(r, searchLimit));
+        }
+        report.append(index.describe());
+
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("searches", searches);
+        info.put("report", report.toString());
+        return info;
+    }
+
+    private Map<String, Object> batch(String target, Object instance, PrintStream stderr) throws Exception {
+        BatchLookup lookup = new BatchLookup(target, instance).matchesFile(matchesOut);
+        if (bloom) lookup.bloomFilter(bloomFpp);
+        BatchLookup.Result r = lookup.run(probeFile, probeRemove ? BatchLookup.Mode.REMOVE : BatchLookup.Mode.LOOKUP,
+            quiet ? null : stats -> stderr.print("\r" + stats.summary()));
+        if (!quiet) stderr.println();
+
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("file", probeFile.getPath());
+        info.put("mode", r.mode.name().toLowerCase(Locale.ROOT));
+        info.put("probes", r.probes);
+        info.put("hits", r.hits);
+        info.put("misses", r.misses());
+        if (r.mode == BatchLookup.Mode.REMOVE) info.put("removed", r.removed);
+        info.put("seconds", r.elapsedNanos / 1e9);
+        info.put("probesPerSecond", r.probesPerSecond());
+        info.put("threads", r.threads);
+        if (r.filter != null) {
+            info.put("bloomBytes", r.filter.sizeInBytes());
+            info.put("bloomHashes", r.filter.hashCount());
+            info.put("bloomRejected", r.filtered);
+            info.put("bloomFalsePositives", r.falsePositives);
+        }
+        if (r.matchesFile != null) info.put("matchesFile", r.matchesFile.getPath());
+        info.put("sampleMatches", r.sampleMatches);
+        info.put("report", BatchLookup.report(r));
+        return info;
+    }
+
+    // Keys (and values for maps) from the imported CSV, or synthetic keys without one;
+    // read once and shared by --benchmark and --allocation. sampleValues stays null for
+    // single-column data.
+    private void loadSample() throws Exception {
+        if (sampleKeys != null) return;
+        boolean keyValue = requirements.traits().contains(CollectionRegistry.Trait.KEY_VALUE);
+        sampleKeys = new ArrayList<>();
+        sampleValues = keyValue && importFile != null ? new ArrayList<>() : null;
+        if (importFile != null) {
+            EmpiricalAdvisor.sampleCsv(importFile, keyValue, sample, sampleKeys, sampleValues);
+        } else {
+            sampleKeys.addAll(EmpiricalAdvisor.syntheticKeys(sample, 42));
+        }
+    }
+
+    private Map<String, Object> benchmark(PrintStream stderr) throws Exception {
+        loadSample();
+        List<String> keys = sampleKeys;
+        List<String> values = sampleValues;
+        EmpiricalAdvisor.Workload workload = mix != null ? mix : requirements.workload();
+        List<String> candidates = EmpiricalAdvisor.candidates(requirements.traits(), EmpiricalAdvisor.profile(keys));
+        EmpiricalAdvisor advisor = new EmpiricalAdvisor(keys, values, workload)
+            .trialMillis(trialMillis).rankBy(rankBy);
+        List<EmpiricalAdvisor.Trial> trials = advisor.run(candidates, (name, index, total) -> {
+            if (!quiet) stderr.println("Trial " + (index + 1) + " of " + total + ": " + name);
+        });
+
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("workload", workload.toText());
+        info.put("sample", keys.size());
+        info.put("rankBy", rankBy.name().toLowerCase(Locale.ROOT));
+        List<Object> ranking = new ArrayList<>();
+        for (EmpiricalAdvisor.Trial t : trials) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("className", t.className);
+            entry.put("opsPerSecond", t.opsPerSecond);
+            entry.put("p50Nanos", t.p50Nanos);
+            entry.put("p99Nanos", t.p99Nanos);
+            entry.put("retainedBytes", t.retainedBytes);
+            if (t.allocatedBytesPerOp >= 0) entry.put("allocatedBytesPerOp", t.allocatedBytesPerOp);
+            ranking.add(entry);
+        }
+        info.put("trials", ranking);
+        info.put("report", EmpiricalAdvisor.report(trials, workload, keys.size()));
+        return info;
+    }
+
+    private Map<String, Object> allocation(PrintStream stderr) throws Exception {
+        if (!AllocationProfiler.isSupported()) {
+            throw new IllegalStateException("--allocation needs a JVM that reports per-thread allocation");
+        }
+        loadSample();
+        List<String> keys = sampleKeys;
+        List<String> values = sampleValues;
+        EmpiricalAdvisor.Workload workload = mix != null ? mix : requirements.workload();
+        List<String> candidates = EmpiricalAdvisor.candidates(requirements.traits(), EmpiricalAdvisor.profile(keys));
+        List<AllocationProfiler.Profile> profiles = AllocationProfiler.rank(candidates, keys, values, workload,
+            (name, index, total) -> {
+                if (!quiet) stderr.println("Profile " + (index + 1) + " of " + total + ": " + name);
+            });
+
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("workload", workload.toText());
+        info.put("sample", keys.size());
+        List<Object> ranking = new ArrayList<>();
+        for (AllocationProfiler.Profile p : profiles) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("className", p.className);
+            entry.put("bytesPerOp", p.bytesPerOp(workload));
+            entry.put("insertBytes", p.insertBytes);
+            entry.put("entryBytes", p.entryBytes);
+            entry.put("containsBytes", p.containsBytes);
+            entry.put("removeBytes", p.removeBytes);
+            entry.put("iterateBytes", p.iterateBytes);
+            entry.put("youngGcs", p.gc.youngCount);
+            entry.put("oldGcs", p.gc.oldCount);
+            ranking.add(entry);
+        }
+        info.put("profiles", ranking);
+        info.put("report", AllocationProfiler.report(profiles, workload, keys.size()));
+        return info;
+    }
+
+    private Map<String, Object> replay(PrintStream stderr) throws Exception {
+        WorkloadTrace trace = logPattern != null
+            ? WorkloadTrace.fromAccessLog(replayFile, logPattern)
+            : WorkloadTrace.read(replayFile);
+        List<String> candidates = TraceReplayer.candidates(trace);
+        candidates.addAll(replayClasses);
+        TraceReplayer replayer = new TraceReplayer(trace).trialMillis(trialMillis);
+        List<TraceReplayer.Result> results = replayer.run(candidates, (name, index, total) -> {
+            if (!quiet) stderr.println("Replay " + (index + 1) + " of " + total + ": " + name);
+        });
+
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("file", replayFile.getPath());
+        info.put("operations", trace.size());
+        List<Object> ranking = new ArrayList<>();
+        for (TraceReplayer.Result r : results) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("className", r.className);
+            if (r.failed()) {
+                entry.put("error", r.error);
+            } else {
+                entry.put("opsPerSecond", r.opsPerSecond);
+                entry.put("p50Nanos", r.latency.percentile(50));
+                entry.put("p99Nanos", r.latency.percentile(99));
+                entry.put("p999Nanos", r.latency.percentile(99.9));
+                entry.put("maxNanos", r.latency.max);
+                if (r.bytesPerOp >= 0) {
+                    entry.put("bytesPerOp", r.bytesPerOp);
+                    entry.put("allocationMBPerSecond", r.allocationMBPerSecond);
+                }
+            }
+            ranking.add(entry);
+        }
+        info.put("results", ranking);
+        info.put("report", TraceReplayer.report(results, trace));
+        return info;
+    }
+
+    // Key requests come from the replay trace when there is one, else from the CSV keys
+    // in file order
+    private Map<String, Object> cacheSimulation(PrintStream stderr) throws Exception {
+        List<String> requests;
+        String source;
+        if (replayFile != null) {
+            WorkloadTrace trace = logPattern != null
+                ? WorkloadTrace.fromAccessLog(replayFile, logPattern)
+                : WorkloadTrace.read(replayFile);
+            requests = CacheSimulator.requests(trace);
+            source = replayFile.getPath();
+        } else if (importFile != null) {
+            requests = CacheSimulator.requests(importFile, sample);
+            source = importFile.getPath();
+        } else {
+            throw new IllegalArgumentException("--cache-sim needs --replay or --import");
+        }
+        CacheSimulator simulator = new CacheSimulator(requests, cacheCapacity)
+            .ttlMillis(ttlMillis).requestsPerSecond(requestRate);
+        List<CacheSimulator.Result> results = simulator.run(CacheSimulator.candidates(), (name, index, total) -> {
+            if (!quiet) stderr.println("Simulation " + (index + 1) + " of " + total + ": " + name);
+        });
+        long optimal = simulator.optimalHits();
+
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("source", source);
+        info.put("requests", requests.size());
+        info.put("capacity", cacheCapacity);
+        info.put("ttlMs", ttlMillis);
+        info.put("requestRate", requestRate);
+        info.put("optimalHitRatio", optimal / (double) requests.size());
+        List<Object> ranking = new ArrayList<>();
+        for (CacheSimulator.Result r : results) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("className", r.className);
+            entry.put("hits", r.hits);
+            entry.put("hitRatio", r.hitRatio());
+            entry.put("opsPerSecond", r.opsPerSecond);
+            ranking.add(entry);
+        }
+        info.put("results", ranking);
+        info.put("report", CacheSimulator.report(results, simulator, optimal));
+        return info;
+    }
+
+    private String render(Map<String, Object> result) {
+        switch (format) {
+            case "json":
+                return Json.write(withoutReports(result)) + "\n";
+            case "csv": {
+                StringBuilder sb = new StringBuilder("field,value\n");
+                flatten("", withoutReports(result), sb);
+                return sb.toString();
+            }
+            default:
+                return text(result);
+        }
+    }
+
+    // The human-readable report texts only belong in text output
+    @SuppressWarnings("unchecked")
+    private static Object withoutReports(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                if (!entry.getKey().equals("report")) copy.put(entry.getKey(), withoutReports(entry.getValue()));
+            }
+            return copy;
+        }
+        if (value instanceof List && !((List<?>) value).isEmpty() && ((List<?>) value).get(0) instanceof Map) {
+            List<Object> copy = new ArrayList<>();
+            for (Object item : (List<?>) value) copy.add(withoutReports(item));
+            return copy;
+        }
+        return value;
+    }
+
+    // Nested fields become dotted names; lists of objects get an index, e.g. trials.0.className
+    private static void flatten(String prefix, Object value, StringBuilder sb) {
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                flatten(prefix.isEmpty() ? String.valueOf(entry.getKey()) : prefix + "." + entry.getKey(),
+                    entry.getValue(), sb);
+            }
+        } else if (value instanceof List && !((List<?>) value).isEmpty() && ((List<?>) value).get(0) instanceof Map) {
+            List<?> list = (List<?>) value;
+            for (int i = 0; i < list.size(); i++) flatten(prefix + "." + i, list.get(i), sb);
+        } else {
+            String text = value instanceof List ? String.join(";", toStrings((List<?>) value)) : String.valueOf(value);
+            sb.append(csvField(prefix)).append(',').append(csvField(text)).append('\n');
+        }
+    }
+
+    private static List<String> toStrings(List<?> list) {
+        List<String> strings = new ArrayList<>(list.size());
+        for (Object item : list) strings.add(String.valueOf(item));
+        return strings;
+    }
+
+    private static String csvField(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) return text;
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String text(Map<String, Object> result) {
+        StringBuilder sb = new StringBuilder();
+        List<String> flags = (List<String>) result.get("requirements");
+        sb.append("Requirements: ").append(flags.isEmpty() ? "(none)" : String.join(", ", flags)).append("\n");
+        sb.append("Recommended collection: ").append(result.get("recommendation")).append("\n");
+        if (!result.get("collection").equals(result.get("recommendation"))) {
+            sb.append("Using: ").append(result.get("collection")).append("\n");
+        }
+        sb.append("Traits: ").append(result.get("traits")).append("\n");
+
+        Map<String, Object> imported = (Map<String, Object>) result.get("import");
+        if (imported != null) {
+            sb.append(String.format("%nImported %,d rows from %s (%,d elements) in %.2f s, %,.0f rows/s, %.1f MB/s%n",
+                (Long) imported.get("rows"), imported.get("file"), (Integer) imported.get("size"),
+                (Double) imported.get("seconds"), (Double) imported.get("rowsPerSecond"),
+                (Double) imported.get("megabytesPerSecond")));
+            if (imported.containsKey("allocatedBytes")) {
+                sb.append(String.format("Allocated %s, %d young GCs (%d ms), %d old/full GCs (%d ms)%n",
+                    EmpiricalAdvisor.formatBytes((Long) imported.get("allocatedBytes")),
+                    (Long) imported.get("youngGcs"), (Long) imported.get("youngGcPauseMillis"),
+                    (Long) imported.get("oldGcs"), (Long) imported.get("oldGcPauseMillis")));
+            }
+            if (imported.containsKey("bulkBuildSummary")) sb.append(imported.get("bulkBuildSummary")).append("\n");
+            if (imported.containsKey("dedupSummary")) sb.append(imported.get("dedupSummary")).append("\n");
+            if (imported.containsKey("primitiveAlternative")) {
+                sb.append("All keys are integers; ").append(imported.get("primitiveAlternative"))
+                    .append(" would store them without boxing\n");
+            }
+            for (Object item : (List<Object>) result.get("latency")) {
+                Map<String, Object> row = (Map<String, Object>) item;
+                sb.append(String.format("   %-14s %,10d ops  p50 %s  p99 %s  p99.9 %s  max %s%n",
+                    row.get("operation"), (Long) row.get("count"),
+                    LatencyHistogram.formatNanos((Long) row.get("p50Nanos")),
+                    LatencyHistogram.formatNanos((Long) row.get("p99Nanos")),
+                    LatencyHistogram.formatNanos((Long) row.get("p999Nanos")),
+                    LatencyHistogram.formatNanos((Long) row.get("maxNanos"))));
+            }
+        }
+
+        Map<String, Object> footprint = (Map<String, Object>) result.get("footprint");
+        if (footprint != null) sb.append("\n").append(footprint.get("report"));
+
+        Map<String, Object> hashDiagnostics = (Map<String, Object>) result.get("hashDiagnostics");
+        if (hashDiagnostics != null) sb.append("\n").append(hashDiagnostics.get("report"));
+
+        Map<String, Object> search = (Map<String, Object>) result.get("search");
+        if (search != null) sb.append("\n").append(search.get("report"));
+
+        Map<String, Object> batch = (Map<String, Object>) result.get("batch");
+        if (batch != null) sb.append("\n").append(batch.get("report"));
+
+        Map<String, Object> follow = (Map<String, Object>) result.get("follow");
+        if (follow != null) sb.append("\n").append(follow.get("report"));
+
+        Map<String, Object> benchmark = (Map<String, Object>) result.get("benchmark");
+        if (benchmark != null) sb.append("\n").append(benchmark.get("report"));
+
+        Map<String, Object> allocation = (Map<String, Object>) result.get("allocation");
+        if (allocation != null) sb.append("\n").append(allocation.get("report"));
+
+        Map<String, Object> replay = (Map<String, Object>) result.get("replay");
+        if (replay != null) sb.append("\n").append(replay.get("report"));
+
+        Map<String, Object> cacheSimulation = (Map<String, Object>) result.get("cacheSimulation");
+        if (cacheSimulation != null) sb.append("\n").append(cacheSimulation.get("report"));
+        return sb.toString();
+    }
+}
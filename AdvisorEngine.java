@@ -0,0 +1,397 @@
+import java.util.*;
+
+// Headless core of the advisor: requirement flags, the recommendation rules and CSV
+// import into a live collection. Nothing here touches AWT, so the Swing window and the
+// command line (AdvisorCli) share the same decisions.
+public class AdvisorEngine {
+
+    public enum ReadWriteMix { READ_MOSTLY, MIXED, WRITE_HEAVY }
+
+    public static class Requirements {
+        public boolean maintainOrder;
+        public boolean allowDuplicates;
+        public boolean fastSearch;
+        public boolean fastInsertion;
+        public boolean fastDeletion;
+        public boolean keyValue;
+        public boolean threadSafe;
+        public boolean sorted;
+        public boolean largeDataset;
+        public boolean highContention;
+        // A cache: bounded size with eviction, and optionally entries that expire
+        public boolean bounded;
+        public boolean expiring;
+        public ReadWriteMix readWriteMix = ReadWriteMix.MIXED;
+
+        // Comma-separated flags as accepted by --requirements, e.g. "sorted,kv,thread-safe"
+        public static Requirements parse(String flags) {
+            Requirements r = new Requirements();
+            for (String flag : flags.split(",")) {
+                if (!flag.trim().isEmpty()) r.set(flag.trim(), true);
+            }
+            return r;
+        }
+
+        public void set(String flag, boolean on) {
+            switch (flag.toLowerCase(Locale.ROOT)) {
+                case "order": case "ordered": case "insertion-order": case "maintainorder":
+                    maintainOrder = on; break;
+                case "duplicates": case "allowduplicates":
+                    allowDuplicates = on; break;
+                case "search": case "fast-search": case "fastsearch":
+                    fastSearch = on; break;
+                case "insert": case "fast-insert": case "fastinsertion":
+                    fastInsertion = on; break;
+                case "delete": case "fast-delete": case "fastdeletion":
+                    fastDeletion = on; break;
+                case "kv": case "key-value": case "map": case "keyvalue":
+                    keyValue = on; break;
+                case "thread-safe": case "threadsafe": case "concurrent":
+                    threadSafe = on; break;
+                case "sorted":
+                    sorted = on; break;
+                case "large": case "off-heap": case "largedataset":
+                    largeDataset = on; break;
+                case "many-threads": case "highcontention":
+                    highContention = on; break;
+                case "cache": case "bounded":
+                    bounded = on; break;
+                case "ttl": case "expiring": case "expiry":
+                    expiring = on; break;
+                case "read-mostly":
+                    readWriteMix = on ? ReadWriteMix.READ_MOSTLY : ReadWriteMix.MIXED; break;
+                case "write-heavy":
+                    readWriteMix = on ? ReadWriteMix.WRITE_HEAVY : ReadWriteMix.MIXED; break;
+                default:
+                    throw new IllegalArgumentException("Unknown requirement: " + flag);
+            }
+        }
+
+        public List<String> flags() {
+            List<String> flags = new ArrayList<>();
+            if (maintainOrder) flags.add("ordered");
+            if (allowDuplicates) flags.add("duplicates");
+            if (fastSearch) flags.add("search");
+            if (fastInsertion) flags.add("insert");
+            if (fastDeletion) flags.add("delete");
+            if (keyValue) flags.add("kv");
+            if (threadSafe) flags.add("thread-safe");
+            if (sorted) flags.add("sorted");
+            if (largeDataset) flags.add("large");
+            if (highContention) flags.add("many-threads");
+            if (bounded) flags.add("cache");
+            if (expiring) flags.add("ttl");
+            if (readWriteMix == ReadWriteMix.READ_MOSTLY) flags.add("read-mostly");
+            if (readWriteMix == ReadWriteMix.WRITE_HEAVY) flags.add("write-heavy");
+            return flags;
+        }
+
+        public Set<CollectionRegistry.Trait> traits() {
+            Set<CollectionRegistry.Trait> traits = EnumSet.noneOf(CollectionRegistry.Trait.class);
+            if (isCache()) {
+                traits.add(CollectionRegistry.Trait.KEY_VALUE);
+                traits.add(CollectionRegistry.Trait.BOUNDED);
+                if (expiring) traits.add(CollectionRegistry.Trait.EXPIRING);
+            } else if (keyValue) {
+                traits.add(CollectionRegistry.Trait.KEY_VALUE);
+            } else {
+                traits.add(allowDuplicates ? CollectionRegistry.Trait.DUPLICATES : CollectionRegistry.Trait.UNIQUE);
+            }
+            if (maintainOrder) traits.add(CollectionRegistry.Trait.INSERTION_ORDER);
+            if (sorted) traits.add(CollectionRegistry.Trait.SORTED);
+            if (threadSafe) traits.add(CollectionRegistry.Trait.THREAD_SAFE);
+            if (largeDataset) traits.add(CollectionRegistry.Trait.OFF_HEAP);
+            return traits;
+        }
+
+        // Expiry implies a bound; caches are always key-value
+        public boolean isCache() {
+            return bounded || expiring;
+        }
+
+        public EmpiricalAdvisor.Workload workload() {
+            return EmpiricalAdvisor.Workload.forPriorities(fastSearch, fastInsertion, fastDeletion);
+        }
+    }
+
+    public static String recommend(Requirements r) {
+        if (r.isCache()) return cacheClass(r);
+
+        // Map-based collections
+        if (r.keyValue) {
+            if (r.threadSafe) return concurrentMapClass(r);
+            // Read-mostly sorted data is loaded once and then searched: sorted arrays
+            // beat tree nodes on memory and lookup locality
+            if (r.sorted) return r.readWriteMix == ReadWriteMix.READ_MOSTLY ? "SortedArrayMap" : "TreeMap";
+            if (r.maintainOrder) return "LinkedHashMap";
+            if (r.largeDataset) return "OffHeapHashMap";
+            return "HashMap";
+        }
+
+        // Set-based collections
+        if (!r.allowDuplicates) {
+            if (r.threadSafe) return concurrentSetClass(r);
+            if (r.sorted) return "TreeSet";
+            if (r.maintainOrder) return "LinkedHashSet";
+            if (r.largeDataset) return "OffHeapHashSet";
+            return "HashSet";
+        }
+
+        // List-based collections
+        if (r.threadSafe) return concurrentListClass(r);
+        if (r.largeDataset) return "OffHeapList";
+        if (r.fastInsertion && r.fastDeletion) return "LinkedList";
+
+        return "ArrayList";
+    }
+
+    // Expiry needs the TTL cache, and shared caches the striped LRU. Otherwise frequency-
+    // aware W-TinyLFU, which survives scans and one-hit keys that flush an LRU, except
+    // where recency order is wanted or writes dominate and its sketch upkeep does not pay.
+    // The policy that wins depends on the key pattern, so check with CacheSimulator.
+    private static String cacheClass(Requirements r) {
+        if (r.expiring) return "TtlCache";
+        if (r.threadSafe) return "ConcurrentLruCache";
+        if (r.maintainOrder || r.readWriteMix == ReadWriteMix.WRITE_HEAVY) return "LruLinkedHashMap";
+        return "TinyLfuCache";
+    }
+
+    // Sorted maps go to the lock-free skip list unless many writers would contend on it,
+    // where hash-striped TreeMaps give writers separate locks. Insertion order needs the
+    // lock-free linked hash map rather than a LinkedHashMap behind one global lock.
+    private static String concurrentMapClass(Requirements r) {
+        if (r.sorted) return stripedUnderContention(r) ? "StripedTreeMap" : "ConcurrentSkipListMap";
+        if (r.maintainOrder) return "ConcurrentLinkedHashMap";
+        return "ConcurrentHashMap";
+    }
+
+    // Sets follow the map rules; small read-mostly ordered sets still do best as a
+    // copy-on-write array, whose reads never touch a shared node
+    private static String concurrentSetClass(Requirements r) {
+        if (r.sorted) return stripedUnderContention(r) ? "StripedTreeSet" : "ConcurrentSkipListSet";
+        if (r.maintainOrder) {
+            return r.readWriteMix == ReadWriteMix.READ_MOSTLY ? "CopyOnWriteArraySet" : "ConcurrentLinkedHashMap.newKeySet";
+        }
+        return "ConcurrentHashMap.newKeySet";
+    }
+
+    private static boolean stripedUnderContention(Requirements r) {
+        return r.readWriteMix == ReadWriteMix.WRITE_HEAVY && r.highContention;
+    }
+
+    // Read-mostly lists iterate without locking on a copy-on-write array; contended
+    // writers scale better on a lock-free linked deque than on Vector's single monitor
+    private static String concurrentListClass(Requirements r) {
+        if (r.readWriteMix == ReadWriteMix.READ_MOSTLY) return "CopyOnWriteArrayList";
+        if (r.highContention) return "ConcurrentLinkedDeque";
+        return "Vector";
+    }
+
+    public static class ImportResult {
+        public final CsvImporter.Stats stats;
+        public final CsvImporter.NumericProfile keyProfile;
+        // Set when a sorted collection was built in one pass from all rows (see importSorted)
+        public final boolean bulkBuilt;
+        public final boolean presorted;
+        public final long sortNanos;
+        public final long buildNanos;
+
+        ImportResult(CsvImporter.Stats stats, CsvImporter.NumericProfile keyProfile) {
+            this(stats, keyProfile, false, false, 0, 0);
+        }
+
+        ImportResult(CsvImporter.Stats stats, CsvImporter.NumericProfile keyProfile, boolean bulkBuilt,
+                     boolean presorted, long sortNanos, long buildNanos) {
+            this.stats = stats;
+            this.keyProfile = keyProfile;
+            this.bulkBuilt = bulkBuilt;
+            this.presorted = presorted;
+            this.sortNanos = sortNanos;
+            this.buildNanos = buildNanos;
+        }
+
+        public String bulkBuildSummary() {
+            if (!bulkBuilt) return null;
+            return presorted
+                ? String.format("Input already sorted; built in one pass in %.2f s", buildNanos / 1e9)
+                : String.format("Input sorted in %.2f s; built in one pass in %.2f s",
+                    sortNanos / 1e9, buildNanos / 1e9);
+        }
+    }
+
+    // Parses the file in parallel and merges each chunk with one bulk addAll/putAll.
+    // Chunks are merged in file order, so lists keep row order, LinkedHashMap/Set keep
+    // first-seen order and a repeated map key ends with its last value, exactly as a
+    // row-by-row import would. Only unordered thread-safe sets let the parse workers
+    // insert directly, since the result does not depend on which chunk lands first.
+    public static ImportResult importCsv(CsvImporter importer, CollectionOps ops,
+                                         CsvImporter.ProgressListener listener) throws Exception {
+        CsvImporter.NumericProfile keyProfile = new CsvImporter.NumericProfile();
+        if (buildsFromSorted(ops)) return importSorted(importer, ops, keyProfile, listener);
+        CsvImporter.ChunkHandler merge = ops.isKeyValue()
+            ? chunk -> ops.putAll(chunk.keys, chunk.values, chunk.count)
+            : chunk -> ops.addAll(chunk.keys, chunk.count);
+        CsvImporter.Stats stats = importer.runParallel(merge, !insertsInAnyOrder(ops), keyProfile, listener);
+        return new ImportResult(stats, keyProfile);
+    }
+
+    // TreeMap/TreeSet build a balanced tree in linear time from sorted input, but only
+    // when empty, and SortedArrayMap sorts each putAll once; either way one bulk call with
+    // every row beats a tree insert or an array merge per chunk
+    static boolean buildsFromSorted(CollectionOps ops) {
+        Object target = ops.target();
+        return (target instanceof TreeMap || target instanceof TreeSet || target instanceof SortedArrayMap)
+            && ops.size() == 0;
+    }
+
+    // Gathers every row, checks whether the keys already ascend (reference extracts
+    // usually do), sorts them with Arrays.parallelSort if not, drops repeated keys (the
+    // last value wins, as with put) and hands the result over in a single putAll/addAll.
+    // The rows are held twice while the tree is built, a reference per row on top of the
+    // strings themselves. A cancelled import builds from the rows read so far.
+    private static ImportResult importSorted(CsvImporter importer, CollectionOps ops,
+                                             CsvImporter.NumericProfile keyProfile,
+                                             CsvImporter.ProgressListener listener) throws Exception {
+        List<CsvImporter.Chunk> chunks = new ArrayList<>();
+        long[] rows = {0};
+        CsvImporter.Stats stats = importer.runParallel(chunk -> {
+            rows[0] += chunk.count;
+            if (rows[0] > Integer.MAX_VALUE - 8) throw new IllegalStateException("Too many rows for one sorted collection");
+            chunks.add(chunk);
+        }, true, keyProfile, listener);
+
+        int n = (int) rows[0];
+        boolean keyValue = ops.isKeyValue();
+        String[] keys = new String[n];
+        String[] values = keyValue ? new String[n] : null;
+        int offset = 0;
+        for (int c = 0; c < chunks.size(); c++) {
+            CsvImporter.Chunk chunk = chunks.set(c, null);
+            System.arraycopy(chunk.keys, 0, keys, offset, chunk.count);
+            if (keyValue) System.arraycopy(chunk.values, 0, values, offset, chunk.count);
+            offset += chunk.count;
+        }
+
+        Comparator<? super String> order = comparator(ops.target());
+        long start = System.nanoTime();
+        boolean presorted = nonDescending(keys, n, order);
+        if (!presorted) sortRows(keys, values, n, order);
+        n = collapseRepeats(keys, values, n, order);
+        long sorted = System.nanoTime();
+        if (keyValue) {
+            ops.putAll(keys, values, n);
+        } else {
+            ops.addAll(keys, n);
+        }
+        long built = System.nanoTime();
+        return new ImportResult(stats, keyProfile, true, presorted, presorted ? 0 : sorted - start, built - sorted);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparator<? super String> comparator(Object target) {
+        if (target instanceof SortedMap) return ((SortedMap<String, ?>) target).comparator();
+        if (target instanceof SortedSet) return ((SortedSet<String>) target).comparator();
+        return null;
+    }
+
+    private static int compare(String a, String b, Comparator<? super String> order) {
+        return order != null ? order.compare(a, b) : a.compareTo(b);
+    }
+
+    private static boolean nonDescending(String[] keys, int n, Comparator<? super String> order) {
+        for (int i = 1; i < n; i++) {
+            if (compare(keys[i - 1], keys[i], order) > 0) return false;
+        }
+        return true;
+    }
+
+    // Stable, so equal keys keep file order and collapseRepeats keeps the last value
+    @SuppressWarnings("unchecked")
+    private static void sortRows(String[] keys, String[] values, int n, Comparator<? super String> order) {
+        Comparator<String> byKey = order != null ? (Comparator<String>) order : Comparator.naturalOrder();
+        if (values == null) {
+            Arrays.parallelSort(keys, 0, n, byKey);
+            return;
+        }
+        SortedArrayMap.sortPairs(keys, values, n, (a, b) -> byKey.compare((String) a, (String) b));
+    }
+
+    // Keeps the first key object of each run of equal keys and, for maps, the last value
+    private static int collapseRepeats(String[] keys, String[] values, int n, Comparator<? super String> order) {
+        int w = 0;
+        for (int i = 0; i < n; i++) {
+            if (w > 0 && compare(keys[w - 1], keys[i], order) == 0) {
+                if (values != null) values[w - 1] = values[i];
+            } else {
+                keys[w] = keys[i];
+                if (values != null) values[w] = values[i];
+                w++;
+            }
+        }
+        Arrays.fill(keys, w, n, null);
+        if (values != null) Arrays.fill(values, w, n, null);
+        return w;
+    }
+
+    // Routes the strings of an import through dedup where a repeat is actually kept:
+    // every row of a list and every map value. A repeated set element or map key just
+    // replaces the earlier one, off-heap classes store bytes and primitive classes
+    // numbers, so those are left alone. False when nothing of this class would be shared.
+    public static boolean deduplicate(CsvImporter importer, String className, StringDeduplicator dedup) {
+        Set<CollectionRegistry.Trait> traits = CollectionRegistry.traits(className);
+        if (traits.contains(CollectionRegistry.Trait.OFF_HEAP)) return false;
+        boolean keys = traits.contains(CollectionRegistry.Trait.DUPLICATES)
+            && !traits.contains(CollectionRegistry.Trait.INT_KEYS) && !traits.contains(CollectionRegistry.Trait.LONG_KEYS);
+        boolean values = traits.contains(CollectionRegistry.Trait.KEY_VALUE);
+        if (!keys && !values) return false;
+        importer.deduplicate(keys ? dedup : null, values ? dedup : null);
+        return true;
+    }
+
+    // Makes room for additionalRows more elements before an import. Array-backed lists
+    // grow in place with ensureCapacity. A hash table is replaced by one sized for its
+    // current contents plus the new rows (copied across, in iteration order), so the
+    // import does one allocation instead of a doubling-and-rehash cycle every time the
+    // threshold is crossed. Classes with nothing to pre-size are returned unchanged.
+    @SuppressWarnings("unchecked")
+    public static Object presize(String name, Object instance, long additionalRows, float loadFactor) throws Exception {
+        if (additionalRows <= 0 || !CollectionRegistry.isSizable(name)) return instance;
+        int size = instance instanceof Map ? ((Map<?, ?>) instance).size() : ((Collection<?>) instance).size();
+        int expected = (int) Math.min(CollectionRegistry.MAX_PRESIZE, size + additionalRows);
+
+        if (instance instanceof ArrayList) {
+            ((ArrayList<?>) instance).ensureCapacity(expected);
+            return instance;
+        }
+        if (instance instanceof Vector) {
+            ((Vector<?>) instance).ensureCapacity(expected);
+            return instance;
+        }
+        if (instance instanceof IntArrayList) {
+            ((IntArrayList) instance).ensureCapacity(expected);
+            return instance;
+        }
+        if (instance instanceof OffHeapList) {
+            ((OffHeapList) instance).ensureCapacity(expected);
+            return instance;
+        }
+
+        Object sized = CollectionRegistry.newInstance(name, expected, loadFactor);
+        if (instance instanceof Map) {
+            ((Map<Object, Object>) sized).putAll((Map<?, ?>) instance);
+        } else {
+            ((Collection<Object>) sized).addAll((Collection<?>) instance);
+        }
+        return sized;
+    }
+
+    static boolean insertsInAnyOrder(CollectionOps ops) {
+        String name = CollectionRegistry.nameForClass(ops.target().getClass());
+        if (name == null) return false;
+        Set<CollectionRegistry.Trait> traits = CollectionRegistry.traits(name);
+        return traits.contains(CollectionRegistry.Trait.THREAD_SAFE)
+            && traits.contains(CollectionRegistry.Trait.UNIQUE)
+            && !traits.contains(CollectionRegistry.Trait.KEY_VALUE)
+            && !traits.contains(CollectionRegistry.Trait.INSERTION_ORDER);
+    }
+}
@@ -0,0 +1,278 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+// Allocation and GC pressure of collection operations. Per-operation costs come from the
+// per-thread allocation counter (com.sun.management.ThreadMXBean), so only the measuring
+// thread's own allocations count; GC activity comes from GarbageCollectorMXBean
+// notifications. Neither is part of the Java SE API: on a JVM without them the byte
+// counts are -1 and GC totals fall back to polling the collector beans.
+public class AllocationProfiler {
+
+    static final int OPS_PER_MEASUREMENT = 20_000;
+    private static final String GC_NOTIFICATION = "com.sun.management.gc.notification";
+
+    private static volatile long sink;
+
+    // Bytes allocated by this thread so far, or -1 if the JVM does not track it
+    public static long threadAllocatedBytes() {
+        com.sun.management.ThreadMXBean threads = hotspotThreads();
+        return threads != null ? threads.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    // Sum over all live threads, for work spread over a pool (e.g. a parallel import).
+    // Threads that exit in between drop out of the total, so this is a lower bound.
+    public static long totalAllocatedBytes() {
+        com.sun.management.ThreadMXBean threads = hotspotThreads();
+        if (threads == null) return -1;
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (bytes > 0) total += bytes;
+        }
+        return total;
+    }
+
+    public static boolean isSupported() {
+        return hotspotThreads() != null;
+    }
+
+    private static com.sun.management.ThreadMXBean hotspotThreads() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+        if (!hotspot.isThreadAllocatedMemorySupported() || !hotspot.isThreadAllocatedMemoryEnabled()) return null;
+        return hotspot;
+    }
+
+    // Collections that ended between start() and stop(). Young (minor) and old/full
+    // collections are told apart by the notification's GC action; concurrent cycles
+    // that do not stop the application are counted with the old ones.
+    public static class GcStats {
+        public final long youngCount;
+        public final long youngPauseMillis;
+        public final long oldCount;
+        public final long oldPauseMillis;
+
+        GcStats(long youngCount, long youngPauseMillis, long oldCount, long oldPauseMillis) {
+            this.youngCount = youngCount;
+            this.youngPauseMillis = youngPauseMillis;
+            this.oldCount = oldCount;
+            this.oldPauseMillis = oldPauseMillis;
+        }
+
+        public String summary() {
+            return String.format("%d young GC%s (%d ms), %d old/full GC%s (%d ms)",
+                youngCount, youngCount == 1 ? "" : "s", youngPauseMillis,
+                oldCount, oldCount == 1 ? "" : "s", oldPauseMillis);
+        }
+    }
+
+    public static class GcWatch implements NotificationListener {
+        private final List<NotificationEmitter> emitters = new ArrayList<>();
+        private final Map<GarbageCollectorMXBean, long[]> polled = new LinkedHashMap<>();
+        private final AtomicLong youngCount = new AtomicLong();
+        private final AtomicLong youngMillis = new AtomicLong();
+        private final AtomicLong oldCount = new AtomicLong();
+        private final AtomicLong oldMillis = new AtomicLong();
+        private GcStats stopped;
+
+        private GcWatch() {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (gc instanceof NotificationEmitter) {
+                    NotificationEmitter emitter = (NotificationEmitter) gc;
+                    emitter.addNotificationListener(this, null, null);
+                    emitters.add(emitter);
+                } else {
+                    polled.put(gc, new long[] {gc.getCollectionCount(), gc.getCollectionTime()});
+                }
+            }
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!GC_NOTIFICATION.equals(notification.getType())) return;
+            CompositeData data = (CompositeData) notification.getUserData();
+            String action = String.valueOf(data.get("gcAction"));
+            long duration = (Long) ((CompositeData) data.get("gcInfo")).get("duration");
+            if (action.contains("minor")) {
+                youngCount.incrementAndGet();
+                youngMillis.addAndGet(duration);
+            } else {
+                oldCount.incrementAndGet();
+                oldMillis.addAndGet(duration);
+            }
+        }
+
+        // Idempotent; later calls return the first result
+        public synchronized GcStats stop() {
+            if (stopped != null) return stopped;
+            for (NotificationEmitter emitter : emitters) {
+                try {
+                    emitter.removeNotificationListener(this);
+                } catch (javax.management.ListenerNotFoundException ignored) {
+                }
+            }
+            long young = youngCount.get(), youngTime = youngMillis.get();
+            long old = oldCount.get(), oldTime = oldMillis.get();
+            for (Map.Entry<GarbageCollectorMXBean, long[]> entry : polled.entrySet()) {
+                GarbageCollectorMXBean gc = entry.getKey();
+                long count = gc.getCollectionCount() - entry.getValue()[0];
+                long time = gc.getCollectionTime() - entry.getValue()[1];
+                if (isYoungCollector(gc.getName())) {
+                    young += count;
+                    youngTime += time;
+                } else {
+                    old += count;
+                    oldTime += time;
+                }
+            }
+            stopped = new GcStats(young, youngTime, old, oldTime);
+            return stopped;
+        }
+    }
+
+    public static GcWatch watchGc() {
+        return new GcWatch();
+    }
+
+    private static boolean isYoungCollector(String name) {
+        String n = name.toLowerCase(Locale.ROOT);
+        return n.contains("young") || n.contains("scavenge") || n.contains("copy")
+            || n.contains("parnew") || n.contains("minor");
+    }
+
+    // Bytes allocated per operation for one class, measured on a fresh instance with
+    // pre-built keys, so the numbers are the structure's own cost: entry/node objects,
+    // table growth, boxing, iterators. entryBytes inserts into an instance pre-sized
+    // for the sample, which leaves the per-element node plus, for java.util hash
+    // tables, their lazily allocated bucket array (0 for array-backed lists, whose
+    // slots are preallocated). iterateBytes is per element visited.
+    public static class Profile {
+        public final String className;
+        public final double insertBytes;
+        public final double entryBytes;
+        public final double containsBytes;
+        public final double removeBytes;
+        public final double iterateBytes;
+        public final GcStats gc;
+
+        Profile(String className, double insertBytes, double entryBytes, double containsBytes,
+                double removeBytes, double iterateBytes, GcStats gc) {
+            this.className = className;
+            this.insertBytes = insertBytes;
+            this.entryBytes = entryBytes;
+            this.containsBytes = containsBytes;
+            this.removeBytes = removeBytes;
+            this.iterateBytes = iterateBytes;
+            this.gc = gc;
+        }
+
+        // Average allocation per operation under the workload's get/put/remove mix
+        public double bytesPerOp(EmpiricalAdvisor.Workload workload) {
+            int total = workload.getPct + workload.putPct + workload.removePct;
+            return (workload.getPct * containsBytes + workload.putPct * insertBytes
+                + workload.removePct * removeBytes) / total;
+        }
+    }
+
+    public static Profile profile(String className, List<String> keys, List<String> values) throws Exception {
+        if (!isSupported()) throw new UnsupportedOperationException("This JVM does not report per-thread allocation");
+        int n = Math.min(keys.size(), OPS_PER_MEASUREMENT);
+        if (n == 0) throw new IllegalArgumentException("Sample contains no rows");
+        String[] k = keys.subList(0, n).toArray(new String[0]);
+        String[] v = values != null ? values.subList(0, n).toArray(new String[0]) : k;
+        GcWatch watch = watchGc();
+        try {
+            // Warm the call sites so JIT and class-loading allocations stay out of the numbers
+            for (int round = 0; round < 3; round++) insertAll(CollectionOps.of(CollectionRegistry.newInstance(className)), k, v, n);
+
+            // Cost of reading the counter itself, subtracted from every measurement
+            long calibration = threadAllocatedBytes();
+            long overhead = threadAllocatedBytes() - calibration;
+            CollectionOps ops = CollectionOps.of(CollectionRegistry.newInstance(className));
+            long before = threadAllocatedBytes();
+            insertAll(ops, k, v, n);
+            double insert = perOp(threadAllocatedBytes() - before, overhead, n);
+
+            CollectionOps sized = CollectionOps.of(
+                CollectionRegistry.newInstance(className, n, CollectionRegistry.DEFAULT_LOAD_FACTOR));
+            before = threadAllocatedBytes();
+            insertAll(sized, k, v, n);
+            double entry = perOp(threadAllocatedBytes() - before, overhead, n);
+
+            long hits = 0;
+            before = threadAllocatedBytes();
+            for (int i = 0; i < n; i++) {
+                if (ops.contains(k[i])) hits++;
+            }
+            double contains = perOp(threadAllocatedBytes() - before, overhead, n);
+
+            before = threadAllocatedBytes();
+            long sum = 0;
+            Object target = ops.target();
+            for (Object item : target instanceof Map ? ((Map<?, ?>) target).entrySet() : (Iterable<?>) target) {
+                sum += item.hashCode();
+            }
+            double iterate = perOp(threadAllocatedBytes() - before, overhead, n);
+
+            before = threadAllocatedBytes();
+            for (int i = 0; i < n; i++) {
+                if (ops.remove(k[i])) hits++;
+            }
+            double remove = perOp(threadAllocatedBytes() - before, overhead, n);
+
+            sink += hits + sum;
+            return new Profile(className, insert, entry, contains, remove, iterate, watch.stop());
+        } finally {
+            watch.stop();
+        }
+    }
+
+    private static void insertAll(CollectionOps ops, String[] keys, String[] values, int n) {
+        if (ops.isKeyValue()) {
+            for (int i = 0; i < n; i++) ops.put(keys[i], values[i]);
+        } else {
+            for (int i = 0; i < n; i++) ops.add(keys[i]);
+        }
+    }
+
+    private static double perOp(long allocated, long overhead, int n) {
+        return Math.max(0, allocated - overhead) / (double) n;
+    }
+
+    // Profiles every candidate, least allocation under the workload first. Interrupting
+    // the calling thread stops after the class being measured.
+    public static List<Profile> rank(List<String> candidates, List<String> keys, List<String> values,
+                                     EmpiricalAdvisor.Workload workload, EmpiricalAdvisor.Listener listener) throws Exception {
+        List<Profile> profiles = new ArrayList<>();
+        for (int c = 0; c < candidates.size() && !Thread.currentThread().isInterrupted(); c++) {
+            if (listener != null) listener.trialStarted(candidates.get(c), c, candidates.size());
+            profiles.add(profile(candidates.get(c), keys, values));
+        }
+        profiles.sort(Comparator.comparingDouble(p -> p.bytesPerOp(workload)));
+        return profiles;
+    }
+
+    public static String report(List<Profile> profiles, EmpiricalAdvisor.Workload workload, int sampleSize) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Allocation profile (bytes per operation)\n");
+        sb.append("Workload: ").append(workload).append("\n");
+        sb.append(String.format("Sample: %,d rows\n\n", Math.min(sampleSize, OPS_PER_MEASUREMENT)));
+        int rank = 1;
+        for (Profile p : profiles) {
+            sb.append(String.format("%d. %s  -  %,.1f B/op under this mix\n", rank++, p.className, p.bytesPerOp(workload)));
+            sb.append(String.format("   insert %,.1f  |  per entry (pre-sized) %,.1f  |  contains %,.1f  |  remove %,.1f  |  iterate %,.1f\n",
+                p.insertBytes, p.entryBytes, p.containsBytes, p.removeBytes, p.iterateBytes));
+            if (p.gc.youngCount + p.gc.oldCount > 0) sb.append("   ").append(p.gc.summary()).append("\n");
+        }
+        if (!profiles.isEmpty()) {
+            sb.append("\nLeast allocation: ").append(profiles.get(0).className).append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,308 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+// Checks or removes a batch of probe keys (a file with one key per line, or a list)
+// against a loaded collection and counts hits and misses. The file is parsed in
+// parallel chunks by CsvImporter; lookups run on the same worker threads when the class
+// tolerates concurrent readers, and removals when it is thread-safe, otherwise the
+// chunks are applied one at a time on the calling thread. An optional Bloom filter over
+// the collection rejects most misses before they reach it, which pays off when, as in
+// reconciliation jobs, most probes miss. Lists are indexed in a temporary HashSet first,
+// since List.contains() is a linear scan.
+public class BatchLookup {
+
+    public static final int DEFAULT_SAMPLE_MATCHES = 10;
+    private static final int LIST_CHUNK = 64 << 10;
+
+    public enum Mode { LOOKUP, REMOVE }
+
+    public static class Result {
+        public final String className;
+        public final Mode mode;
+        public final long probes;
+        public final long hits;
+        // Probes the Bloom filter rejected without a lookup
+        public final long filtered;
+        // Probes the filter let through that then missed; in REMOVE mode this includes
+        // repeats of a key an earlier probe removed
+        public final long falsePositives;
+        // Elements removed; for lists every occurrence of a matching key goes
+        public final long removed;
+        public final long elapsedNanos;
+        public final int threads;
+        public final boolean cancelled;
+        public final List<String> sampleMatches;
+        public final BloomFilter filter;
+        public final long filterBuildNanos;
+        public final File matchesFile;
+
+        Result(String className, Mode mode, long probes, long hits, long filtered, long falsePositives,
+               long removed, long elapsedNanos, int threads, boolean cancelled, List<String> sampleMatches,
+               BloomFilter filter, long filterBuildNanos, File matchesFile) {
+            this.className = className;
+            this.mode = mode;
+            this.probes = probes;
+            this.hits = hits;
+            this.filtered = filtered;
+            this.falsePositives = falsePositives;
+            this.removed = removed;
+            this.elapsedNanos = elapsedNanos;
+            this.threads = threads;
+            this.cancelled = cancelled;
+            this.sampleMatches = sampleMatches;
+            this.filter = filter;
+            this.filterBuildNanos = filterBuildNanos;
+            this.matchesFile = matchesFile;
+        }
+
+        public long misses() {
+            return probes - hits;
+        }
+
+        public double probesPerSecond() {
+            return elapsedNanos == 0 ? 0 : probes / (elapsedNanos / 1e9);
+        }
+    }
+
+    private final String className;
+    private final Object collection;
+    private final CollectionOps ops;
+    // Int/long-keyed classes parse probes, so "007" and "+8" find 7 and 8
+    private final boolean numericKeys;
+    private BloomFilter filter;
+    private long filterBuildNanos;
+    private File matchesFile;
+    private int sampleLimit = DEFAULT_SAMPLE_MATCHES;
+    private volatile CsvImporter importer;
+    private volatile boolean cancelled;
+
+    // Per-run state
+    private Mode mode;
+    private Set<String> listIndex;
+    private Set<String> listRemovals;
+    private Writer matchesOut;
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong filtered = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+    private final List<String> sample = Collections.synchronizedList(new ArrayList<>());
+
+    public BatchLookup(String className, Object collection) {
+        this.className = className;
+        this.collection = collection;
+        this.ops = CollectionOps.of(collection);
+        Set<CollectionRegistry.Trait> traits = CollectionRegistry.traits(className);
+        this.numericKeys = traits.contains(CollectionRegistry.Trait.INT_KEYS)
+            || traits.contains(CollectionRegistry.Trait.LONG_KEYS);
+    }
+
+    // Builds the filter over the collection's current contents
+    public BatchLookup bloomFilter(double falsePositiveRate) {
+        long start = System.nanoTime();
+        filter = BloomFilter.of(collection, falsePositiveRate);
+        filterBuildNanos = System.nanoTime() - start;
+        return this;
+    }
+
+    // Every matching key (key,value for maps) is also written here, one per line
+    public BatchLookup matchesFile(File file) {
+        this.matchesFile = file;
+        return this;
+    }
+
+    public BatchLookup sampleLimit(int limit) {
+        this.sampleLimit = limit;
+        return this;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        CsvImporter current = importer;
+        if (current != null) current.cancel();
+    }
+
+    // Unsynchronized java.util classes are safe to read from many threads as long as
+    // nobody writes. Caches reorder or count on every get, and off-heap classes share
+    // decoding buffers, so they are read from one thread unless thread-safe.
+    static boolean parallelReads(String className) {
+        Set<CollectionRegistry.Trait> traits = CollectionRegistry.traits(className);
+        if (traits.contains(CollectionRegistry.Trait.THREAD_SAFE)) return true;
+        return !traits.contains(CollectionRegistry.Trait.BOUNDED) && !traits.contains(CollectionRegistry.Trait.OFF_HEAP);
+    }
+
+    private boolean isList() {
+        return collection instanceof List;
+    }
+
+    private boolean parallel(Mode mode) {
+        if (isList()) return true;
+        return mode == Mode.LOOKUP ? parallelReads(className)
+            : CollectionRegistry.traits(className).contains(CollectionRegistry.Trait.THREAD_SAFE);
+    }
+
+    public Result run(File probeFile, Mode mode, CsvImporter.ProgressListener listener) throws Exception {
+        boolean parallel = parallel(mode);
+        return execute(mode, parallel, () -> {
+            importer = new CsvImporter(probeFile, false);
+            if (cancelled) importer.cancel();
+            CsvImporter.Stats stats = importer.runParallel(chunk -> check(chunk.keys, 0, chunk.count),
+                !parallel, null, listener);
+            if (stats.cancelled) cancelled = true;
+        });
+    }
+
+    public Result run(List<String> probeKeys, Mode mode) throws Exception {
+        boolean parallel = parallel(mode);
+        String[] keys = probeKeys.toArray(new String[0]);
+        return execute(mode, parallel, () -> {
+            int chunks = (keys.length + LIST_CHUNK - 1) / LIST_CHUNK;
+            IntStream range = IntStream.range(0, chunks);
+            (parallel ? range.parallel() : range).forEach(c -> {
+                if (cancelled) return;
+                try {
+                    check(keys, c * LIST_CHUNK, Math.min(keys.length, (c + 1) * LIST_CHUNK));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        });
+    }
+
+    private interface Pass {
+        void run() throws Exception;
+    }
+
+    private Result execute(Mode mode, boolean parallel, Pass pass) throws Exception {
+        this.mode = mode;
+        probes.set(0);
+        hits.set(0);
+        filtered.set(0);
+        falsePositives.set(0);
+        sample.clear();
+        long start = System.nanoTime();
+        int sizeBefore = ops.size();
+        if (isList()) {
+            listIndex = new HashSet<>();
+            for (Object element : (List<?>) collection) listIndex.add(String.valueOf(element));
+            listRemovals = mode == Mode.REMOVE ? ConcurrentHashMap.newKeySet() : null;
+        }
+
+        try (Writer out = matchesFile != null
+                ? new BufferedWriter(new OutputStreamWriter(new FileOutputStream(matchesFile), StandardCharsets.UTF_8), 1 << 16)
+                : null) {
+            matchesOut = out;
+            try {
+                pass.run();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        } finally {
+            matchesOut = null;
+        }
+
+        if (listRemovals != null && !cancelled) {
+            Set<String> removals = listRemovals;
+            ((List<?>) collection).removeIf(element -> removals.contains(String.valueOf(element)));
+        }
+        listIndex = null;
+        listRemovals = null;
+
+        long removed = mode == Mode.REMOVE ? sizeBefore - ops.size() : 0;
+        int threads = parallel ? ForkJoinPool.commonPool().getParallelism() : 1;
+        return new Result(className, mode, probes.get(), hits.get(), filtered.get(), falsePositives.get(), removed,
+            System.nanoTime() - start, threads, cancelled, new ArrayList<>(sample), filter, filterBuildNanos,
+            matchesFile);
+    }
+
+    // keys[from..to); with several columns only the first is the key
+    private void check(String[] keys, int from, int to) throws IOException {
+        StringBuilder matches = matchesOut != null ? new StringBuilder() : null;
+        long hit = 0, skipped = 0, falsePositive = 0;
+        for (int i = from; i < to; i++) {
+            String key = keys[i];
+            int comma = key.indexOf(',');
+            if (comma >= 0) key = key.substring(0, comma).trim();
+            // The filter and the list index hold the canonical String.valueOf() form
+            if (numericKeys) {
+                if (!CsvImporter.NumericProfile.isLong(key)) continue;
+                key = Long.toString(Long.parseLong(key));
+            }
+            if (filter != null && !filter.mightContain(key)) {
+                skipped++;
+                continue;
+            }
+            String match = probe(key);
+            if (match == null) {
+                if (filter != null) falsePositive++;
+                continue;
+            }
+            hit++;
+            if (matches != null) matches.append(match).append('\n');
+            if (sample.size() < sampleLimit) {
+                synchronized (sample) {
+                    if (sample.size() < sampleLimit) sample.add(match);
+                }
+            }
+        }
+        probes.addAndGet(to - from);
+        hits.addAndGet(hit);
+        filtered.addAndGet(skipped);
+        falsePositives.addAndGet(falsePositive);
+        if (matches != null && matches.length() > 0) {
+            synchronized (matchesOut) {
+                matchesOut.write(matches.toString());
+            }
+        }
+    }
+
+    // The matching entry as a line (key,value for maps), or null on a miss
+    private String probe(String key) {
+        if (listIndex != null) {
+            if (!listIndex.contains(key)) return null;
+            // A key an earlier probe already removed is a miss, as for every other class
+            if (listRemovals != null && !listRemovals.add(key)) return null;
+            return key;
+        }
+        if (ops.isKeyValue()) {
+            Object value = mode == Mode.REMOVE ? ops.removeKey(key) : ops.get(key);
+            return value != null ? key + "," + value : null;
+        }
+        boolean found = mode == Mode.REMOVE ? ops.remove(key) : ops.contains(key);
+        return found ? key : null;
+    }
+
+    public static String report(Result r) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(r.mode == Mode.REMOVE ? "Batch remove: " : "Batch lookup: ").append(r.className).append("\n");
+        sb.append(String.format("Probes: %,d in %.2f s (%s probes/s, %s)%s\n", r.probes, r.elapsedNanos / 1e9,
+            ConcurrentLoadTest.formatOps(r.probesPerSecond()), r.threads == 1 ? "1 thread" : r.threads + " threads",
+            r.cancelled ? "  |  cancelled" : ""));
+        sb.append(String.format("Hits: %,d (%.2f%%)  |  misses: %,d\n", r.hits,
+            r.probes == 0 ? 0.0 : 100.0 * r.hits / r.probes, r.misses()));
+        if (r.mode == Mode.REMOVE) sb.append(String.format("Removed: %,d elements\n", r.removed));
+        if (r.filter != null) {
+            sb.append(String.format("Bloom filter: %s, %d hashes, built in %.2f s, %.2f%% expected false positives\n",
+                EmpiricalAdvisor.formatBytes(r.filter.sizeInBytes()), r.filter.hashCount(), r.filterBuildNanos / 1e9,
+                100 * r.filter.expectedFalsePositiveRate()));
+            if (r.mode == Mode.REMOVE) {
+                // The filter cannot forget removed keys, so a repeated probe passes it too
+                sb.append(String.format("   %,d misses rejected without a lookup, %,d passed it and missed"
+                    + " (false positives or keys already removed)\n", r.filtered, r.falsePositives));
+            } else {
+                sb.append(String.format("   %,d misses rejected without a lookup, %,d false positives (%.2f%% of misses)\n",
+                    r.filtered, r.falsePositives, r.misses() == 0 ? 0.0 : 100.0 * r.falsePositives / r.misses()));
+            }
+        }
+        if (r.matchesFile != null) sb.append("Matches written to ").append(r.matchesFile.getPath()).append("\n");
+        if (!r.sampleMatches.isEmpty()) {
+            sb.append(r.hits > r.sampleMatches.size() ? "First matches:\n" : "Matches:\n");
+            for (String match : r.sampleMatches) sb.append("   ").append(match).append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.*;
+
+// Bloom filter over strings: a bit array and k hash functions. mightContain() never
+// says false for a key that was added, and says true for a key that was not with about
+// the configured probability, so a false answer lets a lookup skip the collection
+// entirely. Sized from the expected number of keys; adding many more than that raises
+// the false-positive rate. Adds are not thread-safe; once built, any number of threads
+// may query it.
+public class BloomFilter {
+
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+    private static final long MAX_BITS = (long) Integer.MAX_VALUE * Long.SIZE;
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private long added;
+
+    public BloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        long n = Math.max(1, expectedKeys);
+        // m = -n ln p / (ln 2)^2 bits and k = (m / n) ln 2 hashes minimize the rate
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2));
+        m = Math.min(MAX_BITS, Math.max(Long.SIZE, (m + Long.SIZE - 1) / Long.SIZE * Long.SIZE));
+        bits = new long[(int) (m / Long.SIZE)];
+        bitCount = m;
+        hashCount = (int) Math.max(1, Math.min(16, Math.round((double) m / n * ln2)));
+    }
+
+    // Filter over the elements of a collection, or the keys of a map, as strings
+    public static BloomFilter of(Object collection, double falsePositiveRate) {
+        Iterable<?> keys = collection instanceof Map ? ((Map<?, ?>) collection).keySet() : (Iterable<?>) collection;
+        long size = collection instanceof Map ? ((Map<?, ?>) collection).size()
+            : collection instanceof Collection ? ((Collection<?>) collection).size() : 0;
+        BloomFilter filter = new BloomFilter(size, falsePositiveRate);
+        for (Object key : keys) filter.add(String.valueOf(key));
+        return filter;
+    }
+
+    public void add(String key) {
+        long h = hash64(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        added++;
+    }
+
+    public boolean mightContain(String key) {
+        long h = hash64(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    public long sizeInBytes() {
+        return (long) bits.length * Long.BYTES;
+    }
+
+    // False-positive rate for the keys actually added: (1 - e^(-kn/m))^k
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashCount * (double) added / bitCount), hashCount);
+    }
+
+    // FNV-1a over the UTF-16 chars with a 64-bit avalanche; the two halves seed the
+    // k indexes by double hashing (Kirsch-Mitzenmacher)
+    static long hash64(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
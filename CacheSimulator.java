@@ -0,0 +1,209 @@
+import java.util.*;
+import java.util.function.LongSupplier;
+
+// Replays a sequence of key requests against bounded caches as a read-through cache: each
+// request is a get, and a miss loads the key with a put. Reports the hit ratio and
+// requests per second of every policy at the same capacity, next to the best any policy
+// could do (Belady's optimal eviction, which knows the future). Time-to-live runs on a
+// simulated clock that advances one request interval per request, so expiry behaves as
+// it would at the given request rate however fast the simulation runs.
+public class CacheSimulator {
+
+    public static final double DEFAULT_REQUESTS_PER_SECOND = 1_000;
+
+    public static class Result {
+        public final String className;
+        public final long requests;
+        public final long hits;
+        public final double opsPerSecond;
+
+        Result(String className, long requests, long hits, double opsPerSecond) {
+            this.className = className;
+            this.requests = requests;
+            this.hits = hits;
+            this.opsPerSecond = opsPerSecond;
+        }
+
+        public double hitRatio() {
+            return requests == 0 ? 0 : hits / (double) requests;
+        }
+    }
+
+    private final List<String> keys;
+    private final int capacity;
+    private long ttlMillis = TtlCache.DEFAULT_TTL_MILLIS;
+    private double requestsPerSecond = DEFAULT_REQUESTS_PER_SECOND;
+    private volatile boolean cancelled;
+
+    public CacheSimulator(List<String> keys, int capacity) {
+        if (keys.isEmpty()) throw new IllegalArgumentException("Key trace contains no requests");
+        LruLinkedHashMap.checkCapacity(capacity);
+        this.keys = keys;
+        this.capacity = capacity;
+    }
+
+    public CacheSimulator ttlMillis(long millis) {
+        if (millis <= 0) throw new IllegalArgumentException("TTL must be positive: " + millis);
+        this.ttlMillis = millis;
+        return this;
+    }
+
+    // Simulated arrival rate, which only matters for expiring caches
+    public CacheSimulator requestsPerSecond(double rate) {
+        if (!(rate > 0)) throw new IllegalArgumentException("Request rate must be positive: " + rate);
+        this.requestsPerSecond = rate;
+        return this;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // Every registered cache policy
+    public static List<String> candidates() {
+        List<String> names = new ArrayList<>();
+        for (String name : CollectionRegistry.names()) {
+            if (CollectionRegistry.isBounded(name)) names.add(name);
+        }
+        return names;
+    }
+
+    // The keys a trace looks up or writes, in order; removes, scans and clears are skipped
+    public static List<String> requests(WorkloadTrace trace) {
+        List<String> requests = new ArrayList<>(trace.size());
+        for (int i = 0; i < trace.size(); i++) {
+            if (trace.key(i) == null) continue;
+            switch (trace.op(i)) {
+                case GET: case CONTAINS: case PUT: case ADD:
+                    requests.add(trace.key(i));
+                    break;
+                default:
+            }
+        }
+        return requests;
+    }
+
+    // First column of up to limit CSV rows, in file order; any further columns are ignored
+    public static List<String> requests(java.io.File csv, int limit) throws Exception {
+        List<String> requests = new ArrayList<>();
+        CsvImporter importer = new CsvImporter(csv, false);
+        importer.run((line, unused) -> {
+            if (requests.size() >= limit) {
+                importer.cancel();
+                return;
+            }
+            int comma = line.indexOf(',');
+            String key = comma < 0 ? line : line.substring(0, comma).trim();
+            if (!key.isEmpty()) requests.add(key);
+        }, null);
+        return requests;
+    }
+
+    public List<Result> run(List<String> classNames, EmpiricalAdvisor.Listener listener) throws Exception {
+        // One untimed pass per class first, so the timed passes all run compiled code
+        for (String name : classNames) {
+            if (cancelled) break;
+            simulate(name, Math.min(keys.size(), 1 << 16));
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (int c = 0; c < classNames.size() && !cancelled; c++) {
+            String name = classNames.get(c);
+            if (listener != null) listener.trialStarted(name, c, classNames.size());
+            long start = System.nanoTime();
+            long hits = simulate(name, keys.size());
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (!cancelled) results.add(new Result(name, keys.size(), hits, keys.size() / seconds));
+        }
+        results.sort((a, b) -> {
+            int byHits = Long.compare(b.hits, a.hits);
+            return byHits != 0 ? byHits : Double.compare(b.opsPerSecond, a.opsPerSecond);
+        });
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private long simulate(String className, int requests) {
+        long[] now = {0};
+        long interval = (long) (1e9 / requestsPerSecond);
+        Map<String, String> cache = CollectionRegistry.traits(className).contains(CollectionRegistry.Trait.EXPIRING)
+            ? new TtlCache<>(capacity, ttlMillis, (LongSupplier) () -> now[0])
+            : (Map<String, String>) CollectionRegistry.newCache(className, capacity, ttlMillis);
+        long hits = 0;
+        for (int i = 0; i < requests; i++) {
+            if ((i & 0xfff) == 0 && cancelled) break;
+            now[0] += interval;
+            String key = keys.get(i);
+            if (cache.get(key) != null) {
+                hits++;
+            } else {
+                cache.put(key, key);
+            }
+        }
+        return hits;
+    }
+
+    // Hits under Belady's policy: on a miss with the cache full, evict the entry whose
+    // next request is furthest away. A key needed later than everything cached, or never
+    // again, is not cached at all, since admission policies like TinyLFU may also skip
+    // keys. No real policy can beat it.
+    public long optimalHits() {
+        int n = keys.size();
+        int[] nextUse = new int[n];
+        Map<String, Integer> seen = new HashMap<>();
+        for (int i = n - 1; i >= 0; i--) {
+            Integer next = seen.put(keys.get(i), i);
+            nextUse[i] = next != null ? next : Integer.MAX_VALUE;
+        }
+        // Cached keys by their next request; positions are unique, so are the keys here
+        TreeMap<Integer, String> byNextUse = new TreeMap<>();
+        long hits = 0;
+        for (int i = 0; i < n; i++) {
+            String key = keys.get(i);
+            int next = nextUse[i];
+            if (byNextUse.remove(i) != null) {
+                hits++;
+            } else if (next == Integer.MAX_VALUE
+                    || byNextUse.size() == capacity && byNextUse.lastKey() < next) {
+                continue;
+            } else if (byNextUse.size() == capacity) {
+                byNextUse.pollLastEntry();
+            }
+            if (next != Integer.MAX_VALUE) byNextUse.put(next, key);
+        }
+        return hits;
+    }
+
+    public static String report(List<Result> results, CacheSimulator simulator, long optimalHits) {
+        StringBuilder sb = new StringBuilder();
+        int distinct = new HashSet<>(simulator.keys).size();
+        sb.append("Cache simulation\n");
+        sb.append(String.format("Requests: %,d (%,d distinct keys), capacity %,d entries\n",
+            simulator.keys.size(), distinct, simulator.capacity));
+        sb.append(String.format("TTL %,d ms at %,.0f requests/s (TtlCache only)\n\n",
+            simulator.ttlMillis, simulator.requestsPerSecond));
+        if (results.isEmpty()) {
+            sb.append("No simulation completed.\n");
+            return sb.toString();
+        }
+        int rank = 1;
+        for (Result r : results) {
+            sb.append(String.format("%d. %s\n   hit ratio %.2f%%  (%,d hits)  |  %,.0f requests/s\n",
+                rank++, r.className, 100 * r.hitRatio(), r.hits, r.opsPerSecond));
+        }
+        sb.append(String.format("\nOptimal (Belady) hit ratio: %.2f%%\n", 100.0 * optimalHits / simulator.keys.size()));
+        sb.append(String.format("Every first request misses: at most %.2f%% with unlimited capacity\n",
+            100.0 * (simulator.keys.size() - distinct) / simulator.keys.size()));
+        sb.append("Best hit ratio: ").append(results.get(0).className).append("\n");
+        Result fastest = results.get(0);
+        for (Result r : results) {
+            if (r.opsPerSecond > fastest.opsPerSecond) fastest = r;
+        }
+        sb.append("Highest throughput: ").append(fastest.className).append("\n");
+        return sb.toString();
+    }
+}
@@ -2,7 +2,6 @@ import javax.swing.*;
 import javax.swing.border.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.lang.reflect.*;
 import java.util.*;
 import java.util.List;
 import java.io.*;
@@ -12,13 +11,34 @@ public class CollectionAdvisor extends JFrame {
     // UI Components
     private JPanel mainPanel, requirementsPanel, resultPanel, methodsPanel;
     private JCheckBox maintainOrder, allowDuplicates, fastSearch, fastInsertion,
-            fastDeletion, keyValuePairs, threadSafe, sortedOrder;
-    private JButton analyzeBtn, resetBtn, exportBtn;
+            fastDeletion, keyValuePairs, threadSafe, sortedOrder, largeDataset, boundedCache, expiringEntries;
+    private JComboBox<String> readWriteMix, contentionLevel;
+    private JTextField expectedSizeField, loadFactorField, ttlField;
+    private JCheckBox dedupStrings;
+    private JButton analyzeBtn, empiricalBtn, resetBtn, exportBtn;
     private JLabel classNameLabel, collectionSizeLabel;
     private JTextArea detailsArea;
     private Object collectionInstance;
+    private CollectionOps collectionOps;
+    // Bare adapter over collectionInstance; collectionOps wraps it for timing and tracing
+    private CollectionOps baseOps;
+    // Prefix/range/fuzzy indexes over collectionInstance, built on first search
+    private KeySearchIndex searchIndex;
     private JScrollPane methodsScrollPane;
     private JPanel statsPanel;
+    private JLabel retainedValue, perElementValue, structureValue, loadFactorValue, wastedValue, footprintNote;
+    private int measuredSize = -1;
+    private final LatencyRecorder latency = new LatencyRecorder();
+    private JPanel latencyPanel;
+    private javax.swing.table.DefaultTableModel latencyModel;
+    // Trace being recorded from the operation buttons (null when not recording) and the
+    // most recent finished one, offered for replay
+    private WorkloadTrace recording, lastTrace;
+    private JButton recordBtn;
+    // Tail-follow of a growing CSV into collectionInstance, and its status refresh
+    private CsvFollower follower;
+    private javax.swing.Timer followTimer;
+    private JButton followBtn;
 
     // Modern Color Palette
     private final Color PRIMARY_COLOR = new Color(99, 102, 241);
@@ -120,7 +140,7 @@ public class CollectionAdvisor extends JFrame {
         panel.setLayout(new BorderLayout(0, 20));
 
         // Checkboxes
-        JPanel checkboxPanel = new JPanel(new GridLayout(8, 1, 0, 12));
+        JPanel checkboxPanel = new JPanel(new GridLayout(11, 1, 0, 12));
         checkboxPanel.setOpaque(false);
 
         maintainOrder = createStyledCheckbox(" Maintain Insertion Order");
@@ -131,30 +151,110 @@ public class CollectionAdvisor extends JFrame {
         keyValuePairs = createStyledCheckbox(" Store Key-Value Pairs");
         threadSafe = createStyledCheckbox(" Thread Safe");
         sortedOrder = createStyledCheckbox(" Sorted Order");
+        largeDataset = createStyledCheckbox(" Large Dataset (Off-Heap)");
+        largeDataset.setToolTipText("Keep the data in native memory so it can outgrow the Java heap");
+        boundedCache = createStyledCheckbox(" Bounded Cache (Evicts Entries)");
+        boundedCache.setToolTipText("Hold at most Expected Size entries and evict the rest");
+        expiringEntries = createStyledCheckbox(" Entries Expire (TTL)");
+        expiringEntries.setToolTipText("Drop entries a fixed time after they were written");
 
         JCheckBox[] boxes = {maintainOrder, allowDuplicates, fastSearch, fastInsertion,
-                fastDeletion, keyValuePairs, threadSafe, sortedOrder};
+                fastDeletion, keyValuePairs, threadSafe, sortedOrder, largeDataset, boundedCache, expiringEntries};
 
         for (JCheckBox box : boxes) {
             checkboxPanel.add(box);
         }
 
+        // Concurrency inputs, only meaningful with "Thread Safe"
+        JPanel concurrencyPanel = new JPanel(new GridLayout(2, 2, 10, 8));
+        concurrencyPanel.setOpaque(false);
+        readWriteMix = createStyledCombo(new String[] {"Read-mostly", "Mixed", "Write-heavy"}, 1);
+        contentionLevel = createStyledCombo(new String[] {"Few threads", "Many threads"}, 0);
+        concurrencyPanel.add(createInputLabel("Read/Write Mix"));
+        concurrencyPanel.add(readWriteMix);
+        concurrencyPanel.add(createInputLabel("Contention"));
+        concurrencyPanel.add(contentionLevel);
+        for (JCheckBox box : new JCheckBox[] {threadSafe, boundedCache, sortedOrder, keyValuePairs}) {
+            box.addItemListener(e -> updateConcurrencyInputs());
+        }
+        updateConcurrencyInputs();
+
+        // Sizing inputs; a blank expected size is estimated from the CSV on import. For a
+        // cache the expected size is its capacity.
+        JPanel sizingPanel = new JPanel(new GridLayout(4, 2, 10, 8));
+        sizingPanel.setOpaque(false);
+        expectedSizeField = createStyledField("");
+        expectedSizeField.setToolTipText("Elements to pre-size for (a cache's capacity); leave blank to estimate from the CSV file");
+        loadFactorField = createStyledField(String.valueOf(CollectionRegistry.DEFAULT_LOAD_FACTOR));
+        loadFactorField.setToolTipText("Hash table fill ratio before it resizes, between 0 and 1");
+        sizingPanel.add(createInputLabel("Expected Size"));
+        sizingPanel.add(expectedSizeField);
+        sizingPanel.add(createInputLabel("Load Factor"));
+        sizingPanel.add(loadFactorField);
+        ttlField = createStyledField(String.valueOf(TtlCache.DEFAULT_TTL_MILLIS));
+        ttlField.setToolTipText("Milliseconds an entry lives after it was written");
+        sizingPanel.add(createInputLabel("Cache TTL (ms)"));
+        sizingPanel.add(ttlField);
+        expiringEntries.addItemListener(e -> ttlField.setEnabled(expiringEntries.isSelected()));
+        ttlField.setEnabled(false);
+        dedupStrings = createStyledCheckbox(" Deduplicate");
+        dedupStrings.setToolTipText("Share one String between repeated list elements or map values when importing a CSV");
+        sizingPanel.add(createInputLabel("Import Strings"));
+        sizingPanel.add(dedupStrings);
+
+        JPanel optionsPanel = new JPanel(new BorderLayout(0, 8));
+        optionsPanel.setOpaque(false);
+        optionsPanel.add(concurrencyPanel, BorderLayout.NORTH);
+        optionsPanel.add(sizingPanel, BorderLayout.SOUTH);
+
+        JPanel inputPanel = new JPanel(new BorderLayout(0, 16));
+        inputPanel.setOpaque(false);
+        inputPanel.add(checkboxPanel, BorderLayout.CENTER);
+        inputPanel.add(optionsPanel, BorderLayout.SOUTH);
+
         // Buttons
-        JPanel buttonPanel = new JPanel(new GridLayout(1, 2, 15, 0));
+        JPanel buttonPanel = new JPanel(new GridLayout(1, 3, 15, 0));
         buttonPanel.setOpaque(false);
         buttonPanel.setBorder(new EmptyBorder(20, 0, 0, 0));
 
         analyzeBtn = createStyledButton("Analyze", PRIMARY_COLOR);
         analyzeBtn.addActionListener(e -> analyzeRequirements());
 
+        empiricalBtn = createStyledButton("Empirical", PRIMARY_DARK);
+        empiricalBtn.setToolTipText("Rank candidates by running trials on a sample of your data");
+        empiricalBtn.addActionListener(e -> analyzeEmpirically());
+
         resetBtn = createStyledButton("Reset", TEXT_SECONDARY);
         resetBtn.addActionListener(e -> resetForm());
 
         buttonPanel.add(analyzeBtn);
+        buttonPanel.add(empiricalBtn);
         buttonPanel.add(resetBtn);
 
-        panel.add(checkboxPanel, BorderLayout.CENTER);
-        panel.add(buttonPanel, BorderLayout.SOUTH);
+        // Snapshots: save the loaded collection, or reload one without re-parsing CSV
+        JPanel snapshotPanel = new JPanel(new GridLayout(1, 2, 15, 0));
+        snapshotPanel.setOpaque(false);
+        snapshotPanel.setBorder(new EmptyBorder(10, 0, 0, 0));
+
+        exportBtn = createStyledButton("Save Snapshot", ACCENT_COLOR);
+        exportBtn.setToolTipText("Write the current collection to a binary snapshot file");
+        exportBtn.addActionListener(e -> saveSnapshot());
+        exportBtn.setEnabled(false);
+
+        JButton loadBtn = createStyledButton("Load Snapshot", ACCENT_COLOR);
+        loadBtn.setToolTipText("Reload a collection saved with Save Snapshot");
+        loadBtn.addActionListener(e -> loadSnapshot());
+
+        snapshotPanel.add(exportBtn);
+        snapshotPanel.add(loadBtn);
+
+        JPanel actionsPanel = new JPanel(new BorderLayout());
+        actionsPanel.setOpaque(false);
+        actionsPanel.add(buttonPanel, BorderLayout.NORTH);
+        actionsPanel.add(snapshotPanel, BorderLayout.SOUTH);
+
+        panel.add(inputPanel, BorderLayout.CENTER);
+        panel.add(actionsPanel, BorderLayout.SOUTH);
 
         return panel;
     }
@@ -208,13 +308,171 @@ public class CollectionAdvisor extends JFrame {
         methodsScrollPane.setVisible(false);
         methodsScrollPane.getViewport().setBackground(CARD_COLOR);
 
+        // Heap footprint of the live collection, filled in by "Measure Footprint"
+        statsPanel = createStatsPanel();
+        statsPanel.setVisible(false);
+
+        JPanel centerPanel = new JPanel(new BorderLayout(0, 10));
+        centerPanel.setOpaque(false);
+        centerPanel.add(detailsScroll, BorderLayout.CENTER);
+        // Operation latency percentiles, refreshed while operations run
+        latencyPanel = createLatencyPanel();
+        latencyPanel.setVisible(false);
+
+        JPanel diagnosticsPanel = new JPanel(new BorderLayout(0, 10));
+        diagnosticsPanel.setOpaque(false);
+        diagnosticsPanel.add(statsPanel, BorderLayout.NORTH);
+        diagnosticsPanel.add(latencyPanel, BorderLayout.SOUTH);
+        centerPanel.add(diagnosticsPanel, BorderLayout.SOUTH);
+
         panel.add(headerPanel, BorderLayout.NORTH);
-        panel.add(detailsScroll, BorderLayout.CENTER);
+        panel.add(centerPanel, BorderLayout.CENTER);
         panel.add(methodsScrollPane, BorderLayout.SOUTH);
 
         return panel;
     }
 
+    private JPanel createStatsPanel() {
+        JPanel panel = new JPanel(new BorderLayout(0, 8));
+        panel.setBackground(CARD_COLOR);
+        panel.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createTitledBorder(
+                BorderFactory.createLineBorder(BORDER_COLOR),
+                "Heap Footprint",
+                TitledBorder.LEFT,
+                TitledBorder.TOP,
+                new Font("Segoe UI", Font.BOLD, 12),
+                TEXT_SECONDARY),
+            new EmptyBorder(5, 10, 10, 10)));
+
+        JPanel grid = new JPanel(new GridLayout(0, 4, 10, 6));
+        grid.setOpaque(false);
+        retainedValue = addStat(grid, "Retained heap");
+        perElementValue = addStat(grid, "Per element");
+        structureValue = addStat(grid, "Structure / payload");
+        loadFactorValue = addStat(grid, "Load factor");
+        wastedValue = addStat(grid, "Wasted capacity");
+
+        footprintNote = new JLabel("Not measured yet");
+        footprintNote.setFont(new Font("Segoe UI", Font.ITALIC, 12));
+        footprintNote.setForeground(TEXT_SECONDARY);
+
+        JButton measureBtn = createMethodButton("# Measure Footprint", new Color(20, 184, 166));
+        measureBtn.setToolTipText("Walk the collection and report retained bytes per element");
+        measureBtn.addActionListener(e -> measureFootprint());
+
+        JPanel footer = new JPanel(new BorderLayout(10, 0));
+        footer.setOpaque(false);
+        footer.add(footprintNote, BorderLayout.CENTER);
+        footer.add(measureBtn, BorderLayout.EAST);
+
+        panel.add(grid, BorderLayout.CENTER);
+        panel.add(footer, BorderLayout.SOUTH);
+        return panel;
+    }
+
+    private JPanel createLatencyPanel() {
+        JPanel panel = new JPanel(new BorderLayout(0, 8));
+        panel.setBackground(CARD_COLOR);
+        panel.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createTitledBorder(
+                BorderFactory.createLineBorder(BORDER_COLOR),
+                "Operation Latency",
+                TitledBorder.LEFT,
+                TitledBorder.TOP,
+                new Font("Segoe UI", Font.BOLD, 12),
+                TEXT_SECONDARY),
+            new EmptyBorder(5, 10, 10, 10)));
+
+        latencyModel = new javax.swing.table.DefaultTableModel(
+                new Object[] {"Collection", "Operation", "Count", "p50", "p99", "p99.9", "Max"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable table = new JTable(latencyModel);
+        table.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        table.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 12));
+        table.setRowHeight(20);
+        table.setPreferredScrollableViewportSize(new Dimension(0, 110));
+        JScrollPane tableScroll = new JScrollPane(table);
+        tableScroll.setBorder(BorderFactory.createLineBorder(BORDER_COLOR));
+
+        JButton exportLatencyBtn = createMethodButton("Export CSV", PRIMARY_COLOR);
+        exportLatencyBtn.addActionListener(e -> exportLatency());
+        JButton resetLatencyBtn = createMethodButton("Reset", TEXT_SECONDARY);
+        resetLatencyBtn.addActionListener(e -> {
+            latency.clear();
+            refreshLatencyTable();
+        });
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+        buttons.setOpaque(false);
+        buttons.add(exportLatencyBtn);
+        buttons.add(resetLatencyBtn);
+
+        panel.add(tableScroll, BorderLayout.CENTER);
+        panel.add(buttons, BorderLayout.SOUTH);
+
+        // Bulk imports record on a worker thread, so poll rather than wait for an event
+        new javax.swing.Timer(1000, e -> {
+            if (latencyPanel.isShowing()) refreshLatencyTable();
+        }).start();
+        return panel;
+    }
+
+    private void refreshLatencyTable() {
+        List<LatencyRecorder.Row> rows = latency.rows();
+        latencyModel.setRowCount(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            LatencyRecorder.Row row = rows.get(i);
+            LatencyHistogram.Snapshot s = row.latency;
+            Object[] values = {
+                row.className, row.operation, String.format("%,d", s.totalCount),
+                LatencyHistogram.formatNanos(s.percentile(50)), LatencyHistogram.formatNanos(s.percentile(99)),
+                LatencyHistogram.formatNanos(s.percentile(99.9)), LatencyHistogram.formatNanos(s.max)
+            };
+            for (int c = 0; c < values.length; c++) {
+                if (!values[c].equals(latencyModel.getValueAt(i, c))) latencyModel.setValueAt(values[c], i, c);
+            }
+        }
+    }
+
+    private void exportLatency() {
+        if (latency.rows().isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No operations recorded yet.",
+                "Export Latency", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export Latency Percentiles");
+        chooser.setSelectedFile(new File("latency.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        try {
+            latency.exportCsv(chooser.getSelectedFile());
+            detailsArea.append("\nOperation latency:\n" + latency.report());
+            JOptionPane.showMessageDialog(this, "Latency percentiles exported to "
+                + chooser.getSelectedFile().getName(), "Export Latency", JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error writing file: " + e.getMessage(),
+                "Export Latency", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private JLabel addStat(JPanel grid, String name) {
+        JLabel label = new JLabel(name + ":");
+        label.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        label.setForeground(TEXT_SECONDARY);
+        JLabel value = new JLabel("-");
+        value.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        value.setForeground(TEXT_PRIMARY);
+        grid.add(label);
+        grid.add(value);
+        return value;
+    }
+
     private JPanel createCard(String title) {
         JPanel card = new JPanel();
         card.setBackground(CARD_COLOR);
@@ -242,6 +500,93 @@ public class CollectionAdvisor extends JFrame {
         return checkbox;
     }
 
+    private JComboBox<String> createStyledCombo(String[] options, int selected) {
+        JComboBox<String> combo = new JComboBox<>(options);
+        combo.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        combo.setBackground(CARD_COLOR);
+        combo.setSelectedIndex(selected);
+        return combo;
+    }
+
+    private JTextField createStyledField(String text) {
+        JTextField field = new JTextField(text);
+        field.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        return field;
+    }
+
+    private JLabel createInputLabel(String text) {
+        JLabel label = new JLabel(text);
+        label.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        label.setForeground(TEXT_SECONDARY);
+        return label;
+    }
+
+    // 0 when the field is blank, meaning "estimate from the data"
+    private int expectedSize() {
+        String text = expectedSizeField.getText().trim().replace(",", "").replace("_", "");
+        if (text.isEmpty()) return 0;
+        try {
+            int size = Integer.parseInt(text);
+            if (size >= 0) return size;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Expected size must be a whole number of elements: " + text);
+    }
+
+    private float loadFactor() {
+        float loadFactor;
+        try {
+            loadFactor = Float.parseFloat(loadFactorField.getText().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Load factor must be a number between 0 and 1");
+        }
+        CollectionRegistry.checkLoadFactor(loadFactor);
+        return loadFactor;
+    }
+
+    private long ttlMillis() {
+        String text = ttlField.getText().trim().replace(",", "").replace("_", "");
+        try {
+            long ttl = Long.parseLong(text);
+            if (ttl > 0) return ttl;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Cache TTL must be a positive number of milliseconds: " + text);
+    }
+
+    private int cacheCapacity() {
+        return expectedSize() > 0 ? expectedSize() : LruLinkedHashMap.DEFAULT_CAPACITY;
+    }
+
+    // The read/write mix also picks between cache policies and between TreeMap and
+    // SortedArrayMap
+    private void updateConcurrencyInputs() {
+        readWriteMix.setEnabled(threadSafe.isSelected() || boundedCache.isSelected()
+            || (sortedOrder.isSelected() && keyValuePairs.isSelected()));
+        contentionLevel.setEnabled(threadSafe.isSelected());
+    }
+
+    // Snapshot of the requirement inputs for the headless engine
+    private AdvisorEngine.Requirements requirements() {
+        AdvisorEngine.Requirements r = new AdvisorEngine.Requirements();
+        r.maintainOrder = maintainOrder.isSelected();
+        r.allowDuplicates = allowDuplicates.isSelected();
+        r.fastSearch = fastSearch.isSelected();
+        r.fastInsertion = fastInsertion.isSelected();
+        r.fastDeletion = fastDeletion.isSelected();
+        r.keyValue = keyValuePairs.isSelected();
+        r.threadSafe = threadSafe.isSelected();
+        r.sorted = sortedOrder.isSelected();
+        r.largeDataset = largeDataset.isSelected();
+        r.readWriteMix = AdvisorEngine.ReadWriteMix.values()[readWriteMix.getSelectedIndex()];
+        r.highContention = contentionLevel.getSelectedIndex() == 1;
+        r.bounded = boundedCache.isSelected();
+        r.expiring = expiringEntries.isSelected();
+        return r;
+    }
+
     private JButton createStyledButton(String text, Color bgColor) {
         JButton button = new JButton(text);
         button.setFont(new Font("Segoe UI", Font.BOLD, 14));
@@ -265,7 +610,7 @@ public class CollectionAdvisor extends JFrame {
     }
 
     private void analyzeRequirements() {
-        String className = determineCollectionClass();
+        String className = AdvisorEngine.recommend(requirements());
         if (className == null) {
             JOptionPane.showMessageDialog(this, 
                 "Please select at least one requirement", 
@@ -279,27 +624,118 @@ public class CollectionAdvisor extends JFrame {
         generateMethodButtons(className);
     }
 
-    private String determineCollectionClass() {
-        // Map-based collections
-        if (keyValuePairs.isSelected()) {
-            if (threadSafe.isSelected()) return "ConcurrentHashMap";
-            if (sortedOrder.isSelected()) return "TreeMap";
-            if (maintainOrder.isSelected()) return "LinkedHashMap";
-            return "HashMap";
+    private void analyzeEmpirically() {
+        AdvisorEngine.Requirements requirements = requirements();
+        Set<CollectionRegistry.Trait> required = requirements.traits();
+        EmpiricalAdvisor.Workload defaultMix = requirements.workload();
+
+        JRadioButton csvOption = new JRadioButton("Sample rows from a CSV file", true);
+        JRadioButton syntheticOption = new JRadioButton("Synthetic random keys");
+        ButtonGroup sourceGroup = new ButtonGroup();
+        sourceGroup.add(csvOption);
+        sourceGroup.add(syntheticOption);
+        JSpinner sampleSize = new JSpinner(new SpinnerNumberModel(100_000, 1_000, 5_000_000, 10_000));
+        JTextField mixField = new JTextField(defaultMix.toText());
+        JComboBox<String> rankCombo = new JComboBox<>(new String[]{"Throughput", "Allocation rate"});
+        Object[] message = {
+            "Data source:", csvOption, syntheticOption,
+            "Sample size (rows):", sampleSize,
+            "Workload mix (get / put / remove %):", mixField,
+            "Rank by:", rankCombo
+        };
+
+        int option = JOptionPane.showConfirmDialog(this, message,
+            "Empirical Analysis", JOptionPane.OK_CANCEL_OPTION);
+        if (option != JOptionPane.OK_OPTION) return;
+
+        EmpiricalAdvisor.Workload workload;
+        try {
+            workload = EmpiricalAdvisor.Workload.parse(mixField.getText());
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, "Invalid workload mix: " + e.getMessage(),
+                "Empirical Analysis", JOptionPane.ERROR_MESSAGE);
+            return;
         }
-        
-        // Set-based collections
-        if (!allowDuplicates.isSelected()) {
-            if (sortedOrder.isSelected()) return "TreeSet";
-            if (maintainOrder.isSelected()) return "LinkedHashSet";
-            return "HashSet";
+
+        File csvFile = null;
+        if (csvOption.isSelected()) {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle("Select CSV Sample");
+            if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            csvFile = chooser.getSelectedFile();
         }
-        
-        // List-based collections
-        if (threadSafe.isSelected()) return "Vector";
-        if (fastInsertion.isSelected() && fastDeletion.isSelected()) return "LinkedList";
-        
-        return "ArrayList";
+
+        boolean keyValue = required.contains(CollectionRegistry.Trait.KEY_VALUE);
+        int limit = (Integer) sampleSize.getValue();
+        EmpiricalAdvisor.Rank rankBy = rankCombo.getSelectedIndex() == 1
+            ? EmpiricalAdvisor.Rank.ALLOCATION : EmpiricalAdvisor.Rank.THROUGHPUT;
+        File source = csvFile;
+        EmpiricalAdvisor[] advisor = new EmpiricalAdvisor[1];
+        List<String> keys = new ArrayList<>();
+        List<String> values = keyValue && source != null ? new ArrayList<>() : null;
+
+        ProgressDialog progress = new ProgressDialog(this, "Empirical Analysis",
+            "Running trials on candidate collections");
+        progress.onCancel(() -> {
+            if (advisor[0] != null) advisor[0].cancel();
+        });
+
+        SwingWorker<List<EmpiricalAdvisor.Trial>, String> worker =
+            new SwingWorker<List<EmpiricalAdvisor.Trial>, String>() {
+                @Override
+                protected List<EmpiricalAdvisor.Trial> doInBackground() throws Exception {
+                    publish("Loading sample...");
+                    if (source != null) {
+                        EmpiricalAdvisor.sampleCsv(source, keyValue, limit, keys, values);
+                    } else {
+                        keys.addAll(EmpiricalAdvisor.syntheticKeys(limit, System.nanoTime()));
+                    }
+                    // Integer-only samples also bring in the primitive-specialized classes
+                    List<String> candidates = EmpiricalAdvisor.candidates(required,
+                        EmpiricalAdvisor.profile(keys));
+                    advisor[0] = new EmpiricalAdvisor(keys, values, workload).rankBy(rankBy);
+                    return advisor[0].run(candidates, (name, index, total) ->
+                        publish(index + "/" + total + "/" + name));
+                }
+
+                @Override
+                protected void process(List<String> chunks) {
+                    String[] latest = chunks.get(chunks.size() - 1).split("/", 3);
+                    if (latest.length < 3) {
+                        progress.setProgress(0, latest[0]);
+                        return;
+                    }
+                    int index = Integer.parseInt(latest[0]);
+                    int total = Integer.parseInt(latest[1]);
+                    progress.setProgress(index / (double) total,
+                        "Trial " + (index + 1) + " of " + total + ": " + latest[2]);
+                }
+
+                @Override
+                protected void done() {
+                    progress.dispose();
+                }
+            };
+        worker.execute();
+        progress.setVisible(true);
+
+        List<EmpiricalAdvisor.Trial> trials;
+        try {
+            trials = worker.get();
+        } catch (Exception e) {
+            Throwable cause = e instanceof java.util.concurrent.ExecutionException ? e.getCause() : e;
+            JOptionPane.showMessageDialog(this, "Error: " + cause.getMessage(),
+                "Empirical Analysis", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (trials.isEmpty()) return;
+
+        String winner = trials.get(0).className;
+        classNameLabel.setText(winner);
+        displayCollectionDetails(winner);
+        detailsArea.append("\n" + EmpiricalAdvisor.report(trials, workload, keys.size()));
+        detailsArea.setCaretPosition(0);
+        generateMethodButtons(winner);
     }
 
     private void displayCollectionDetails(String className) {
@@ -357,6 +793,12 @@ public class CollectionAdvisor extends JFrame {
                 details.append("• Operations O(log n)\n");
                 details.append("• No null keys allowed\n");
                 break;
+            case "SortedArrayMap":
+                details.append("• Sorted key and value arrays, binary search\n");
+                details.append("• Lookups O(log n), no per-entry nodes\n");
+                details.append("• Inserts/removes shift the arrays, O(n)\n");
+                details.append("• Best loaded in bulk and then read\n");
+                break;
             case "Vector":
                 details.append("• Synchronized ArrayList\n");
                 details.append("• Thread-safe operations\n");
@@ -369,37 +811,201 @@ public class CollectionAdvisor extends JFrame {
                 details.append("• High concurrency\n");
                 details.append("• No null keys/values\n");
                 break;
+            case "ConcurrentSkipListMap":
+                details.append("• Lock-free concurrent skip list\n");
+                details.append("• Sorted by keys, O(log n) operations\n");
+                details.append("• Scales with concurrent readers and writers\n");
+                details.append("• No null keys/values\n");
+                break;
+            case "StripedTreeMap":
+                details.append("• TreeMaps behind per-stripe read-write locks\n");
+                details.append("• Sorted iteration by merging the stripes\n");
+                details.append("• Writers to different stripes never block\n");
+                details.append("• No null keys/values\n");
+                break;
+            case "ConcurrentLinkedHashMap":
+                details.append("• Lock-free LinkedHashMap equivalent\n");
+                details.append("• Maintains insertion order\n");
+                details.append("• CAS updates, no global lock, O(1) operations\n");
+                details.append("• No null keys/values\n");
+                break;
+            case "ConcurrentHashMap.newKeySet":
+                details.append("• Thread-safe set view of a ConcurrentHashMap\n");
+                details.append("• Fast operations O(1)\n");
+                details.append("• High concurrency, unordered\n");
+                details.append("• No null elements\n");
+                break;
+            case "ConcurrentSkipListSet":
+                details.append("• Lock-free concurrent skip list\n");
+                details.append("• Sorted order, O(log n) operations\n");
+                details.append("• Scales with concurrent readers and writers\n");
+                details.append("• No null elements\n");
+                break;
+            case "ConcurrentLinkedHashMap.newKeySet":
+                details.append("• Set view of a ConcurrentLinkedHashMap\n");
+                details.append("• Maintains insertion order\n");
+                details.append("• Lock-free, fast operations O(1)\n");
+                details.append("• No null elements\n");
+                break;
+            case "StripedTreeSet":
+                details.append("• StripedTreeMap keys as a sorted set\n");
+                details.append("• Sorted iteration by merging the stripes\n");
+                details.append("• Writers to different stripes never block\n");
+                details.append("• No null elements\n");
+                break;
+            case "CopyOnWriteArraySet":
+                details.append("• Array copied on every write\n");
+                details.append("• Maintains insertion order\n");
+                details.append("• Lock-free reads, O(n) writes and lookups\n");
+                details.append("• Best for small, read-mostly sets\n");
+                break;
+            case "CopyOnWriteArrayList":
+                details.append("• Array copied on every write\n");
+                details.append("• Lock-free reads and iteration\n");
+                details.append("• O(n) writes\n");
+                details.append("• Best for read-mostly lists\n");
+                break;
+            case "ConcurrentLinkedDeque":
+                details.append("• Lock-free doubly-linked deque\n");
+                details.append("• O(1) add/remove at both ends\n");
+                details.append("• Scales with concurrent writers\n");
+                details.append("• No index access, O(n) search\n");
+                break;
+            case "IntArrayList":
+                details.append("• Primitive int[] backed list\n");
+                details.append("• 4 bytes per element, no boxing\n");
+                details.append("• Fast random access O(1)\n");
+                details.append("• Integer values only\n");
+                break;
+            case "LongHashSet":
+                details.append("• Open-addressing hash set of longs\n");
+                details.append("• 8 bytes per slot, no Node/Long objects\n");
+                details.append("• Fast operations O(1)\n");
+                details.append("• Integer values only, unordered\n");
+                break;
+            case "LongObjectHashMap":
+                details.append("• Open-addressing map with long keys\n");
+                details.append("• Parallel key/value arrays, no Node objects\n");
+                details.append("• Fast key-value operations O(1)\n");
+                details.append("• Integer keys only, unordered\n");
+                break;
+            case "OffHeapList":
+                details.append("• Strings stored in native memory slabs\n");
+                details.append("• Not scanned by the garbage collector\n");
+                details.append("• Random access O(1), decoded on read\n");
+                details.append("• Allows duplicates, no null\n");
+                break;
+            case "OffHeapHashSet":
+                details.append("• Open-addressing hash set in native memory\n");
+                details.append("• Not scanned by the garbage collector\n");
+                details.append("• Fast operations O(1)\n");
+                details.append("• No duplicates, unordered, no null\n");
+                break;
+            case "OffHeapHashMap":
+                details.append("• Open-addressing hash map in native memory\n");
+                details.append("• Not scanned by the garbage collector\n");
+                details.append("• Fast key-value operations O(1)\n");
+                details.append("• Unordered, no null keys\n");
+                break;
+            case "LruLinkedHashMap":
+                details.append("• Access-ordered LinkedHashMap with a size bound\n");
+                details.append("• Evicts the least recently used entry\n");
+                details.append("• Fast operations O(1)\n");
+                details.append("• Not thread-safe\n");
+                break;
+            case "ConcurrentLruCache":
+                details.append("• LRU caches behind per-segment locks\n");
+                details.append("• Evicts the least recently used entry of a segment\n");
+                details.append("• Thread-safe, fast operations O(1)\n");
+                details.append("• No null keys/values\n");
+                break;
+            case "TinyLfuCache":
+                details.append("• W-TinyLFU: LRU window plus segmented LRU main area\n");
+                details.append("• Admits new keys only if requested more often\n");
+                details.append("• Keeps popular keys through one-off scans\n");
+                details.append("• Not thread-safe, no null keys/values\n");
+                break;
+            case "TtlCache":
+                details.append("• Entries expire a fixed time after each write\n");
+                details.append("• Evicts the oldest write when full\n");
+                details.append("• Thread-safe through a single lock\n");
+                details.append("• No null keys/values\n");
+                break;
+        }
+
+        // Back the static characteristics with numbers from CollectionBenchmark, if run
+        File resultsFile = CollectionBenchmark.defaultResultsFile();
+        if (resultsFile.isFile()) {
+            try {
+                String measured = CollectionBenchmark.summarize(
+                    CollectionBenchmark.loadResults(resultsFile), className);
+                if (measured != null) {
+                    details.append("\n").append(measured);
+                }
+            } catch (IOException e) {
+                details.append("\nCould not read ").append(resultsFile.getName())
+                    .append(": ").append(e.getMessage()).append("\n");
+            }
         }
         
         detailsArea.setText(details.toString());
     }
 
     private void generateMethodButtons(String className) {
+        generateMethodButtons(className, null);
+    }
+
+    // instance is an already populated collection (a loaded snapshot), or null for a new one
+    private void generateMethodButtons(String className, Object instance) {
+        stopFollowing();
         methodsPanel.removeAll();
         
         try {
-            Class<?> clazz = getClassForName(className);
-            collectionInstance = clazz.getDeclaredConstructor().newInstance();
+            collectionInstance = instance != null ? instance
+                : CollectionRegistry.isBounded(className) ? CollectionRegistry.newCache(className, cacheCapacity(), ttlMillis())
+                : CollectionRegistry.newInstance(className, expectedSize(), loadFactor());
+            collectionOps = instrumented(CollectionOps.of(collectionInstance), className);
             updateCollectionSize();
 
             // Add method button
             JButton addBtn = createMethodButton("+ Add Element", ACCENT_COLOR);
-            addBtn.addActionListener(e -> executeAddMethod(className));
+            addBtn.addActionListener(e -> executeAddMethod());
             methodsPanel.add(addBtn);
             methodsPanel.add(Box.createVerticalStrut(10));
 
+            // Keep appending rows as another process writes them to a CSV
+            followBtn = createMethodButton("", new Color(5, 150, 105));
+            updateFollowButton();
+            followBtn.addActionListener(e -> toggleFollowing());
+            methodsPanel.add(followBtn);
+            methodsPanel.add(Box.createVerticalStrut(10));
+
             // Remove method button
             JButton removeBtn = createMethodButton("- Remove Element", new Color(239, 68, 68));
-            removeBtn.addActionListener(e -> executeRemoveMethod(className));
+            removeBtn.addActionListener(e -> executeRemoveMethod());
             methodsPanel.add(removeBtn);
             methodsPanel.add(Box.createVerticalStrut(10));
 
             // Search method button
             JButton searchBtn = createMethodButton("* Search Element", new Color(245, 158, 11));
-            searchBtn.addActionListener(e -> executeSearchMethod(className));
+            searchBtn.addActionListener(e -> executeSearchMethod());
             methodsPanel.add(searchBtn);
             methodsPanel.add(Box.createVerticalStrut(10));
 
+            // Search or remove a whole file of keys at once
+            JButton batchBtn = createMethodButton("** Batch Lookup", new Color(217, 119, 6));
+            batchBtn.setToolTipText("Look up or remove many keys from a file or a pasted list, in parallel");
+            batchBtn.addActionListener(e -> batchLookup());
+            methodsPanel.add(batchBtn);
+            methodsPanel.add(Box.createVerticalStrut(10));
+
+            // Prefix, range and fuzzy search through on-demand indexes
+            JButton keySearchBtn = createMethodButton("*? Search Keys", new Color(13, 148, 136));
+            keySearchBtn.setToolTipText("Find every key with a prefix, in a range, or close to a misspelled key");
+            keySearchBtn.addActionListener(e -> searchKeys());
+            methodsPanel.add(keySearchBtn);
+            methodsPanel.add(Box.createVerticalStrut(10));
+
             // Display method button
             JButton displayBtn = createMethodButton("/>/ View Contents", PRIMARY_COLOR);
             displayBtn.addActionListener(e -> displayCollection());
@@ -410,8 +1016,54 @@ public class CollectionAdvisor extends JFrame {
             JButton clearBtn = createMethodButton("🗑️ Clear All", TEXT_SECONDARY);
             clearBtn.addActionListener(e -> clearCollection());
             methodsPanel.add(clearBtn);
+            methodsPanel.add(Box.createVerticalStrut(10));
+
+            // Multi-threaded stress test on fresh instances of this class
+            JButton stressBtn = createMethodButton("|| Stress Test", new Color(139, 92, 246));
+            stressBtn.setToolTipText("Measure throughput scaling with many threads; your data is not touched");
+            stressBtn.addActionListener(e -> runStressTest());
+            methodsPanel.add(stressBtn);
+            methodsPanel.add(Box.createVerticalStrut(10));
+
+            // Capture the operations run from these buttons as a replayable trace
+            recordBtn = createMethodButton("", new Color(220, 38, 38));
+            updateRecordButton();
+            recordBtn.addActionListener(e -> toggleRecording());
+            methodsPanel.add(recordBtn);
+            methodsPanel.add(Box.createVerticalStrut(10));
+
+            JButton replayBtn = createMethodButton(">> Replay Trace", new Color(14, 165, 233));
+            replayBtn.setToolTipText("Replay a recorded trace or access log against every candidate class");
+            replayBtn.addActionListener(e -> replayTrace());
+            methodsPanel.add(replayBtn);
+            methodsPanel.add(Box.createVerticalStrut(10));
+
+            JButton allocationBtn = createMethodButton("~ Profile Allocation", new Color(234, 88, 12));
+            allocationBtn.setToolTipText("Bytes allocated per add/put/contains/remove for each class of this family");
+            allocationBtn.addActionListener(e -> profileAllocation());
+            methodsPanel.add(allocationBtn);
+
+            if (HashDiagnostics.appliesTo(className)) {
+                methodsPanel.add(Box.createVerticalStrut(10));
+                JButton hashBtn = createMethodButton("# Hash Diagnostics", new Color(71, 85, 105));
+                hashBtn.setToolTipText("Bucket occupancy, longest chain and treeified bins for the loaded keys");
+                hashBtn.addActionListener(e -> diagnoseHashing());
+                methodsPanel.add(hashBtn);
+            }
+
+            if (CollectionRegistry.isBounded(className)) {
+                methodsPanel.add(Box.createVerticalStrut(10));
+                JButton simulateBtn = createMethodButton("% Simulate Cache", new Color(202, 138, 4));
+                simulateBtn.setToolTipText("Hit ratio of every eviction policy on a key trace");
+                simulateBtn.addActionListener(e -> simulateCache());
+                methodsPanel.add(simulateBtn);
+            }
 
             methodsScrollPane.setVisible(true);
+            clearFootprintStats();
+            statsPanel.setVisible(true);
+            latencyPanel.setVisible(true);
+            exportBtn.setEnabled(true);
             methodsPanel.revalidate();
             methodsPanel.repaint();
             
@@ -446,7 +1098,7 @@ public class CollectionAdvisor extends JFrame {
         return btn;
     }
 
-    private void executeAddMethod(String className) {
+    private void executeAddMethod() {
         String[] options = {"Single Value", "Bulk from CSV"};
         int choice = JOptionPane.showOptionDialog(
             this,
@@ -463,9 +1115,9 @@ public class CollectionAdvisor extends JFrame {
 
         try {
             if (choice == 0) {
-                addSingleValue(className);
+                addSingleValue();
             } else {
-                addFromCSV(className);
+                addFromCSV();
             }
             updateCollectionSize();
         } catch (Exception e) {
@@ -476,8 +1128,8 @@ public class CollectionAdvisor extends JFrame {
         }
     }
 
-    private void addSingleValue(String className) throws Exception {
-        if (className.contains("Map")) {
+    private void addSingleValue() throws Exception {
+        if (collectionOps.isKeyValue()) {
             JTextField keyField = new JTextField();
             JTextField valueField = new JTextField();
             Object[] message = {
@@ -492,64 +1144,747 @@ public class CollectionAdvisor extends JFrame {
                 String key = keyField.getText();
                 String value = valueField.getText();
                 if (!key.isEmpty()) {
-                    Method putMethod = collectionInstance.getClass().getMethod("put", Object.class, Object.class);
-                    putMethod.invoke(collectionInstance, key, value);
+                    collectionOps.put(key, value);
                     JOptionPane.showMessageDialog(this, "Added successfully!");
                 }
             }
         } else {
             String value = JOptionPane.showInputDialog(this, "Enter value:");
             if (value != null && !value.trim().isEmpty()) {
-                Method addMethod = collectionInstance.getClass().getMethod("add", Object.class);
-                addMethod.invoke(collectionInstance, value.trim());
+                collectionOps.add(value.trim());
                 JOptionPane.showMessageDialog(this, "Added successfully!");
             }
         }
     }
 
-    private void addFromCSV(String className) throws Exception {
+    private void addFromCSV() throws Exception {
         JFileChooser chooser = new JFileChooser();
         chooser.setDialogTitle("Select CSV File");
         
         if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
-            BufferedReader br = new BufferedReader(new FileReader(chooser.getSelectedFile()));
-            String line;
-            int count = 0;
-            
-            if (className.contains("Map")) {
-                Method putMethod = collectionInstance.getClass().getMethod("put", Object.class, Object.class);
-                while ((line = br.readLine()) != null) {
-                    String[] parts = line.split(",");
-                    if (parts.length >= 2) {
-                        putMethod.invoke(collectionInstance, parts[0].trim(), parts[1].trim());
-                        count++;
+            importCsvFile(chooser.getSelectedFile(), false);
+        }
+    }
+
+    // completeLinesOnly leaves a line still being written for a follow to pick up
+    private CsvImporter.Stats importCsvFile(File file, boolean completeLinesOnly) throws Exception {
+        String className = classNameLabel.getText();
+        CsvImporter importer = new CsvImporter(file, collectionOps.isKeyValue());
+        if (completeLinesOnly) importer.completeLinesOnly();
+        StringDeduplicator dedup = dedupStrings.isSelected() ? new StringDeduplicator() : null;
+        if (dedup != null && !AdvisorEngine.deduplicate(importer, className, dedup)) dedup = null;
+
+        // Pre-size for the rows about to arrive so the import never rehashes or
+        // grows-and-copies; an explicit expected size overrides the file estimate
+        long estimate = importer.estimateRows();
+        long presizeFor = expectedSize() > 0 ? Math.max(0, expectedSize() - collectionOps.size()) : estimate;
+        Object sized = AdvisorEngine.presize(className, collectionInstance, presizeFor, loadFactor());
+        if (sized != collectionInstance) {
+            collectionInstance = sized;
+            collectionOps = instrumented(CollectionOps.of(sized), className);
+        }
+
+        CollectionOps ops = wrapped(className, true);
+        ProgressDialog progress = new ProgressDialog(this, "Importing CSV",
+            "Importing " + file.getName());
+        progress.onCancel(importer::cancel);
+
+        // Parse and insert on worker threads; the modal dialog keeps the EDT
+        // painting while blocking input to the frame until the import finishes.
+        // Allocation is summed over all threads since the parse workers do most of it.
+        long[] allocated = {-1};
+        AllocationProfiler.GcStats[] gc = new AllocationProfiler.GcStats[1];
+        SwingWorker<AdvisorEngine.ImportResult, CsvImporter.Stats> worker =
+            new SwingWorker<AdvisorEngine.ImportResult, CsvImporter.Stats>() {
+                @Override
+                protected AdvisorEngine.ImportResult doInBackground() throws Exception {
+                    AllocationProfiler.GcWatch watch = AllocationProfiler.watchGc();
+                    long before = AllocationProfiler.totalAllocatedBytes();
+                    try {
+                        return AdvisorEngine.importCsv(importer, ops, stats -> publish(stats));
+                    } finally {
+                        gc[0] = watch.stop();
+                        if (before >= 0) allocated[0] = Math.max(0, AllocationProfiler.totalAllocatedBytes() - before);
                     }
                 }
+
+                @Override
+                protected void process(List<CsvImporter.Stats> chunks) {
+                    CsvImporter.Stats latest = chunks.get(chunks.size() - 1);
+                    progress.setProgress(latest.fraction(), latest.summary());
+                }
+
+                @Override
+                protected void done() {
+                    progress.dispose();
+                }
+            };
+        worker.execute();
+        progress.setVisible(true);
+
+        AdvisorEngine.ImportResult imported;
+        try {
+            imported = worker.get();
+        } catch (java.util.concurrent.ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        }
+
+        CsvImporter.Stats stats = imported.stats;
+        String summary = String.format("%,.0f rows/s, %.1f MB/s in %.2f s",
+            stats.rowsPerSecond(), stats.megabytesPerSecond(), stats.seconds());
+        summary += "\n" + (allocated[0] >= 0 ? "Allocated " + EmpiricalAdvisor.formatBytes(allocated[0]) + ", " : "")
+            + gc[0].summary();
+        if (dedup != null) summary += "\n" + dedup.stats().summary();
+        if (imported.bulkBuilt) summary += "\n" + imported.bulkBuildSummary();
+        if (stats.cancelled) {
+            JOptionPane.showMessageDialog(this,
+                "Import cancelled after " + stats.rows + " items\n\n" + summary,
+                "Import Cancelled",
+                JOptionPane.WARNING_MESSAGE);
+        } else {
+            String sizing = CollectionRegistry.isSizable(className)
+                ? String.format("\nPre-sized for %,d rows (estimated %,d from the file)", presizeFor, estimate)
+                : "";
+            JOptionPane.showMessageDialog(this,
+                stats.rows + " items added from CSV\n\n" + summary + sizing,
+                "Success",
+                JOptionPane.INFORMATION_MESSAGE);
+            offerPrimitiveAlternative(imported.keyProfile);
+        }
+        return stats;
+    }
+
+    // After an all-integer import, offer to move the data into the primitive-specialized
+    // equivalent of the current class, which stores keys without per-element objects
+    private void offerPrimitiveAlternative(CsvImporter.NumericProfile keyProfile) throws Exception {
+        String current = classNameLabel.getText();
+        String alternative = CollectionRegistry.primitiveAlternative(current, keyProfile);
+        if (alternative == null) return;
+
+        int confirm = JOptionPane.showConfirmDialog(this,
+            "Every imported " + (collectionOps.isKeyValue() ? "key" : "value") + " is an integer.\n\n"
+                + "Switch from " + current + " to " + alternative + "?\n"
+                + "It stores them as primitives with no object per element,\n"
+                + "typically several times less memory.",
+            "Numeric Data Detected",
+            JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) return;
+
+        CollectionOps converted = CollectionOps.of(CollectionRegistry.newInstance(alternative));
+        if (collectionOps.isKeyValue()) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) collectionInstance).entrySet()) {
+                converted.put(String.valueOf(entry.getKey()), (String) entry.getValue());
+            }
+        } else {
+            for (Object element : (Collection<?>) collectionInstance) {
+                converted.add(String.valueOf(element));
+            }
+        }
+
+        collectionInstance = converted.target();
+        collectionOps = instrumented(converted, alternative);
+        classNameLabel.setText(alternative);
+        displayCollectionDetails(alternative);
+    }
+
+    private void saveSnapshot() {
+        if (collectionInstance == null) return;
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Save Snapshot");
+        chooser.setSelectedFile(new File(classNameLabel.getText() + ".snap"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        if (file.exists() && JOptionPane.showConfirmDialog(this,
+                file.getName() + " already exists. Replace it?", "Save Snapshot",
+                JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        String className = classNameLabel.getText();
+        Object instance = collectionInstance;
+        Snapshot snapshot = new Snapshot(file);
+        ProgressDialog progress = new ProgressDialog(this, "Save Snapshot", "Writing " + file.getName());
+        progress.onCancel(snapshot::cancel);
+        long start = System.nanoTime();
+
+        SwingWorker<Long, long[]> worker = new SwingWorker<Long, long[]>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return snapshot.write(className, instance, (done, total) -> publish(new long[] {done, total}));
+            }
+
+            @Override
+            protected void process(List<long[]> chunks) {
+                long[] latest = chunks.get(chunks.size() - 1);
+                progress.setProgress(latest[1] == 0 ? 1 : (double) latest[0] / latest[1],
+                    String.format("%,d of %,d elements", latest[0], latest[1]));
+            }
+
+            @Override
+            protected void done() {
+                progress.dispose();
+            }
+        };
+        worker.execute();
+        progress.setVisible(true);
+
+        try {
+            long bytes = worker.get();
+            if (bytes < 0) return;
+            JOptionPane.showMessageDialog(this,
+                String.format("Saved %,d elements to %s\n\n%.1f MB in %.2f s",
+                    collectionOps.size(), file.getName(), bytes / (1024.0 * 1024.0),
+                    (System.nanoTime() - start) / 1e9),
+                "Snapshot Saved",
+                JOptionPane.INFORMATION_MESSAGE);
+        } catch (Exception e) {
+            Throwable cause = e instanceof java.util.concurrent.ExecutionException ? e.getCause() : e;
+            JOptionPane.showMessageDialog(this,
+                "Error saving snapshot: " + cause.getMessage(),
+                "Error",
+                JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // Replaces the current collection with the one in the snapshot, whatever its class
+    private void loadSnapshot() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Load Snapshot");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+
+        Snapshot snapshot = new Snapshot(file);
+        ProgressDialog progress = new ProgressDialog(this, "Load Snapshot", "Loading " + file.getName());
+        progress.onCancel(snapshot::cancel);
+
+        SwingWorker<Snapshot.Loaded, long[]> worker = new SwingWorker<Snapshot.Loaded, long[]>() {
+            @Override
+            protected Snapshot.Loaded doInBackground() throws Exception {
+                return snapshot.read((done, total) -> publish(new long[] {done, total}));
+            }
+
+            @Override
+            protected void process(List<long[]> chunks) {
+                long[] latest = chunks.get(chunks.size() - 1);
+                progress.setProgress(latest[1] == 0 ? 1 : (double) latest[0] / latest[1],
+                    String.format("%,d of %,d elements", latest[0], latest[1]));
+            }
+
+            @Override
+            protected void done() {
+                progress.dispose();
+            }
+        };
+        worker.execute();
+        progress.setVisible(true);
+
+        Snapshot.Loaded loaded;
+        try {
+            loaded = worker.get();
+        } catch (Exception e) {
+            Throwable cause = e instanceof java.util.concurrent.ExecutionException ? e.getCause() : e;
+            JOptionPane.showMessageDialog(this,
+                "Error loading snapshot: " + cause.getMessage(),
+                "Error",
+                JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (loaded == null) return;
+
+        classNameLabel.setText(loaded.className);
+        displayCollectionDetails(loaded.className);
+        generateMethodButtons(loaded.className, loaded.collection);
+        JOptionPane.showMessageDialog(this,
+            "Loaded " + loaded.className + " from " + file.getName() + "\n\n" + loaded.summary(),
+            "Snapshot Loaded",
+            JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    // Latency timing, plus trace capture while a recording is running
+    private CollectionOps instrumented(CollectionOps ops, String className) {
+        baseOps = ops;
+        return wrapped(className, false);
+    }
+
+    // Wrappers are always built over the bare adapter, so no operation is timed twice
+    private CollectionOps wrapped(String className, boolean bulk) {
+        CollectionOps timed = latency.instrument(baseOps, className, bulk);
+        return recording != null ? recording.record(timed) : timed;
+    }
+
+    private void updateRecordButton() {
+        if (recording != null) {
+            recordBtn.setText("[] Stop Recording");
+            recordBtn.setToolTipText("Stop capturing operations and save the trace");
+        } else {
+            recordBtn.setText("() Record Trace");
+            recordBtn.setToolTipText("Capture every add, remove, search and view as a replayable trace");
+        }
+    }
+
+    private void updateFollowButton() {
+        if (follower != null) {
+            followBtn.setText("[] Stop Following");
+            followBtn.setToolTipText("Stop appending rows from " + follower.stats().file.getName());
+        } else {
+            followBtn.setText("~> Follow CSV");
+            followBtn.setToolTipText("Append rows to the collection as another program writes them to a CSV");
+        }
+    }
+
+    private void toggleFollowing() {
+        if (follower != null) {
+            stopFollowing();
+            return;
+        }
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Select CSV File to Follow");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = chooser.getSelectedFile();
+        int existing = JOptionPane.showConfirmDialog(this,
+            "Import the rows already in " + file.getName() + " first?\n\n"
+                + "Choose No to add only the rows written from now on.",
+            "Follow CSV",
+            JOptionPane.YES_NO_CANCEL_OPTION);
+        if (existing != JOptionPane.YES_OPTION && existing != JOptionPane.NO_OPTION) return;
+
+        try {
+            long start;
+            if (existing == JOptionPane.YES_OPTION) {
+                CsvImporter.Stats imported = importCsvFile(file, true);
+                updateCollectionSize();
+                if (imported.cancelled) return;
+                start = imported.totalBytes;
+            } else {
+                start = CsvFollower.endOfCompleteLines(file);
+            }
+            String className = classNameLabel.getText();
+            CsvImporter importer = new CsvImporter(file, collectionOps.isKeyValue());
+            if (dedupStrings.isSelected()) AdvisorEngine.deduplicate(importer, className, new StringDeduplicator());
+            follower = new CsvFollower(importer, start, this::applyFollowed);
+            follower.start();
+        } catch (Exception e) {
+            follower = null;
+            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage(),
+                "Follow CSV", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        // Batches can arrive many times a second; the size label is refreshed twice a second
+        followTimer = new javax.swing.Timer(500, e -> refreshFollowStatus());
+        followTimer.start();
+        updateFollowButton();
+        detailsArea.append("\nFollowing " + file.getPath() + "\n");
+        detailsArea.setCaretPosition(detailsArea.getDocument().getLength());
+    }
+
+    // Called on the follower thread. Rows go in on the event thread, like every other
+    // change, and wait while a modal dialog is open: the contents viewer, key search and
+    // background tasks behind a progress dialog all read the collection meanwhile.
+    private boolean applyFollowed(CsvImporter.Chunk batch) throws Exception {
+        boolean[] applied = {false};
+        SwingUtilities.invokeAndWait(() -> {
+            if (follower == null || collectionOps == null || modalDialogOpen()) return;
+            if (batch.values != null) {
+                collectionOps.putAll(batch.keys, batch.values, batch.count);
             } else {
-                Method addMethod = collectionInstance.getClass().getMethod("add", Object.class);
-                while ((line = br.readLine()) != null) {
-                    if (!line.trim().isEmpty()) {
-                        addMethod.invoke(collectionInstance, line.trim());
-                        count++;
+                collectionOps.addAll(batch.keys, batch.count);
+            }
+            applied[0] = true;
+        });
+        return applied[0];
+    }
+
+    private static boolean modalDialogOpen() {
+        for (Window window : Window.getWindows()) {
+            if (window instanceof Dialog && ((Dialog) window).isModal() && window.isShowing()) return true;
+        }
+        return false;
+    }
+
+    private void refreshFollowStatus() {
+        if (follower == null) return;
+        CsvFollower.Stats stats = follower.stats();
+        if (!stats.running) {
+            stopFollowing();
+            return;
+        }
+        updateCollectionSize();
+        collectionSizeLabel.setText(collectionSizeLabel.getText() + String.format("  |  following, lag %,d ms%s",
+            stats.lastLagMillis, stats.bytesBehind() > 0 ? ", " + EmpiricalAdvisor.formatBytes(stats.bytesBehind()) + " behind" : ""));
+    }
+
+    private void stopFollowing() {
+        if (follower == null) return;
+        CsvFollower current = follower;
+        follower = null;
+        followTimer.stop();
+        followTimer = null;
+        // Not close(): the follower may be waiting on this thread to apply a batch
+        current.stop();
+        CsvFollower.Stats stats = current.stats();
+        updateFollowButton();
+        updateCollectionSize();
+        detailsArea.append(stats.summary() + "\n");
+        detailsArea.setCaretPosition(detailsArea.getDocument().getLength());
+        if (stats.failure != null) {
+            JOptionPane.showMessageDialog(this, "Stopped following " + stats.file.getName() + ": " + stats.failure.getMessage(),
+                "Follow CSV", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void toggleRecording() {
+        if (recording == null) {
+            recording = new WorkloadTrace();
+            collectionOps = wrapped(classNameLabel.getText(), false);
+            updateRecordButton();
+            return;
+        }
+
+        WorkloadTrace trace = recording;
+        recording = null;
+        collectionOps = wrapped(classNameLabel.getText(), false);
+        updateRecordButton();
+        if (trace.size() == 0) return;
+        lastTrace = trace;
+
+        int save = JOptionPane.showConfirmDialog(this,
+            "Recorded " + trace.summary() + ".\n\nSave the trace to a file?\n"
+                + "It stays available to \"Replay Trace\" until you record another.",
+            "Trace Recorded",
+            JOptionPane.YES_NO_OPTION);
+        if (save != JOptionPane.YES_OPTION) return;
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Save Trace");
+        chooser.setSelectedFile(new File(classNameLabel.getText() + ".trace"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        try {
+            trace.write(chooser.getSelectedFile());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this,
+                "Error saving trace: " + e.getMessage(),
+                "Error",
+                JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void replayTrace() {
+        JRadioButton recordedOption = new JRadioButton(lastTrace != null
+            ? "Last recorded trace (" + String.format("%,d", lastTrace.size()) + " operations)"
+            : "Last recorded trace (none yet)", lastTrace != null);
+        recordedOption.setEnabled(lastTrace != null);
+        JRadioButton fileOption = new JRadioButton("Trace file", lastTrace == null);
+        JRadioButton logOption = new JRadioButton("Access log");
+        ButtonGroup sourceGroup = new ButtonGroup();
+        sourceGroup.add(recordedOption);
+        sourceGroup.add(fileOption);
+        sourceGroup.add(logOption);
+        JTextField patternField = new JTextField(WorkloadTrace.DEFAULT_LOG_PATTERN);
+        JTextField extraField = new JTextField();
+        JSpinner timeSpinner = new JSpinner(new SpinnerNumberModel(1000, 100, 60_000, 100));
+        Object[] message = {
+            "Trace source:", recordedOption, fileOption, logOption,
+            "Access log pattern (groups op, key, optional value):", patternField,
+            "Also replay these classes (fully qualified, comma-separated):", extraField,
+            "Time per class (ms):", timeSpinner
+        };
+
+        int option = JOptionPane.showConfirmDialog(this, message,
+            "Replay Trace", JOptionPane.OK_CANCEL_OPTION);
+        if (option != JOptionPane.OK_OPTION) return;
+
+        File source = null;
+        if (!recordedOption.isSelected()) {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle(logOption.isSelected() ? "Select Access Log" : "Select Trace");
+            if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            source = chooser.getSelectedFile();
+        }
+
+        File file = source;
+        boolean accessLog = logOption.isSelected();
+        String pattern = patternField.getText().trim();
+        long trialMillis = ((Integer) timeSpinner.getValue()).longValue();
+        List<String> extras = new ArrayList<>();
+        for (String name : extraField.getText().split(",")) {
+            if (!name.trim().isEmpty()) extras.add(name.trim());
+        }
+        WorkloadTrace[] trace = {recordedOption.isSelected() ? lastTrace : null};
+        TraceReplayer[] replayer = new TraceReplayer[1];
+
+        ProgressDialog progress = new ProgressDialog(this, "Replay Trace",
+            "Replaying the trace against candidate collections");
+        progress.onCancel(() -> {
+            if (replayer[0] != null) replayer[0].cancel();
+        });
+
+        SwingWorker<List<TraceReplayer.Result>, String> worker =
+            new SwingWorker<List<TraceReplayer.Result>, String>() {
+                @Override
+                protected List<TraceReplayer.Result> doInBackground() throws Exception {
+                    if (trace[0] == null) {
+                        publish("Reading " + file.getName() + "...");
+                        trace[0] = accessLog ? WorkloadTrace.fromAccessLog(file, pattern) : WorkloadTrace.read(file);
+                    }
+                    List<String> candidates = TraceReplayer.candidates(trace[0]);
+                    candidates.addAll(extras);
+                    replayer[0] = new TraceReplayer(trace[0]).trialMillis(trialMillis);
+                    return replayer[0].run(candidates, (name, index, total) ->
+                        publish(index + "/" + total + "/" + name));
+                }
+
+                @Override
+                protected void process(List<String> chunks) {
+                    String[] latest = chunks.get(chunks.size() - 1).split("/", 3);
+                    if (latest.length < 3) {
+                        progress.setProgress(0, latest[0]);
+                        return;
+                    }
+                    int index = Integer.parseInt(latest[0]);
+                    int total = Integer.parseInt(latest[1]);
+                    progress.setProgress(index / (double) total,
+                        "Class " + (index + 1) + " of " + total + ": " + latest[2]);
+                }
+
+                @Override
+                protected void done() {
+                    progress.dispose();
+                }
+            };
+        worker.execute();
+        progress.setVisible(true);
+
+        List<TraceReplayer.Result> results;
+        try {
+            results = worker.get();
+        } catch (Exception e) {
+            Throwable cause = e instanceof java.util.concurrent.ExecutionException ? e.getCause() : e;
+            JOptionPane.showMessageDialog(this, "Error: " + cause.getMessage(),
+                "Replay Trace", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (results.isEmpty()) return;
+
+        detailsArea.append("\n" + TraceReplayer.report(results, trace[0]));
+        detailsArea.setCaretPosition(detailsArea.getDocument().getLength());
+    }
+
+    // Ranks this class and the rest of its family (maps or collections) by bytes
+    // allocated per operation, using keys from the current contents when there are any
+    private void profileAllocation() {
+        if (!AllocationProfiler.isSupported()) {
+            JOptionPane.showMessageDialog(this, "This JVM does not report per-thread allocation.",
+                "Profile Allocation", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        String className = classNameLabel.getText();
+        boolean keyValue = collectionOps.isKeyValue();
+        EmpiricalAdvisor.Workload workload = requirements().workload();
+        Object contents = collectionInstance;
+        List<String> keys = new ArrayList<>();
+        List<String> values = keyValue ? new ArrayList<>() : null;
+
+        ProgressDialog progress = new ProgressDialog(this, "Profile Allocation",
+            "Measuring allocation per operation");
+
+        SwingWorker<List<AllocationProfiler.Profile>, String> worker =
+            new SwingWorker<List<AllocationProfiler.Profile>, String>() {
+                @Override
+                protected List<AllocationProfiler.Profile> doInBackground() throws Exception {
+                    publish("Sampling keys...");
+                    sampleContents(contents, AllocationProfiler.OPS_PER_MEASUREMENT, keys, values);
+                    if (keys.isEmpty()) {
+                        keys.addAll(EmpiricalAdvisor.syntheticKeys(AllocationProfiler.OPS_PER_MEASUREMENT, 42));
+                        if (values != null) values.addAll(keys);
                     }
+                    Set<CollectionRegistry.Trait> family = keyValue
+                        ? EnumSet.of(CollectionRegistry.Trait.KEY_VALUE)
+                        : EnumSet.noneOf(CollectionRegistry.Trait.class);
+                    List<String> candidates = EmpiricalAdvisor.candidates(family, EmpiricalAdvisor.profile(keys));
+                    if (!candidates.contains(className)) candidates.add(0, className);
+                    return AllocationProfiler.rank(candidates, keys, values, workload, (name, index, total) ->
+                        publish(index + "/" + total + "/" + name));
                 }
+
+                @Override
+                protected void process(List<String> chunks) {
+                    String[] latest = chunks.get(chunks.size() - 1).split("/", 3);
+                    if (latest.length < 3) {
+                        progress.setProgress(0, latest[0]);
+                        return;
+                    }
+                    int index = Integer.parseInt(latest[0]);
+                    int total = Integer.parseInt(latest[1]);
+                    progress.setProgress(index / (double) total,
+                        "Class " + (index + 1) + " of " + total + ": " + latest[2]);
+                }
+
+                @Override
+                protected void done() {
+                    progress.dispose();
+                }
+            };
+        progress.onCancel(() -> worker.cancel(true));
+        worker.execute();
+        progress.setVisible(true);
+
+        List<AllocationProfiler.Profile> profiles;
+        try {
+            profiles = worker.get();
+        } catch (java.util.concurrent.CancellationException e) {
+            return;
+        } catch (Exception e) {
+            Throwable cause = e instanceof java.util.concurrent.ExecutionException ? e.getCause() : e;
+            JOptionPane.showMessageDialog(this, "Error: " + cause.getMessage(),
+                "Profile Allocation", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        detailsArea.append("\n" + AllocationProfiler.report(profiles, workload, keys.size()));
+        detailsArea.setCaretPosition(detailsArea.getDocument().getLength());
+    }
+
+    // Up to limit elements (or entries) of the collection as strings
+    private static void sampleContents(Object collection, int limit, List<String> keys, List<String> values) {
+        if (collection instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) collection).entrySet()) {
+                if (keys.size() >= limit) break;
+                keys.add(String.valueOf(entry.getKey()));
+                if (values != null) values.add(String.valueOf(entry.getValue()));
+            }
+        } else if (collection instanceof Iterable) {
+            for (Object element : (Iterable<?>) collection) {
+                if (keys.size() >= limit) break;
+                keys.add(String.valueOf(element));
             }
-            
-            br.close();
-            JOptionPane.showMessageDialog(this, 
-                count + " items added from CSV",
-                "Success",
-                JOptionPane.INFORMATION_MESSAGE);
         }
     }
 
-    private void executeRemoveMethod(String className) {
+    // Hit ratio of every cache policy at the same capacity, on the keys of a CSV file (in
+    // file order) or of the last recorded trace; the current cache is not touched
+    private void simulateCache() {
+        JRadioButton csvOption = new JRadioButton("Keys of a CSV file, in file order", lastTrace == null);
+        JRadioButton traceOption = new JRadioButton(lastTrace != null
+            ? "Last recorded trace (" + String.format("%,d", lastTrace.size()) + " operations)"
+            : "Last recorded trace (none yet)", lastTrace != null);
+        traceOption.setEnabled(lastTrace != null);
+        ButtonGroup sourceGroup = new ButtonGroup();
+        sourceGroup.add(csvOption);
+        sourceGroup.add(traceOption);
+        int capacity, ttl;
         try {
-            if (className.contains("Map")) {
+            capacity = cacheCapacity();
+            ttl = (int) Math.min(Integer.MAX_VALUE, ttlMillis());
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Simulate Cache", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        JSpinner capacitySpinner = new JSpinner(new SpinnerNumberModel(capacity, 1, CollectionRegistry.MAX_PRESIZE, 1_000));
+        JSpinner ttlSpinner = new JSpinner(new SpinnerNumberModel(ttl, 1, Integer.MAX_VALUE, 1_000));
+        JSpinner rateSpinner = new JSpinner(new SpinnerNumberModel(
+            (int) CacheSimulator.DEFAULT_REQUESTS_PER_SECOND, 1, 10_000_000, 100));
+        JSpinner limitSpinner = new JSpinner(new SpinnerNumberModel(1_000_000, 1_000, 50_000_000, 100_000));
+        Object[] message = {
+            "Key requests:", csvOption, traceOption,
+            "Maximum requests read from the CSV:", limitSpinner,
+            "Capacity (entries):", capacitySpinner,
+            "TTL (ms, TtlCache only):", ttlSpinner,
+            "Simulated requests per second:", rateSpinner
+        };
+
+        int option = JOptionPane.showConfirmDialog(this, message,
+            "Simulate Cache", JOptionPane.OK_CANCEL_OPTION);
+        if (option != JOptionPane.OK_OPTION) return;
+
+        File source = null;
+        if (csvOption.isSelected()) {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle("Select Key Trace CSV");
+            if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            source = chooser.getSelectedFile();
+        }
+
+        File file = source;
+        WorkloadTrace trace = traceOption.isSelected() ? lastTrace : null;
+        int limit = (Integer) limitSpinner.getValue();
+        int simulatedCapacity = (Integer) capacitySpinner.getValue();
+        long simulatedTtl = ((Integer) ttlSpinner.getValue()).longValue();
+        double rate = (Integer) rateSpinner.getValue();
+        CacheSimulator[] simulator = new CacheSimulator[1];
+        long[] optimal = new long[1];
+
+        ProgressDialog progress = new ProgressDialog(this, "Simulate Cache",
+            "Simulating cache policies");
+        progress.onCancel(() -> {
+            if (simulator[0] != null) simulator[0].cancel();
+        });
+
+        SwingWorker<List<CacheSimulator.Result>, String> worker =
+            new SwingWorker<List<CacheSimulator.Result>, String>() {
+                @Override
+                protected List<CacheSimulator.Result> doInBackground() throws Exception {
+                    List<String> requests;
+                    if (trace != null) {
+                        requests = CacheSimulator.requests(trace);
+                    } else {
+                        publish("Reading " + file.getName() + "...");
+                        requests = CacheSimulator.requests(file, limit);
+                    }
+                    simulator[0] = new CacheSimulator(requests, simulatedCapacity)
+                        .ttlMillis(simulatedTtl).requestsPerSecond(rate);
+                    List<CacheSimulator.Result> results = simulator[0].run(CacheSimulator.candidates(),
+                        (name, index, total) -> publish(index + "/" + total + "/" + name));
+                    publish("Computing the optimal hit ratio...");
+                    optimal[0] = simulator[0].optimalHits();
+                    return results;
+                }
+
+                @Override
+                protected void process(List<String> chunks) {
+                    String[] latest = chunks.get(chunks.size() - 1).split("/", 3);
+                    if (latest.length < 3) {
+                        progress.setProgress(0, latest[0]);
+                        return;
+                    }
+                    int index = Integer.parseInt(latest[0]);
+                    int total = Integer.parseInt(latest[1]);
+                    progress.setProgress(index / (double) total,
+                        "Policy " + (index + 1) + " of " + total + ": " + latest[2]);
+                }
+
+                @Override
+                protected void done() {
+                    progress.dispose();
+                }
+            };
+        worker.execute();
+        progress.setVisible(true);
+
+        List<CacheSimulator.Result> results;
+        try {
+            results = worker.get();
+        } catch (Exception e) {
+            Throwable cause = e instanceof java.util.concurrent.ExecutionException ? e.getCause() : e;
+            JOptionPane.showMessageDialog(this, "Error: " + cause.getMessage(),
+                "Simulate Cache", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (results.isEmpty()) return;
+
+        detailsArea.append("\n" + CacheSimulator.report(results, simulator[0], optimal[0]));
+        detailsArea.setCaretPosition(detailsArea.getDocument().getLength());
+    }
+
+    private void executeRemoveMethod() {
+        try {
+            if (collectionOps.isKeyValue()) {
                 String key = JOptionPane.showInputDialog(this, "Enter key to remove:");
                 if (key != null && !key.trim().isEmpty()) {
-                    Method removeMethod = collectionInstance.getClass().getMethod("remove", Object.class);
-                    Object removed = removeMethod.invoke(collectionInstance, key.trim());
+                    Object removed = collectionOps.removeKey(key.trim());
                     if (removed != null) {
                         JOptionPane.showMessageDialog(this, "Removed: " + removed);
                     } else {
@@ -559,8 +1894,7 @@ public class CollectionAdvisor extends JFrame {
             } else {
                 String value = JOptionPane.showInputDialog(this, "Enter value to remove:");
                 if (value != null && !value.trim().isEmpty()) {
-                    Method removeMethod = collectionInstance.getClass().getMethod("remove", Object.class);
-                    boolean removed = (Boolean) removeMethod.invoke(collectionInstance, value.trim());
+                    boolean removed = collectionOps.remove(value.trim());
                     if (removed) {
                         JOptionPane.showMessageDialog(this, "Removed successfully");
                     } else {
@@ -574,17 +1908,15 @@ public class CollectionAdvisor extends JFrame {
         }
     }
 
-    private void executeSearchMethod(String className) {
+    private void executeSearchMethod() {
         try {
-            if (className.contains("Map")) {
+            if (collectionOps.isKeyValue()) {
                 String key = JOptionPane.showInputDialog(this, "Enter key to search:");
                 if (key != null && !key.trim().isEmpty()) {
-                    Method containsKeyMethod = collectionInstance.getClass().getMethod("containsKey", Object.class);
-                    boolean found = (Boolean) containsKeyMethod.invoke(collectionInstance, key.trim());
+                    boolean found = collectionOps.contains(key.trim());
                     
                     if (found) {
-                        Method getMethod = collectionInstance.getClass().getMethod("get", Object.class);
-                        Object value = getMethod.invoke(collectionInstance, key.trim());
+                        Object value = collectionOps.get(key.trim());
                         JOptionPane.showMessageDialog(this, 
                             "✓ Key Found!\n\nKey: " + key.trim() + "\nValue: " + value,
                             "Search Result",
@@ -599,15 +1931,13 @@ public class CollectionAdvisor extends JFrame {
             } else {
                 String value = JOptionPane.showInputDialog(this, "Enter value to search:");
                 if (value != null && !value.trim().isEmpty()) {
-                    Method containsMethod = collectionInstance.getClass().getMethod("contains", Object.class);
-                    boolean found = (Boolean) containsMethod.invoke(collectionInstance, value.trim());
+                    boolean found = collectionOps.contains(value.trim());
                     
                     if (found) {
                         // For List collections, also show the index
                         String message = "✓ Value Found!";
                         if (collectionInstance instanceof List) {
-                            Method indexOfMethod = collectionInstance.getClass().getMethod("indexOf", Object.class);
-                            int index = (Integer) indexOfMethod.invoke(collectionInstance, value.trim());
+                            int index = collectionOps.indexOf(value.trim());
                             message += "\n\nValue: " + value.trim() + "\nIndex: " + index;
                         } else {
                             message += "\n\nValue: " + value.trim() + " exists in the collection";
@@ -632,7 +1962,135 @@ public class CollectionAdvisor extends JFrame {
         }
     }
 
+    private void batchLookup() {
+        if (collectionInstance == null) return;
+        String className = classNameLabel.getText();
+        String noun = collectionOps.isKeyValue() ? "keys" : "values";
+
+        JRadioButton fileOption = new JRadioButton("Probe " + noun + " from a file, one per line", true);
+        JRadioButton pasteOption = new JRadioButton("Probe " + noun + " typed or pasted below");
+        ButtonGroup sourceGroup = new ButtonGroup();
+        sourceGroup.add(fileOption);
+        sourceGroup.add(pasteOption);
+        JTextArea pasted = new JTextArea(6, 30);
+        pasted.setFont(new Font("Consolas", Font.PLAIN, 12));
+        JRadioButton lookupOption = new JRadioButton("Look them up", true);
+        JRadioButton removeOption = new JRadioButton("Remove them");
+        ButtonGroup modeGroup = new ButtonGroup();
+        modeGroup.add(lookupOption);
+        modeGroup.add(removeOption);
+        JCheckBox bloomBox = new JCheckBox("Reject misses with a Bloom filter first");
+        JSpinner fppSpinner = new JSpinner(new SpinnerNumberModel(
+            BloomFilter.DEFAULT_FALSE_POSITIVE_RATE * 100, 0.01, 50.0, 0.1));
+        JCheckBox matchesBox = new JCheckBox("Write every match to a file");
+        Object[] message = {
+            fileOption, pasteOption, new JScrollPane(pasted),
+            lookupOption, removeOption,
+            bloomBox, "Bloom filter false-positive rate (%):", fppSpinner,
+            matchesBox
+        };
+
+        int option = JOptionPane.showConfirmDialog(this, message,
+            "Batch Lookup", JOptionPane.OK_CANCEL_OPTION);
+        if (option != JOptionPane.OK_OPTION) return;
+
+        File probeFile = null;
+        List<String> probeKeys = null;
+        if (fileOption.isSelected()) {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle("Select Probe Keys");
+            if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            probeFile = chooser.getSelectedFile();
+        } else {
+            probeKeys = new ArrayList<>();
+            for (String line : pasted.getText().split("\\R")) {
+                if (!line.trim().isEmpty()) probeKeys.add(line.trim());
+            }
+            if (probeKeys.isEmpty()) return;
+        }
+        File matchesFile = null;
+        if (matchesBox.isSelected()) {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle("Save Matches");
+            chooser.setSelectedFile(new File("matches.csv"));
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            matchesFile = chooser.getSelectedFile();
+        }
+
+        BatchLookup.Mode mode = removeOption.isSelected() ? BatchLookup.Mode.REMOVE : BatchLookup.Mode.LOOKUP;
+        double fpp = ((Number) fppSpinner.getValue()).doubleValue() / 100;
+        boolean bloom = bloomBox.isSelected();
+        File file = probeFile;
+        List<String> keys = probeKeys;
+        BatchLookup lookup = new BatchLookup(className, collectionInstance).matchesFile(matchesFile);
+
+        ProgressDialog progress = new ProgressDialog(this, "Batch Lookup",
+            (mode == BatchLookup.Mode.REMOVE ? "Removing " : "Looking up ") + noun + " in " + className);
+        progress.onCancel(lookup::cancel);
+        SwingWorker<BatchLookup.Result, CsvImporter.Stats> worker =
+            new SwingWorker<BatchLookup.Result, CsvImporter.Stats>() {
+                @Override
+                protected BatchLookup.Result doInBackground() throws Exception {
+                    if (bloom) lookup.bloomFilter(fpp);
+                    return file != null
+                        ? lookup.run(file, mode, stats -> publish(stats))
+                        : lookup.run(keys, mode);
+                }
+
+                @Override
+                protected void process(List<CsvImporter.Stats> chunks) {
+                    CsvImporter.Stats latest = chunks.get(chunks.size() - 1);
+                    progress.setProgress(latest.fraction(), latest.summary());
+                }
+
+                @Override
+                protected void done() {
+                    progress.dispose();
+                }
+            };
+        progress.setIndeterminate(bloom ? "Building the Bloom filter..." : "Probing...");
+        worker.execute();
+        progress.setVisible(true);
+
+        BatchLookup.Result result;
+        try {
+            result = worker.get();
+        } catch (Exception e) {
+            Throwable cause = e instanceof java.util.concurrent.ExecutionException ? e.getCause() : e;
+            JOptionPane.showMessageDialog(this, "Error: " + cause.getMessage(),
+                "Batch Lookup", JOptionPane.ERROR_MESSAGE);
+            updateCollectionSize();
+            return;
+        }
+
+        updateCollectionSize();
+        detailsArea.append("\n" + BatchLookup.report(result));
+        detailsArea.setCaretPosition(detailsArea.getDocument().getLength());
+    }
+
+    private void searchKeys() {
+        if (collectionInstance == null) return;
+        // Rebuilt when the collection was replaced or has grown or shrunk since
+        if (searchIndex == null || searchIndex.collection() != collectionInstance || searchIndex.isStale()) {
+            searchIndex = new KeySearchIndex(classNameLabel.getText(), collectionInstance);
+        }
+        String before = searchIndex.describe();
+        new KeySearchDialog(this, "Search Keys - " + classNameLabel.getText(), searchIndex).setVisible(true);
+        String after = searchIndex.describe();
+        if (!after.equals(before)) {
+            detailsArea.append("\n" + after);
+            detailsArea.setCaretPosition(detailsArea.getDocument().getLength());
+        }
+    }
+
     private void displayCollection() {
+        if (recording != null) recording.append(WorkloadTrace.Op.ITERATE, null, null);
+        if (collectionInstance instanceof Collection || collectionInstance instanceof Map) {
+            new ContentsViewer(this, "Collection Contents - " + classNameLabel.getText(), collectionInstance)
+                .setVisible(true);
+            return;
+        }
+
         JTextArea displayArea = new JTextArea(20, 40);
         displayArea.setEditable(false);
         displayArea.setFont(new Font("Consolas", Font.PLAIN, 12));
@@ -643,6 +2101,193 @@ public class CollectionAdvisor extends JFrame {
             "Collection Contents", JOptionPane.INFORMATION_MESSAGE);
     }
 
+    private void runStressTest() {
+        JTextField threadsField = new JTextField(
+            ConcurrentLoadTest.formatThreadCounts(ConcurrentLoadTest.defaultThreadCounts()));
+        // Read share defaults from the same priorities as the empirical workload mix
+        int defaultReads = requirements().workload().getPct;
+        JSpinner readSpinner = new JSpinner(new SpinnerNumberModel(defaultReads, 0, 100, 5));
+        JSpinner keySpinner = new JSpinner(new SpinnerNumberModel(10_000, 2, 10_000_000, 1_000));
+        JSpinner timeSpinner = new JSpinner(new SpinnerNumberModel(500, 50, 60_000, 100));
+        JCheckBox virtualBox = new JCheckBox("Use virtual threads (JDK 21+)");
+        virtualBox.setEnabled(ConcurrentLoadTest.virtualThreadsSupported());
+        JCheckBox compareBox = new JCheckBox("Compare with thread-safe alternatives", true);
+        Object[] message = {
+            "Thread counts:", threadsField,
+            "Reads (%):", readSpinner,
+            "Distinct keys:", keySpinner,
+            "Milliseconds per measurement:", timeSpinner,
+            virtualBox, compareBox
+        };
+
+        int option = JOptionPane.showConfirmDialog(this, message,
+            "Stress Test", JOptionPane.OK_CANCEL_OPTION);
+        if (option != JOptionPane.OK_OPTION) return;
+
+        int[] threadCounts;
+        try {
+            threadCounts = ConcurrentLoadTest.parseThreadCounts(threadsField.getText());
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, "Invalid thread counts: " + e.getMessage(),
+                "Stress Test", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        int readPercent = (Integer) readSpinner.getValue();
+        boolean virtual = virtualBox.isSelected();
+        ConcurrentLoadTest test = new ConcurrentLoadTest(threadCounts, readPercent, (Integer) keySpinner.getValue())
+            .pointMillis((Integer) timeSpinner.getValue())
+            .virtualThreads(virtual);
+        Map<String, java.util.function.Supplier<Object>> targets =
+            ConcurrentLoadTest.targets(collectionInstance, compareBox.isSelected());
+
+        ProgressDialog progress = new ProgressDialog(this, "Stress Test",
+            "Running concurrent load against " + targets.size() + " collection(s)");
+        progress.onCancel(test::cancel);
+
+        SwingWorker<List<ConcurrentLoadTest.Point>, String> worker =
+            new SwingWorker<List<ConcurrentLoadTest.Point>, String>() {
+                @Override
+                protected List<ConcurrentLoadTest.Point> doInBackground() throws Exception {
+                    return test.run(targets, (target, threads, index, total) ->
+                        publish(index + "/" + total + "/" + target + ", " + threads + " threads"));
+                }
+
+                @Override
+                protected void process(List<String> chunks) {
+                    String[] latest = chunks.get(chunks.size() - 1).split("/", 3);
+                    int index = Integer.parseInt(latest[0]);
+                    int total = Integer.parseInt(latest[1]);
+                    progress.setProgress(index / (double) total,
+                        "Run " + (index + 1) + " of " + total + ": " + latest[2]);
+                }
+
+                @Override
+                protected void done() {
+                    progress.dispose();
+                }
+            };
+        worker.execute();
+        progress.setVisible(true);
+
+        List<ConcurrentLoadTest.Point> points;
+        try {
+            points = worker.get();
+        } catch (Exception e) {
+            Throwable cause = e instanceof java.util.concurrent.ExecutionException ? e.getCause() : e;
+            JOptionPane.showMessageDialog(this, "Error: " + cause.getMessage(),
+                "Stress Test", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        String report = ConcurrentLoadTest.report(points, readPercent, virtual);
+        detailsArea.append("\n" + report);
+
+        JTextArea reportArea = new JTextArea(report, 12, 60);
+        reportArea.setEditable(false);
+        reportArea.setFont(new Font("Consolas", Font.PLAIN, 12));
+        JPanel panel = new JPanel(new BorderLayout(0, 10));
+        panel.add(new ScalingChart(points), BorderLayout.CENTER);
+        panel.add(new JScrollPane(reportArea), BorderLayout.SOUTH);
+        JOptionPane.showMessageDialog(this, panel, "Stress Test Results", JOptionPane.PLAIN_MESSAGE);
+    }
+
+    private void measureFootprint() {
+        if (collectionInstance == null) return;
+        Object instance = collectionInstance;
+
+        ProgressDialog progress = new ProgressDialog(this, "Heap Footprint",
+            "Measuring " + instance.getClass().getSimpleName() + " and estimating alternatives");
+        SwingWorker<HeapFootprint.Analysis, Void> worker = new SwingWorker<HeapFootprint.Analysis, Void>() {
+            @Override
+            protected HeapFootprint.Analysis doInBackground() {
+                return HeapFootprint.analyze(instance);
+            }
+
+            @Override
+            protected void done() {
+                progress.dispose();
+            }
+        };
+        progress.setIndeterminate("Walking " + String.format("%,d", collectionOps.size()) + " elements...");
+        progress.onCancel(() -> worker.cancel(true));
+        worker.execute();
+        progress.setVisible(true);
+
+        HeapFootprint.Analysis analysis;
+        try {
+            analysis = worker.get();
+        } catch (java.util.concurrent.CancellationException e) {
+            return;
+        } catch (Exception e) {
+            Throwable cause = e instanceof java.util.concurrent.ExecutionException ? e.getCause() : e;
+            JOptionPane.showMessageDialog(this, "Error: " + cause.getMessage(),
+                "Heap Footprint", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        HeapFootprint.Report r = analysis.current;
+        retainedValue.setText(EmpiricalAdvisor.formatBytes(r.totalBytes())
+            + (r.nativeBytes > 0 ? " + " + EmpiricalAdvisor.formatBytes(r.nativeBytes) + " native" : ""));
+        perElementValue.setText(String.format("%.1f B", r.bytesPerElement()));
+        structureValue.setText(EmpiricalAdvisor.formatBytes(r.structureBytes()) + " / "
+            + EmpiricalAdvisor.formatBytes(r.payloadBytes));
+        loadFactorValue.setText(r.slots >= 0 ? String.format("%.2f (%,d slots)", r.loadFactor(), r.slots) : "n/a");
+        wastedValue.setText(r.slots >= 0 ? EmpiricalAdvisor.formatBytes(r.wastedBytes) : "n/a");
+        footprintNote.setText(r.measured ? "Measured by object graph walk" : "Estimated from JVM layout model");
+        measuredSize = r.size;
+
+        detailsArea.append("\n" + HeapFootprint.report(analysis));
+    }
+
+    // How the loaded keys spread over the hash table, next to other hashing strategies
+    private void diagnoseHashing() {
+        if (collectionInstance == null) return;
+        String className = classNameLabel.getText();
+        Object instance = collectionInstance;
+
+        ProgressDialog progress = new ProgressDialog(this, "Hash Diagnostics",
+            "Placing the keys of " + className + " into hash tables");
+        SwingWorker<HashDiagnostics.Analysis, Void> worker = new SwingWorker<HashDiagnostics.Analysis, Void>() {
+            @Override
+            protected HashDiagnostics.Analysis doInBackground() {
+                return HashDiagnostics.analyze(className, instance);
+            }
+
+            @Override
+            protected void done() {
+                progress.dispose();
+            }
+        };
+        progress.setIndeterminate("Hashing " + String.format("%,d", collectionOps.size()) + " keys...");
+        progress.onCancel(() -> worker.cancel(true));
+        worker.execute();
+        progress.setVisible(true);
+
+        HashDiagnostics.Analysis analysis;
+        try {
+            analysis = worker.get();
+        } catch (java.util.concurrent.CancellationException e) {
+            return;
+        } catch (Exception e) {
+            Throwable cause = e instanceof java.util.concurrent.ExecutionException ? e.getCause() : e;
+            JOptionPane.showMessageDialog(this, "Error: " + cause.getMessage(),
+                "Hash Diagnostics", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        detailsArea.append("\n" + HashDiagnostics.report(analysis));
+        detailsArea.setCaretPosition(detailsArea.getDocument().getLength());
+    }
+
+    private void clearFootprintStats() {
+        for (JLabel value : new JLabel[] {retainedValue, perElementValue, structureValue, loadFactorValue, wastedValue}) {
+            value.setText("-");
+        }
+        footprintNote.setText("Not measured yet");
+        measuredSize = -1;
+    }
+
     private void clearCollection() {
         int confirm = JOptionPane.showConfirmDialog(this,
             "Are you sure you want to clear all elements?",
@@ -651,8 +2296,7 @@ public class CollectionAdvisor extends JFrame {
         
         if (confirm == JOptionPane.YES_OPTION) {
             try {
-                Method clearMethod = collectionInstance.getClass().getMethod("clear");
-                clearMethod.invoke(collectionInstance);
+                collectionOps.clear();
                 updateCollectionSize();
                 JOptionPane.showMessageDialog(this, "Collection cleared!");
             } catch (Exception e) {
@@ -663,30 +2307,16 @@ public class CollectionAdvisor extends JFrame {
 
     private void updateCollectionSize() {
         try {
-            Method sizeMethod = collectionInstance.getClass().getMethod("size");
-            int size = (Integer) sizeMethod.invoke(collectionInstance);
+            int size = collectionOps.size();
             collectionSizeLabel.setText("Size: " + size + " element" + (size != 1 ? "s" : ""));
+            if (measuredSize >= 0 && size != measuredSize) {
+                footprintNote.setText("Collection changed since last measurement");
+            }
         } catch (Exception e) {
             collectionSizeLabel.setText("Size: N/A");
         }
     }
 
-    private Class<?> getClassForName(String name) throws Exception {
-        switch (name) {
-            case "ArrayList": return ArrayList.class;
-            case "LinkedList": return LinkedList.class;
-            case "HashSet": return HashSet.class;
-            case "LinkedHashSet": return LinkedHashSet.class;
-            case "TreeSet": return TreeSet.class;
-            case "HashMap": return HashMap.class;
-            case "LinkedHashMap": return LinkedHashMap.class;
-            case "TreeMap": return TreeMap.class;
-            case "Vector": return Vector.class;
-            case "ConcurrentHashMap": return java.util.concurrent.ConcurrentHashMap.class;
-            default: return ArrayList.class;
-        }
-    }
-
     private void resetForm() {
         // Reset checkboxes
         maintainOrder.setSelected(false);
@@ -697,6 +2327,16 @@ public class CollectionAdvisor extends JFrame {
         keyValuePairs.setSelected(false);
         threadSafe.setSelected(false);
         sortedOrder.setSelected(false);
+        largeDataset.setSelected(false);
+        boundedCache.setSelected(false);
+        expiringEntries.setSelected(false);
+        readWriteMix.setSelectedIndex(1);
+        contentionLevel.setSelectedIndex(0);
+        expectedSizeField.setText("");
+        loadFactorField.setText(String.valueOf(CollectionRegistry.DEFAULT_LOAD_FACTOR));
+        ttlField.setText(String.valueOf(TtlCache.DEFAULT_TTL_MILLIS));
+        dedupStrings.setSelected(false);
+        stopFollowing();
         
         // Reset display
         classNameLabel.setText("Select requirements to begin");
@@ -704,7 +2344,14 @@ public class CollectionAdvisor extends JFrame {
         detailsArea.setText("");
         methodsPanel.removeAll();
         methodsScrollPane.setVisible(false);
+        clearFootprintStats();
+        statsPanel.setVisible(false);
+        exportBtn.setEnabled(false);
+        recording = null;
         collectionInstance = null;
+        collectionOps = null;
+        baseOps = null;
+        searchIndex = null;
         
         methodsPanel.revalidate();
         methodsPanel.repaint();
@@ -731,6 +2378,11 @@ public class CollectionAdvisor extends JFrame {
     }
 
     public static void main(String[] args) {
+        // Any arguments mean batch mode: hand over to the CLI before a window is created
+        if (args.length > 0) {
+            AdvisorCli.main(args);
+            return;
+        }
         SwingUtilities.invokeLater(CollectionAdvisor::new);
     }
 }
\ No newline at end of file
@@ -0,0 +1,549 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Self-contained micro-benchmark for every class in CollectionRegistry. It follows the
+// JMH recipe (warmup iterations, time-boxed measurement iterations, a result sink the
+// JIT cannot eliminate) and writes a CSV the advisor loads to back its recommendations.
+//
+//   java -Xmx8g CollectionBenchmark --sizes 1e3,1e5,1e7 --out benchmark-results.csv
+public class CollectionBenchmark {
+
+    public static final String DEFAULT_RESULTS_FILE = "benchmark-results.csv";
+    private static final String CSV_HEADER = "class,operation,size,distribution,keys,ns_per_op,error_ns,ops_per_sec,samples";
+
+    public enum Operation { ADD, CONTAINS, REMOVE, ITERATE, CLEAR }
+
+    public enum Distribution { SEQUENTIAL, RANDOM, ZIPF }
+
+    // PRIMITIVE runs only the primitive-specialized classes, through their unboxed API;
+    // STRING and BOXED run the object-keyed classes; off-heap classes only store strings
+    public enum KeyType { STRING, BOXED, PRIMITIVE }
+
+    public static class Result {
+        public final String className;
+        public final Operation operation;
+        public final int size;
+        public final Distribution distribution;
+        public final KeyType keyType;
+        public final double nsPerOp;
+        public final double errorNs;
+        public final int samples;
+
+        public Result(String className, Operation operation, int size, Distribution distribution,
+                      KeyType keyType, double nsPerOp, double errorNs, int samples) {
+            this.className = className;
+            this.operation = operation;
+            this.size = size;
+            this.distribution = distribution;
+            this.keyType = keyType;
+            this.nsPerOp = nsPerOp;
+            this.errorNs = errorNs;
+            this.samples = samples;
+        }
+
+        public double opsPerSecond() {
+            return nsPerOp == 0 ? 0 : 1e9 / nsPerOp;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%s,%s,%d,%s,%s,%.3f,%.3f,%.0f,%d",
+                className, operation, size, distribution, keyType, nsPerOp, errorNs, opsPerSecond(), samples);
+        }
+
+        static Result parse(String line) {
+            String[] f = line.split(",");
+            return new Result(f[0], Operation.valueOf(f[1]), Integer.parseInt(f[2]),
+                Distribution.valueOf(f[3]), KeyType.valueOf(f[4]),
+                Double.parseDouble(f[5]), Double.parseDouble(f[6]), Integer.parseInt(f[8]));
+        }
+    }
+
+    private int warmupIterations = 2;
+    private int measurementIterations = 5;
+    private long iterationNanos = 200_000_000L;
+    private long seed = 42;
+    private PrintStream log = System.out;
+
+    // Anything the measured loops produce is folded in here so it cannot be dead-code eliminated
+    private volatile long sink;
+
+    public CollectionBenchmark warmupIterations(int n) { this.warmupIterations = n; return this; }
+    public CollectionBenchmark measurementIterations(int n) { this.measurementIterations = n; return this; }
+    public CollectionBenchmark iterationMillis(long millis) { this.iterationNanos = millis * 1_000_000L; return this; }
+    public CollectionBenchmark seed(long seed) { this.seed = seed; return this; }
+    public CollectionBenchmark log(PrintStream log) { this.log = log; return this; }
+
+    public List<Result> run(List<String> classNames, int[] sizes, List<Distribution> distributions,
+                            List<KeyType> keyTypes) throws Exception {
+        List<Result> results = new ArrayList<>();
+        for (int size : sizes) {
+            for (Distribution distribution : distributions) {
+                for (KeyType keyType : keyTypes) {
+                    Object[] keys = generateKeys(size, distribution, keyType, seed);
+                    Object[] probes = generateKeys(size, distribution, keyType, seed + 1);
+                    for (String className : classNames) {
+                        if (CollectionRegistry.isPrimitive(className) != (keyType == KeyType.PRIMITIVE)) continue;
+                        if (CollectionRegistry.isOffHeap(className) && keyType == KeyType.BOXED) continue;
+                        // A cache holding n elements is no longer a cache; CacheSimulator covers them
+                        if (CollectionRegistry.isBounded(className)) continue;
+                        for (Operation operation : Operation.values()) {
+                            Result result = measure(className, operation, keys, probes, distribution, keyType);
+                            results.add(result);
+                            if (log != null) {
+                                log.printf(Locale.ROOT, "%-18s %-9s n=%-9d %-10s %-6s %12.1f ns/op  +/- %.1f%n",
+                                    className, operation, size, distribution, keyType, result.nsPerOp, result.errorNs);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private Result measure(String className, Operation operation, Object[] keys, Object[] probes,
+                           Distribution distribution, KeyType keyType) throws Exception {
+        if (keyType == KeyType.PRIMITIVE) {
+            return measurePrimitive(className, operation, unbox(keys), unbox(probes), distribution);
+        }
+
+        double[] samples = new double[measurementIterations];
+        Object populated = (operation == Operation.CONTAINS || operation == Operation.ITERATE)
+            ? populate(className, keys) : null;
+
+        for (int i = 0; i < warmupIterations + measurementIterations; i++) {
+            double nsPerOp;
+            switch (operation) {
+                case ADD:
+                    nsPerOp = measureAdd(className, keys);
+                    break;
+                case CONTAINS:
+                    nsPerOp = measureContains(populated, probes);
+                    break;
+                case REMOVE:
+                    nsPerOp = measureRemove(populate(className, keys), probes);
+                    break;
+                case ITERATE:
+                    nsPerOp = measureIterate(populated);
+                    break;
+                default:
+                    nsPerOp = measureClear(populate(className, keys));
+                    break;
+            }
+            if (i >= warmupIterations) samples[i - warmupIterations] = nsPerOp;
+        }
+        return summarizeSamples(className, operation, keys.length, distribution, keyType, samples);
+    }
+
+    private Result summarizeSamples(String className, Operation operation, int size,
+                                    Distribution distribution, KeyType keyType, double[] samples) {
+        double mean = 0;
+        for (double s : samples) mean += s;
+        mean /= samples.length;
+        double variance = 0;
+        for (double s : samples) variance += (s - mean) * (s - mean);
+        double error = samples.length > 1 ? Math.sqrt(variance / (samples.length - 1)) : 0;
+        return new Result(className, operation, size, distribution, keyType, mean, error, samples.length);
+    }
+
+    // Unboxed view of the primitive-specialized classes, so PRIMITIVE runs measure the
+    // long/int API rather than the boxing Collection/Map bridge
+    private interface LongTarget {
+        void add(long key);
+        boolean contains(long key);
+        boolean remove(long key);
+        long sum();
+        int size();
+        void clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static LongTarget longTarget(Object instance) {
+        if (instance instanceof IntArrayList) {
+            IntArrayList list = (IntArrayList) instance;
+            return new LongTarget() {
+                public void add(long key) { list.addInt((int) key); }
+                public boolean contains(long key) { return list.containsInt((int) key); }
+                public boolean remove(long key) { return list.removeInt((int) key); }
+                public long sum() {
+                    long sum = 0;
+                    for (int i = 0, n = list.size(); i < n; i++) sum += list.getInt(i);
+                    return sum;
+                }
+                public int size() { return list.size(); }
+                public void clear() { list.clear(); }
+            };
+        }
+        if (instance instanceof LongHashSet) {
+            LongHashSet set = (LongHashSet) instance;
+            return new LongTarget() {
+                public void add(long key) { set.addLong(key); }
+                public boolean contains(long key) { return set.containsLong(key); }
+                public boolean remove(long key) { return set.removeLong(key); }
+                public long sum() {
+                    long sum = 0;
+                    for (long key : set.toLongArray()) sum += key;
+                    return sum;
+                }
+                public int size() { return set.size(); }
+                public void clear() { set.clear(); }
+            };
+        }
+        LongObjectHashMap<Object> map = (LongObjectHashMap<Object>) instance;
+        return new LongTarget() {
+            public void add(long key) { map.putLong(key, Boolean.TRUE); }
+            public boolean contains(long key) { return map.getLong(key) != null; }
+            public boolean remove(long key) { return map.removeLong(key) != null; }
+            public long sum() {
+                long sum = 0;
+                for (Long key : map.keySet()) sum += key;
+                return sum;
+            }
+            public int size() { return map.size(); }
+            public void clear() { map.clear(); }
+        };
+    }
+
+    private Result measurePrimitive(String className, Operation operation, long[] keys, long[] probes,
+                                    Distribution distribution) throws Exception {
+        double[] samples = new double[measurementIterations];
+        LongTarget populated = (operation == Operation.CONTAINS || operation == Operation.ITERATE)
+            ? populatePrimitive(className, keys) : null;
+
+        for (int i = 0; i < warmupIterations + measurementIterations; i++) {
+            double nsPerOp;
+            switch (operation) {
+                case ADD: {
+                    LongTarget target = longTarget(CollectionRegistry.newInstance(className));
+                    long start = System.nanoTime();
+                    for (long key : keys) target.add(key);
+                    nsPerOp = (double) (System.nanoTime() - start) / keys.length;
+                    sink += target.size();
+                    break;
+                }
+                case CONTAINS: {
+                    long ops = 0, hits = 0;
+                    int index = 0, batch = 1;
+                    long start = System.nanoTime(), deadline = start + iterationNanos, now;
+                    do {
+                        for (int b = 0; b < batch; b++) {
+                            if (populated.contains(probes[index])) hits++;
+                            if (++index == probes.length) index = 0;
+                        }
+                        ops += batch;
+                        batch = Math.min(batch * 2, 4096);
+                        now = System.nanoTime();
+                    } while (now < deadline);
+                    sink += hits;
+                    nsPerOp = (double) (now - start) / ops;
+                    break;
+                }
+                case REMOVE: {
+                    LongTarget target = populatePrimitive(className, keys);
+                    long hits = 0;
+                    int index = 0, batch = 1;
+                    long start = System.nanoTime(), deadline = start + iterationNanos, now;
+                    do {
+                        int end = Math.min(index + batch, probes.length);
+                        for (; index < end; index++) {
+                            if (target.remove(probes[index])) hits++;
+                        }
+                        batch = Math.min(batch * 2, 4096);
+                        now = System.nanoTime();
+                    } while (now < deadline && index < probes.length);
+                    sink += hits;
+                    nsPerOp = (double) (now - start) / index;
+                    break;
+                }
+                case ITERATE: {
+                    long visited = 0;
+                    long start = System.nanoTime(), deadline = start + iterationNanos, now;
+                    do {
+                        sink += populated.sum();
+                        visited += populated.size();
+                        now = System.nanoTime();
+                    } while (now < deadline && visited > 0);
+                    nsPerOp = visited == 0 ? 0 : (double) (now - start) / visited;
+                    break;
+                }
+                default: {
+                    LongTarget target = populatePrimitive(className, keys);
+                    int size = target.size();
+                    long start = System.nanoTime();
+                    target.clear();
+                    nsPerOp = (double) (System.nanoTime() - start) / Math.max(1, size);
+                    break;
+                }
+            }
+            if (i >= warmupIterations) samples[i - warmupIterations] = nsPerOp;
+        }
+        return summarizeSamples(className, operation, keys.length, distribution, KeyType.PRIMITIVE, samples);
+    }
+
+    private LongTarget populatePrimitive(String className, long[] keys) throws Exception {
+        LongTarget target = longTarget(CollectionRegistry.newInstance(className));
+        for (long key : keys) target.add(key);
+        return target;
+    }
+
+    private static long[] unbox(Object[] keys) {
+        long[] values = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) values[i] = (Long) keys[i];
+        return values;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object populate(String className, Object[] keys) throws Exception {
+        Object instance = CollectionRegistry.newInstance(className);
+        if (instance instanceof Map) {
+            Map<Object, Object> map = (Map<Object, Object>) instance;
+            for (Object key : keys) map.put(key, key);
+        } else {
+            Collection<Object> collection = (Collection<Object>) instance;
+            for (Object key : keys) collection.add(key);
+        }
+        return instance;
+    }
+
+    @SuppressWarnings("unchecked")
+    private double measureAdd(String className, Object[] keys) throws Exception {
+        Object instance = CollectionRegistry.newInstance(className);
+        long start = System.nanoTime();
+        if (instance instanceof Map) {
+            Map<Object, Object> map = (Map<Object, Object>) instance;
+            for (Object key : keys) map.put(key, key);
+        } else {
+            Collection<Object> collection = (Collection<Object>) instance;
+            for (Object key : keys) collection.add(key);
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += System.identityHashCode(instance) & 1;
+        return (double) elapsed / keys.length;
+    }
+
+    // Time-boxed throughput loop; batches double so the clock is read rarely for fast
+    // operations while O(n) operations on large lists still stop near the budget
+    @SuppressWarnings("unchecked")
+    private double measureContains(Object instance, Object[] probes) {
+        Map<Object, Object> map = instance instanceof Map ? (Map<Object, Object>) instance : null;
+        Collection<Object> collection = map == null ? (Collection<Object>) instance : null;
+        long ops = 0;
+        long hits = 0;
+        int index = 0;
+        int batch = 1;
+        long start = System.nanoTime();
+        long deadline = start + iterationNanos;
+        long now;
+        do {
+            for (int b = 0; b < batch; b++) {
+                Object probe = probes[index];
+                if (++index == probes.length) index = 0;
+                if (map != null ? map.get(probe) != null : collection.contains(probe)) hits++;
+            }
+            ops += batch;
+            batch = Math.min(batch * 2, 4096);
+            now = System.nanoTime();
+        } while (now < deadline);
+        sink += hits;
+        return (double) (now - start) / ops;
+    }
+
+    @SuppressWarnings("unchecked")
+    private double measureRemove(Object instance, Object[] probes) {
+        Map<Object, Object> map = instance instanceof Map ? (Map<Object, Object>) instance : null;
+        Collection<Object> collection = map == null ? (Collection<Object>) instance : null;
+        long hits = 0;
+        int index = 0;
+        int batch = 1;
+        long start = System.nanoTime();
+        long deadline = start + iterationNanos;
+        long now;
+        do {
+            int end = Math.min(index + batch, probes.length);
+            for (; index < end; index++) {
+                Object probe = probes[index];
+                if (map != null ? map.remove(probe) != null : collection.remove(probe)) hits++;
+            }
+            batch = Math.min(batch * 2, 4096);
+            now = System.nanoTime();
+        } while (now < deadline && index < probes.length);
+        sink += hits;
+        return (double) (now - start) / index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private double measureIterate(Object instance) {
+        Iterable<Object> elements = instance instanceof Map
+            ? ((Map<Object, Object>) instance).keySet()
+            : (Collection<Object>) instance;
+        long visited = 0;
+        long acc = 0;
+        long start = System.nanoTime();
+        long deadline = start + iterationNanos;
+        long now;
+        do {
+            for (Object element : elements) {
+                acc += element.hashCode();
+                visited++;
+            }
+            now = System.nanoTime();
+        } while (now < deadline && visited > 0);
+        sink += acc;
+        return visited == 0 ? 0 : (double) (now - start) / visited;
+    }
+
+    private double measureClear(Object instance) {
+        int size = instance instanceof Map ? ((Map<?, ?>) instance).size() : ((Collection<?>) instance).size();
+        long start = System.nanoTime();
+        if (instance instanceof Map) {
+            ((Map<?, ?>) instance).clear();
+        } else {
+            ((Collection<?>) instance).clear();
+        }
+        long elapsed = System.nanoTime() - start;
+        return (double) elapsed / Math.max(1, size);
+    }
+
+    // SEQUENTIAL: 0..n-1 in order; RANDOM: a shuffled permutation of 0..n-1;
+    // ZIPF: n draws from a Zipf(s=1) distribution over n ranks, so hot keys repeat
+    static Object[] generateKeys(int n, Distribution distribution, KeyType keyType, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] values = new long[n];
+        switch (distribution) {
+            case SEQUENTIAL:
+                for (int i = 0; i < n; i++) values[i] = i;
+                break;
+            case RANDOM:
+                for (int i = 0; i < n; i++) values[i] = i;
+                for (int i = n - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    long tmp = values[i];
+                    values[i] = values[j];
+                    values[j] = tmp;
+                }
+                break;
+            default:
+                // Inverse CDF of the continuous 1/x density on [1, n+1]
+                double logRange = Math.log(n + 1.0);
+                for (int i = 0; i < n; i++) {
+                    values[i] = Math.min(n - 1, (long) Math.exp(random.nextDouble() * logRange) - 1);
+                }
+                break;
+        }
+
+        Object[] keys = new Object[n];
+        for (int i = 0; i < n; i++) {
+            // PRIMITIVE keys are boxed here too and unboxed once before measuring
+            keys[i] = keyType == KeyType.STRING ? Long.toString(values[i]) : Long.valueOf(values[i]);
+        }
+        return keys;
+    }
+
+    public static void writeResults(List<Result> results, File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            out.println(CSV_HEADER);
+            for (Result result : results) out.println(result.toCsv());
+        }
+    }
+
+    public static List<Result> loadResults(File file) throws IOException {
+        List<Result> results = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("class,")) continue;
+                try {
+                    results.add(Result.parse(line));
+                } catch (RuntimeException e) {
+                    // Skip rows written by an older or newer format
+                }
+            }
+        }
+        return results;
+    }
+
+    // Results file next to the working directory, overridable with -Dadvisor.benchmarks=path
+    public static File defaultResultsFile() {
+        return new File(System.getProperty("advisor.benchmarks", DEFAULT_RESULTS_FILE));
+    }
+
+    // Short per-operation summary for one class at the largest measured size, preferring
+    // String keys with a random distribution since that matches CSV-imported data
+    public static String summarize(List<Result> results, String className) {
+        int largest = 0;
+        for (Result r : results) {
+            if (r.className.equals(className) && r.keyType == KeyType.STRING
+                    && r.distribution == Distribution.RANDOM) {
+                largest = Math.max(largest, r.size);
+            }
+        }
+        if (largest == 0) return null;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Measured on this machine (n=%,d, String keys, random order):\n", largest));
+        for (Result r : results) {
+            if (r.className.equals(className) && r.keyType == KeyType.STRING
+                    && r.distribution == Distribution.RANDOM && r.size == largest) {
+                sb.append(String.format("• %-9s %,12.1f ns/op  (%,.0f ops/s)\n",
+                    r.operation.name().toLowerCase(Locale.ROOT), r.nsPerOp, r.opsPerSecond()));
+            }
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> classes = CollectionRegistry.names();
+        int[] sizes = {1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+        List<Distribution> distributions = Arrays.asList(Distribution.values());
+        List<KeyType> keyTypes = Arrays.asList(KeyType.values());
+        File out = defaultResultsFile();
+        CollectionBenchmark benchmark = new CollectionBenchmark();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (arg) {
+                case "--classes": classes = Arrays.asList(value.split(",")); i++; break;
+                case "--sizes": sizes = parseSizes(value); i++; break;
+                case "--dist": distributions = parseEnums(Distribution.class, value); i++; break;
+                case "--keys": keyTypes = parseEnums(KeyType.class, value); i++; break;
+                case "--warmup": benchmark.warmupIterations(Integer.parseInt(value)); i++; break;
+                case "--iterations": benchmark.measurementIterations(Integer.parseInt(value)); i++; break;
+                case "--time-ms": benchmark.iterationMillis(Long.parseLong(value)); i++; break;
+                case "--seed": benchmark.seed(Long.parseLong(value)); i++; break;
+                case "--out": out = new File(value); i++; break;
+                default:
+                    System.err.println("Unknown option: " + arg);
+                    System.err.println("Options: --classes A,B --sizes 1e3,1e6 --dist SEQUENTIAL,RANDOM,ZIPF"
+                        + " --keys STRING,BOXED,PRIMITIVE --warmup N --iterations N --time-ms N --seed N --out file.csv");
+                    System.exit(2);
+            }
+        }
+
+        for (String name : classes) {
+            if (!CollectionRegistry.contains(name)) throw new IllegalArgumentException("Unknown collection: " + name);
+        }
+
+        List<Result> results = benchmark.run(classes, sizes, distributions, keyTypes);
+        writeResults(results, out);
+        System.out.println("Wrote " + results.size() + " results to " + out.getPath());
+    }
+
+    static int[] parseSizes(String value) {
+        String[] parts = value.split(",");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            sizes[i] = (int) Double.parseDouble(parts[i].trim());
+        }
+        return sizes;
+    }
+
+    static <E extends Enum<E>> List<E> parseEnums(Class<E> type, String value) {
+        List<E> list = new ArrayList<>();
+        for (String part : value.split(",")) {
+            list.add(Enum.valueOf(type, part.trim().toUpperCase(Locale.ROOT)));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,574 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+
+// Typed operation adapter over a collection instance. One adapter is resolved per
+// collection and then called directly, so hot loops such as CSV import go through
+// plain interface calls the JIT can inline instead of Method.invoke.
+public interface CollectionOps {
+
+    Object target();
+
+    boolean isKeyValue();
+
+    void add(String value);
+
+    void put(String key, String value);
+
+    // Removes an element; for maps removes the key and reports whether it was present
+    boolean remove(String value);
+
+    // Removes a key and returns its previous value (null when absent)
+    Object removeKey(String key);
+
+    // contains() for collections, containsKey() for maps
+    boolean contains(String key);
+
+    Object get(String key);
+
+    // Position of the value in a List, -1 otherwise
+    int indexOf(String value);
+
+    int size();
+
+    void clear();
+
+    // Bulk insert of values[0..count) in order; adapters over java.util collections
+    // override it with a single addAll
+    default void addAll(String[] values, int count) {
+        for (int i = 0; i < count; i++) add(values[i]);
+    }
+
+    // Bulk put of keys[i] -> values[i] in order; later duplicates win, as with put
+    default void putAll(String[] keys, String[] values, int count) {
+        for (int i = 0; i < count; i++) put(keys[i], values[i]);
+    }
+
+    @SuppressWarnings("unchecked")
+    static CollectionOps of(Object instance) {
+        if (instance instanceof IntArrayList) return new IntListOps((IntArrayList) instance);
+        if (instance instanceof LongHashSet) return new LongSetOps((LongHashSet) instance);
+        if (instance instanceof LongObjectHashMap) return new LongMapOps((LongObjectHashMap<String>) instance);
+        if (instance instanceof ConcurrentMap) return new ConcurrentMapOps((ConcurrentMap<String, String>) instance);
+        if (instance instanceof Map) return new MapOps((Map<String, String>) instance);
+        if (instance instanceof List) return new ListOps((List<String>) instance);
+        if (instance instanceof Collection) return new SetOps((Collection<String>) instance);
+        return new MethodHandleOps(instance);
+    }
+
+    final class ListOps implements CollectionOps {
+        private final List<String> list;
+
+        ListOps(List<String> list) {
+            this.list = list;
+        }
+
+        public Object target() { return list; }
+        public boolean isKeyValue() { return false; }
+        public void add(String value) { list.add(value); }
+        public void put(String key, String value) { throw new UnsupportedOperationException("put on a List"); }
+        public boolean remove(String value) { return list.remove(value); }
+        public Object removeKey(String key) { return list.remove(key) ? key : null; }
+        public boolean contains(String key) { return list.contains(key); }
+        public Object get(String key) { return list.contains(key) ? key : null; }
+        public int indexOf(String value) { return list.indexOf(value); }
+        public int size() { return list.size(); }
+        public void clear() { list.clear(); }
+        public void addAll(String[] values, int count) { list.addAll(Arrays.asList(values).subList(0, count)); }
+    }
+
+    // Sets and any other non-List Collection
+    final class SetOps implements CollectionOps {
+        private final Collection<String> set;
+
+        SetOps(Collection<String> set) {
+            this.set = set;
+        }
+
+        public Object target() { return set; }
+        public boolean isKeyValue() { return false; }
+        public void add(String value) { set.add(value); }
+        public void put(String key, String value) { throw new UnsupportedOperationException("put on a Set"); }
+        public boolean remove(String value) { return set.remove(value); }
+        public Object removeKey(String key) { return set.remove(key) ? key : null; }
+        public boolean contains(String key) { return set.contains(key); }
+        public Object get(String key) { return set.contains(key) ? key : null; }
+        public int indexOf(String value) { return -1; }
+        public int size() { return set.size(); }
+        public void clear() { set.clear(); }
+
+        // An empty TreeSet builds its tree in one linear pass from a SortedSet with its
+        // own ordering, instead of count O(log n) inserts with rebalancing
+        @SuppressWarnings("unchecked")
+        public void addAll(String[] values, int count) {
+            Comparator<? super String> order = set instanceof SortedSet ? ((SortedSet<String>) set).comparator() : null;
+            set.addAll(set instanceof SortedSet && set.isEmpty() && ascending(values, count, order)
+                ? new SortedRowSet(values, count, order)
+                : Arrays.asList(values).subList(0, count));
+        }
+    }
+
+    final class MapOps implements CollectionOps {
+        private final Map<String, String> map;
+
+        MapOps(Map<String, String> map) {
+            this.map = map;
+        }
+
+        public Object target() { return map; }
+        public boolean isKeyValue() { return true; }
+        public void add(String value) { throw new UnsupportedOperationException("add on a Map"); }
+        public void put(String key, String value) { map.put(key, value); }
+
+        // Values may be null, so presence has to be checked separately from the removed value
+        public boolean remove(String value) {
+            if (!map.containsKey(value)) return false;
+            map.remove(value);
+            return true;
+        }
+
+        public Object removeKey(String key) { return map.remove(key); }
+        public boolean contains(String key) { return map.containsKey(key); }
+        public Object get(String key) { return map.get(key); }
+        public int indexOf(String value) { return -1; }
+        public int size() { return map.size(); }
+        public void clear() { map.clear(); }
+
+        // Same for an empty TreeMap, and SortedArrayMap skips its sort
+        @SuppressWarnings("unchecked")
+        public void putAll(String[] keys, String[] values, int count) {
+            Comparator<? super String> order = map instanceof SortedMap ? ((SortedMap<String, String>) map).comparator() : null;
+            map.putAll(map instanceof SortedMap && ascending(keys, count, order)
+                ? new SortedRows(keys, values, count, order)
+                : new RowMap(keys, values, count));
+        }
+    }
+
+    // Concurrent maps reject null values, so a single get/remove answers presence
+    // atomically instead of a racy containsKey-then-act pair
+    final class ConcurrentMapOps implements CollectionOps {
+        private final ConcurrentMap<String, String> map;
+
+        ConcurrentMapOps(ConcurrentMap<String, String> map) {
+            this.map = map;
+        }
+
+        public Object target() { return map; }
+        public boolean isKeyValue() { return true; }
+        public void add(String value) { throw new UnsupportedOperationException("add on a Map"); }
+        public void put(String key, String value) { map.put(key, value); }
+        public boolean remove(String value) { return map.remove(value) != null; }
+        public Object removeKey(String key) { return map.remove(key); }
+        public boolean contains(String key) { return map.get(key) != null; }
+        public Object get(String key) { return map.get(key); }
+        public int indexOf(String value) { return -1; }
+        public int size() { return map.size(); }
+        public void clear() { map.clear(); }
+        public void putAll(String[] keys, String[] values, int count) { map.putAll(new RowMap(keys, values, count)); }
+    }
+
+    // Read-only Map view over parallel key/value arrays, iterated in array order. Its
+    // size() lets HashMap and ConcurrentHashMap size their table once in putAll instead
+    // of rehashing as rows arrive; duplicate keys only make that estimate generous.
+    final class RowMap extends AbstractMap<String, String> {
+        private final String[] keys;
+        private final String[] values;
+        private final int count;
+
+        RowMap(String[] keys, String[] values, int count) {
+            this.keys = keys;
+            this.values = values;
+            this.count = count;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet() {
+            return new AbstractSet<Map.Entry<String, String>>() {
+                public int size() {
+                    return count;
+                }
+
+                public Iterator<Map.Entry<String, String>> iterator() {
+                    return new Iterator<Map.Entry<String, String>>() {
+                        private int next;
+
+                        public boolean hasNext() {
+                            return next < count;
+                        }
+
+                        public Map.Entry<String, String> next() {
+                            if (next >= count) throw new NoSuchElementException();
+                            int i = next++;
+                            return new AbstractMap.SimpleImmutableEntry<>(keys[i], values[i]);
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    // Strictly ascending under the given ordering (natural when null)
+    static boolean ascending(String[] keys, int count, Comparator<? super String> order) {
+        for (int i = 1; i < count; i++) {
+            int c = order != null ? order.compare(keys[i - 1], keys[i]) : keys[i - 1].compareTo(keys[i]);
+            if (c >= 0) return false;
+        }
+        return true;
+    }
+
+    // Rows known to ascend, as the SortedMap / SortedSet that TreeMap.putAll and
+    // TreeSet.addAll accept for their linear-time build. Like Snapshot's record views,
+    // only comparator(), size(), first/last and iteration are supported.
+    final class SortedRows extends AbstractMap<String, String> implements SortedMap<String, String> {
+        private final String[] keys;
+        private final RowMap rows;
+        private final int count;
+        private final Comparator<? super String> order;
+
+        SortedRows(String[] keys, String[] values, int count, Comparator<? super String> order) {
+            this.keys = keys;
+            this.rows = new RowMap(keys, values, count);
+            this.count = count;
+            this.order = order;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet() {
+            return rows.entrySet();
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            return order;
+        }
+
+        @Override
+        public SortedMap<String, String> subMap(String fromKey, String toKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedMap<String, String> headMap(String toKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedMap<String, String> tailMap(String fromKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String firstKey() {
+            if (count == 0) throw new NoSuchElementException();
+            return keys[0];
+        }
+
+        @Override
+        public String lastKey() {
+            if (count == 0) throw new NoSuchElementException();
+            return keys[count - 1];
+        }
+    }
+
+    final class SortedRowSet extends AbstractSet<String> implements SortedSet<String> {
+        private final String[] values;
+        private final int count;
+        private final Comparator<? super String> order;
+
+        SortedRowSet(String[] values, int count, Comparator<? super String> order) {
+            this.values = values;
+            this.count = count;
+            this.order = order;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return Arrays.asList(values).subList(0, count).iterator();
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            return order;
+        }
+
+        @Override
+        public SortedSet<String> subSet(String fromElement, String toElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<String> headSet(String toElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<String> tailSet(String fromElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String first() {
+            if (count == 0) throw new NoSuchElementException();
+            return values[0];
+        }
+
+        @Override
+        public String last() {
+            if (count == 0) throw new NoSuchElementException();
+            return values[count - 1];
+        }
+    }
+
+    // Primitive-specialized adapters parse the text once and call the unboxed methods.
+    // Inserts reject non-numeric input; lookups simply report it as absent.
+
+    final class IntListOps implements CollectionOps {
+        private final IntArrayList list;
+
+        IntListOps(IntArrayList list) {
+            this.list = list;
+        }
+
+        public Object target() { return list; }
+        public boolean isKeyValue() { return false; }
+        public void add(String value) { list.addInt(parseInt(value, "IntArrayList")); }
+        public void put(String key, String value) { throw new UnsupportedOperationException("put on a List"); }
+        public boolean remove(String value) { return isInt(value) && list.removeInt(Integer.parseInt(value)); }
+        public Object removeKey(String key) { return remove(key) ? key : null; }
+        public boolean contains(String key) { return isInt(key) && list.containsInt(Integer.parseInt(key)); }
+        public Object get(String key) { return contains(key) ? key : null; }
+        public int indexOf(String value) { return isInt(value) ? list.indexOfInt(Integer.parseInt(value)) : -1; }
+        public int size() { return list.size(); }
+        public void clear() { list.clear(); }
+    }
+
+    final class LongSetOps implements CollectionOps {
+        private final LongHashSet set;
+
+        LongSetOps(LongHashSet set) {
+            this.set = set;
+        }
+
+        public Object target() { return set; }
+        public boolean isKeyValue() { return false; }
+        public void add(String value) { set.addLong(parseLong(value, "LongHashSet")); }
+        public void put(String key, String value) { throw new UnsupportedOperationException("put on a Set"); }
+        public boolean remove(String value) { return CsvImporter.NumericProfile.isLong(value) && set.removeLong(Long.parseLong(value)); }
+        public Object removeKey(String key) { return remove(key) ? key : null; }
+        public boolean contains(String key) { return CsvImporter.NumericProfile.isLong(key) && set.containsLong(Long.parseLong(key)); }
+        public Object get(String key) { return contains(key) ? key : null; }
+        public int indexOf(String value) { return -1; }
+        public int size() { return set.size(); }
+        public void clear() { set.clear(); }
+    }
+
+    final class LongMapOps implements CollectionOps {
+        private final LongObjectHashMap<String> map;
+
+        LongMapOps(LongObjectHashMap<String> map) {
+            this.map = map;
+        }
+
+        public Object target() { return map; }
+        public boolean isKeyValue() { return true; }
+        public void add(String value) { throw new UnsupportedOperationException("add on a Map"); }
+        public void put(String key, String value) { map.putLong(parseLong(key, "LongObjectHashMap"), value); }
+
+        public boolean remove(String value) {
+            if (!contains(value)) return false;
+            map.removeLong(Long.parseLong(value));
+            return true;
+        }
+
+        public Object removeKey(String key) { return CsvImporter.NumericProfile.isLong(key) ? map.removeLong(Long.parseLong(key)) : null; }
+        public boolean contains(String key) { return CsvImporter.NumericProfile.isLong(key) && map.containsLongKey(Long.parseLong(key)); }
+        public Object get(String key) { return CsvImporter.NumericProfile.isLong(key) ? map.getLong(Long.parseLong(key)) : null; }
+        public int indexOf(String value) { return -1; }
+        public int size() { return map.size(); }
+        public void clear() { map.clear(); }
+    }
+
+    static boolean isInt(String text) {
+        if (!CsvImporter.NumericProfile.isLong(text)) return false;
+        long value = Long.parseLong(text);
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+    }
+
+    static int parseInt(String text, String owner) {
+        if (!isInt(text)) throw new NumberFormatException(owner + " only holds int values, got \"" + text + "\"");
+        return Integer.parseInt(text);
+    }
+
+    static long parseLong(String text, String owner) {
+        if (!CsvImporter.NumericProfile.isLong(text)) {
+            throw new NumberFormatException(owner + " only holds long values, got \"" + text + "\"");
+        }
+        return Long.parseLong(text);
+    }
+
+    // Fallback for classes that implement neither Collection nor Map but expose the
+    // usual method names. Handles are looked up once and invoked exactly.
+    final class MethodHandleOps implements CollectionOps {
+        private static final MethodType UNARY = MethodType.methodType(Object.class, Object.class, Object.class);
+        private static final MethodType BINARY = MethodType.methodType(Object.class, Object.class, Object.class, Object.class);
+
+        private final Object target;
+        private final boolean keyValue;
+        private final MethodHandle insert, remove, contains, get, indexOf, size, clear;
+
+        MethodHandleOps(Object target) {
+            this.target = target;
+            Class<?> clazz = target.getClass();
+            this.keyValue = findPublicMethod(clazz, "put", Object.class, Object.class) != null;
+            this.insert = keyValue
+                ? handle(clazz, BINARY, "put", Object.class, Object.class)
+                : handle(clazz, UNARY, "add", Object.class);
+            this.remove = handle(clazz, UNARY, "remove", Object.class);
+            this.contains = handle(clazz, MethodType.methodType(boolean.class, Object.class, Object.class),
+                keyValue ? "containsKey" : "contains", Object.class);
+            this.get = keyValue ? handle(clazz, UNARY, "get", Object.class) : null;
+            this.indexOf = handle(clazz, MethodType.methodType(int.class, Object.class, Object.class),
+                "indexOf", Object.class);
+            this.size = handle(clazz, MethodType.methodType(int.class, Object.class), "size");
+            this.clear = handle(clazz, MethodType.methodType(void.class, Object.class), "clear");
+        }
+
+        public Object target() { return target; }
+        public boolean isKeyValue() { return keyValue; }
+
+        public void add(String value) {
+            if (keyValue) throw new UnsupportedOperationException("add on a key-value type");
+            try {
+                Object ignored = require(insert, "add").invokeExact(target, (Object) value);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public void put(String key, String value) {
+            if (!keyValue) throw new UnsupportedOperationException("put on a non key-value type");
+            try {
+                Object ignored = require(insert, "put").invokeExact(target, (Object) key, (Object) value);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public boolean remove(String value) {
+            Object result = removeKey(value);
+            return keyValue ? result != null : Boolean.TRUE.equals(result);
+        }
+
+        public Object removeKey(String key) {
+            try {
+                return require(remove, "remove").invokeExact(target, (Object) key);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public boolean contains(String key) {
+            try {
+                return (boolean) require(contains, keyValue ? "containsKey" : "contains").invokeExact(target, (Object) key);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public Object get(String key) {
+            if (get == null) return contains(key) ? key : null;
+            try {
+                return get.invokeExact(target, (Object) key);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public int indexOf(String value) {
+            if (indexOf == null) return -1;
+            try {
+                return (int) indexOf.invokeExact(target, (Object) value);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public int size() {
+            try {
+                return (int) require(size, "size").invokeExact(target);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public void clear() {
+            try {
+                require(clear, "clear").invokeExact(target);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        private MethodHandle require(MethodHandle handle, String name) {
+            if (handle == null) {
+                throw new UnsupportedOperationException(target.getClass().getSimpleName() + " has no " + name + " method");
+            }
+            return handle;
+        }
+
+        private static MethodHandle handle(Class<?> clazz, MethodType type, String name, Class<?>... params) {
+            Method method = findPublicMethod(clazz, name, params);
+            if (method == null) return null;
+            try {
+                return MethodHandles.publicLookup().unreflect(method).asType(type);
+            } catch (IllegalAccessException | WrongMethodTypeException e) {
+                return null;
+            }
+        }
+
+        // getMethod can return a method declared on a non-public class (for example
+        // a JDK wrapper); walk the interfaces for an accessible declaration instead
+        private static Method findPublicMethod(Class<?> clazz, String name, Class<?>... params) {
+            for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+                if (Modifier.isPublic(c.getModifiers())) {
+                    try {
+                        return c.getMethod(name, params);
+                    } catch (NoSuchMethodException ignored) {
+                        // keep looking
+                    }
+                }
+                for (Class<?> iface : c.getInterfaces()) {
+                    Method m = findPublicMethod(iface, name, params);
+                    if (m != null) return m;
+                }
+            }
+            return null;
+        }
+
+        private static RuntimeException rethrow(Throwable t) {
+            if (t instanceof RuntimeException) return (RuntimeException) t;
+            if (t instanceof Error) throw (Error) t;
+            return new RuntimeException(t);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// Every collection class the advisor can recommend, keyed by the name shown in the UI
+public final class CollectionRegistry {
+
+    // Semantic guarantees a class offers, used to filter candidates against requirements.
+    // UNIQUE means elements (or map keys) are de-duplicated; DUPLICATES means they are kept.
+    // INT_KEYS / LONG_KEYS mark primitive-specialized classes that only hold integers.
+    // OFF_HEAP marks classes whose data lives in native memory outside the Java heap.
+    // BOUNDED marks caches that evict entries beyond a capacity; EXPIRING ones also drop
+    // entries after a time-to-live.
+    public enum Trait {
+        KEY_VALUE, UNIQUE, DUPLICATES, INSERTION_ORDER, SORTED, THREAD_SAFE, INT_KEYS, LONG_KEYS, OFF_HEAP,
+        BOUNDED, EXPIRING
+    }
+
+    private static final Map<String, Class<?>> CLASSES = new LinkedHashMap<>();
+    private static final Map<String, Set<Trait>> TRAITS = new HashMap<>();
+    // Classes without a public no-arg constructor are created through a factory
+    private static final Map<String, Supplier<Object>> FACTORIES = new HashMap<>();
+    // Constructors that take an expected element count (and, for hash tables, a load factor)
+    private static final Map<String, SizedFactory> SIZED = new HashMap<>();
+    // Bounded caches, created from a capacity and a TTL (ignored unless EXPIRING)
+    private static final Map<String, CacheFactory> CACHES = new HashMap<>();
+
+    public static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    // Pre-sizing is capped so a wild estimate cannot allocate a huge empty table up front
+    static final int MAX_PRESIZE = 1 << 26;
+
+    interface SizedFactory {
+        Object create(int expectedSize, float loadFactor);
+    }
+
+    interface CacheFactory {
+        Object create(int capacity, long ttlMillis);
+    }
+
+    static {
+        register("ArrayList", ArrayList.class, Trait.DUPLICATES, Trait.INSERTION_ORDER);
+        register("LinkedList", LinkedList.class, Trait.DUPLICATES, Trait.INSERTION_ORDER);
+        register("HashSet", HashSet.class, Trait.UNIQUE);
+        register("LinkedHashSet", LinkedHashSet.class, Trait.UNIQUE, Trait.INSERTION_ORDER);
+        register("TreeSet", TreeSet.class, Trait.UNIQUE, Trait.SORTED);
+        register("HashMap", HashMap.class, Trait.KEY_VALUE, Trait.UNIQUE);
+        register("LinkedHashMap", LinkedHashMap.class, Trait.KEY_VALUE, Trait.UNIQUE, Trait.INSERTION_ORDER);
+        register("TreeMap", TreeMap.class, Trait.KEY_VALUE, Trait.UNIQUE, Trait.SORTED);
+        register("Vector", Vector.class, Trait.DUPLICATES, Trait.INSERTION_ORDER, Trait.THREAD_SAFE);
+        register("ConcurrentHashMap", ConcurrentHashMap.class,
+            Trait.KEY_VALUE, Trait.UNIQUE, Trait.THREAD_SAFE);
+        register("ConcurrentSkipListMap", ConcurrentSkipListMap.class,
+            Trait.KEY_VALUE, Trait.UNIQUE, Trait.SORTED, Trait.THREAD_SAFE);
+        register("StripedTreeMap", StripedTreeMap.class,
+            Trait.KEY_VALUE, Trait.UNIQUE, Trait.SORTED, Trait.THREAD_SAFE);
+        register("ConcurrentHashMap.newKeySet", ConcurrentHashMap.KeySetView.class, ConcurrentHashMap::newKeySet,
+            Trait.UNIQUE, Trait.THREAD_SAFE);
+        register("ConcurrentSkipListSet", ConcurrentSkipListSet.class, Trait.UNIQUE, Trait.SORTED, Trait.THREAD_SAFE);
+        register("CopyOnWriteArraySet", CopyOnWriteArraySet.class,
+            Trait.UNIQUE, Trait.INSERTION_ORDER, Trait.THREAD_SAFE);
+        register("CopyOnWriteArrayList", CopyOnWriteArrayList.class,
+            Trait.DUPLICATES, Trait.INSERTION_ORDER, Trait.THREAD_SAFE);
+        register("ConcurrentLinkedDeque", ConcurrentLinkedDeque.class,
+            Trait.DUPLICATES, Trait.INSERTION_ORDER, Trait.THREAD_SAFE);
+        register("ConcurrentLinkedHashMap", ConcurrentLinkedHashMap.class,
+            Trait.KEY_VALUE, Trait.UNIQUE, Trait.INSERTION_ORDER, Trait.THREAD_SAFE);
+        register("ConcurrentLinkedHashMap.newKeySet", ConcurrentLinkedHashMap.KeySetView.class,
+            ConcurrentLinkedHashMap::newKeySet, Trait.UNIQUE, Trait.INSERTION_ORDER, Trait.THREAD_SAFE);
+        register("StripedTreeSet", StripedTreeSet.class, Trait.UNIQUE, Trait.SORTED, Trait.THREAD_SAFE);
+        register("SortedArrayMap", SortedArrayMap.class, Trait.KEY_VALUE, Trait.UNIQUE, Trait.SORTED);
+        register("IntArrayList", IntArrayList.class, Trait.DUPLICATES, Trait.INSERTION_ORDER, Trait.INT_KEYS);
+        register("LongHashSet", LongHashSet.class, Trait.UNIQUE, Trait.LONG_KEYS);
+        register("LongObjectHashMap", LongObjectHashMap.class, Trait.KEY_VALUE, Trait.UNIQUE, Trait.LONG_KEYS);
+        register("OffHeapList", OffHeapList.class, Trait.DUPLICATES, Trait.INSERTION_ORDER, Trait.OFF_HEAP);
+        register("OffHeapHashSet", OffHeapHashSet.class, Trait.UNIQUE, Trait.OFF_HEAP);
+        register("OffHeapHashMap", OffHeapHashMap.class, Trait.KEY_VALUE, Trait.UNIQUE, Trait.OFF_HEAP);
+        register("LruLinkedHashMap", LruLinkedHashMap.class, Trait.KEY_VALUE, Trait.UNIQUE, Trait.BOUNDED);
+        register("ConcurrentLruCache", ConcurrentLruCache.class,
+            Trait.KEY_VALUE, Trait.UNIQUE, Trait.BOUNDED, Trait.THREAD_SAFE);
+        register("TinyLfuCache", TinyLfuCache.class, Trait.KEY_VALUE, Trait.UNIQUE, Trait.BOUNDED);
+        register("TtlCache", TtlCache.class,
+            Trait.KEY_VALUE, Trait.UNIQUE, Trait.BOUNDED, Trait.EXPIRING, Trait.THREAD_SAFE);
+
+        // java.util hash tables take a bucket count, not an element count, so it is
+        // scaled by the load factor; the primitive and off-heap tables do that themselves
+        SIZED.put("ArrayList", (n, lf) -> new ArrayList<>(n));
+        SIZED.put("Vector", (n, lf) -> new Vector<>(n));
+        SIZED.put("HashSet", (n, lf) -> new HashSet<>(tableCapacity(n, lf), lf));
+        SIZED.put("LinkedHashSet", (n, lf) -> new LinkedHashSet<>(tableCapacity(n, lf), lf));
+        SIZED.put("HashMap", (n, lf) -> new HashMap<>(tableCapacity(n, lf), lf));
+        SIZED.put("LinkedHashMap", (n, lf) -> new LinkedHashMap<>(tableCapacity(n, lf), lf));
+        SIZED.put("ConcurrentHashMap", (n, lf) -> new ConcurrentHashMap<>(n, lf));
+        SIZED.put("ConcurrentHashMap.newKeySet", (n, lf) -> new ConcurrentHashMap<String, Boolean>(n, lf).keySet(Boolean.TRUE));
+        SIZED.put("ConcurrentLinkedHashMap", (n, lf) -> new ConcurrentLinkedHashMap<String, String>(n, lf));
+        SIZED.put("ConcurrentLinkedHashMap.newKeySet", (n, lf) -> ConcurrentLinkedHashMap.<String>newKeySet(n, lf));
+        SIZED.put("IntArrayList", (n, lf) -> new IntArrayList(n));
+        SIZED.put("LongHashSet", LongHashSet::new);
+        SIZED.put("LongObjectHashMap", LongObjectHashMap::new);
+        SIZED.put("OffHeapList", (n, lf) -> new OffHeapList(n));
+        SIZED.put("OffHeapHashSet", OffHeapHashSet::new);
+        SIZED.put("OffHeapHashMap", OffHeapHashMap::new);
+
+        CACHES.put("LruLinkedHashMap", (capacity, ttl) -> new LruLinkedHashMap<String, String>(capacity));
+        CACHES.put("ConcurrentLruCache", (capacity, ttl) -> new ConcurrentLruCache<String, String>(capacity));
+        CACHES.put("TinyLfuCache", (capacity, ttl) -> new TinyLfuCache<String, String>(capacity));
+        CACHES.put("TtlCache", (capacity, ttl) -> new TtlCache<String, String>(capacity, ttl));
+    }
+
+    private CollectionRegistry() {
+    }
+
+    private static void register(String name, Class<?> clazz, Trait... traits) {
+        register(name, clazz, null, traits);
+    }
+
+    private static void register(String name, Class<?> clazz, Supplier<Object> factory, Trait... traits) {
+        CLASSES.put(name, clazz);
+        if (factory != null) FACTORIES.put(name, factory);
+        Set<Trait> set = EnumSet.noneOf(Trait.class);
+        set.addAll(Arrays.asList(traits));
+        TRAITS.put(name, Collections.unmodifiableSet(set));
+    }
+
+    public static List<String> names() {
+        return new ArrayList<>(CLASSES.keySet());
+    }
+
+    public static boolean contains(String name) {
+        return CLASSES.containsKey(name);
+    }
+
+    // Unknown names fall back to ArrayList, matching the original switch default
+    public static Class<?> classForName(String name) {
+        Class<?> clazz = CLASSES.get(name);
+        return clazz != null ? clazz : ArrayList.class;
+    }
+
+    public static Object newInstance(String name) throws Exception {
+        Supplier<Object> factory = FACTORIES.get(name);
+        if (factory != null) return factory.get();
+        return classForName(name).getDeclaredConstructor().newInstance();
+    }
+
+    // Instance pre-sized for expectedSize elements; classes without a sizing constructor
+    // (trees, linked and copy-on-write structures) fall back to newInstance(name). For a
+    // bounded cache the expected size is its capacity.
+    public static Object newInstance(String name, int expectedSize, float loadFactor) throws Exception {
+        if (isBounded(name) && expectedSize > 0) return newCache(name, expectedSize, TtlCache.DEFAULT_TTL_MILLIS);
+        SizedFactory sized = SIZED.get(name);
+        if (sized == null || expectedSize <= 0) return newInstance(name);
+        checkLoadFactor(loadFactor);
+        return sized.create(Math.min(expectedSize, MAX_PRESIZE), loadFactor);
+    }
+
+    public static Object newCache(String name, int capacity, long ttlMillis) {
+        CacheFactory factory = CACHES.get(name);
+        if (factory == null) throw new IllegalArgumentException(name + " is not a bounded cache");
+        return factory.create(capacity, ttlMillis);
+    }
+
+    public static boolean isBounded(String name) {
+        return traits(name).contains(Trait.BOUNDED);
+    }
+
+    public static boolean isSizable(String name) {
+        return SIZED.containsKey(name);
+    }
+
+    public static boolean usesLoadFactor(String name) {
+        return isSizable(name) && !List.class.isAssignableFrom(classForName(name));
+    }
+
+    // Every hash table here accepts (0, 1); the primitive tables reject anything else
+    public static void checkLoadFactor(float loadFactor) {
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Load factor must be between 0 and 1: " + loadFactor);
+        }
+    }
+
+    // Bucket count at which expectedSize elements fit without a resize
+    static int tableCapacity(int expectedSize, float loadFactor) {
+        return (int) Math.min(Integer.MAX_VALUE >> 1, (long) Math.ceil(expectedSize / (double) loadFactor));
+    }
+
+    // Registry name of a class, or null if it is not registered
+    public static String nameForClass(Class<?> clazz) {
+        for (Map.Entry<String, Class<?>> entry : CLASSES.entrySet()) {
+            if (entry.getValue() == clazz) return entry.getKey();
+        }
+        return null;
+    }
+
+    public static boolean isKeyValue(String name) {
+        return Map.class.isAssignableFrom(classForName(name));
+    }
+
+    public static Set<Trait> traits(String name) {
+        Set<Trait> traits = TRAITS.get(name);
+        return traits != null ? traits : Collections.<Trait>emptySet();
+    }
+
+    public static boolean isPrimitive(String name) {
+        Set<Trait> traits = traits(name);
+        return traits.contains(Trait.INT_KEYS) || traits.contains(Trait.LONG_KEYS);
+    }
+
+    public static boolean isOffHeap(String name) {
+        return traits(name).contains(Trait.OFF_HEAP);
+    }
+
+    // Whether a class can hold the observed keys; primitive classes need integer keys
+    public static boolean accepts(String name, CsvImporter.NumericProfile keys) {
+        Set<Trait> traits = traits(name);
+        if (traits.contains(Trait.INT_KEYS)) return keys != null && keys.fitsInt();
+        if (traits.contains(Trait.LONG_KEYS)) return keys != null && keys.isNumeric();
+        return true;
+    }
+
+    // Primitive-specialized replacement with the same semantics, or null if there is
+    // none. Ordered, sorted and thread-safe classes have no equivalent here.
+    public static String primitiveAlternative(String name, CsvImporter.NumericProfile keys) {
+        if (keys == null || !keys.isNumeric()) return null;
+        switch (name) {
+            case "ArrayList":
+            case "LinkedList":
+                return keys.fitsInt() ? "IntArrayList" : null;
+            case "HashSet":
+                return "LongHashSet";
+            case "HashMap":
+                return "LongObjectHashMap";
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+// Thread-safe map that iterates in insertion order, like LinkedHashMap, without a lock.
+// A ConcurrentHashMap indexes the entries by key; the entries themselves also form a
+// singly linked list in insertion order that new keys are appended to with a CAS, as in
+// ConcurrentLinkedQueue. Values are swapped with a CAS, and a removal nulls the value
+// first, so a removed entry reads as absent at once; dead entries are unlinked from the
+// list in batches once they outnumber the live ones. As in LinkedHashMap, replacing a
+// value keeps the key's position and a key removed and added again moves to the end.
+// Iteration is weakly consistent, as in ConcurrentHashMap: it never throws
+// ConcurrentModificationException and sees some, not necessarily all, concurrent updates.
+public class ConcurrentLinkedHashMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+    // Unlinking waits for this many dead entries, so small maps do not clean on every remove
+    private static final int MIN_DEAD_TO_UNLINK = 64;
+
+    private final ConcurrentHashMap<K, Node<K, V>> index;
+    // Sentinel, never removed; the list runs from head.next in insertion order
+    private final Node<K, V> head = new Node<>(null, null);
+    // The last node or one a few steps before it; appends walk forward from here
+    private final AtomicReference<Node<K, V>> tail = new AtomicReference<>(head);
+    private final AtomicInteger dead = new AtomicInteger();
+    private final AtomicBoolean unlinking = new AtomicBoolean();
+
+    public ConcurrentLinkedHashMap() {
+        index = new ConcurrentHashMap<>();
+    }
+
+    public ConcurrentLinkedHashMap(int expectedSize, float loadFactor) {
+        index = new ConcurrentHashMap<>(expectedSize, loadFactor);
+    }
+
+    // Set backed by a ConcurrentLinkedHashMap, the insertion-ordered counterpart of
+    // ConcurrentHashMap.newKeySet()
+    public static <E> KeySetView<E> newKeySet() {
+        return new KeySetView<>(new ConcurrentLinkedHashMap<E, Boolean>());
+    }
+
+    public static <E> KeySetView<E> newKeySet(int expectedSize, float loadFactor) {
+        return new KeySetView<>(new ConcurrentLinkedHashMap<E, Boolean>(expectedSize, loadFactor));
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = index.get(key);
+        return node != null ? node.value : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        checkNotNull(key, value);
+        while (true) {
+            Node<K, V> node = index.get(key);
+            if (node == null) {
+                if (insert(key, value)) return null;
+                continue;
+            }
+            V current = node.value;
+            if (current == null) {
+                discard(key, node);
+            } else if (node.casValue(current, value)) {
+                return current;
+            }
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        checkNotNull(key, value);
+        while (true) {
+            Node<K, V> node = index.get(key);
+            if (node == null) {
+                if (insert(key, value)) return null;
+                continue;
+            }
+            V current = node.value;
+            if (current != null) return current;
+            discard(key, node);
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        while (true) {
+            Node<K, V> node = index.get(key);
+            if (node == null) return null;
+            V current = node.value;
+            if (current == null) {
+                discard(key, node);
+                return null;
+            }
+            if (node.casValue(current, null)) {
+                discard(key, node);
+                return current;
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (value == null) return false;
+        while (true) {
+            Node<K, V> node = index.get(key);
+            if (node == null) return false;
+            V current = node.value;
+            if (current == null) {
+                discard(key, node);
+                return false;
+            }
+            if (!current.equals(value)) return false;
+            if (node.casValue(current, null)) {
+                discard(key, node);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        checkNotNull(key, newValue);
+        while (true) {
+            Node<K, V> node = index.get(key);
+            if (node == null) return false;
+            V current = node.value;
+            if (current == null || !current.equals(oldValue)) return false;
+            if (node.casValue(current, newValue)) return true;
+        }
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        checkNotNull(key, value);
+        while (true) {
+            Node<K, V> node = index.get(key);
+            if (node == null) return null;
+            V current = node.value;
+            if (current == null) return null;
+            if (node.casValue(current, value)) return current;
+        }
+    }
+
+    // Like ConcurrentHashMap, nulls are rejected so a null result always means "absent";
+    // a null value is also how a removed entry is marked
+    private static void checkNotNull(Object key, Object value) {
+        if (key == null || value == null) throw new NullPointerException("ConcurrentLinkedHashMap does not accept null keys or values");
+    }
+
+    // Publishes a new entry in the index, then appends it to the order list. False when
+    // another thread added the key first.
+    private boolean insert(K key, V value) {
+        Node<K, V> node = new Node<>(key, value);
+        if (index.putIfAbsent(key, node) != null) return false;
+        while (true) {
+            Node<K, V> last = tail.get();
+            Node<K, V> next = last.next;
+            if (next != null) {
+                // Another append is under way; help move the tail past it
+                tail.compareAndSet(last, next);
+            } else if (last.casNext(null, node)) {
+                tail.compareAndSet(last, node);
+                return true;
+            }
+        }
+    }
+
+    // Drops a removed entry from the index; whichever thread succeeds counts it as dead
+    private void discard(Object key, Node<K, V> node) {
+        if (index.remove(key, node) && dead.incrementAndGet() >= MIN_DEAD_TO_UNLINK
+                && dead.get() > index.size()) {
+            unlinkDead();
+        }
+    }
+
+    // One thread at a time walks the list and bypasses dead nodes; others skip the work
+    // rather than wait. A bypassed node keeps its own next pointer, so an iterator or
+    // append still standing on it reaches every later node, and the last node is never
+    // bypassed, so an append racing with the walk cannot be lost.
+    private void unlinkDead() {
+        if (!unlinking.compareAndSet(false, true)) return;
+        try {
+            int unlinked = 0;
+            Node<K, V> prev = head;
+            Node<K, V> node = prev.next;
+            while (node != null) {
+                Node<K, V> next = node.next;
+                if (node.value == null && next != null && prev.casNext(node, next)) {
+                    unlinked++;
+                } else {
+                    prev = node;
+                }
+                node = next;
+            }
+            dead.addAndGet(-unlinked);
+        } finally {
+            unlinking.set(false);
+        }
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    // Removes the keys present when the call starts; keys added meanwhile may survive
+    @Override
+    public void clear() {
+        for (Node<K, V> node = head.next; node != null; node = node.next) {
+            V current = node.value;
+            if (current != null && node.casValue(current, null)) discard(node.key, node);
+        }
+    }
+
+    public K firstKey() {
+        for (Node<K, V> node = head.next; node != null; node = node.next) {
+            if (node.value != null) return node.key;
+        }
+        throw new NoSuchElementException();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            public int size() {
+                return ConcurrentLinkedHashMap.this.size();
+            }
+
+            public boolean contains(Object o) {
+                if (!(o instanceof Map.Entry)) return false;
+                Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+                V value = get(e.getKey());
+                return value != null && value.equals(e.getValue());
+            }
+
+            public boolean remove(Object o) {
+                if (!(o instanceof Map.Entry)) return false;
+                Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+                return ConcurrentLinkedHashMap.this.remove(e.getKey(), e.getValue());
+            }
+
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new Iterator<Map.Entry<K, V>>() {
+                    private Node<K, V> cursor = head;
+                    private Map.Entry<K, V> nextEntry = advance();
+                    private K lastReturned;
+
+                    // Moves to the next live node and captures its value, so an entry
+                    // handed out is never one that has since become null
+                    private Map.Entry<K, V> advance() {
+                        for (Node<K, V> node = cursor.next; node != null; node = node.next) {
+                            V value = node.value;
+                            if (value != null) {
+                                cursor = node;
+                                return new AbstractMap.SimpleImmutableEntry<>(node.key, value);
+                            }
+                        }
+                        return null;
+                    }
+
+                    public boolean hasNext() {
+                        return nextEntry != null;
+                    }
+
+                    public Map.Entry<K, V> next() {
+                        if (nextEntry == null) throw new NoSuchElementException();
+                        Map.Entry<K, V> entry = nextEntry;
+                        lastReturned = entry.getKey();
+                        nextEntry = advance();
+                        return entry;
+                    }
+
+                    public void remove() {
+                        if (lastReturned == null) throw new IllegalStateException();
+                        ConcurrentLinkedHashMap.this.remove(lastReturned);
+                        lastReturned = null;
+                    }
+                };
+            }
+        };
+    }
+
+    private static final class Node<K, V> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Node, Object> VALUE =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "value");
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+        final K key;
+        // null once the entry is removed
+        volatile V value;
+        volatile Node<K, V> next;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        boolean casValue(V expected, V update) {
+            return VALUE.compareAndSet(this, expected, update);
+        }
+
+        boolean casNext(Node<K, V> expected, Node<K, V> update) {
+            return NEXT.compareAndSet(this, expected, update);
+        }
+    }
+
+    // Thread-safe insertion-ordered set of the map's keys; add() maps the key to TRUE
+    public static final class KeySetView<E> extends AbstractSet<E> {
+        private final ConcurrentLinkedHashMap<E, Boolean> map;
+
+        KeySetView(ConcurrentLinkedHashMap<E, Boolean> map) {
+            this.map = map;
+        }
+
+        @Override
+        public boolean add(E e) {
+            return map.putIfAbsent(e, Boolean.TRUE) == null;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return map.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return map.remove(o) != null;
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return map.keySet().iterator();
+        }
+    }
+}
@@ -0,0 +1,553 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Multi-threaded stress test: N threads share one collection and run a random mix of
+// reads and writes for a fixed time, repeated for a series of thread counts. The
+// resulting curves show which structures keep scaling as threads are added and which
+// serialize on a lock. Every point starts from a fresh, half-full instance, and the
+// instance is checked for consistency once its threads have stopped. Ordered classes
+// then also have their order checked under concurrent inserts.
+public class ConcurrentLoadTest {
+
+    private static final int BATCH = 64;
+    // Keys each thread inserts in the ordering check
+    private static final int ORDER_KEYS = 2_000;
+    private static final String CURRENT_SUFFIX = " (current)";
+
+    public static class Point {
+        public final String target;
+        public final int threads;
+        public final double opsPerSecond;
+        public final long errors;
+        // Share of thread time spent blocked or waiting on locks; -1 when the JVM cannot
+        // report it (virtual threads, or contention monitoring unsupported)
+        public final double blockedFraction;
+        // Some threads did not stop in time, e.g. a corrupted non-thread-safe structure
+        public final boolean stalled;
+        // What the post-run consistency check found wrong, or null if nothing
+        public final String inconsistency;
+
+        Point(String target, int threads, double opsPerSecond, long errors,
+              double blockedFraction, boolean stalled, String inconsistency) {
+            this.target = target;
+            this.threads = threads;
+            this.opsPerSecond = opsPerSecond;
+            this.errors = errors;
+            this.blockedFraction = blockedFraction;
+            this.stalled = stalled;
+            this.inconsistency = inconsistency;
+        }
+    }
+
+    public interface Listener {
+        void pointStarted(String target, int threads, int index, int total);
+    }
+
+    private final int[] threadCounts;
+    private final int readPercent;
+    private final String[] keys;
+    private long pointMillis = 500;
+    private boolean virtualThreads;
+    private volatile boolean cancelled;
+    private volatile long sink;
+
+    public ConcurrentLoadTest(int[] threadCounts, int readPercent, int keySpace) {
+        if (threadCounts.length == 0) throw new IllegalArgumentException("No thread counts given");
+        if (readPercent < 0 || readPercent > 100) throw new IllegalArgumentException("Read percentage must be 0-100: " + readPercent);
+        if (keySpace < 2) throw new IllegalArgumentException("Key space must be at least 2: " + keySpace);
+        this.threadCounts = threadCounts.clone();
+        this.readPercent = readPercent;
+        // Numeric keys so primitive-specialized classes can take part too
+        this.keys = new String[keySpace];
+        for (int i = 0; i < keySpace; i++) keys[i] = Integer.toString(i);
+    }
+
+    public ConcurrentLoadTest pointMillis(long millis) {
+        this.pointMillis = millis;
+        return this;
+    }
+
+    public ConcurrentLoadTest virtualThreads(boolean virtual) {
+        this.virtualThreads = virtual;
+        return this;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // Thread.ofVirtual() is looked up reflectively so the project still builds on JDK 8
+    static ThreadFactory virtualThreadFactory() throws Exception {
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+    }
+
+    public static boolean virtualThreadsSupported() {
+        try {
+            virtualThreadFactory();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // Powers of two up to twice the core count, so the curve shows oversubscription too
+    public static int[] defaultThreadCounts() {
+        int limit = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+        List<Integer> counts = new ArrayList<>();
+        for (int n = 1; n <= limit; n <<= 1) counts.add(n);
+        if (counts.get(counts.size() - 1) != limit) counts.add(limit);
+        int[] result = new int[counts.size()];
+        for (int i = 0; i < result.length; i++) result[i] = counts.get(i);
+        return result;
+    }
+
+    public static int[] parseThreadCounts(String text) {
+        String[] parts = text.split("[,\\s]+");
+        List<Integer> counts = new ArrayList<>();
+        for (String part : parts) {
+            if (part.isEmpty()) continue;
+            int n = Integer.parseInt(part);
+            if (n < 1) throw new IllegalArgumentException("Thread count must be positive: " + n);
+            counts.add(n);
+        }
+        if (counts.isEmpty()) throw new IllegalArgumentException("No thread counts given");
+        int[] result = new int[counts.size()];
+        for (int i = 0; i < result.length; i++) result[i] = counts.get(i);
+        return result;
+    }
+
+    public static String formatThreadCounts(int[] counts) {
+        StringBuilder sb = new StringBuilder();
+        for (int n : counts) {
+            if (sb.length() > 0) sb.append(",");
+            sb.append(n);
+        }
+        return sb.toString();
+    }
+
+    // The class of the given instance plus the standard thread-safe structures of the
+    // same family. The current class comes first and is labelled as such.
+    public static Map<String, Supplier<Object>> targets(Object current, boolean includeAlternatives) {
+        Class<?> clazz = current.getClass();
+        String registered = CollectionRegistry.nameForClass(clazz);
+        Map<String, Supplier<Object>> targets = new LinkedHashMap<>();
+        targets.put((registered != null ? registered : clazz.getSimpleName()) + CURRENT_SUFFIX,
+            () -> registered != null ? newInstance(registered) : newInstance(clazz));
+        if (!includeAlternatives) return targets;
+
+        Map<String, Supplier<Object>> alternatives = new LinkedHashMap<>();
+        if (registered != null && CollectionRegistry.isBounded(registered)) {
+            // Caches compete with caches of the default capacity
+            alternatives.put("synchronizedMap(LruLinkedHashMap)",
+                () -> Collections.synchronizedMap(new LruLinkedHashMap<String, String>()));
+            alternatives.put("synchronizedMap(TinyLfuCache)",
+                () -> Collections.synchronizedMap(new TinyLfuCache<String, String>()));
+            alternatives.put("ConcurrentLruCache", ConcurrentLruCache::new);
+            alternatives.put("TtlCache", TtlCache::new);
+        } else if (current instanceof Map) {
+            alternatives.put("synchronizedMap(HashMap)", () -> Collections.synchronizedMap(new HashMap<String, String>()));
+            alternatives.put("synchronizedMap(LinkedHashMap)", () -> Collections.synchronizedMap(new LinkedHashMap<String, String>()));
+            alternatives.put("synchronizedSortedMap(TreeMap)", () -> Collections.synchronizedSortedMap(new TreeMap<String, String>()));
+            alternatives.put("ConcurrentHashMap", ConcurrentHashMap::new);
+            alternatives.put("ConcurrentLinkedHashMap", ConcurrentLinkedHashMap::new);
+            alternatives.put("ConcurrentSkipListMap", ConcurrentSkipListMap::new);
+            alternatives.put("StripedTreeMap", StripedTreeMap::new);
+        } else if (current instanceof List) {
+            alternatives.put("Vector", Vector::new);
+            alternatives.put("synchronizedList(ArrayList)", () -> Collections.synchronizedList(new ArrayList<String>()));
+            alternatives.put("CopyOnWriteArrayList", CopyOnWriteArrayList::new);
+            alternatives.put("ConcurrentLinkedQueue", ConcurrentLinkedQueue::new);
+            alternatives.put("ConcurrentLinkedDeque", ConcurrentLinkedDeque::new);
+        } else {
+            alternatives.put("synchronizedSet(HashSet)", () -> Collections.synchronizedSet(new HashSet<String>()));
+            alternatives.put("synchronizedSet(LinkedHashSet)", () -> Collections.synchronizedSet(new LinkedHashSet<String>()));
+            alternatives.put("ConcurrentHashMap.newKeySet()", ConcurrentHashMap::newKeySet);
+            alternatives.put("ConcurrentLinkedHashMap.newKeySet()", ConcurrentLinkedHashMap::newKeySet);
+            alternatives.put("ConcurrentSkipListSet", ConcurrentSkipListSet::new);
+            alternatives.put("StripedTreeSet", StripedTreeSet::new);
+            alternatives.put("CopyOnWriteArraySet", CopyOnWriteArraySet::new);
+        }
+        for (Map.Entry<String, Supplier<Object>> entry : alternatives.entrySet()) {
+            // Plain classes only; a wrapper never has the same class as the current instance
+            if (entry.getValue().get().getClass() != clazz) targets.put(entry.getKey(), entry.getValue());
+        }
+        return targets;
+    }
+
+    private static Object newInstance(String name) {
+        try {
+            return CollectionRegistry.newInstance(name);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot instantiate " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Object newInstance(Class<?> clazz) {
+        try {
+            return clazz.getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot instantiate " + clazz.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    public List<Point> run(Map<String, Supplier<Object>> targets, Listener listener) throws Exception {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (mx.isThreadContentionMonitoringSupported()) mx.setThreadContentionMonitoringEnabled(true);
+        ThreadFactory factory = virtualThreads ? virtualThreadFactory() : r -> {
+            Thread thread = new Thread(r, "load-test");
+            // Daemon, so a thread stuck in a corrupted structure cannot keep the JVM alive
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        List<Point> points = new ArrayList<>();
+        int total = targets.size() * threadCounts.length;
+        int index = 0;
+        for (Map.Entry<String, Supplier<Object>> target : targets.entrySet()) {
+            // Discarded run so the first thread count is not measured with cold code
+            if (cancelled) return points;
+            measure(target.getKey(), target.getValue(), threadCounts[0], factory, mx);
+            for (int threads : threadCounts) {
+                if (cancelled) return points;
+                if (listener != null) listener.pointStarted(target.getKey(), threads, index, total);
+                points.add(measure(target.getKey(), target.getValue(), threads, factory, mx));
+                index++;
+            }
+        }
+        return points;
+    }
+
+    private Point measure(String name, Supplier<Object> supplier, int threads, ThreadFactory factory,
+                          ThreadMXBean mx) throws InterruptedException {
+        Object instance = supplier.get();
+        CollectionOps ops = CollectionOps.of(instance);
+        boolean keyValue = ops.isKeyValue();
+        for (int i = 0; i < keys.length; i += 2) insert(ops, keys[i], keyValue);
+
+        boolean timed = mx.isThreadContentionMonitoringEnabled();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(threads);
+        long[] counts = new long[threads];
+        long[] errors = new long[threads];
+        long[] blockedMillis = new long[threads];
+        boolean[] measured = new boolean[threads];
+
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            factory.newThread(() -> {
+                SplittableRandom random = new SplittableRandom(id * 0x9E3779B97F4A7C15L + 1);
+                long n = 0, failed = 0, hits = 0;
+                ThreadInfo before = timed ? mx.getThreadInfo(Thread.currentThread().getId()) : null;
+                ready.countDown();
+                try {
+                    start.await();
+                    while (!stop.get()) {
+                        for (int j = 0; j < BATCH; j++) {
+                            String key = keys[random.nextInt(keys.length)];
+                            int roll = random.nextInt(100);
+                            try {
+                                if (roll < readPercent) {
+                                    if (keyValue ? ops.get(key) != null : ops.contains(key)) hits++;
+                                } else if ((roll & 1) == 0) {
+                                    insert(ops, key, keyValue);
+                                } else {
+                                    ops.remove(key);
+                                }
+                            } catch (RuntimeException e) {
+                                // Non-thread-safe classes fail in many ways under contention
+                                failed++;
+                            }
+                        }
+                        n += BATCH;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                ThreadInfo after = before != null ? mx.getThreadInfo(Thread.currentThread().getId()) : null;
+                if (after != null) {
+                    blockedMillis[id] = (after.getBlockedTime() - before.getBlockedTime())
+                        + (after.getWaitedTime() - before.getWaitedTime());
+                    measured[id] = true;
+                }
+                counts[id] = n;
+                errors[id] = failed;
+                sink += hits;
+                finished.countDown();
+            }).start();
+        }
+
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(pointMillis);
+        stop.set(true);
+        long elapsed = System.nanoTime() - begin;
+        boolean stalled = !finished.await(pointMillis + 5000, TimeUnit.MILLISECONDS);
+
+        long totalOps = 0, totalErrors = 0, totalBlocked = 0;
+        boolean allMeasured = !stalled;
+        for (int t = 0; t < threads; t++) {
+            totalOps += counts[t];
+            totalErrors += errors[t];
+            totalBlocked += blockedMillis[t];
+            allMeasured &= measured[t];
+        }
+        double elapsedMillis = elapsed / 1e6;
+        double blocked = allMeasured ? Math.min(1, totalBlocked / (threads * elapsedMillis)) : -1;
+        String inconsistency = stalled ? null : checkConsistency(instance, ops);
+        if (!stalled && inconsistency == null) inconsistency = checkOrdering(supplier.get(), threads, factory);
+        return new Point(name, threads, totalOps / (elapsed / 1e9), totalErrors, blocked, stalled, inconsistency);
+    }
+
+    // Once every thread has stopped, a structure that survived the run intact agrees with
+    // itself: iteration ends after size() elements and, for sets and maps, yields no key
+    // twice and only keys that a lookup finds. Lost updates leave no trace here, but torn
+    // links and miscounted sizes do. Returns what is wrong, or null.
+    private String checkConsistency(Object instance, CollectionOps ops) {
+        Collection<?> elements = instance instanceof Map ? ((Map<?, ?>) instance).keySet()
+            : instance instanceof Collection ? (Collection<?>) instance : null;
+        if (elements == null) return null;
+        boolean unique = instance instanceof Map || instance instanceof Set;
+        try {
+            int size = ops.size();
+            // Inserts add at most one element per key, except to lists
+            long limit = (long) size + keys.length + 1;
+            Set<Object> seen = unique ? new HashSet<>() : null;
+            long iterated = 0;
+            for (Object element : elements) {
+                if (++iterated > limit) return "iteration does not end";
+                if (unique && !seen.add(element)) return "key " + element + " iterated twice";
+                if (unique && !ops.contains(String.valueOf(element))) return "iterated key " + element + " not found";
+            }
+            if (iterated != size) return String.format("size() is %,d but iteration yields %,d", size, iterated);
+            return null;
+        } catch (RuntimeException e) {
+            return "check failed with " + e;
+        }
+    }
+
+    // Each thread adds its own keys to a fresh instance in ascending order. Afterwards the
+    // contents must be exactly those keys, and every thread's keys must iterate in the
+    // order that thread added them; sorted classes must iterate fully sorted as well.
+    // Classes with no defined iteration order are skipped. Returns what is wrong, or null.
+    private String checkOrdering(Object instance, int threads, ThreadFactory factory) throws InterruptedException {
+        boolean sorted = instance instanceof SortedMap || instance instanceof SortedSet
+            || instance instanceof StripedTreeMap || instance instanceof StripedTreeSet;
+        boolean insertionOrdered = instance instanceof ConcurrentLinkedHashMap
+            || instance instanceof ConcurrentLinkedHashMap.KeySetView;
+        if (!sorted && !insertionOrdered) return null;
+
+        CollectionOps ops = CollectionOps.of(instance);
+        boolean keyValue = ops.isKeyValue();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            factory.newThread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < ORDER_KEYS; i++) insert(ops, orderKey(id, i), keyValue);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    // Reported below as missing keys
+                }
+                finished.countDown();
+            }).start();
+        }
+        start.countDown();
+        if (!finished.await(pointMillis + 5000, TimeUnit.MILLISECONDS)) return "ordered inserts did not finish";
+
+        Collection<?> elements = instance instanceof Map ? ((Map<?, ?>) instance).keySet() : (Collection<?>) instance;
+        long expected = (long) threads * ORDER_KEYS;
+        int[] next = new int[threads];
+        String previous = null;
+        try {
+            for (Object element : elements) {
+                String key = String.valueOf(element);
+                if (sorted && previous != null && previous.compareTo(key) >= 0) {
+                    return "key " + key + " iterated after " + previous;
+                }
+                previous = key;
+                int colon = key.indexOf(':');
+                int thread = colon > 0 ? Integer.parseInt(key.substring(0, colon)) : -1;
+                if (thread < 0 || thread >= threads) return "unexpected key " + key;
+                int seq = Integer.parseInt(key.substring(colon + 1));
+                if (seq < next[thread]) return "key " + key + " iterated twice";
+                if (seq > next[thread]) {
+                    return "key " + orderKey(thread, next[thread]) + " missing or iterated after "
+                        + key + ", which was inserted later";
+                }
+                next[thread]++;
+            }
+            for (int t = 0; t < threads; t++) {
+                if (next[t] < ORDER_KEYS) return "inserted key " + orderKey(t, next[t]) + " missing";
+            }
+            int size = ops.size();
+            if (size != expected) return String.format("size() is %,d after %,d distinct inserts", size, expected);
+            return null;
+        } catch (RuntimeException e) {
+            return "ordering check failed with " + e;
+        }
+    }
+
+    // Zero-padded, so string order is thread order, then insertion order
+    private static String orderKey(int thread, int seq) {
+        return String.format("%04d:%06d", thread, seq);
+    }
+
+    private static void insert(CollectionOps ops, String key, boolean keyValue) {
+        if (keyValue) {
+            ops.put(key, key);
+        } else {
+            ops.add(key);
+        }
+    }
+
+    // Throughput table (targets x thread counts) followed by per-target scaling and
+    // contention figures
+    public static String report(List<Point> points, int readPercent, boolean virtualThreads) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Concurrent load test\n");
+        sb.append(String.format("Mix: %d%% reads / %d%% writes  |  %s threads  |  %d cores\n\n",
+            readPercent, 100 - readPercent, virtualThreads ? "virtual" : "platform",
+            Runtime.getRuntime().availableProcessors()));
+        if (points.isEmpty()) {
+            sb.append("No measurements completed.\n");
+            return sb.toString();
+        }
+
+        Map<String, List<Point>> byTarget = new LinkedHashMap<>();
+        TreeSet<Integer> threadCounts = new TreeSet<>();
+        for (Point p : points) {
+            byTarget.computeIfAbsent(p.target, k -> new ArrayList<>()).add(p);
+            threadCounts.add(p.threads);
+        }
+
+        sb.append("Throughput (ops/s)\n");
+        sb.append(String.format("%-32s", "threads"));
+        for (int n : threadCounts) sb.append(String.format("%9d", n));
+        sb.append("\n");
+        for (Map.Entry<String, List<Point>> entry : byTarget.entrySet()) {
+            sb.append(String.format("%-32s", entry.getKey()));
+            for (int n : threadCounts) {
+                Point p = find(entry.getValue(), n);
+                sb.append(String.format("%9s", p == null ? "-" : p.stalled ? "stalled" : formatOps(p.opsPerSecond)));
+            }
+            sb.append("\n");
+        }
+
+        sb.append("\nScaling and contention\n");
+        int maxThreads = threadCounts.last();
+        Point best = null;
+        for (Map.Entry<String, List<Point>> entry : byTarget.entrySet()) {
+            List<Point> series = entry.getValue();
+            Point first = series.get(0);
+            Point last = series.get(series.size() - 1);
+            double speedup = first.opsPerSecond > 0 ? last.opsPerSecond / first.opsPerSecond : 0;
+            long errors = 0;
+            for (Point p : series) errors += p.errors;
+            sb.append(String.format("%s\n   %.2fx from %d to %d threads (%.0f%% efficiency)",
+                entry.getKey(), speedup, first.threads, last.threads,
+                100 * speedup * first.threads / last.threads));
+            if (last.blockedFraction >= 0) {
+                sb.append(String.format("  |  %.0f%% of thread time blocked at %d", 100 * last.blockedFraction, last.threads));
+            }
+            if (errors > 0) sb.append(String.format("  |  %,d failed operations", errors));
+            if (last.stalled) sb.append("  |  stalled");
+            Point inconsistent = null;
+            for (Point p : series) {
+                if (p.inconsistency != null) inconsistent = p;
+            }
+            if (inconsistent != null) {
+                sb.append(String.format("\n   inconsistent after %d threads: %s", inconsistent.threads, inconsistent.inconsistency));
+            }
+            if (!isThreadSafe(entry.getKey())) sb.append("\n   not thread-safe: concurrent writes may be lost silently");
+            sb.append("\n");
+            if (last.threads == maxThreads && !last.stalled && last.errors == 0 && inconsistent == null
+                    && isThreadSafe(entry.getKey())
+                    && (best == null || last.opsPerSecond > best.opsPerSecond)) {
+                best = last;
+            }
+        }
+        if (best != null) {
+            sb.append(String.format("\nHighest throughput at %d threads: %s\n", maxThreads, best.target));
+        }
+        return sb.toString();
+    }
+
+    // Alternatives are all thread-safe; the current class is checked against the registry
+    private static boolean isThreadSafe(String target) {
+        if (!target.endsWith(CURRENT_SUFFIX)) return true;
+        String name = target.substring(0, target.length() - CURRENT_SUFFIX.length());
+        return !CollectionRegistry.contains(name)
+            || CollectionRegistry.traits(name).contains(CollectionRegistry.Trait.THREAD_SAFE);
+    }
+
+    private static Point find(List<Point> series, int threads) {
+        for (Point p : series) {
+            if (p.threads == threads) return p;
+        }
+        return null;
+    }
+
+    static String formatOps(double ops) {
+        if (ops >= 1e9) return String.format("%.1fG", ops / 1e9);
+        if (ops >= 1e6) return String.format("%.1fM", ops / 1e6);
+        if (ops >= 1e3) return String.format("%.1fK", ops / 1e3);
+        return String.format("%.0f", ops);
+    }
+
+    // Command-line entry point for running on server hardware without the UI:
+    //   java ConcurrentLoadTest --class HashMap --threads 1,2,4,8,16,32,64 --read 90
+    public static void main(String[] args) throws Exception {
+        String className = "HashMap";
+        int[] threadCounts = defaultThreadCounts();
+        int readPercent = 90;
+        int keySpace = 10_000;
+        long pointMillis = 1000;
+        boolean virtual = false;
+        boolean alternatives = true;
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "--class": className = value; i++; break;
+                case "--threads": threadCounts = parseThreadCounts(value); i++; break;
+                case "--read": readPercent = Integer.parseInt(value); i++; break;
+                case "--keys": keySpace = Integer.parseInt(value); i++; break;
+                case "--time-ms": pointMillis = Long.parseLong(value); i++; break;
+                case "--virtual": virtual = true; break;
+                case "--no-alternatives": alternatives = false; break;
+                default:
+                    System.err.println("Usage: java ConcurrentLoadTest --class HashMap --threads 1,2,4,8"
+                        + " --read 90 --keys 10000 --time-ms 1000 [--virtual] [--no-alternatives]");
+                    System.exit(2);
+            }
+        }
+        if (!CollectionRegistry.contains(className)) {
+            System.err.println("Unknown class: " + className + " (known: " + CollectionRegistry.names() + ")");
+            System.exit(2);
+        }
+        if (virtual && !virtualThreadsSupported()) {
+            System.err.println("Virtual threads need JDK 21 or later");
+            System.exit(2);
+        }
+
+        ConcurrentLoadTest test = new ConcurrentLoadTest(threadCounts, readPercent, keySpace)
+            .pointMillis(pointMillis)
+            .virtualThreads(virtual);
+        List<Point> points = test.run(targets(CollectionRegistry.newInstance(className), alternatives),
+            (target, threads, index, total) ->
+                System.err.printf("[%d/%d] %s, %d threads%n", index + 1, total, target, threads));
+        System.out.print(report(points, readPercent, virtual));
+    }
+}
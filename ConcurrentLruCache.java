@@ -0,0 +1,243 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Thread-safe bounded LRU cache made of several LruLinkedHashMaps, each behind its own
+// lock, in the same way StripedTreeMap stripes TreeMaps. Keys are assigned to a segment by
+// hash and the capacity is split evenly between segments, so eviction is LRU within a
+// segment: the entry dropped is the least recently used one of the key's segment, not
+// necessarily of the whole cache. A read reorders its segment, so reads take the lock
+// too; with enough segments two threads rarely want the same one.
+public class ConcurrentLruCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+    private final LruLinkedHashMap<K, V>[] segments;
+    private final ReentrantLock[] locks;
+    private final int mask;
+    private final int capacity;
+
+    public ConcurrentLruCache() {
+        this(LruLinkedHashMap.DEFAULT_CAPACITY);
+    }
+
+    public ConcurrentLruCache(int capacity) {
+        this(capacity, Math.max(16, Runtime.getRuntime().availableProcessors() * 4));
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentLruCache(int capacity, int segmentCount) {
+        LruLinkedHashMap.checkCapacity(capacity);
+        if (segmentCount < 1) throw new IllegalArgumentException("Segment count must be positive: " + segmentCount);
+        // A power of two no larger than the capacity, so every segment holds at least one entry
+        int count = Integer.highestOneBit(Math.min(segmentCount, capacity));
+        segments = (LruLinkedHashMap<K, V>[]) new LruLinkedHashMap<?, ?>[count];
+        locks = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new LruLinkedHashMap<>(capacity / count + (i < capacity % count ? 1 : 0));
+            locks[i] = new ReentrantLock();
+        }
+        mask = count - 1;
+        this.capacity = capacity;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    public long evictions() {
+        long evictions = 0;
+        for (int s = 0; s < segments.length; s++) {
+            locks[s].lock();
+            try {
+                evictions += segments[s].evictions();
+            } finally {
+                locks[s].unlock();
+            }
+        }
+        return evictions;
+    }
+
+    private int segment(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    @Override
+    public V get(Object key) {
+        int s = segment(key);
+        locks[s].lock();
+        try {
+            return segments[s].get(key);
+        } finally {
+            locks[s].unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int s = segment(key);
+        locks[s].lock();
+        try {
+            return segments[s].containsKey(key);
+        } finally {
+            locks[s].unlock();
+        }
+    }
+
+    @Override
+    public V put(K key, V value) {
+        checkNotNull(key, value);
+        int s = segment(key);
+        locks[s].lock();
+        try {
+            return segments[s].put(key, value);
+        } finally {
+            locks[s].unlock();
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        int s = segment(key);
+        locks[s].lock();
+        try {
+            return segments[s].remove(key);
+        } finally {
+            locks[s].unlock();
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        checkNotNull(key, value);
+        int s = segment(key);
+        locks[s].lock();
+        try {
+            V current = segments[s].get(key);
+            if (current == null) segments[s].put(key, value);
+            return current;
+        } finally {
+            locks[s].unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        int s = segment(key);
+        locks[s].lock();
+        try {
+            V current = segments[s].get(key);
+            if (current == null || !current.equals(value)) return false;
+            segments[s].remove(key);
+            return true;
+        } finally {
+            locks[s].unlock();
+        }
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        checkNotNull(key, newValue);
+        int s = segment(key);
+        locks[s].lock();
+        try {
+            V current = segments[s].get(key);
+            if (current == null || !current.equals(oldValue)) return false;
+            segments[s].put(key, newValue);
+            return true;
+        } finally {
+            locks[s].unlock();
+        }
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        checkNotNull(key, value);
+        int s = segment(key);
+        locks[s].lock();
+        try {
+            return segments[s].containsKey(key) ? segments[s].put(key, value) : null;
+        } finally {
+            locks[s].unlock();
+        }
+    }
+
+    // Like ConcurrentHashMap, nulls are rejected so a null result always means "absent"
+    private static void checkNotNull(Object key, Object value) {
+        if (key == null || value == null) throw new NullPointerException("ConcurrentLruCache does not accept null keys or values");
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (int s = 0; s < segments.length; s++) {
+            locks[s].lock();
+            try {
+                size += segments[s].size();
+            } finally {
+                locks[s].unlock();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int s = 0; s < segments.length; s++) {
+            locks[s].lock();
+            try {
+                segments[s].clear();
+            } finally {
+                locks[s].unlock();
+            }
+        }
+    }
+
+    // Iterates over a per-segment copy, least recently used first within each segment;
+    // iterating does not count as a use
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            public int size() {
+                return ConcurrentLruCache.this.size();
+            }
+
+            public Iterator<Map.Entry<K, V>> iterator() {
+                List<Map.Entry<K, V>> copy = new ArrayList<>();
+                for (int s = 0; s < segments.length; s++) {
+                    locks[s].lock();
+                    try {
+                        for (Map.Entry<K, V> entry : segments[s].entrySet()) {
+                            copy.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+                        }
+                    } finally {
+                        locks[s].unlock();
+                    }
+                }
+                Iterator<Map.Entry<K, V>> it = copy.iterator();
+                return new Iterator<Map.Entry<K, V>>() {
+                    private K lastReturned;
+
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    public Map.Entry<K, V> next() {
+                        Map.Entry<K, V> entry = it.next();
+                        lastReturned = entry.getKey();
+                        return entry;
+                    }
+
+                    public void remove() {
+                        if (lastReturned == null) throw new IllegalStateException();
+                        ConcurrentLruCache.this.remove(lastReturned);
+                        lastReturned = null;
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,131 @@
+import javax.swing.*;
+import javax.swing.border.*;
+import java.awt.*;
+
+// "View Contents" dialog. The table is backed by PagedContentsModel, so only the visible
+// rows are ever read or rendered; opening a million-element collection costs the same as
+// opening a ten-element one. Sorted collections can be narrowed to a key range.
+public class ContentsViewer extends JDialog {
+
+    private final Object collection;
+    private final JTable table;
+    private final JLabel statusLabel;
+    private final JTextField indexField;
+    private JTextField fromField, toField;
+    private PagedContentsModel model;
+
+    public ContentsViewer(Frame owner, String title, Object collection) {
+        super(owner, title, true);
+        this.collection = collection;
+
+        JPanel panel = new JPanel(new BorderLayout(0, 10));
+        panel.setBorder(new EmptyBorder(15, 15, 15, 15));
+        panel.setBackground(Color.WHITE);
+
+        table = new JTable();
+        table.setFont(new Font("Consolas", Font.PLAIN, 12));
+        table.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 12));
+        table.setRowHeight(20);
+        table.setAutoCreateRowSorter(false);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(640, 420));
+
+        // Toolbar: jump to index, plus key range for sorted collections
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+        toolbar.setOpaque(false);
+        indexField = new JTextField(8);
+        JButton goBtn = new JButton("Go");
+        goBtn.setFocusPainted(false);
+        goBtn.addActionListener(e -> jumpToIndex());
+        indexField.addActionListener(e -> jumpToIndex());
+        toolbar.add(label("Go to index:"));
+        toolbar.add(indexField);
+        toolbar.add(goBtn);
+
+        if (collection instanceof java.util.NavigableMap || collection instanceof java.util.NavigableSet) {
+            fromField = new JTextField(8);
+            toField = new JTextField(8);
+            JButton rangeBtn = new JButton("Apply Range");
+            rangeBtn.setFocusPainted(false);
+            rangeBtn.addActionListener(e -> applyRange());
+            JButton allBtn = new JButton("All");
+            allBtn.setFocusPainted(false);
+            allBtn.addActionListener(e -> {
+                fromField.setText("");
+                toField.setText("");
+                show(collection);
+            });
+            toolbar.add(Box.createHorizontalStrut(12));
+            toolbar.add(label("Keys from:"));
+            toolbar.add(fromField);
+            toolbar.add(label("to:"));
+            toolbar.add(toField);
+            toolbar.add(rangeBtn);
+            toolbar.add(allBtn);
+        }
+
+        statusLabel = label("");
+        JButton closeBtn = new JButton("Close");
+        closeBtn.setFocusPainted(false);
+        closeBtn.addActionListener(e -> dispose());
+        JPanel footer = new JPanel(new BorderLayout());
+        footer.setOpaque(false);
+        footer.add(statusLabel, BorderLayout.CENTER);
+        footer.add(closeBtn, BorderLayout.EAST);
+
+        panel.add(toolbar, BorderLayout.NORTH);
+        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(footer, BorderLayout.SOUTH);
+
+        show(collection);
+        setContentPane(panel);
+        pack();
+        setLocationRelativeTo(owner);
+    }
+
+    private static JLabel label(String text) {
+        JLabel label = new JLabel(text);
+        label.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        label.setForeground(new Color(107, 114, 128));
+        return label;
+    }
+
+    private void show(Object view) {
+        model = new PagedContentsModel(view);
+        table.setModel(model);
+        table.getColumnModel().getColumn(0).setPreferredWidth(70);
+        table.getColumnModel().getColumn(0).setMaxWidth(110);
+        String status = String.format("%,d element%s", model.getRowCount(), model.getRowCount() == 1 ? "" : "s");
+        if (view != collection) status += " in range";
+        statusLabel.setText(status);
+    }
+
+    private void jumpToIndex() {
+        int index;
+        try {
+            index = Integer.parseInt(indexField.getText().trim().replace(",", ""));
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Enter a whole number", "Go to Index", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (index < 0 || index >= model.getRowCount()) {
+            JOptionPane.showMessageDialog(this, "Index must be between 0 and " + (model.getRowCount() - 1),
+                "Go to Index", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        table.setRowSelectionInterval(index, index);
+        table.scrollRectToVisible(table.getCellRect(index, 0, true));
+    }
+
+    private void applyRange() {
+        String from = fromField.getText().trim();
+        String to = toField.getText().trim();
+        try {
+            show(PagedContentsModel.slice(collection, from.isEmpty() ? null : from, to.isEmpty() ? null : to));
+        } catch (IllegalArgumentException | ClassCastException e) {
+            JOptionPane.showMessageDialog(this, "Invalid range: " + e.getMessage(),
+                "Key Range", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
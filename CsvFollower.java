@@ -0,0 +1,259 @@
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Follows a CSV file that another process keeps appending to, like tail -f: rows
+// written after the starting position are parsed with the importer's line parser and
+// handed to a sink in batches. A WatchService on the file's directory wakes the
+// follower when the file changes, with a timed poll as a fallback for filesystems that
+// send no events. After a change it waits a short linger so a burst of small appends
+// becomes one batch. Only complete lines are read; a line still being written waits for
+// its newline. A file that shrinks, or is replaced by a new file of the same name (log
+// rotation), is followed again from its start.
+public class CsvFollower implements Closeable {
+
+    public static final long DEFAULT_LINGER_MILLIS = 200;
+    public static final long DEFAULT_POLL_MILLIS = 1000;
+    private static final int READ_SIZE = 8 << 20;
+
+    // Receives each batch on the follower thread. Returning false hands the same batch
+    // back on the next poll, for a sink that cannot take rows right now.
+    public interface Sink {
+        boolean accept(CsvImporter.Chunk batch) throws Exception;
+    }
+
+    public static class Stats {
+        public final File file;
+        public final long position;
+        public final long fileSize;
+        public final long rows;
+        public final long batches;
+        // Time from the file's last modification to its rows reaching the sink
+        public final long lastLagMillis;
+        public final long maxLagMillis;
+        public final int restarts;
+        public final boolean running;
+        public final Throwable failure;
+
+        Stats(File file, long position, long fileSize, long rows, long batches, long lastLagMillis,
+              long maxLagMillis, int restarts, boolean running, Throwable failure) {
+            this.file = file;
+            this.position = position;
+            this.fileSize = fileSize;
+            this.rows = rows;
+            this.batches = batches;
+            this.lastLagMillis = lastLagMillis;
+            this.maxLagMillis = maxLagMillis;
+            this.restarts = restarts;
+            this.running = running;
+            this.failure = failure;
+        }
+
+        // Bytes written to the file but not yet applied
+        public long bytesBehind() {
+            return Math.max(0, fileSize - position);
+        }
+
+        public String summary() {
+            String text = String.format("Following %s: %,d rows in %,d batches, lag %,d ms (max %,d ms)",
+                file.getName(), rows, batches, lastLagMillis, maxLagMillis);
+            if (bytesBehind() > 0) text += ", " + EmpiricalAdvisor.formatBytes(bytesBehind()) + " behind";
+            if (restarts > 0) text += String.format(", restarted %d time%s (truncated or replaced)",
+                restarts, restarts == 1 ? "" : "s");
+            if (failure != null) text += ", stopped: " + failure.getMessage();
+            else if (!running) text += ", stopped";
+            return text;
+        }
+    }
+
+    private final CsvImporter importer;
+    private final Path path;
+    private final Sink sink;
+    private long lingerMillis = DEFAULT_LINGER_MILLIS;
+    private long pollMillis = DEFAULT_POLL_MILLIS;
+
+    private volatile long position;
+    private volatile long fileSize;
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile long lastLagMillis;
+    private volatile long maxLagMillis;
+    private volatile int restarts;
+    private volatile boolean running;
+    private volatile Throwable failure;
+    private Object fileKey;
+    private CsvImporter.Chunk pending;
+    private long pendingModified;
+    private Thread thread;
+    private WatchService watcher;
+
+    // Rows before startPosition are taken as already loaded; CsvImporter.Stats.totalBytes
+    // of a completeLinesOnly() import, or endOfCompleteLines() to skip the existing rows
+    public CsvFollower(CsvImporter importer, long startPosition, Sink sink) {
+        this.importer = importer;
+        this.path = importer.file().toPath().toAbsolutePath();
+        this.position = startPosition;
+        this.sink = sink;
+    }
+
+    public CsvFollower lingerMillis(long millis) {
+        this.lingerMillis = millis;
+        return this;
+    }
+
+    public CsvFollower pollMillis(long millis) {
+        this.pollMillis = millis;
+        return this;
+    }
+
+    // Where following should start to pick up only rows written from now on
+    public static long endOfCompleteLines(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return CsvImporter.completeLength(channel, channel.size());
+        }
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) return;
+        fileKey = fileKey();
+        watcher = path.getFileSystem().newWatchService();
+        path.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        running = true;
+        thread = new Thread(this::follow, "csv-follower-" + path.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Stops following without waiting; a batch already being handed over may still
+    // reach the sink. Safe to call from the thread the sink waits on.
+    public synchronized void stop() {
+        running = false;
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // Stops following and waits for a batch in progress to finish
+    @Override
+    public void close() {
+        stop();
+        Thread current;
+        synchronized (this) {
+            current = thread;
+        }
+        if (current != null && current != Thread.currentThread()) {
+            try {
+                current.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(path.toFile(), position, fileSize, rows.get(), batches.get(), lastLagMillis, maxLagMillis,
+            restarts, running, failure);
+    }
+
+    private void follow() {
+        try {
+            // Rows already written when following starts are read straight away
+            readAvailable();
+            while (running) {
+                WatchKey key;
+                try {
+                    key = watcher.poll(pollMillis, TimeUnit.MILLISECONDS);
+                } catch (ClosedWatchServiceException e) {
+                    break;
+                }
+                if (key != null) {
+                    boolean ours = false;
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        Object context = event.context();
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW || path.getFileName().equals(context)) {
+                            ours = true;
+                        }
+                    }
+                    key.reset();
+                    // Let the writer finish its burst, so it arrives as one batch
+                    if (ours && lingerMillis > 0) Thread.sleep(lingerMillis);
+                }
+                if (running) readAvailable();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            // A sink that applies rows on another thread reports its errors wrapped
+            failure = e instanceof InvocationTargetException && e.getCause() != null ? e.getCause() : e;
+        } finally {
+            running = false;
+        }
+    }
+
+    // Hands every complete line past position to the sink, one READ_SIZE block at a time
+    private void readAvailable() throws Exception {
+        if (pending != null && !offer()) return;
+        if (!Files.exists(path)) return;
+
+        Object key = fileKey();
+        long size = Files.size(path);
+        if ((key != null && !key.equals(fileKey)) || size < position) {
+            // Rotated or truncated: what is there now is a new file
+            fileKey = key;
+            position = 0;
+            restarts++;
+        }
+        fileSize = size;
+        if (size <= position) return;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (running && position < channel.size()) {
+                long modified = Files.getLastModifiedTime(path).toMillis();
+                long available = channel.size() - position;
+                int length = (int) Math.min(available, READ_SIZE);
+                byte[] bytes = new byte[length];
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) break;
+                }
+                // A line longer than a whole block is taken as it is rather than waited on
+                boolean wholeBlock = buffer.position() == READ_SIZE;
+                CsvImporter.Chunk chunk = importer.parseBytes(bytes, buffer.position(), false);
+                if (chunk.bytes == 0 && wholeBlock) chunk = importer.parseBytes(bytes, buffer.position(), true);
+                if (chunk.bytes == 0) break;
+                pending = chunk;
+                pendingModified = modified;
+                fileSize = channel.size();
+                if (!offer()) return;
+            }
+        }
+    }
+
+    private boolean offer() throws Exception {
+        CsvImporter.Chunk batch = pending;
+        if (batch.count > 0 && !sink.accept(batch)) return false;
+        pending = null;
+        position += batch.bytes;
+        if (batch.count > 0) {
+            rows.addAndGet(batch.count);
+            batches.incrementAndGet();
+            long lag = Math.max(0, System.currentTimeMillis() - pendingModified);
+            lastLagMillis = lag;
+            maxLagMillis = Math.max(maxLagMillis, lag);
+        }
+        return true;
+    }
+
+    private Object fileKey() throws IOException {
+        if (!Files.exists(path)) return null;
+        return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    }
+}
@@ -0,0 +1,534 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Streaming CSV reader that pulls the file through a large NIO buffer in chunks
+// instead of a line-at-a-time Reader, so multi-GB files never sit in memory at once.
+// runParallel splits the file into newline-aligned byte ranges and parses them on the
+// fork-join pool instead.
+public class CsvImporter {
+
+    private static final int DEFAULT_BUFFER_SIZE = 4 << 20;
+    private static final int MIN_CHUNK_SIZE = 256 << 10;
+    private static final int MAX_CHUNK_SIZE = 8 << 20;
+    private static final int SAMPLE_WINDOW = 64 << 10;
+
+    // Receives one parsed row; value is null when importing single-column data
+    public interface RowHandler {
+        void row(String key, String value) throws Exception;
+    }
+
+    public interface ProgressListener {
+        void progress(Stats stats);
+    }
+
+    // Receives the parsed rows of one byte range, in file order within the chunk
+    public interface ChunkHandler {
+        void chunk(Chunk chunk) throws Exception;
+    }
+
+    // keys[0..count) and, for two-column data, values[0..count); values is null otherwise
+    public static class Chunk {
+        public final String[] keys;
+        public final String[] values;
+        public final int count;
+        final long bytes;
+        final NumericProfile keyProfile;
+
+        Chunk(String[] keys, String[] values, int count, long bytes, NumericProfile keyProfile) {
+            this.keys = keys;
+            this.values = values;
+            this.count = count;
+            this.bytes = bytes;
+            this.keyProfile = keyProfile;
+        }
+    }
+
+    public static class Stats {
+        public final long bytesRead;
+        public final long totalBytes;
+        public final long rows;
+        public final long elapsedNanos;
+        public final boolean cancelled;
+
+        Stats(long bytesRead, long totalBytes, long rows, long elapsedNanos, boolean cancelled) {
+            this.bytesRead = bytesRead;
+            this.totalBytes = totalBytes;
+            this.rows = rows;
+            this.elapsedNanos = elapsedNanos;
+            this.cancelled = cancelled;
+        }
+
+        public double fraction() {
+            return totalBytes == 0 ? 1.0 : (double) bytesRead / totalBytes;
+        }
+
+        public double seconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows / seconds();
+        }
+
+        public double megabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytesRead / (1024.0 * 1024.0) / seconds();
+        }
+
+        public String summary() {
+            return String.format("%,d rows  |  %.1f / %.1f MB  |  %,.0f rows/s  |  %.1f MB/s",
+                rows, bytesRead / (1024.0 * 1024.0), totalBytes / (1024.0 * 1024.0),
+                rowsPerSecond(), megabytesPerSecond());
+        }
+    }
+
+    // Tracks whether every key seen so far is an integer and whether all fit in an int,
+    // so an import can offer a primitive-specialized collection afterwards
+    public static class NumericProfile {
+        private long rows;
+        private boolean allLong = true;
+        private boolean allInt = true;
+
+        public void observe(String key) {
+            rows++;
+            if (!allLong) return;
+            if (!isLong(key)) {
+                allLong = false;
+                allInt = false;
+            } else if (allInt) {
+                long value = Long.parseLong(key);
+                if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) allInt = false;
+            }
+        }
+
+        public long rows() {
+            return rows;
+        }
+
+        public boolean isNumeric() {
+            return rows > 0 && allLong;
+        }
+
+        public boolean fitsInt() {
+            return rows > 0 && allInt;
+        }
+
+        public void merge(NumericProfile other) {
+            rows += other.rows;
+            allLong &= other.allLong;
+            allInt &= other.allInt;
+        }
+
+        // Cheap syntax check so ordinary text never pays for a NumberFormatException
+        public static boolean isLong(String text) {
+            int length = text.length();
+            if (length == 0 || length > 20) return false;
+            int i = text.charAt(0) == '-' || text.charAt(0) == '+' ? 1 : 0;
+            if (i == length) return false;
+            for (int j = i; j < length; j++) {
+                char c = text.charAt(j);
+                if (c < '0' || c > '9') return false;
+            }
+            if (length - i < 19) return true;
+            try {
+                Long.parseLong(text);
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+    }
+
+    private final File file;
+    private final boolean keyValue;
+    private final int bufferSize;
+    private StringDeduplicator keyDedup;
+    private StringDeduplicator valueDedup;
+    private boolean completeLinesOnly;
+    private volatile boolean cancelled;
+
+    public CsvImporter(File file, boolean keyValue) {
+        this(file, keyValue, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvImporter(File file, boolean keyValue, int bufferSize) {
+        this.file = file;
+        this.keyValue = keyValue;
+        this.bufferSize = bufferSize;
+    }
+
+    // Parsed keys and/or values go through these tables (either may be null), so
+    // repeated text shares one String instead of one copy per row
+    public CsvImporter deduplicate(StringDeduplicator keys, StringDeduplicator values) {
+        this.keyDedup = keys;
+        this.valueDedup = values;
+        return this;
+    }
+
+    // Stops at the last newline, leaving a line still being written for a later read;
+    // Stats.totalBytes is then where that read should resume (see CsvFollower)
+    public CsvImporter completeLinesOnly() {
+        this.completeLinesOnly = true;
+        return this;
+    }
+
+    File file() {
+        return file;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Row count estimated from the file length and the average line length in a few
+    // sampled windows (start, middle, end), without reading the whole file. Small files
+    // are counted exactly. Blank lines and duplicate keys are included, so for a set or
+    // map it is an upper bound on the final size.
+    public long estimateRows() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long total = channel.size();
+            if (total == 0) return 0;
+            ByteBuffer window = ByteBuffer.allocate(SAMPLE_WINDOW);
+            boolean small = total <= SAMPLE_WINDOW * 3L;
+            long[] offsets = small
+                ? new long[] {0}
+                : new long[] {0, total / 2 - SAMPLE_WINDOW / 2, total - SAMPLE_WINDOW};
+            long span = small ? total : SAMPLE_WINDOW;
+            long sampled = 0;
+            long newlines = 0;
+            for (long offset : offsets) {
+                for (long position = offset; position < offset + span; ) {
+                    window.clear();
+                    int read = channel.read(window, position);
+                    if (read <= 0) break;
+                    byte[] bytes = window.array();
+                    for (int i = 0; i < read; i++) {
+                        if (bytes[i] == '\n') newlines++;
+                    }
+                    sampled += read;
+                    position += read;
+                }
+            }
+            if (small) return newlines + (lastByte(channel, total) == '\n' ? 0 : 1);
+            if (newlines == 0) return 1;
+            return (long) Math.ceil(total * (double) newlines / sampled);
+        }
+    }
+
+    private static int lastByte(FileChannel channel, long total) throws IOException {
+        ByteBuffer one = ByteBuffer.allocate(1);
+        return channel.read(one, total - 1) == 1 ? one.get(0) : -1;
+    }
+
+    // Reads the whole file, handing every accepted row to the handler. The listener
+    // is called once per buffer chunk, so it is cheap enough to drive a progress bar.
+    public Stats run(RowHandler handler, ProgressListener listener) throws Exception {
+        long start = System.nanoTime();
+        long rows = 0;
+        long consumed = 0;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long total = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+
+            while (!cancelled) {
+                int read = channel.read(buffer);
+                boolean eof = read < 0;
+                byte[] bytes = buffer.array();
+                int limit = buffer.position();
+                int lineStart = 0;
+
+                for (int i = 0; i < limit; i++) {
+                    if (bytes[i] == '\n') {
+                        if (parseLine(bytes, lineStart, i, handler)) rows++;
+                        lineStart = i + 1;
+                    }
+                }
+
+                if (eof) {
+                    if (lineStart < limit && parseLine(bytes, lineStart, limit, handler)) rows++;
+                    consumed += limit;
+                    break;
+                }
+
+                consumed += lineStart;
+                if (lineStart == 0 && limit == buffer.capacity()) {
+                    // A single line is longer than the buffer; grow it and keep reading
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                } else {
+                    buffer.position(lineStart);
+                    buffer.limit(limit);
+                    buffer.compact();
+                }
+
+                if (listener != null) {
+                    listener.progress(new Stats(consumed, total, rows, System.nanoTime() - start, false));
+                }
+            }
+
+            Stats result = new Stats(consumed, total, rows, System.nanoTime() - start, cancelled);
+            if (listener != null) listener.progress(result);
+            return result;
+        }
+    }
+
+    // Splits the file into newline-aligned byte ranges and parses them on the common
+    // fork-join pool, at most a few ranges ahead of the consumer so memory stays bounded.
+    // When ordered, the handler gets the chunks one at a time in file order on the
+    // calling thread while later ranges are still being parsed; otherwise each worker
+    // hands its chunk over as soon as it is parsed, so the handler must be thread-safe.
+    // Keys are profiled in the workers and merged into keyProfile (may be null).
+    public Stats runParallel(ChunkHandler handler, boolean ordered, NumericProfile keyProfile,
+                             ProgressListener listener) throws Exception {
+        long start = System.nanoTime();
+        long rows = 0;
+        long consumed = 0;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long total = completeLinesOnly ? completeLength(channel, channel.size()) : channel.size();
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            int parallelism = pool.getParallelism();
+            long[] bounds = chunkBounds(channel, total, chunkSize(total, parallelism));
+            int chunks = bounds.length - 1;
+            int window = parallelism + 2;
+
+            // Unordered workers insert their own chunks, so rows are counted where they go in
+            AtomicLong insertedRows = new AtomicLong();
+            AtomicLong insertedBytes = new AtomicLong();
+            ChunkHandler direct = ordered ? null : chunk -> {
+                handler.chunk(chunk);
+                insertedRows.addAndGet(chunk.count);
+                insertedBytes.addAndGet(chunk.bytes);
+            };
+
+            ArrayDeque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+            int submitted = 0;
+            try {
+                while (!cancelled && (submitted < chunks || !inFlight.isEmpty())) {
+                    while (submitted < chunks && inFlight.size() < window) {
+                        long from = bounds[submitted];
+                        long to = bounds[submitted + 1];
+                        inFlight.add(pool.submit(() -> parseChunk(channel, from, to, direct)));
+                        submitted++;
+                    }
+
+                    Chunk chunk;
+                    try {
+                        chunk = inFlight.poll().get();
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof Exception) throw (Exception) cause;
+                        throw e;
+                    }
+                    if (cancelled) break;
+                    if (ordered) handler.chunk(chunk);
+                    if (keyProfile != null) keyProfile.merge(chunk.keyProfile);
+                    rows += chunk.count;
+                    consumed += chunk.bytes;
+
+                    if (listener != null) {
+                        listener.progress(new Stats(consumed, total, rows, System.nanoTime() - start, false));
+                    }
+                }
+            } finally {
+                // Workers read through this channel, so let them stop before it closes
+                for (ForkJoinTask<Chunk> task : inFlight) task.quietlyJoin();
+            }
+            if (!ordered) {
+                // Includes chunks inserted after a cancel, which the loop never polled
+                rows = insertedRows.get();
+                consumed = insertedBytes.get();
+            }
+
+            Stats result = new Stats(consumed, total, rows, System.nanoTime() - start, cancelled);
+            if (listener != null) listener.progress(result);
+            return result;
+        }
+    }
+
+    // Length of the file up to and including its last newline, 0 when it has none
+    static long completeLength(FileChannel channel, long total) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SAMPLE_WINDOW);
+        long end = total;
+        while (end > 0) {
+            long from = Math.max(0, end - SAMPLE_WINDOW);
+            buffer.clear();
+            buffer.limit((int) (end - from));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) break;
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') return from + i + 1;
+            }
+            end = from;
+        }
+        return 0;
+    }
+
+    // A few chunks per worker so an uneven split still keeps every core busy
+    private static long chunkSize(long total, int parallelism) {
+        long size = total / (Math.max(1, parallelism) * 4L);
+        return Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size));
+    }
+
+    // Range starts moved forward to just past the next newline; a line longer than a
+    // chunk simply makes its range longer
+    private static long[] chunkBounds(FileChannel channel, long total, long chunkSize) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(64 << 10);
+        for (long nominal = chunkSize; nominal < total; nominal += chunkSize) {
+            long last = bounds.get(bounds.size() - 1);
+            long position = Math.max(nominal, last + 1) - 1;
+            long lineStart = -1;
+            while (lineStart < 0 && position < total) {
+                probe.clear();
+                int read = channel.read(probe, position);
+                if (read <= 0) break;
+                byte[] bytes = probe.array();
+                for (int i = 0; i < read; i++) {
+                    if (bytes[i] == '\n') {
+                        lineStart = position + i + 1;
+                        break;
+                    }
+                }
+                position += read;
+            }
+            if (lineStart < 0 || lineStart >= total) break;
+            bounds.add(lineStart);
+            if (lineStart > nominal) nominal = lineStart - lineStart % chunkSize;
+        }
+        bounds.add(total);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) result[i] = bounds.get(i);
+        return result;
+    }
+
+    // Runs on a pool worker: one positional read of the whole range, then the same
+    // line parser the streaming path uses
+    private Chunk parseChunk(FileChannel channel, long from, long to, ChunkHandler direct) throws Exception {
+        byte[] bytes = new byte[(int) (to - from)];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, from + buffer.position()) < 0) break;
+        }
+        Chunk chunk = parseBytes(bytes, buffer.position(), true);
+        if (direct != null && !cancelled) direct.chunk(chunk);
+        return chunk;
+    }
+
+    // Rows of bytes[0..limit). A last line without its newline is parsed only when
+    // partialLine is set; otherwise it is left out and chunk.bytes stops before it.
+    Chunk parseBytes(byte[] bytes, int limit, boolean partialLine) throws Exception {
+        int estimate = Math.max(16, limit / 32);
+        String[][] keys = {new String[estimate]};
+        String[][] values = {keyValue ? new String[estimate] : null};
+        int[] count = {0};
+        NumericProfile profile = new NumericProfile();
+        RowHandler collect = (key, value) -> {
+            int n = count[0];
+            if (n == keys[0].length) {
+                keys[0] = Arrays.copyOf(keys[0], n * 2);
+                if (values[0] != null) values[0] = Arrays.copyOf(values[0], n * 2);
+            }
+            keys[0][n] = key;
+            if (values[0] != null) values[0][n] = value;
+            count[0] = n + 1;
+            profile.observe(key);
+        };
+
+        int lineStart = 0;
+        int lines = 0;
+        for (int i = 0; i < limit; i++) {
+            if (bytes[i] == '\n') {
+                parseLine(bytes, lineStart, i, collect);
+                lineStart = i + 1;
+                if ((++lines & 1023) == 0 && cancelled) break;
+            }
+        }
+        int consumed = lineStart;
+        if (partialLine && lineStart < limit && !cancelled) {
+            parseLine(bytes, lineStart, limit, collect);
+            consumed = limit;
+        }
+        return new Chunk(keys[0], values[0], count[0], consumed, profile);
+    }
+
+    // Tokenizes one line straight from the byte buffer. Commas and whitespace are ASCII
+    // and never occur inside a UTF-8 multi-byte sequence, so they are found without
+    // decoding, and only the trimmed key and value become Strings.
+    private boolean parseLine(byte[] bytes, int from, int to, RowHandler handler) throws Exception {
+        if (to > from && bytes[to - 1] == '\r') to--;
+
+        if (!keyValue) {
+            int start = trimStart(bytes, from, to);
+            int end = trimEnd(bytes, start, to);
+            if (start == end) return false;
+            handler.row(string(bytes, start, end, keyDedup), null);
+            return true;
+        }
+
+        // Same acceptance rule as String.split(","): a row needs a comma followed by
+        // at least one non-empty field, and only the first two fields are used
+        int firstComma = indexOf(bytes, from, to, (byte) ',');
+        if (firstComma < 0) return false;
+        boolean hasField = false;
+        for (int i = firstComma + 1; i < to; i++) {
+            if (bytes[i] != ',') {
+                hasField = true;
+                break;
+            }
+        }
+        if (!hasField) return false;
+        int secondComma = indexOf(bytes, firstComma + 1, to, (byte) ',');
+        int valueEnd = secondComma < 0 ? to : secondComma;
+
+        handler.row(trimmed(bytes, from, firstComma, keyDedup), trimmed(bytes, firstComma + 1, valueEnd, valueDedup));
+        return true;
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == b) return i;
+        }
+        return -1;
+    }
+
+    // String.trim() drops chars <= ' '; in UTF-8 those are exactly the bytes 0x00-0x20
+    private static int trimStart(byte[] bytes, int from, int to) {
+        while (from < to && (bytes[from] & 0xff) <= ' ') from++;
+        return from;
+    }
+
+    private static int trimEnd(byte[] bytes, int from, int to) {
+        while (to > from && (bytes[to - 1] & 0xff) <= ' ') to--;
+        return to;
+    }
+
+    private static String trimmed(byte[] bytes, int from, int to, StringDeduplicator dedup) {
+        int start = trimStart(bytes, from, to);
+        return string(bytes, start, trimEnd(bytes, start, to), dedup);
+    }
+
+    private static String string(byte[] bytes, int from, int to, StringDeduplicator dedup) {
+        return dedup != null ? dedup.dedup(bytes, from, to) : new String(bytes, from, to - from, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,349 @@
+import java.io.File;
+import java.util.*;
+
+// Ranks candidate collections by running short in-process trials against a sample of
+// the user's own keys under a declared operation mix, instead of the fixed decision tree.
+public class EmpiricalAdvisor {
+
+    private static final int OP_GET = 0, OP_PUT = 1, OP_REMOVE = 2;
+    private static final int SEQUENCE_LENGTH = 1 << 16;
+
+    // Percentages of get/contains, put/add and remove operations
+    public static class Workload {
+        public final int getPct;
+        public final int putPct;
+        public final int removePct;
+
+        public Workload(int getPct, int putPct, int removePct) {
+            int total = getPct + putPct + removePct;
+            if (getPct < 0 || putPct < 0 || removePct < 0 || total == 0) {
+                throw new IllegalArgumentException("Workload percentages must be non-negative and not all zero");
+            }
+            this.getPct = getPct;
+            this.putPct = putPct;
+            this.removePct = removePct;
+        }
+
+        // Default mix shaped by the "fast ..." checkboxes; fast search alone gives 80/15/5
+        public static Workload forPriorities(boolean fastSearch, boolean fastInsertion, boolean fastDeletion) {
+            int get = fastSearch ? 80 : 70;
+            int put = fastSearch ? 15 : 20;
+            int remove = fastSearch ? 5 : 10;
+            if (fastInsertion) {
+                get -= 15;
+                put += 15;
+            }
+            if (fastDeletion) {
+                get -= 10;
+                remove += 10;
+            }
+            return new Workload(get, put, remove);
+        }
+
+        public String toText() {
+            return getPct + "/" + putPct + "/" + removePct;
+        }
+
+        // "80/15/5" -> 80% get, 15% put, 5% remove
+        public static Workload parse(String text) {
+            String[] parts = text.trim().split("\\s*/\\s*");
+            if (parts.length != 3) throw new IllegalArgumentException("Expected get/put/remove, e.g. 80/15/5");
+            return new Workload(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+        }
+
+        @Override
+        public String toString() {
+            return getPct + "% get / " + putPct + "% put / " + removePct + "% remove";
+        }
+    }
+
+    public static class Trial {
+        public final String className;
+        public final double opsPerSecond;
+        public final long p50Nanos;
+        public final long p99Nanos;
+        public final long retainedBytes;
+        // Bytes allocated per operation during the throughput pass, -1 if not tracked
+        public final double allocatedBytesPerOp;
+
+        Trial(String className, double opsPerSecond, long p50Nanos, long p99Nanos, long retainedBytes,
+              double allocatedBytesPerOp) {
+            this.className = className;
+            this.opsPerSecond = opsPerSecond;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.retainedBytes = retainedBytes;
+            this.allocatedBytesPerOp = allocatedBytesPerOp;
+        }
+    }
+
+    // Order of the ranking: most operations per second, or least garbage per operation
+    public enum Rank { THROUGHPUT, ALLOCATION }
+
+    public interface Listener {
+        void trialStarted(String className, int index, int total);
+    }
+
+    private final List<String> keys;
+    private final List<String> values;
+    private final Workload workload;
+    private long trialNanos = 500_000_000L;
+    private Rank rankBy = Rank.THROUGHPUT;
+    private volatile boolean cancelled;
+    private volatile long sink;
+
+    // values may be null for single-column data; keys double as values for maps then
+    public EmpiricalAdvisor(List<String> keys, List<String> values, Workload workload) {
+        if (keys.isEmpty()) throw new IllegalArgumentException("Sample contains no rows");
+        this.keys = keys;
+        this.values = values;
+        this.workload = workload;
+    }
+
+    public EmpiricalAdvisor trialMillis(long millis) {
+        this.trialNanos = millis * 1_000_000L;
+        return this;
+    }
+
+    public EmpiricalAdvisor rankBy(Rank rank) {
+        this.rankBy = rank;
+        return this;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // Registry classes in the right family (map vs collection) that offer every required
+    // trait and can hold the sampled keys (primitive classes need integer keys; pass null
+    // when unknown). Off-heap classes only compete when asked for, since their heap
+    // footprint says nothing about their native memory, and so do caches, which drop
+    // entries. If nothing qualifies, the whole family is returned for a ranking.
+    public static List<String> candidates(Set<CollectionRegistry.Trait> required,
+                                          CsvImporter.NumericProfile keyProfile) {
+        boolean keyValue = required.contains(CollectionRegistry.Trait.KEY_VALUE);
+        List<String> family = new ArrayList<>();
+        List<String> matching = new ArrayList<>();
+        for (String name : CollectionRegistry.names()) {
+            Set<CollectionRegistry.Trait> traits = CollectionRegistry.traits(name);
+            if (traits.contains(CollectionRegistry.Trait.KEY_VALUE) != keyValue) continue;
+            if (!CollectionRegistry.accepts(name, keyProfile)) continue;
+            if (CollectionRegistry.isOffHeap(name) && !required.contains(CollectionRegistry.Trait.OFF_HEAP)) continue;
+            if (CollectionRegistry.isBounded(name) && !required.contains(CollectionRegistry.Trait.BOUNDED)) continue;
+            family.add(name);
+            if (traits.containsAll(required)) matching.add(name);
+        }
+        return matching.isEmpty() ? family : matching;
+    }
+
+    public List<Trial> run(List<String> candidates, Listener listener) throws Exception {
+        int[] ops = new int[SEQUENCE_LENGTH];
+        int[] keyIndexes = new int[SEQUENCE_LENGTH];
+        SplittableRandom random = new SplittableRandom(7);
+        int total = workload.getPct + workload.putPct + workload.removePct;
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            int roll = random.nextInt(total);
+            ops[i] = roll < workload.getPct ? OP_GET : roll < workload.getPct + workload.putPct ? OP_PUT : OP_REMOVE;
+            keyIndexes[i] = random.nextInt(keys.size());
+        }
+
+        // Warm every candidate before measuring any, so each one is timed against the
+        // same JIT profile of the shared call sites instead of favouring the first
+        for (int c = 0; c < candidates.size() && !cancelled; c++) {
+            CollectionOps target = load(candidates.get(c));
+            long deadline = System.nanoTime() + trialNanos / 4;
+            int i = 0;
+            while (System.nanoTime() < deadline && !cancelled) {
+                i = runOps(target, ops, keyIndexes, i, 256);
+            }
+        }
+
+        List<Trial> trials = new ArrayList<>();
+        for (int c = 0; c < candidates.size() && !cancelled; c++) {
+            String name = candidates.get(c);
+            if (listener != null) listener.trialStarted(name, c, candidates.size());
+            trials.add(runTrial(name, ops, keyIndexes));
+        }
+
+        if (rankBy == Rank.ALLOCATION) {
+            // Untracked allocation (-1) sorts last; ties fall back to throughput
+            Collections.sort(trials, (a, b) -> {
+                if ((a.allocatedBytesPerOp < 0) != (b.allocatedBytesPerOp < 0)) return a.allocatedBytesPerOp < 0 ? 1 : -1;
+                int byBytes = Double.compare(a.allocatedBytesPerOp, b.allocatedBytesPerOp);
+                return byBytes != 0 ? byBytes : Double.compare(b.opsPerSecond, a.opsPerSecond);
+            });
+        } else {
+            Collections.sort(trials, (a, b) -> Double.compare(b.opsPerSecond, a.opsPerSecond));
+        }
+        return trials;
+    }
+
+    private Trial runTrial(String className, int[] ops, int[] keyIndexes) throws Exception {
+        long retained = measureRetained(className);
+
+        // Throughput pass: no per-op clock reads
+        CollectionOps target = load(className);
+        int i = 0;
+        long executed = 0;
+        long allocatedBefore = AllocationProfiler.threadAllocatedBytes();
+        long start = System.nanoTime();
+        long deadline = start + trialNanos / 2;
+        long now;
+        do {
+            i = runOps(target, ops, keyIndexes, i, 256);
+            executed += 256;
+            now = System.nanoTime();
+        } while (now < deadline && !cancelled);
+        double opsPerSecond = executed / ((now - start) / 1e9);
+        double bytesPerOp = allocatedBefore < 0 ? -1
+            : (AllocationProfiler.threadAllocatedBytes() - allocatedBefore) / (double) executed;
+
+        // Latency pass: every op timed individually
+        target = load(className);
+        long[] latencies = new long[SEQUENCE_LENGTH];
+        int samples = 0;
+        deadline = System.nanoTime() + trialNanos / 4;
+        while (samples < latencies.length && !cancelled) {
+            long t0 = System.nanoTime();
+            i = runOps(target, ops, keyIndexes, i, 1);
+            long t1 = System.nanoTime();
+            latencies[samples++] = t1 - t0;
+            if (t1 > deadline) break;
+        }
+        Arrays.sort(latencies, 0, samples);
+        long p50 = samples == 0 ? 0 : latencies[(int) (samples * 0.50)];
+        long p99 = samples == 0 ? 0 : latencies[Math.min(samples - 1, (int) (samples * 0.99))];
+
+        return new Trial(className, opsPerSecond, p50, p99, retained, bytesPerOp);
+    }
+
+    private int runOps(CollectionOps target, int[] ops, int[] keyIndexes, int from, int count) {
+        boolean keyValue = target.isKeyValue();
+        long acc = 0;
+        int i = from;
+        for (int n = 0; n < count; n++) {
+            int k = keyIndexes[i];
+            String key = keys.get(k);
+            switch (ops[i]) {
+                case OP_GET:
+                    if (target.contains(key)) acc++;
+                    break;
+                case OP_PUT:
+                    if (keyValue) target.put(key, valueAt(k));
+                    else target.add(key);
+                    break;
+                default:
+                    if (target.remove(key)) acc++;
+                    break;
+            }
+            if (++i == ops.length) i = 0;
+        }
+        sink += acc;
+        return i;
+    }
+
+    private CollectionOps load(String className) throws Exception {
+        CollectionOps ops = CollectionOps.of(CollectionRegistry.newInstance(className));
+        boolean keyValue = ops.isKeyValue();
+        for (int k = 0; k < keys.size(); k++) {
+            if (keyValue) ops.put(keys.get(k), valueAt(k));
+            else ops.add(keys.get(k));
+        }
+        return ops;
+    }
+
+    private String valueAt(int index) {
+        return values != null ? values.get(index) : keys.get(index);
+    }
+
+    // Heap held by the structure itself; the sample strings are already reachable from
+    // this advisor, so only entries, nodes and tables show up in the delta. The baseline
+    // is taken both before loading and after releasing, since a collector can keep the
+    // previous trial's garbage alive through one more cycle.
+    private long measureRetained(String className) throws Exception {
+        Runtime runtime = Runtime.getRuntime();
+        long before = usedAfterGc(runtime);
+        CollectionOps loaded = load(className);
+        long after = usedAfterGc(runtime);
+        sink += loaded.size();
+        loaded = null;
+        long released = usedAfterGc(runtime);
+        return Math.max(0, after - Math.min(before, released));
+    }
+
+    private static long usedAfterGc(Runtime runtime) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Reads up to limit rows from a CSV using the same parsing rules as the importer
+    public static void sampleCsv(File file, boolean keyValue, int limit,
+                                 List<String> keys, List<String> values) throws Exception {
+        CsvImporter importer = new CsvImporter(file, keyValue);
+        importer.run((key, value) -> {
+            if (keys.size() >= limit) {
+                importer.cancel();
+                return;
+            }
+            keys.add(key);
+            if (keyValue) values.add(value);
+        }, null);
+    }
+
+    public static CsvImporter.NumericProfile profile(List<String> keys) {
+        CsvImporter.NumericProfile profile = new CsvImporter.NumericProfile();
+        for (String key : keys) profile.observe(key);
+        return profile;
+    }
+
+    // Random alphanumeric keys, for when no CSV sample is available
+    public static List<String> syntheticKeys(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<String> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add("key-" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36));
+        }
+        return keys;
+    }
+
+    public static String report(List<Trial> trials, Workload workload, int sampleSize) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Empirical ranking\n");
+        sb.append("Workload: ").append(workload).append("\n");
+        sb.append(String.format("Sample: %,d rows\n\n", sampleSize));
+        if (trials.isEmpty()) {
+            sb.append("No trials completed.\n");
+            return sb.toString();
+        }
+
+        Trial fastest = trials.get(0), lowestP99 = trials.get(0), smallest = trials.get(0), leastAllocation = null;
+        int rank = 1;
+        for (Trial t : trials) {
+            sb.append(String.format("%d. %s\n   %,.0f ops/s  |  p50 %,d ns  |  p99 %,d ns  |  %s retained%s\n",
+                rank++, t.className, t.opsPerSecond, t.p50Nanos, t.p99Nanos, formatBytes(t.retainedBytes),
+                CollectionRegistry.isOffHeap(t.className) ? " on heap (data in native memory)" : ""));
+            if (t.allocatedBytesPerOp >= 0) {
+                sb.append(String.format("   %,.1f bytes allocated per op\n", t.allocatedBytesPerOp));
+                if (leastAllocation == null || t.allocatedBytesPerOp < leastAllocation.allocatedBytesPerOp) leastAllocation = t;
+            }
+            if (t.opsPerSecond > fastest.opsPerSecond) fastest = t;
+            if (t.p99Nanos < lowestP99.p99Nanos) lowestP99 = t;
+            if (t.retainedBytes < smallest.retainedBytes) smallest = t;
+        }
+
+        sb.append("\nHighest throughput: ").append(fastest.className).append("\n");
+        sb.append("Lowest p99 latency: ").append(lowestP99.className).append("\n");
+        sb.append("Smallest footprint: ").append(smallest.className).append("\n");
+        if (leastAllocation != null) sb.append("Least allocation: ").append(leastAllocation.className).append("\n");
+        return sb.toString();
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        if (bytes < 1024L * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024));
+        return String.format("%.2f GB", bytes / (1024.0 * 1024 * 1024));
+    }
+}
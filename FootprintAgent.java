@@ -0,0 +1,54 @@
+import java.lang.instrument.Instrumentation;
+import java.util.*;
+
+// Optional Java agent that gives HeapFootprint exact object sizes through
+// Instrumentation.getObjectSize. On JDK 9+ it also opens the java.util packages to
+// the application, so the object-graph walk can read collection internals that
+// strong encapsulation otherwise hides. Package it with footprint-agent.mf:
+//   jar cfm footprint-agent.jar footprint-agent.mf FootprintAgent.class
+//   java -javaagent:footprint-agent.jar CollectionAdvisor
+public final class FootprintAgent {
+
+    private static final String[] OPENED_PACKAGES = {
+        "java.lang", "java.util", "java.util.concurrent",
+        "java.util.concurrent.atomic", "java.util.concurrent.locks"
+    };
+
+    private static volatile Instrumentation instrumentation;
+
+    private FootprintAgent() {
+    }
+
+    public static void premain(String args, Instrumentation inst) {
+        instrumentation = inst;
+        openJavaBase(inst);
+    }
+
+    public static void agentmain(String args, Instrumentation inst) {
+        premain(args, inst);
+    }
+
+    static Instrumentation instrumentation() {
+        return instrumentation;
+    }
+
+    // Instrumentation.redefineModule only exists on JDK 9+, so it is called reflectively
+    private static void openJavaBase(Instrumentation inst) {
+        try {
+            Class<?> moduleClass = Class.forName("java.lang.Module");
+            Object base = Class.class.getMethod("getModule").invoke(Object.class);
+            Object unnamed = ClassLoader.class.getMethod("getUnnamedModule")
+                .invoke(FootprintAgent.class.getClassLoader());
+            Map<String, Set<Object>> opens = new HashMap<>();
+            for (String pkg : OPENED_PACKAGES) opens.put(pkg, Collections.singleton(unnamed));
+            Instrumentation.class.getMethod("redefineModule", moduleClass, Set.class, Map.class,
+                Map.class, Set.class, Map.class)
+                .invoke(inst, base, Collections.emptySet(), Collections.emptyMap(), opens,
+                    Collections.emptySet(), Collections.emptyMap());
+        } catch (ClassNotFoundException e) {
+            // JDK 8: no modules, reflection into java.util already works
+        } catch (ReflectiveOperationException e) {
+            System.err.println("FootprintAgent: could not open java.base: " + e);
+        }
+    }
+}
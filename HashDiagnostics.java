@@ -0,0 +1,324 @@
+import java.util.*;
+
+// How well the keys of a live hash-based collection spread over its table. The keys'
+// hashCode()s are placed into a table the size the collection would have for that many
+// keys, using the collection's own spreading function, and the resulting bucket
+// occupancy is compared with what uniformly random hashes would give. The same keys
+// are then placed with other hashing strategies, so a skewed key set (long common
+// prefixes, sequential IDs, crafted collisions) shows which fix actually helps. The
+// real table is not read: java.util internals are closed to reflection on JDK 9+.
+public final class HashDiagnostics {
+
+    // java.util.HashMap turns a bin into a red-black tree at 8 entries, once the table
+    // has at least 64 buckets (smaller tables are resized instead)
+    static final int TREEIFY_THRESHOLD = 8;
+    static final int MIN_TREEIFY_CAPACITY = 64;
+    // Keys timed for the uncached hashCode() cost
+    private static final int TIMED_KEYS = 100_000;
+    // Lookups may cost this much more than under random hashes before a strategy is poor
+    private static final double POOR_RATIO = 1.5;
+
+    private static final Set<String> CHAINED = new HashSet<>(Arrays.asList(
+        "HashMap", "HashSet", "LinkedHashMap", "LinkedHashSet", "ConcurrentHashMap", "ConcurrentHashMap.newKeySet",
+        "ConcurrentLinkedHashMap", "ConcurrentLinkedHashMap.newKeySet",
+        "LruLinkedHashMap", "ConcurrentLruCache", "TinyLfuCache", "TtlCache"));
+    private static final Set<String> OPEN_ADDRESSED = new HashSet<>(Arrays.asList("OffHeapHashSet", "OffHeapHashMap"));
+
+    private static volatile int sink;
+
+    public enum Strategy {
+        HASHMAP_SPREAD("hashCode, HashMap spread (h ^ h>>>16), chained"),
+        FIBONACCI_CHAINED("hashCode, Fibonacci mix, chained"),
+        CONTENT_HASH_CHAINED("64-bit hash of the key's characters, chained"),
+        OPEN_ADDRESSING("hashCode, Fibonacci mix, linear probing");
+
+        public final String description;
+
+        Strategy(String description) {
+            this.description = description;
+        }
+    }
+
+    public static class Distribution {
+        public final Strategy strategy;
+        public final int tableSize;
+        public final int usedBuckets;
+        // Longest chain, or longest probe sequence for open addressing
+        public final int longest;
+        // Key comparisons for an average successful lookup, against uniformly random hashes
+        public final double probes;
+        public final double expectedProbes;
+        public final int treeifiedBins;
+        // Buckets holding 0, 1, ... 7 keys, then TREEIFY_THRESHOLD or more; empty for open addressing
+        public final long[] occupancy;
+
+        Distribution(Strategy strategy, int tableSize, int usedBuckets, int longest, double probes,
+                     double expectedProbes, int treeifiedBins, long[] occupancy) {
+            this.strategy = strategy;
+            this.tableSize = tableSize;
+            this.usedBuckets = usedBuckets;
+            this.longest = longest;
+            this.probes = probes;
+            this.expectedProbes = expectedProbes;
+            this.treeifiedBins = treeifiedBins;
+            this.occupancy = occupancy;
+        }
+
+        // 1.0 is as good as random hashes; larger is worse
+        public double skew() {
+            return expectedProbes > 0 ? probes / expectedProbes : 1;
+        }
+
+        public boolean isPoor() {
+            return skew() > POOR_RATIO || treeifiedBins > 0;
+        }
+    }
+
+    public static class Analysis {
+        public final String className;
+        public final int keys;
+        public final int distinctHashCodes;
+        // Keys whose hashCode() equals another key's; no table size or spreading separates them
+        public final int keysSharingHashCode;
+        public final double nanosPerHashCode;
+        public final double meanKeyLength;
+        public final Strategy current;
+        public final List<Distribution> distributions;
+
+        Analysis(String className, int keys, int distinctHashCodes, int keysSharingHashCode, double nanosPerHashCode,
+                 double meanKeyLength, Strategy current, List<Distribution> distributions) {
+            this.className = className;
+            this.keys = keys;
+            this.distinctHashCodes = distinctHashCodes;
+            this.keysSharingHashCode = keysSharingHashCode;
+            this.nanosPerHashCode = nanosPerHashCode;
+            this.meanKeyLength = meanKeyLength;
+            this.current = current;
+            this.distributions = distributions;
+        }
+
+        public Distribution distribution(Strategy strategy) {
+            for (Distribution d : distributions) {
+                if (d.strategy == strategy) return d;
+            }
+            return null;
+        }
+
+        public Distribution currentDistribution() {
+            return distribution(current);
+        }
+    }
+
+    private HashDiagnostics() {
+    }
+
+    // Classes that place keys by hashCode(); primitive tables hash the number itself
+    public static boolean appliesTo(String className) {
+        return CHAINED.contains(className) || OPEN_ADDRESSED.contains(className);
+    }
+
+    public static Analysis analyze(String className, Object collection) {
+        if (!appliesTo(className)) throw new IllegalArgumentException(className + " is not a hash table of objects");
+        Iterable<?> elements = collection instanceof Map ? ((Map<?, ?>) collection).keySet() : (Iterable<?>) collection;
+        List<Object> keys = new ArrayList<>();
+        for (Object key : elements) keys.add(key);
+        int n = keys.size();
+
+        int[] hashes = new int[n];
+        int[] contentHashes = new int[n];
+        long chars = 0;
+        for (int i = 0; i < n; i++) {
+            Object key = keys.get(i);
+            hashes[i] = key.hashCode();
+            String text = String.valueOf(key);
+            contentHashes[i] = contentHash(text);
+            chars += text.length();
+        }
+
+        int[] sorted = hashes.clone();
+        Arrays.sort(sorted);
+        int distinct = 0, sharing = 0;
+        for (int i = 0; i < n; ) {
+            int j = i;
+            while (j < n && sorted[j] == sorted[i]) j++;
+            distinct++;
+            if (j - i > 1) sharing += j - i;
+            i = j;
+        }
+
+        int chainedSize = hashMapTableSize(n);
+        List<Distribution> distributions = new ArrayList<>();
+        distributions.add(chained(Strategy.HASHMAP_SPREAD, hashes, chainedSize));
+        distributions.add(chained(Strategy.FIBONACCI_CHAINED, hashes, chainedSize));
+        distributions.add(chained(Strategy.CONTENT_HASH_CHAINED, contentHashes, chainedSize));
+        distributions.add(openAddressed(hashes));
+
+        Strategy current = OPEN_ADDRESSED.contains(className) ? Strategy.OPEN_ADDRESSING : Strategy.HASHMAP_SPREAD;
+        return new Analysis(className, n, distinct, sharing, timeHashCode(keys),
+            n == 0 ? 0 : (double) chars / n, current, distributions);
+    }
+
+    // Table size java.util.HashMap grows to for n keys: doubling from 16 at load factor 0.75
+    static int hashMapTableSize(int n) {
+        int size = 16;
+        while (size < (1 << 30) && n > size * CollectionRegistry.DEFAULT_LOAD_FACTOR) size <<= 1;
+        return size;
+    }
+
+    private static int bucket(Strategy strategy, int hash, int mask) {
+        switch (strategy) {
+            case HASHMAP_SPREAD:
+                return (hash ^ (hash >>> 16)) & mask;
+            default:
+                return OffHeapArena.spread(hash) & mask;
+        }
+    }
+
+    private static Distribution chained(Strategy strategy, int[] hashes, int tableSize) {
+        int mask = tableSize - 1;
+        int[] chains = new int[tableSize];
+        for (int hash : hashes) chains[bucket(strategy, hash, mask)]++;
+
+        long[] occupancy = new long[TREEIFY_THRESHOLD + 1];
+        int used = 0, longest = 0, treeified = 0;
+        long comparisons = 0;
+        for (int length : chains) {
+            occupancy[Math.min(length, TREEIFY_THRESHOLD)]++;
+            if (length == 0) continue;
+            used++;
+            longest = Math.max(longest, length);
+            if (length >= TREEIFY_THRESHOLD && tableSize >= MIN_TREEIFY_CAPACITY) {
+                treeified++;
+                // A tree bin finds any of its keys in about log2(length) + 1 comparisons
+                comparisons += (long) (length * (Math.log(length) / Math.log(2) + 1));
+            } else {
+                comparisons += (long) length * (length + 1) / 2;
+            }
+        }
+        int n = hashes.length;
+        double load = (double) n / tableSize;
+        return new Distribution(strategy, tableSize, used, longest, n == 0 ? 0 : (double) comparisons / n,
+            n == 0 ? 0 : 1 + load / 2, treeified, occupancy);
+    }
+
+    // Linear probing at OffHeapHashMap's table size; keys with equal hash codes still
+    // take separate slots
+    private static Distribution openAddressed(int[] hashes) {
+        int n = hashes.length;
+        int tableSize = LongHashSet.tableSizeFor(n, LongHashSet.DEFAULT_LOAD_FACTOR);
+        int mask = tableSize - 1;
+        boolean[] taken = new boolean[tableSize];
+        int longest = 0;
+        long probes = 0;
+        for (int hash : hashes) {
+            int slot = OffHeapArena.spread(hash) & mask;
+            int length = 1;
+            while (taken[slot]) {
+                slot = (slot + 1) & mask;
+                length++;
+            }
+            taken[slot] = true;
+            probes += length;
+            longest = Math.max(longest, length);
+        }
+        double load = (double) n / tableSize;
+        return new Distribution(Strategy.OPEN_ADDRESSING, tableSize, n, longest, n == 0 ? 0 : (double) probes / n,
+            n == 0 ? 0 : 0.5 * (1 + 1 / (1 - load)), 0, new long[0]);
+    }
+
+    // BloomFilter's 64-bit hash folded to 32 bits. Unlike String.hashCode() it has no
+    // short colliding inputs such as "Aa"/"BB".
+    static int contentHash(String text) {
+        long h = BloomFilter.hash64(text);
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // String caches its hash after the first call, so the cost is timed on fresh copies
+    // of the keys: it is paid once per key object, e.g. for every key parsed from a file.
+    // A first pass over other copies gets the loop compiled before the timed one.
+    private static double timeHashCode(List<Object> keys) {
+        int count = Math.min(keys.size(), TIMED_KEYS);
+        if (count == 0) return 0;
+        String[] warmup = copies(keys, count);
+        String[] timed = copies(keys, count);
+        sink = hashAll(warmup);
+        long start = System.nanoTime();
+        sink = hashAll(timed);
+        return (double) (System.nanoTime() - start) / count;
+    }
+
+    private static String[] copies(List<Object> keys, int count) {
+        String[] copies = new String[count];
+        for (int i = 0; i < count; i++) copies[i] = new String(String.valueOf(keys.get(i)).toCharArray());
+        return copies;
+    }
+
+    private static int hashAll(String[] keys) {
+        int sum = 0;
+        for (String key : keys) sum += key.hashCode();
+        return sum;
+    }
+
+    public static String report(Analysis a) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Hash diagnostics: ").append(a.className).append("\n");
+        sb.append(String.format("Keys: %,d  |  distinct hash codes %,d  |  mean key length %.1f chars\n",
+            a.keys, a.distinctHashCodes, a.meanKeyLength));
+        sb.append(String.format("hashCode() cost: %.1f ns per key the first time (then cached by String)\n",
+            a.nanosPerHashCode));
+        if (a.keys == 0) {
+            sb.append("The collection is empty; import keys first.\n");
+            return sb.toString();
+        }
+        if (a.keysSharingHashCode > 0) {
+            sb.append(String.format("%,d keys share their hashCode() with another key (%.2f%%)\n",
+                a.keysSharingHashCode, 100.0 * a.keysSharingHashCode / a.keys));
+        }
+
+        Distribution current = a.currentDistribution();
+        sb.append("\nBucket occupancy (").append(current.strategy.description).append(", ")
+            .append(String.format("%,d buckets", current.tableSize)).append(")\n");
+        if (current.occupancy.length > 0) {
+            for (int k = 0; k < current.occupancy.length; k++) {
+                if (current.occupancy[k] == 0 && k > 1) continue;
+                sb.append(String.format("   %s keys: %,12d buckets\n",
+                    k == TREEIFY_THRESHOLD ? TREEIFY_THRESHOLD + "+" : String.valueOf(k), current.occupancy[k]));
+            }
+        }
+        sb.append(String.format("   Longest %s: %d  |  treeified bins: %,d\n",
+            current.strategy == Strategy.OPEN_ADDRESSING ? "probe sequence" : "chain",
+            current.longest, current.treeifiedBins));
+
+        sb.append("\nComparisons per lookup (random hashes would need)\n");
+        for (Distribution d : a.distributions) {
+            sb.append(String.format("   %-48s %6.2f  (%.2f)  longest %d%s%s\n", d.strategy.description,
+                d.probes, d.expectedProbes, d.longest, d.strategy == a.current ? "  <- current" : "",
+                d.isPoor() ? "  POOR" : ""));
+        }
+
+        sb.append("\n");
+        if (!current.isPoor()) {
+            sb.append("Verdict: keys spread as well as random hashes; O(1) lookups hold.\n");
+            return sb.toString();
+        }
+        sb.append(String.format("Verdict: lookups cost %.1fx what random hashes would.\n", current.skew()));
+        Distribution content = a.distribution(Strategy.CONTENT_HASH_CHAINED);
+        Distribution open = a.distribution(Strategy.OPEN_ADDRESSING);
+        Distribution fibonacci = a.distribution(Strategy.FIBONACCI_CHAINED);
+        if (a.keysSharingHashCode > a.keys / 100 && !content.isPoor()) {
+            sb.append("hashCode() itself collides, so no table can separate these keys. Wrap them in a key\n")
+                .append("class whose hashCode() hashes every character (as the 64-bit line above), or use\n")
+                .append("TreeMap/ConcurrentSkipListMap, which compare keys instead of hashing them.\n");
+        } else if (!open.isPoor() && a.current != Strategy.OPEN_ADDRESSING) {
+            sb.append("The hash codes differ but cluster in the low bits HashMap uses. An open-addressing\n")
+                .append("table with Fibonacci mixing (OffHeapHashMap/OffHeapHashSet, or LongObjectHashMap\n")
+                .append("and LongHashSet for numeric keys) spreads them evenly.\n");
+        } else if (!fibonacci.isPoor()) {
+            sb.append("Mixing all hash bits before taking the bucket index fixes the spread; wrap the keys\n")
+                .append("in a class whose hashCode() applies a Fibonacci mix.\n");
+        } else {
+            sb.append("No hashing strategy spreads these keys; a sorted map avoids hashing altogether.\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,596 @@
+import java.lang.instrument.Instrumentation;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+// Retained-heap analysis for a live collection. When the JVM lets us read collection
+// internals (JDK 8, --add-opens, or FootprintAgent) the object graph is walked and
+// every object is sized; otherwise the size comes from a layout model of each class
+// (header, reference and alignment sizes of the running JVM, known field sets and
+// growth policies). Either way the elements themselves ("payload") are sized from the
+// actual objects, and the result is split into structure vs. payload.
+public final class HeapFootprint {
+
+    // Larger collections are estimated: the walk's identity map would cost more heap
+    // than the collection itself
+    private static final int WALK_LIMIT = 1_000_000;
+
+    private static final boolean COMPRESSED_OOPS = vmFlag("UseCompressedOops",
+        Runtime.getRuntime().maxMemory() < (32L << 30));
+    private static final boolean COMPRESSED_CLASS_POINTERS = vmFlag("UseCompressedClassPointers", COMPRESSED_OOPS);
+    private static final boolean COMPACT_STRINGS = vmFlag("CompactStrings", false);
+    private static final int REF = COMPRESSED_OOPS ? 4 : 8;
+    private static final int HEADER = COMPRESSED_CLASS_POINTERS ? 12 : 16;
+    private static final int ARRAY_HEADER = COMPRESSED_CLASS_POINTERS ? 16 : 24;
+
+    public static class Report {
+        public final String className;
+        public final int size;
+        public final long payloadBytes;
+        public final long rootBytes;
+        public final long nodeBytes;
+        public final long arrayBytes;
+        // Slots in the main table or backing array, -1 for node-only structures
+        public final long slots;
+        public final long wastedBytes;
+        public final long nativeBytes;
+        public final boolean measured;
+
+        Report(String className, int size, long payloadBytes, long rootBytes, long nodeBytes,
+               long arrayBytes, long slots, long wastedBytes, long nativeBytes, boolean measured) {
+            this.className = className;
+            this.size = size;
+            this.payloadBytes = payloadBytes;
+            this.rootBytes = rootBytes;
+            this.nodeBytes = nodeBytes;
+            this.arrayBytes = arrayBytes;
+            this.slots = slots;
+            this.wastedBytes = wastedBytes;
+            this.nativeBytes = nativeBytes;
+            this.measured = measured;
+        }
+
+        public long structureBytes() {
+            return rootBytes + nodeBytes + arrayBytes;
+        }
+
+        public long totalBytes() {
+            return structureBytes() + payloadBytes;
+        }
+
+        public double bytesPerElement() {
+            return size == 0 ? 0 : (double) totalBytes() / size;
+        }
+
+        public double overheadPerElement() {
+            return size == 0 ? 0 : (double) structureBytes() / size;
+        }
+
+        public double loadFactor() {
+            return slots > 0 ? (double) size / slots : -1;
+        }
+    }
+
+    // Sizes of the elements as they are held, plus what the same data costs as strings
+    // (what any String-keyed alternative would hold)
+    private static class Payload {
+        long keyBytes;
+        long valueBytes;
+        long keyStringBytes;
+        long valueStringBytes;
+        long keyUtf8Bytes;
+        long valueUtf8Bytes;
+        // What the current class holds per side, or the string cost where it holds
+        // nothing (primitive keys, off-heap data)
+        long keyPayload;
+        long valuePayload;
+        final CsvImporter.NumericProfile keys = new CsvImporter.NumericProfile();
+    }
+
+    public static class Analysis {
+        public final Report current;
+        public final List<Report> projections;
+
+        Analysis(Report current, List<Report> projections) {
+            this.current = current;
+            this.projections = projections;
+        }
+    }
+
+    private HeapFootprint() {
+    }
+
+    public static String layoutDescription() {
+        return String.format("%d-byte references, %d-byte headers%s%s", REF, HEADER,
+            COMPACT_STRINGS ? ", compact strings" : "",
+            FootprintAgent.instrumentation() != null ? ", sizes from agent" : "");
+    }
+
+    // Footprint of the live instance plus estimates for every other class of the same
+    // family (that can hold these keys) filled with the same data, smallest first
+    public static Analysis analyze(Object instance) {
+        String name = CollectionRegistry.nameForClass(instance.getClass());
+        if (name == null) name = instance.getClass().getSimpleName();
+        Payload payload = payload(instance);
+        int size = size(instance);
+
+        Report current = null;
+        if (size <= WALK_LIMIT) {
+            try {
+                current = walk(name, instance, size);
+            } catch (RuntimeException e) {
+                // Typically InaccessibleObjectException: java.util is not opened to us
+            }
+        }
+        if (current == null) current = model(name, size, payload, instance);
+        if (current == null) {
+            current = new Report(name, size, payload.keyBytes + payload.valueBytes, 0, 0, 0, -1, 0, 0, false);
+        }
+
+        // Same family: maps with maps, lists with lists, sets with sets
+        boolean keyValue = instance instanceof Map;
+        boolean duplicates = !keyValue && !(instance instanceof Set);
+        List<Report> projections = new ArrayList<>();
+        for (String other : CollectionRegistry.names()) {
+            if (other.equals(name) || CollectionRegistry.isKeyValue(other) != keyValue) continue;
+            if (!keyValue && CollectionRegistry.traits(other).contains(CollectionRegistry.Trait.DUPLICATES) != duplicates) continue;
+            if (!CollectionRegistry.accepts(other, payload.keys)) continue;
+            Report report = model(other, size, payload, null);
+            if (report != null) projections.add(report);
+        }
+        projections.sort(Comparator.comparingLong(r -> r.totalBytes() + r.nativeBytes));
+        return new Analysis(current, projections);
+    }
+
+    private static int size(Object instance) {
+        if (instance instanceof Map) return ((Map<?, ?>) instance).size();
+        if (instance instanceof Collection) return ((Collection<?>) instance).size();
+        return 0;
+    }
+
+    private static Payload payload(Object instance) {
+        Payload p = new Payload();
+        // Shared elements are only de-duplicated where the identity map stays affordable
+        IdentityHashMap<Object, Boolean> seen = size(instance) <= WALK_LIMIT ? new IdentityHashMap<>() : null;
+        boolean primitive = instance instanceof IntArrayList || instance instanceof LongHashSet
+            || instance instanceof LongObjectHashMap;
+        boolean offHeap = instance instanceof OffHeapList || instance instanceof OffHeapHashSet
+            || instance instanceof OffHeapHashMap;
+        if (instance instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) instance).entrySet()) {
+                observeKey(p, entry.getKey(), primitive || offHeap, seen);
+                Object value = entry.getValue();
+                if (value == null) continue;
+                String text = value.toString();
+                p.valueStringBytes += stringSize(text);
+                p.valueUtf8Bytes += 4 + utf8Length(text);
+                if (!offHeap) p.valueBytes += deepSize(value, seen);
+            }
+        } else if (instance instanceof Collection) {
+            for (Object element : (Collection<?>) instance) {
+                observeKey(p, element, primitive || offHeap, seen);
+            }
+        }
+        p.keyPayload = primitive || offHeap ? p.keyStringBytes : p.keyBytes;
+        p.valuePayload = offHeap ? p.valueStringBytes : p.valueBytes;
+        return p;
+    }
+
+    // Primitive and off-heap classes hand out fresh objects on iteration, so those do not
+    // count as held payload
+    private static void observeKey(Payload p, Object key, boolean transientKeys, IdentityHashMap<Object, Boolean> seen) {
+        if (key == null) return;
+        String text = key.toString();
+        p.keys.observe(text);
+        p.keyStringBytes += stringSize(text);
+        p.keyUtf8Bytes += 8 + utf8Length(text);
+        if (!transientKeys) p.keyBytes += deepSize(key, seen);
+    }
+
+    // Object-graph walk
+
+    private static final Map<Class<?>, Field[]> FIELDS = new HashMap<>();
+    private static final Map<Class<?>, Long> SHALLOW = new HashMap<>();
+
+    private static Report walk(String name, Object instance, int size) {
+        IdentityHashMap<Object, Boolean> seen = new IdentityHashMap<>();
+        long payloadBytes = 0;
+        // Elements first, so the structure walk below stops at them
+        if (!(instance instanceof IntArrayList || instance instanceof LongHashSet
+                || instance instanceof OffHeapList || instance instanceof OffHeapHashSet
+                || instance instanceof OffHeapHashMap)) {
+            if (instance instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) instance).entrySet()) {
+                    if (!(instance instanceof LongObjectHashMap)) payloadBytes += deepSize(entry.getKey(), seen);
+                    payloadBytes += deepSize(entry.getValue(), seen);
+                }
+            } else {
+                for (Object element : (Collection<?>) instance) payloadBytes += deepSize(element, seen);
+            }
+        }
+
+        long rootBytes = shallowSize(instance);
+        seen.put(instance, Boolean.TRUE);
+        long nodeBytes = 0, arrayBytes = 0;
+        Object table = null;
+        long tableLength = -1;
+        ArrayDeque<Object> stack = new ArrayDeque<>();
+        pushChildren(instance, stack, seen);
+        while (!stack.isEmpty()) {
+            Object o = stack.pop();
+            long bytes = shallowSize(o);
+            if (o.getClass().isArray()) {
+                arrayBytes += bytes;
+                int length = Array.getLength(o);
+                if (length > tableLength) {
+                    table = o;
+                    tableLength = length;
+                }
+            } else {
+                nodeBytes += bytes;
+            }
+            pushChildren(o, stack, seen);
+        }
+
+        long wasted = table != null ? emptySlots(table, size) * componentSize(table.getClass().getComponentType()) : 0;
+        // Only an array that can hold every element counts as the table
+        long slots = tableLength > 0 && tableLength >= size ? tableLength : -1;
+        return new Report(name, size, payloadBytes, rootBytes, nodeBytes, arrayBytes,
+            slots, slots >= 0 ? wasted : 0, nativeBytes(instance), true);
+    }
+
+    private static long emptySlots(Object table, int size) {
+        int length = Array.getLength(table);
+        if (table instanceof Object[]) {
+            long empty = 0;
+            for (Object slot : (Object[]) table) {
+                if (slot == null) empty++;
+            }
+            return empty;
+        }
+        if (table instanceof long[]) {
+            long empty = 0;
+            for (long slot : (long[]) table) {
+                if (slot == 0) empty++;
+            }
+            return empty;
+        }
+        return Math.max(0, length - size);
+    }
+
+    private static long deepSize(Object root, IdentityHashMap<Object, Boolean> seen) {
+        if (root == null) return 0;
+        if (seen == null) {
+            if (root instanceof String) return stringSize((String) root);
+            seen = new IdentityHashMap<>();
+        }
+        if (seen.containsKey(root)) return 0;
+        if (root instanceof String) {
+            seen.put(root, Boolean.TRUE);
+            return stringSize((String) root);
+        }
+        long total = 0;
+        ArrayDeque<Object> stack = new ArrayDeque<>();
+        seen.put(root, Boolean.TRUE);
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Object o = stack.pop();
+            if (o instanceof String) {
+                total += stringSize((String) o);
+                continue;
+            }
+            total += shallowSize(o);
+            pushChildren(o, stack, seen);
+        }
+        return total;
+    }
+
+    private static void pushChildren(Object o, ArrayDeque<Object> stack, IdentityHashMap<Object, Boolean> seen) {
+        Class<?> clazz = o.getClass();
+        if (clazz.isArray()) {
+            if (clazz.getComponentType().isPrimitive()) return;
+            for (Object child : (Object[]) o) push(child, stack, seen);
+            return;
+        }
+        for (Field field : fields(clazz)) {
+            try {
+                push(field.get(o), stack, seen);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    // Class objects, threads, class loaders and references lead into JVM-wide state
+    private static void push(Object child, ArrayDeque<Object> stack, IdentityHashMap<Object, Boolean> seen) {
+        if (child == null || seen.containsKey(child)) return;
+        if (child instanceof Class || child instanceof Thread || child instanceof ClassLoader
+                || child instanceof java.lang.ref.Reference) return;
+        seen.put(child, Boolean.TRUE);
+        stack.push(child);
+    }
+
+    private static Field[] fields(Class<?> clazz) {
+        Field[] cached = FIELDS.get(clazz);
+        if (cached != null) return cached;
+        List<Field> result = new ArrayList<>();
+        for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) continue;
+                field.setAccessible(true);
+                result.add(field);
+            }
+        }
+        cached = result.toArray(new Field[0]);
+        FIELDS.put(clazz, cached);
+        return cached;
+    }
+
+    private static long shallowSize(Object o) {
+        Instrumentation inst = FootprintAgent.instrumentation();
+        if (inst != null) return inst.getObjectSize(o);
+        Class<?> clazz = o.getClass();
+        if (clazz.isArray()) return array(Array.getLength(o), componentSize(clazz.getComponentType()));
+        Long cached = SHALLOW.get(clazz);
+        if (cached != null) return cached;
+        long bytes = HEADER;
+        for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) bytes += componentSize(field.getType());
+            }
+        }
+        bytes = align(bytes);
+        SHALLOW.put(clazz, bytes);
+        return bytes;
+    }
+
+    private static int componentSize(Class<?> type) {
+        if (type == long.class || type == double.class) return 8;
+        if (type == int.class || type == float.class) return 4;
+        if (type == short.class || type == char.class) return 2;
+        if (type == byte.class || type == boolean.class) return 1;
+        return REF;
+    }
+
+    // Layout model
+
+    private static Report model(String name, int n, Payload p, Object instance) {
+        // The live instance holds its own element objects; an alternative holds the same
+        // objects, except that primitive classes keep keys inline
+        long strings = instance != null ? p.keyBytes + p.valueBytes : p.keyPayload + p.valuePayload;
+        long values = instance != null ? p.valueBytes : p.valuePayload;
+        // The live instance may know its exact capacity; projections assume growth from empty
+        long exact = instance instanceof IntArrayList ? ((IntArrayList) instance).capacity()
+            : instance instanceof LongHashSet ? ((LongHashSet) instance).capacity()
+            : instance instanceof LongObjectHashMap ? ((LongObjectHashMap<?>) instance).capacity()
+            : instance instanceof OffHeapHashSet ? ((OffHeapHashSet) instance).capacity()
+            : instance instanceof OffHeapHashMap ? ((OffHeapHashMap) instance).capacity()
+            : instance instanceof SortedArrayMap ? ((SortedArrayMap<?, ?>) instance).capacity() : -1;
+        long cap;
+        switch (name) {
+            case "ArrayList":
+                cap = arrayListCapacity(n);
+                return arrayBacked(name, n, strings, object(8 + REF), cap, REF);
+            case "Vector":
+                cap = n == 0 ? 10 : doublingCapacity(n, 10);
+                return arrayBacked(name, n, strings, object(12 + REF), cap, REF);
+            case "CopyOnWriteArrayList":
+                return arrayBacked(name, n, strings, object(2 * REF) + object(0), n, REF);
+            case "CopyOnWriteArraySet":
+                return arrayBacked(name, n, strings, object(REF) + object(2 * REF) + object(0), n, REF);
+            case "IntArrayList":
+                cap = exact >= 0 ? exact : arrayListCapacity(n);
+                return arrayBacked(name, n, 0, object(8 + REF), cap, 4);
+            case "LinkedList":
+                return linked(name, n, strings, object(8 + 2 * REF), object(3 * REF));
+            case "ConcurrentLinkedDeque":
+                return linked(name, n, strings, object(2 * REF), object(3 * REF));
+            case "HashMap":
+                return chained(name, n, strings, object(16 + 4 * REF), object(4 + 3 * REF));
+            case "HashSet":
+                return chained(name, n, strings, object(REF) + object(16 + 4 * REF), object(4 + 3 * REF));
+            case "LinkedHashMap":
+                return chained(name, n, strings, object(17 + 6 * REF), object(4 + 5 * REF));
+            case "LinkedHashSet":
+                return chained(name, n, strings, object(REF) + object(17 + 6 * REF), object(4 + 5 * REF));
+            case "ConcurrentHashMap":
+                return chained(name, n, strings, object(20 + 6 * REF), object(4 + 3 * REF));
+            case "ConcurrentHashMap.newKeySet":
+                return chained(name, n, strings, object(2 * REF) + object(20 + 6 * REF), object(4 + 3 * REF));
+            case "TreeMap":
+                return linked(name, n, strings, object(8 + 7 * REF), object(1 + 5 * REF));
+            case "TreeSet":
+                return linked(name, n, strings, object(REF) + object(8 + 7 * REF), object(1 + 5 * REF));
+            case "SortedArrayMap":
+                // Parallel key and value arrays; a bulk load sizes them exactly
+                cap = exact >= 0 ? exact : n;
+                return arrayBacked(name, n, strings, object(8 + 3 * REF) + ARRAY_HEADER, cap, 2 * REF);
+            case "ConcurrentSkipListMap":
+                // About one index node per two entries (a quarter of the nodes get a
+                // tower of expected height two)
+                return linked(name, n, strings, object(7 * REF), object(3 * REF) + object(3 * REF) / 2);
+            case "ConcurrentSkipListSet":
+                return linked(name, n, strings, object(REF) + object(7 * REF), object(3 * REF) + object(3 * REF) / 2);
+            case "StripedTreeMap":
+            case "StripedTreeSet": {
+                int stripes = new StripedTreeMap<String, String>().stripeCount();
+                long stripeBytes = object(8 + 7 * REF) + object(3 * REF) + object(16 + 2 * REF) + 2 * object(REF);
+                long root = object(4 + 2 * REF) + 2 * array(stripes, REF) + stripes * stripeBytes;
+                if (name.equals("StripedTreeSet")) root += object(REF);
+                return linked(name, n, strings, root, object(1 + 5 * REF));
+            }
+            case "ConcurrentLinkedHashMap":
+            case "ConcurrentLinkedHashMap.newKeySet": {
+                // ConcurrentHashMap index plus one order-list node per entry
+                long root = object(5 * REF) + object(20 + 6 * REF) + object(3 * REF) + object(REF) + 2 * object(4);
+                if (name.endsWith("newKeySet")) root += object(REF);
+                return chained(name, n, strings, root, object(4 + 3 * REF) + object(3 * REF));
+            }
+            case "LongHashSet":
+                cap = exact >= 0 ? exact : LongHashSet.tableSizeFor(n, LongHashSet.DEFAULT_LOAD_FACTOR);
+                return openAddressed(name, n, 0, object(16 + REF), cap, 8);
+            case "LongObjectHashMap":
+                cap = exact >= 0 ? exact : LongHashSet.tableSizeFor(n, LongHashSet.DEFAULT_LOAD_FACTOR);
+                return openAddressed(name, n, values, object(16 + 3 * REF), cap, 8 + REF);
+            case "OffHeapList": {
+                long records = p.keyUtf8Bytes;
+                long nativeBytes = roundToSlabs(records) + 8L * Math.max(16, arrayListCapacity(n));
+                return offHeap(name, n, instance, nativeBytes);
+            }
+            case "OffHeapHashSet": {
+                cap = exact >= 0 ? exact : LongHashSet.tableSizeFor(n, LongHashSet.DEFAULT_LOAD_FACTOR);
+                return offHeap(name, n, instance, roundToSlabs(p.keyUtf8Bytes) + 8 * cap);
+            }
+            case "OffHeapHashMap": {
+                cap = exact >= 0 ? exact : LongHashSet.tableSizeFor(n, LongHashSet.DEFAULT_LOAD_FACTOR);
+                return offHeap(name, n, instance, roundToSlabs(p.keyUtf8Bytes + p.valueUtf8Bytes) + 8 * cap);
+            }
+            default:
+                return null;
+        }
+    }
+
+    private static Report arrayBacked(String name, int n, long payload, long root, long cap, int slotBytes) {
+        return new Report(name, n, payload, root, 0, array(cap, slotBytes), cap, (cap - n) * slotBytes, 0, false);
+    }
+
+    private static Report linked(String name, int n, long payload, long root, long nodeBytes) {
+        return new Report(name, n, payload, root, n * nodeBytes, 0, -1, 0, 0, false);
+    }
+
+    // Separate chaining: a bucket stays empty with probability e^(-n/cap)
+    private static Report chained(String name, int n, long payload, long root, long nodeBytes) {
+        long cap = hashTableCapacity(n);
+        long empty = cap == 0 ? 0 : Math.round(cap * Math.exp(-(double) n / cap));
+        return new Report(name, n, payload, root, n * nodeBytes, array(cap, REF), cap, empty * REF, 0, false);
+    }
+
+    private static Report openAddressed(String name, int n, long payload, long root, long cap, int slotBytes) {
+        return new Report(name, n, payload, root, 0, cap * slotBytes + 2 * ARRAY_HEADER, cap,
+            (cap - n) * slotBytes, 0, false);
+    }
+
+    private static Report offHeap(String name, int n, Object instance, long estimatedNative) {
+        long nativeBytes = instance != null ? nativeBytes(instance) : estimatedNative;
+        // Arena, slab and table bookkeeping objects only
+        return new Report(name, n, 0, object(4 + 8 + 3 * REF) + object(16 + 3 * REF), 0, 0, -1, 0, nativeBytes, false);
+    }
+
+    private static long nativeBytes(Object instance) {
+        if (instance instanceof OffHeapList) return ((OffHeapList) instance).nativeBytes();
+        if (instance instanceof OffHeapHashSet) return ((OffHeapHashSet) instance).nativeBytes();
+        if (instance instanceof OffHeapHashMap) return ((OffHeapHashMap) instance).nativeBytes();
+        return 0;
+    }
+
+    private static long roundToSlabs(long bytes) {
+        long slab = OffHeapArena.DEFAULT_SLAB_SIZE;
+        return bytes == 0 ? 0 : (bytes + slab - 1) / slab * slab;
+    }
+
+    // ArrayList grows by half from 10 when filled one element at a time
+    static long arrayListCapacity(int n) {
+        if (n == 0) return 0;
+        long cap = 10;
+        while (cap < n) cap += cap >> 1;
+        return cap;
+    }
+
+    private static long doublingCapacity(int n, long start) {
+        long cap = start;
+        while (cap < n) cap <<= 1;
+        return cap;
+    }
+
+    // HashMap and ConcurrentHashMap double from 16 once 75% full; the table is lazy
+    static long hashTableCapacity(int n) {
+        if (n == 0) return 0;
+        long cap = 16;
+        while (n > cap * 3 / 4) cap <<= 1;
+        return cap;
+    }
+
+    static long stringSize(String s) {
+        long header = object(REF + 4 + (COMPACT_STRINGS ? 2 : 0));
+        if (!COMPACT_STRINGS) return header + array(s.length(), 2);
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 0xFF) return header + array(s.length(), 2);
+        }
+        return header + array(s.length(), 1);
+    }
+
+    private static int utf8Length(String s) {
+        int bytes = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private static long object(long fieldBytes) {
+        return align(HEADER + fieldBytes);
+    }
+
+    private static long array(long length, int elementBytes) {
+        return align(ARRAY_HEADER + length * elementBytes);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static boolean vmFlag(String name, boolean fallback) {
+        try {
+            com.sun.management.HotSpotDiagnosticMXBean bean =
+                ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class);
+            return bean != null ? Boolean.parseBoolean(bean.getVMOption(name).getValue()) : fallback;
+        } catch (RuntimeException | LinkageError e) {
+            return fallback;
+        }
+    }
+
+    public static String report(Analysis analysis) {
+        Report current = analysis.current;
+        List<Report> projections = analysis.projections;
+        StringBuilder sb = new StringBuilder();
+        sb.append("Heap footprint (").append(current.measured ? "measured by object graph walk" : "estimated from layout model")
+            .append(")\n");
+        sb.append("JVM layout: ").append(layoutDescription()).append("\n");
+        sb.append(String.format("%s: %s for %,d elements\n", current.className,
+            EmpiricalAdvisor.formatBytes(current.totalBytes()), current.size));
+        sb.append(String.format("   %.1f B/element (%.1f B structure, %.1f B payload)\n",
+            current.bytesPerElement(), current.overheadPerElement(),
+            current.size == 0 ? 0.0 : (double) current.payloadBytes / current.size));
+        sb.append(String.format("   Table/arrays %s  |  Nodes %s  |  Object %s\n",
+            EmpiricalAdvisor.formatBytes(current.arrayBytes), EmpiricalAdvisor.formatBytes(current.nodeBytes),
+            EmpiricalAdvisor.formatBytes(current.rootBytes)));
+        if (current.slots >= 0) {
+            sb.append(String.format("   %,d slots  |  load factor %.2f  |  %s wasted on empty slots\n",
+                current.slots, current.loadFactor(), EmpiricalAdvisor.formatBytes(current.wastedBytes)));
+        }
+        if (current.nativeBytes > 0) {
+            sb.append("   Native memory: ").append(EmpiricalAdvisor.formatBytes(current.nativeBytes)).append("\n");
+        }
+        if (!projections.isEmpty()) {
+            sb.append("\nSame data in other classes (estimated):\n");
+            for (Report r : projections) {
+                sb.append(String.format("   %-28s %10s  %7.1f B/element%s\n", r.className,
+                    EmpiricalAdvisor.formatBytes(r.totalBytes()), r.bytesPerElement(),
+                    r.nativeBytes > 0 ? "  + " + EmpiricalAdvisor.formatBytes(r.nativeBytes) + " native" : ""));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,160 @@
+import javax.swing.*;
+import javax.swing.border.*;
+import java.awt.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+// "Search Keys" dialog: prefix, range or fuzzy search over a KeySearchIndex. Results are
+// shown through PagedContentsModel, so a search matching millions of keys only reads the
+// rows on screen. The first search of a kind may have to build its index, which runs in
+// the background behind a cancellable progress dialog.
+public class KeySearchDialog extends JDialog {
+
+    private static final String PREFIX = "Starts with", RANGE = "Between", FUZZY = "Similar to";
+
+    private final Frame owner;
+    private final KeySearchIndex index;
+    private final JComboBox<String> kindBox;
+    private final JTextField queryField, toField;
+    private final JLabel toLabel, editsLabel;
+    private final JSpinner editsSpinner;
+    private final JTable table;
+    private final JLabel statusLabel;
+
+    public KeySearchDialog(Frame owner, String title, KeySearchIndex index) {
+        super(owner, title, true);
+        this.owner = owner;
+        this.index = index;
+
+        JPanel panel = new JPanel(new BorderLayout(0, 10));
+        panel.setBorder(new EmptyBorder(15, 15, 15, 15));
+        panel.setBackground(Color.WHITE);
+
+        table = new JTable();
+        table.setFont(new Font("Consolas", Font.PLAIN, 12));
+        table.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 12));
+        table.setRowHeight(20);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setPreferredSize(new Dimension(640, 420));
+
+        // Toolbar: search kind, query (or range bounds), edit distance for fuzzy search
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
+        toolbar.setOpaque(false);
+        kindBox = new JComboBox<>(new String[] {PREFIX, RANGE, FUZZY});
+        kindBox.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        queryField = new JTextField(12);
+        toField = new JTextField(12);
+        toLabel = label("and");
+        editsLabel = label("Max edits:");
+        editsSpinner = new JSpinner(new SpinnerNumberModel(KeySearchIndex.DEFAULT_MAX_EDITS, 0,
+            KeySearchIndex.MAX_EDITS, 1));
+        JButton searchBtn = new JButton("Search");
+        searchBtn.setFocusPainted(false);
+        searchBtn.addActionListener(e -> search());
+        queryField.addActionListener(e -> search());
+        toField.addActionListener(e -> search());
+        kindBox.addActionListener(e -> updateFields());
+        toolbar.add(label("Keys:"));
+        toolbar.add(kindBox);
+        toolbar.add(queryField);
+        toolbar.add(toLabel);
+        toolbar.add(toField);
+        toolbar.add(editsLabel);
+        toolbar.add(editsSpinner);
+        toolbar.add(searchBtn);
+
+        statusLabel = label("Prefix and range searches are case-sensitive; fuzzy search ignores case");
+        JButton closeBtn = new JButton("Close");
+        closeBtn.setFocusPainted(false);
+        closeBtn.addActionListener(e -> dispose());
+        JPanel footer = new JPanel(new BorderLayout());
+        footer.setOpaque(false);
+        footer.add(statusLabel, BorderLayout.CENTER);
+        footer.add(closeBtn, BorderLayout.EAST);
+
+        panel.add(toolbar, BorderLayout.NORTH);
+        panel.add(scrollPane, BorderLayout.CENTER);
+        panel.add(footer, BorderLayout.SOUTH);
+
+        updateFields();
+        setContentPane(panel);
+        pack();
+        setLocationRelativeTo(owner);
+    }
+
+    private static JLabel label(String text) {
+        JLabel label = new JLabel(text);
+        label.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        label.setForeground(new Color(107, 114, 128));
+        return label;
+    }
+
+    private KeySearchIndex.Kind kind() {
+        Object selected = kindBox.getSelectedItem();
+        return RANGE.equals(selected) ? KeySearchIndex.Kind.RANGE
+            : FUZZY.equals(selected) ? KeySearchIndex.Kind.FUZZY : KeySearchIndex.Kind.PREFIX;
+    }
+
+    private void updateFields() {
+        KeySearchIndex.Kind kind = kind();
+        toLabel.setVisible(kind == KeySearchIndex.Kind.RANGE);
+        toField.setVisible(kind == KeySearchIndex.Kind.RANGE);
+        editsLabel.setVisible(kind == KeySearchIndex.Kind.FUZZY);
+        editsSpinner.setVisible(kind == KeySearchIndex.Kind.FUZZY);
+        getContentPane().revalidate();
+    }
+
+    private void search() {
+        KeySearchIndex.Kind kind = kind();
+        String query = queryField.getText().trim();
+        String to = toField.getText().trim();
+        int maxEdits = (Integer) editsSpinner.getValue();
+        if (kind == KeySearchIndex.Kind.FUZZY && query.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Enter a key to match", "Search Keys", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        ProgressDialog progress = new ProgressDialog(owner, "Search Keys", "Searching " + getTitle());
+        progress.onCancel(index::cancel);
+        SwingWorker<KeySearchIndex.Result, Void> worker = new SwingWorker<KeySearchIndex.Result, Void>() {
+            @Override
+            protected KeySearchIndex.Result doInBackground() {
+                switch (kind) {
+                    case PREFIX: return index.prefix(query);
+                    case RANGE: return index.range(query.isEmpty() ? null : query, to.isEmpty() ? null : to);
+                    default: return index.fuzzy(query, maxEdits);
+                }
+            }
+
+            @Override
+            protected void done() {
+                progress.dispose();
+            }
+        };
+        progress.setIndeterminate(index.needsBuild(kind)
+            ? "Building the " + kind.name().toLowerCase(java.util.Locale.ROOT) + " index..." : "Searching...");
+        worker.execute();
+        progress.setVisible(true);
+
+        KeySearchIndex.Result result;
+        try {
+            result = worker.get();
+        } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            if (cause instanceof CancellationException) {
+                statusLabel.setText("Cancelled");
+                return;
+            }
+            JOptionPane.showMessageDialog(this, "Error: " + cause.getMessage(),
+                "Search Keys", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        PagedContentsModel model = new PagedContentsModel(result.rows);
+        table.setModel(model);
+        table.getColumnModel().getColumn(0).setPreferredWidth(70);
+        table.getColumnModel().getColumn(0).setMaxWidth(110);
+        statusLabel.setText(result.summary());
+    }
+}
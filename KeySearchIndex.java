@@ -0,0 +1,366 @@
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+// Secondary indexes over the keys of a loaded collection (map keys, or the elements of
+// a list or set, as strings) for the searches contains() cannot answer: every key with
+// a prefix, every key in a range, and keys within a few edits of a misspelled one. Each
+// index is built the first time it is needed, from one sorted, de-duplicated copy of
+// the keys: a RadixTree for prefixes, a TreeSet for ranges and an NGramIndex for fuzzy
+// matches. Collections already kept in natural String order answer prefix and range
+// queries from their own subMap/subSet views instead, so nothing is built for them.
+// Results are lazy views that PagedContentsModel reads a page at a time; map values are
+// looked up only for the rows read. The indexes hold the keys present when they were
+// built: isStale() tells when the collection's size has changed since.
+public class KeySearchIndex {
+
+    public enum Kind { PREFIX, RANGE, FUZZY }
+
+    public static final int DEFAULT_MAX_EDITS = 2;
+    public static final int MAX_EDITS = 4;
+    private static final int CANCEL_CHECK = 1 << 16;
+
+    public static class Result {
+        public final Kind kind;
+        public final String query;
+        // A Collection of keys, or a Map from key to value for maps
+        public final Object rows;
+        public final int count;
+        // Edit distance of each row, for FUZZY
+        public final int[] distances;
+        public final long searchNanos;
+        // Time spent building the index for this search; 0 when it already existed
+        public final long buildNanos;
+        // Answered by the collection's own sorted views
+        public final boolean fromCollection;
+
+        Result(Kind kind, String query, Object rows, int count, int[] distances, long searchNanos, long buildNanos,
+               boolean fromCollection) {
+            this.kind = kind;
+            this.query = query;
+            this.rows = rows;
+            this.count = count;
+            this.distances = distances;
+            this.searchNanos = searchNanos;
+            this.buildNanos = buildNanos;
+            this.fromCollection = fromCollection;
+        }
+
+        public String summary() {
+            String text = String.format("%,d match%s in %.1f ms", count, count == 1 ? "" : "es", searchNanos / 1e6);
+            if (buildNanos > 0) text += String.format(" (index built in %.2f s)", buildNanos / 1e9);
+            if (fromCollection) text += " from the collection's sorted order";
+            if (kind == Kind.FUZZY && count > 0) text += ", closest first";
+            return text;
+        }
+    }
+
+    private final String className;
+    private final Object collection;
+    private final CollectionOps ops;
+    private final boolean naturalOrder;
+    // Range bounds and order are numeric for primitive-keyed classes
+    private final boolean numeric;
+    private final int builtSize;
+    private volatile boolean cancelled;
+
+    private String[] sortedKeys;
+    private RadixTree prefixTree;
+    private NavigableSet<String> rangeSet;
+    private NGramIndex fuzzy;
+    private final Map<Kind, Long> buildNanos = new EnumMap<>(Kind.class);
+
+    public KeySearchIndex(String className, Object collection) {
+        this.className = className;
+        this.collection = collection;
+        this.ops = CollectionOps.of(collection);
+        this.naturalOrder = naturalStringOrder(collection);
+        Set<CollectionRegistry.Trait> traits = CollectionRegistry.traits(className);
+        this.numeric = traits.contains(CollectionRegistry.Trait.INT_KEYS)
+            || traits.contains(CollectionRegistry.Trait.LONG_KEYS);
+        this.builtSize = ops.size();
+    }
+
+    public Object collection() {
+        return collection;
+    }
+
+    public boolean isStale() {
+        return ops.size() != builtSize;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // Whether a search of this kind has to build an index first
+    public synchronized boolean needsBuild(Kind kind) {
+        switch (kind) {
+            case PREFIX: return !naturalOrder && prefixTree == null;
+            case RANGE: return !naturalOrder && rangeSet == null;
+            default: return fuzzy == null;
+        }
+    }
+
+    public Result prefix(String prefix) {
+        long built = build(Kind.PREFIX);
+        long start = System.nanoTime();
+        Object view;
+        if (naturalOrder) {
+            String end = successor(prefix);
+            view = end != null ? slice(prefix, end) : tail(prefix);
+        } else {
+            view = prefixTree.withPrefix(prefix);
+        }
+        return result(Kind.PREFIX, prefix, view, null, start, built);
+    }
+
+    // Keys from..to inclusive; a null bound leaves that side open
+    public Result range(String from, String to) {
+        long built = build(Kind.RANGE);
+        long start = System.nanoTime();
+        String query = (from == null ? "" : from) + ".." + (to == null ? "" : to);
+        Object view;
+        if (naturalOrder) {
+            // to + "\0" is the first string after to, making the upper bound inclusive
+            view = from == null && to == null ? collection
+                : from == null ? head(to + "\0")
+                : to == null ? tail(from)
+                : slice(from, to + "\0");
+        } else {
+            if (numeric) {
+                parseBound(from);
+                parseBound(to);
+            }
+            if (from != null && to != null && rangeSet.comparator().compare(from, to) > 0) {
+                view = Collections.emptySet();
+            } else {
+                view = from == null && to == null ? rangeSet
+                    : from == null ? rangeSet.headSet(to, true)
+                    : to == null ? rangeSet.tailSet(from, true)
+                    : rangeSet.subSet(from, true, to, true);
+            }
+        }
+        return result(Kind.RANGE, query, view, null, start, built);
+    }
+
+    public Result fuzzy(String query, int maxEdits) {
+        if (maxEdits < 0 || maxEdits > MAX_EDITS) {
+            throw new IllegalArgumentException("Maximum edits must be between 0 and " + MAX_EDITS + ": " + maxEdits);
+        }
+        long built = build(Kind.FUZZY);
+        long start = System.nanoTime();
+        List<NGramIndex.Match> matches = fuzzy.search(query, maxEdits);
+        List<String> keys = new ArrayList<>(matches.size());
+        int[] distances = new int[matches.size()];
+        for (int i = 0; i < distances.length; i++) {
+            keys.add(matches.get(i).key);
+            distances[i] = matches.get(i).distance;
+        }
+        return result(Kind.FUZZY, query, keys, distances, start, built);
+    }
+
+    // view is a Collection of keys, or a slice of a sorted map that already has the values
+    @SuppressWarnings("unchecked")
+    private Result result(Kind kind, String query, Object view, int[] distances, long start, long built) {
+        Object rows = view instanceof Map || !ops.isKeyValue() ? view : entries((Collection<String>) view);
+        int count = rows instanceof Map ? ((Map<?, ?>) rows).size() : ((Collection<?>) rows).size();
+        return new Result(kind, query, rows, count, distances, System.nanoTime() - start, built,
+            naturalOrder && kind != Kind.FUZZY);
+    }
+
+    // Builds the index a search of this kind needs; returns the time it took
+    private synchronized long build(Kind kind) {
+        if (!needsBuild(kind)) return 0;
+        long start = System.nanoTime();
+        String[] keys = sortedKeys();
+        switch (kind) {
+            case PREFIX:
+                RadixTree tree = new RadixTree();
+                for (int i = 0; i < keys.length; i++) {
+                    checkCancelled(i);
+                    tree.add(keys[i]);
+                }
+                prefixTree = tree;
+                break;
+            case RANGE:
+                // Sorted input goes through TreeSet's linear bulk build
+                String[] ordered = keys;
+                Comparator<String> order = numeric ? KeySearchIndex::compareNumeric : Comparator.naturalOrder();
+                if (numeric) {
+                    ordered = keys.clone();
+                    Arrays.parallelSort(ordered, order);
+                }
+                TreeSet<String> set = new TreeSet<>(order);
+                set.addAll(new CollectionOps.SortedRowSet(ordered, ordered.length, order));
+                rangeSet = set;
+                break;
+            default:
+                fuzzy = new NGramIndex(keys);
+        }
+        cancelled = false;
+        long elapsed = System.nanoTime() - start;
+        buildNanos.put(kind, elapsed);
+        return elapsed;
+    }
+
+    // Distinct keys as strings, in String order; shared by every index
+    private String[] sortedKeys() {
+        if (sortedKeys != null) return sortedKeys;
+        Iterable<?> source = collection instanceof Map ? ((Map<?, ?>) collection).keySet() : (Iterable<?>) collection;
+        List<String> keys = new ArrayList<>(builtSize);
+        for (Object key : source) {
+            checkCancelled(keys.size());
+            keys.add(String.valueOf(key));
+        }
+        String[] array = keys.toArray(new String[0]);
+        Arrays.parallelSort(array);
+        int n = 0;
+        for (int i = 0; i < array.length; i++) {
+            if (n == 0 || !array[i].equals(array[n - 1])) array[n++] = array[i];
+        }
+        sortedKeys = n == array.length ? array : Arrays.copyOf(array, n);
+        return sortedKeys;
+    }
+
+    private void checkCancelled(int i) {
+        if (cancelled && i % CANCEL_CHECK == 0) {
+            cancelled = false;
+            throw new CancellationException("Index build cancelled");
+        }
+    }
+
+    // Lists may repeat a key; the indexes hold each key once
+    public int distinctKeys() {
+        return sortedKeys != null ? sortedKeys.length : -1;
+    }
+
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Key search indexes: ").append(className).append("\n");
+        if (naturalOrder) sb.append("   Prefix and range: the collection's own sorted order, nothing built\n");
+        if (prefixTree != null) {
+            sb.append(String.format("   Prefix: radix tree of %,d keys, %,d nodes, built in %.2f s\n",
+                prefixTree.size(), prefixTree.nodeCount(), buildNanos.get(Kind.PREFIX) / 1e9));
+        }
+        if (rangeSet != null) {
+            sb.append(String.format("   Range: TreeSet of %,d keys%s, built in %.2f s\n", rangeSet.size(),
+                numeric ? " in numeric order" : "", buildNanos.get(Kind.RANGE) / 1e9));
+        }
+        if (fuzzy != null) {
+            sb.append(String.format("   Fuzzy: %,d distinct trigrams over %,d keys (%s of postings), built in %.2f s\n",
+                fuzzy.gramCount(), fuzzy.size(), EmpiricalAdvisor.formatBytes(fuzzy.postingEntries() * 4),
+                buildNanos.get(Kind.FUZZY) / 1e9));
+        }
+        return sb.toString();
+    }
+
+    public static String report(Result r, int limit) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(r.kind == Kind.PREFIX ? "Prefix search: " : r.kind == Kind.RANGE ? "Range search: " : "Fuzzy search: ")
+            .append(r.query).append("\n");
+        sb.append(r.summary()).append("\n");
+        Iterator<?> rows = r.rows instanceof Map ? ((Map<?, ?>) r.rows).entrySet().iterator()
+            : ((Collection<?>) r.rows).iterator();
+        for (int i = 0; i < limit && rows.hasNext(); i++) {
+            Object row = rows.next();
+            String line = row instanceof Map.Entry
+                ? ((Map.Entry<?, ?>) row).getKey() + " = " + ((Map.Entry<?, ?>) row).getValue()
+                : String.valueOf(row);
+            if (r.distances != null) line += "  (" + r.distances[i] + (r.distances[i] == 1 ? " edit)" : " edits)");
+            sb.append("   ").append(line).append("\n");
+        }
+        if (r.count > limit) sb.append(String.format("   ... %,d more\n", r.count - limit));
+        return sb.toString();
+    }
+
+    // Map view over result keys; values are read from the collection as rows are read
+    private Map<String, Object> entries(Collection<String> keys) {
+        return new AbstractMap<String, Object>() {
+            @Override
+            public int size() {
+                return keys.size();
+            }
+
+            @Override
+            public Set<Map.Entry<String, Object>> entrySet() {
+                return new AbstractSet<Map.Entry<String, Object>>() {
+                    @Override
+                    public int size() {
+                        return keys.size();
+                    }
+
+                    @Override
+                    public Iterator<Map.Entry<String, Object>> iterator() {
+                        Iterator<String> it = keys.iterator();
+                        return new Iterator<Map.Entry<String, Object>>() {
+                            @Override
+                            public boolean hasNext() {
+                                return it.hasNext();
+                            }
+
+                            @Override
+                            public Map.Entry<String, Object> next() {
+                                String key = it.next();
+                                return new AbstractMap.SimpleImmutableEntry<>(key, ops.get(key));
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
+
+    // Sorted by natural order with String keys, so String bounds select the right slice
+    private static boolean naturalStringOrder(Object collection) {
+        if (collection instanceof SortedMap) {
+            SortedMap<?, ?> map = (SortedMap<?, ?>) collection;
+            return map.comparator() == null && (map.isEmpty() || map.firstKey() instanceof String);
+        }
+        if (collection instanceof SortedSet) {
+            SortedSet<?> set = (SortedSet<?>) collection;
+            return set.comparator() == null && (set.isEmpty() || set.first() instanceof String);
+        }
+        return false;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object slice(String from, String toExclusive) {
+        if (from.compareTo(toExclusive) >= 0) return Collections.emptySet();
+        return collection instanceof SortedMap ? ((SortedMap) collection).subMap(from, toExclusive)
+            : ((SortedSet) collection).subSet(from, toExclusive);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object head(String toExclusive) {
+        return collection instanceof SortedMap ? ((SortedMap) collection).headMap(toExclusive)
+            : ((SortedSet) collection).headSet(toExclusive);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object tail(String from) {
+        return collection instanceof SortedMap ? ((SortedMap) collection).tailMap(from)
+            : ((SortedSet) collection).tailSet(from);
+    }
+
+    // The first string after every string starting with prefix, or null when there is
+    // none (an empty prefix, or one made only of Character.MAX_VALUE)
+    static String successor(String prefix) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) end--;
+        if (end == 0) return null;
+        return prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+    }
+
+    private static int compareNumeric(String a, String b) {
+        return Long.compare(Long.parseLong(a), Long.parseLong(b));
+    }
+
+    private void parseBound(String bound) {
+        if (bound == null) return;
+        try {
+            Long.parseLong(bound);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(className + " has numeric keys; range bounds must be whole numbers: " + bound);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+import java.util.Arrays;
+
+// Latency histogram with the HdrHistogram bucket layout: values are grouped into
+// power-of-two buckets, each split into linear sub-buckets, so every recorded value
+// keeps a fixed number of significant decimal digits across the whole range. Recording
+// is an index computation and one array increment; no allocation, no sorting.
+// Values are nanoseconds.
+public class LatencyHistogram {
+
+    public static final int DEFAULT_SIGNIFICANT_DIGITS = 3;
+    public static final long DEFAULT_HIGHEST_TRACKABLE = 60_000_000_000L; // 60 s
+
+    private final long highestTrackable;
+    private final int subBucketHalfCountMagnitude;
+    private final int subBucketHalfCount;
+    private final long subBucketMask;
+    private final int leadingZeroCountBase;
+    private final long[] counts;
+
+    private long totalCount;
+    private long totalNanos;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    public LatencyHistogram() {
+        this(DEFAULT_HIGHEST_TRACKABLE, DEFAULT_SIGNIFICANT_DIGITS);
+    }
+
+    public LatencyHistogram(long highestTrackable, int significantDigits) {
+        if (significantDigits < 1 || significantDigits > 5) {
+            throw new IllegalArgumentException("Significant digits must be 1-5: " + significantDigits);
+        }
+        if (highestTrackable < 2) throw new IllegalArgumentException("Highest trackable value must be >= 2");
+        this.highestTrackable = highestTrackable;
+
+        // Smallest power of two that resolves every integer up to 2 * 10^digits exactly
+        long singleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+        int subBucketCountMagnitude = 64 - Long.numberOfLeadingZeros(singleUnitResolution - 1);
+        subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+        subBucketHalfCount = 1 << subBucketHalfCountMagnitude;
+        int subBucketCount = 1 << subBucketCountMagnitude;
+        subBucketMask = subBucketCount - 1;
+        leadingZeroCountBase = 64 - subBucketHalfCountMagnitude - 1;
+
+        int buckets = 1;
+        long smallestUntrackable = subBucketCount;
+        while (smallestUntrackable <= highestTrackable) {
+            if (smallestUntrackable > Long.MAX_VALUE / 2) {
+                buckets++;
+                break;
+            }
+            smallestUntrackable <<= 1;
+            buckets++;
+        }
+        counts = new long[(buckets + 1) << subBucketHalfCountMagnitude];
+    }
+
+    // Values above the trackable range land in the top bucket; max stays exact
+    public synchronized void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[countsIndex(Math.min(nanos, highestTrackable))]++;
+        totalCount++;
+        totalNanos += nanos;
+        if (nanos < min) min = nanos;
+        if (nanos > max) max = nanos;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        totalNanos = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    // Consistent copy for reporting while other threads keep recording
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(counts.clone(), totalCount, totalNanos, totalCount == 0 ? 0 : min, max);
+    }
+
+    private int countsIndex(long value) {
+        int bucketIndex = leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << subBucketHalfCountMagnitude) + (subBucketIndex - subBucketHalfCount);
+    }
+
+    private long lowestValueAt(int index) {
+        int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        return (long) subBucketIndex << bucketIndex;
+    }
+
+    // Largest value that shares index's bucket, i.e. the reported value for that bucket
+    private long highestValueAt(int index) {
+        return index + 1 < counts.length ? lowestValueAt(index + 1) - 1 : highestTrackable;
+    }
+
+    public final class Snapshot {
+        private final long[] counts;
+        public final long totalCount;
+        public final long totalNanos;
+        public final long min;
+        public final long max;
+
+        private Snapshot(long[] counts, long totalCount, long totalNanos, long min, long max) {
+            this.counts = counts;
+            this.totalCount = totalCount;
+            this.totalNanos = totalNanos;
+            this.min = min;
+            this.max = max;
+        }
+
+        public double mean() {
+            return totalCount == 0 ? 0 : (double) totalNanos / totalCount;
+        }
+
+        // Value at or below which the given percentage of recordings fall, accurate to the
+        // histogram's significant digits
+        public long percentile(double percent) {
+            if (totalCount == 0) return 0;
+            double p = Math.max(0, Math.min(100, percent));
+            long target = Math.max(1, (long) Math.ceil(p / 100.0 * totalCount));
+            if (target >= totalCount) return max;
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) return Math.min(highestValueAt(i), max);
+            }
+            return max;
+        }
+    }
+
+    // "850 ns", "12.3 us", "4.56 ms", "1.20 s"
+    public static String formatNanos(double nanos) {
+        if (nanos < 1_000) return String.format("%.0f ns", nanos);
+        if (nanos < 1_000_000) return String.format("%.1f us", nanos / 1_000);
+        if (nanos < 1_000_000_000) return String.format("%.2f ms", nanos / 1_000_000);
+        return String.format("%.2f s", nanos / 1_000_000_000);
+    }
+}
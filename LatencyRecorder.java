@@ -0,0 +1,176 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// One LatencyHistogram per (collection class, operation). Collections are instrumented
+// by wrapping their CollectionOps, so every call made through the adapter, whether from
+// a dialog or a bulk CSV import, is timed with System.nanoTime around the bare
+// collection call and nothing else.
+public class LatencyRecorder {
+
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+
+    public synchronized LatencyHistogram histogram(String className, String operation) {
+        return histograms.computeIfAbsent(className + "\t" + operation, k -> new LatencyHistogram());
+    }
+
+    // Wraps ops so every operation is recorded under className; bulk adapters record
+    // under "<op> (bulk)" so per-row import latencies stay apart from interactive ones
+    public CollectionOps instrument(CollectionOps ops, String className, boolean bulk) {
+        if (ops instanceof TimedOps) ops = ((TimedOps) ops).delegate;
+        return new TimedOps(ops, this, className, bulk ? " (bulk)" : "");
+    }
+
+    // Zeroes every histogram; instrumented adapters keep recording into them
+    public synchronized void clear() {
+        for (LatencyHistogram histogram : histograms.values()) histogram.reset();
+    }
+
+    public List<Row> rows() {
+        List<Map.Entry<String, LatencyHistogram>> entries;
+        synchronized (this) {
+            entries = new ArrayList<>(histograms.entrySet());
+        }
+        List<Row> rows = new ArrayList<>(entries.size());
+        for (Map.Entry<String, LatencyHistogram> entry : entries) {
+            LatencyHistogram.Snapshot snapshot = entry.getValue().snapshot();
+            if (snapshot.totalCount == 0) continue;
+            String[] key = entry.getKey().split("\t", 2);
+            rows.add(new Row(key[0], key[1], snapshot));
+        }
+        rows.sort(Comparator.comparing((Row r) -> r.className).thenComparing(r -> r.operation));
+        return rows;
+    }
+
+    public static final class Row {
+        public final String className;
+        public final String operation;
+        public final LatencyHistogram.Snapshot latency;
+
+        Row(String className, String operation, LatencyHistogram.Snapshot latency) {
+            this.className = className;
+            this.operation = operation;
+            this.latency = latency;
+        }
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-24s %-16s %10s %10s %10s %10s %10s%n",
+            "Collection", "Operation", "Count", "p50", "p99", "p99.9", "Max"));
+        for (Row row : rows()) {
+            LatencyHistogram.Snapshot s = row.latency;
+            sb.append(String.format("%-24s %-16s %,10d %10s %10s %10s %10s%n", row.className, row.operation,
+                s.totalCount, LatencyHistogram.formatNanos(s.percentile(50)),
+                LatencyHistogram.formatNanos(s.percentile(99)), LatencyHistogram.formatNanos(s.percentile(99.9)),
+                LatencyHistogram.formatNanos(s.max)));
+        }
+        return sb.toString();
+    }
+
+    // One CSV row per histogram, all values in nanoseconds
+    public void exportCsv(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            out.println("collection,operation,count,min_ns,mean_ns,p50_ns,p90_ns,p99_ns,p999_ns,p9999_ns,max_ns");
+            for (Row row : rows()) {
+                LatencyHistogram.Snapshot s = row.latency;
+                out.printf(Locale.ROOT, "%s,%s,%d,%d,%.1f,%d,%d,%d,%d,%d,%d%n", row.className, row.operation,
+                    s.totalCount, s.min, s.mean(), s.percentile(50), s.percentile(90), s.percentile(99),
+                    s.percentile(99.9), s.percentile(99.99), s.max);
+            }
+            if (out.checkError()) throw new IOException("Could not write " + file);
+        }
+    }
+
+    // Histograms are looked up once per adapter, so recording is two nanoTime calls
+    // and a histogram increment
+    private static final class TimedOps implements CollectionOps {
+        private final CollectionOps delegate;
+        private final LatencyHistogram add, put, remove, removeKey, contains, get, indexOf, clear, addAll, putAll;
+
+        TimedOps(CollectionOps delegate, LatencyRecorder recorder, String className, String suffix) {
+            this.delegate = delegate;
+            this.add = recorder.histogram(className, "add" + suffix);
+            this.put = recorder.histogram(className, "put" + suffix);
+            this.remove = recorder.histogram(className, "remove" + suffix);
+            this.removeKey = recorder.histogram(className, "removeKey" + suffix);
+            this.contains = recorder.histogram(className, "contains" + suffix);
+            this.get = recorder.histogram(className, "get" + suffix);
+            this.indexOf = recorder.histogram(className, "indexOf" + suffix);
+            this.clear = recorder.histogram(className, "clear" + suffix);
+            this.addAll = recorder.histogram(className, "addAll" + suffix);
+            this.putAll = recorder.histogram(className, "putAll" + suffix);
+        }
+
+        public Object target() { return delegate.target(); }
+        public boolean isKeyValue() { return delegate.isKeyValue(); }
+        public int size() { return delegate.size(); }
+
+        public void add(String value) {
+            long start = System.nanoTime();
+            delegate.add(value);
+            add.record(System.nanoTime() - start);
+        }
+
+        public void put(String key, String value) {
+            long start = System.nanoTime();
+            delegate.put(key, value);
+            put.record(System.nanoTime() - start);
+        }
+
+        public boolean remove(String value) {
+            long start = System.nanoTime();
+            boolean removed = delegate.remove(value);
+            remove.record(System.nanoTime() - start);
+            return removed;
+        }
+
+        public Object removeKey(String key) {
+            long start = System.nanoTime();
+            Object removed = delegate.removeKey(key);
+            removeKey.record(System.nanoTime() - start);
+            return removed;
+        }
+
+        public boolean contains(String key) {
+            long start = System.nanoTime();
+            boolean found = delegate.contains(key);
+            contains.record(System.nanoTime() - start);
+            return found;
+        }
+
+        public Object get(String key) {
+            long start = System.nanoTime();
+            Object value = delegate.get(key);
+            get.record(System.nanoTime() - start);
+            return value;
+        }
+
+        public int indexOf(String value) {
+            long start = System.nanoTime();
+            int index = delegate.indexOf(value);
+            indexOf.record(System.nanoTime() - start);
+            return index;
+        }
+
+        public void clear() {
+            long start = System.nanoTime();
+            delegate.clear();
+            clear.record(System.nanoTime() - start);
+        }
+
+        // A bulk call is one sample covering the whole batch
+        public void addAll(String[] values, int count) {
+            long start = System.nanoTime();
+            delegate.addAll(values, count);
+            addAll.record(System.nanoTime() - start);
+        }
+
+        public void putAll(String[] keys, String[] values, int count) {
+            long start = System.nanoTime();
+            delegate.putAll(keys, values, count);
+            putAll.record(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+import java.util.*;
+
+// Open-addressing hash set of primitive longs with linear probing. Keys are stored
+// inline in one long[] (no Node or Long object per element); slot value 0 means empty,
+// so the key 0 itself is tracked separately. Removal uses backward-shift deletion,
+// which keeps probe chains short without tombstones.
+public class LongHashSet extends AbstractSet<Long> {
+
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    private final float loadFactor;
+    private long[] keys;
+    private boolean hasZero;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    public LongHashSet(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Negative size: " + expectedSize);
+        if (!(loadFactor > 0 && loadFactor < 1)) throw new IllegalArgumentException("Load factor must be in (0, 1): " + loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(tableSizeFor(expectedSize, loadFactor));
+    }
+
+    public boolean addLong(long key) {
+        if (key == 0) {
+            if (hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int slot = mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == key) return false;
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++size > resizeAt) rehash(keys.length << 1);
+        return true;
+    }
+
+    public boolean containsLong(long key) {
+        if (key == 0) return hasZero;
+        int slot = mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == key) return true;
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public boolean removeLong(long key) {
+        if (key == 0) {
+            if (!hasZero) return false;
+            hasZero = false;
+            size--;
+            return true;
+        }
+        int slot = mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == key) {
+                shiftBack(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    // Pulls later entries of the probe chain into the freed slot when their home
+    // bucket does not lie cyclically between the freed slot and their current slot
+    private void shiftBack(int free) {
+        int slot = (free + 1) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            int home = mix(current) & mask;
+            if (((slot - home) & mask) >= ((slot - free) & mask)) {
+                keys[free] = current;
+                free = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[free] = 0;
+    }
+
+    public long[] toLongArray() {
+        long[] result = new long[size];
+        int n = 0;
+        if (hasZero) result[n++] = 0;
+        for (long key : keys) {
+            if (key != 0) result[n++] = key;
+        }
+        return result;
+    }
+
+    // Number of slots in the backing table; exposed for footprint diagnostics
+    public int capacity() {
+        return keys.length;
+    }
+
+    public float loadFactor() {
+        return loadFactor;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] old = keys;
+        allocate(newCapacity);
+        for (long key : old) {
+            if (key == 0) continue;
+            int slot = mix(key) & mask;
+            while (keys[slot] != 0) slot = (slot + 1) & mask;
+            keys[slot] = key;
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    static int tableSizeFor(int expectedSize, float loadFactor) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 2) / (double) loadFactor) + 1;
+        long capacity = Long.highestOneBit(needed - 1) << 1;
+        if (capacity > (1 << 30)) throw new IllegalArgumentException("Too many elements: " + expectedSize);
+        return (int) Math.max(4, capacity);
+    }
+
+    // Fibonacci hashing spreads sequential IDs across the table
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // Set<Long> view
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(Long key) {
+        return addLong(key);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && containsLong((Long) o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Long && removeLong((Long) o);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZero = false;
+        size = 0;
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<Long>() {
+            private boolean zeroPending = hasZero;
+            private int slot = nextSlot(0);
+
+            private int nextSlot(int from) {
+                while (from < keys.length && keys[from] == 0) from++;
+                return from;
+            }
+
+            public boolean hasNext() {
+                return zeroPending || slot < keys.length;
+            }
+
+            public Long next() {
+                if (zeroPending) {
+                    zeroPending = false;
+                    return 0L;
+                }
+                if (slot >= keys.length) throw new NoSuchElementException();
+                long key = keys[slot];
+                slot = nextSlot(slot + 1);
+                return key;
+            }
+        };
+    }
+}
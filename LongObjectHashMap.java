@@ -0,0 +1,217 @@
+import java.util.*;
+
+// Open-addressing map from primitive long keys to object values, laid out as parallel
+// long[]/Object[] arrays with linear probing. Same scheme as LongHashSet: slot key 0
+// means empty, the key 0 is stored on the side, and removal shifts entries back.
+public class LongObjectHashMap<V> extends AbstractMap<Long, V> {
+
+    private final float loadFactor;
+    private long[] keys;
+    private Object[] values;
+    private boolean hasZero;
+    private V zeroValue;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    public LongObjectHashMap() {
+        this(16);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        this(expectedSize, LongHashSet.DEFAULT_LOAD_FACTOR);
+    }
+
+    public LongObjectHashMap(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Negative size: " + expectedSize);
+        if (!(loadFactor > 0 && loadFactor < 1)) throw new IllegalArgumentException("Load factor must be in (0, 1): " + loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(LongHashSet.tableSizeFor(expectedSize, loadFactor));
+    }
+
+    public V putLong(long key, V value) {
+        if (key == 0) {
+            V old = zeroValue;
+            if (!hasZero) {
+                hasZero = true;
+                size++;
+            }
+            zeroValue = value;
+            return old;
+        }
+        int slot = LongHashSet.mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == key) {
+                V old = valueAt(slot);
+                values[slot] = value;
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) rehash(keys.length << 1);
+        return null;
+    }
+
+    public V getLong(long key) {
+        if (key == 0) return zeroValue;
+        int slot = find(key);
+        return slot < 0 ? null : valueAt(slot);
+    }
+
+    public boolean containsLongKey(long key) {
+        return key == 0 ? hasZero : find(key) >= 0;
+    }
+
+    public V removeLong(long key) {
+        if (key == 0) {
+            if (!hasZero) return null;
+            V old = zeroValue;
+            hasZero = false;
+            zeroValue = null;
+            size--;
+            return old;
+        }
+        int slot = find(key);
+        if (slot < 0) return null;
+        V old = valueAt(slot);
+        shiftBack(slot);
+        size--;
+        return old;
+    }
+
+    // Number of slots in the backing tables; exposed for footprint diagnostics
+    public int capacity() {
+        return keys.length;
+    }
+
+    public float loadFactor() {
+        return loadFactor;
+    }
+
+    private int find(long key) {
+        int slot = LongHashSet.mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void shiftBack(int free) {
+        int slot = (free + 1) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            int home = LongHashSet.mix(current) & mask;
+            if (((slot - home) & mask) >= ((slot - free) & mask)) {
+                keys[free] = current;
+                values[free] = values[slot];
+                free = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[free] = 0;
+        values[free] = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int slot) {
+        return (V) values[slot];
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key == 0) continue;
+            int slot = LongHashSet.mix(key) & mask;
+            while (keys[slot] != 0) slot = (slot + 1) & mask;
+            keys[slot] = key;
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    // Map<Long, V> view
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public V put(Long key, V value) {
+        return putLong(key, value);
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Long ? getLong((Long) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Long && containsLongKey((Long) key);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Long ? removeLong((Long) key) : null;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        hasZero = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<Long, V>> entrySet() {
+        return new AbstractSet<Map.Entry<Long, V>>() {
+            public int size() {
+                return size;
+            }
+
+            public Iterator<Map.Entry<Long, V>> iterator() {
+                return new Iterator<Map.Entry<Long, V>>() {
+                    private boolean zeroPending = hasZero;
+                    private int slot = nextSlot(0);
+
+                    private int nextSlot(int from) {
+                        while (from < keys.length && keys[from] == 0) from++;
+                        return from;
+                    }
+
+                    public boolean hasNext() {
+                        return zeroPending || slot < keys.length;
+                    }
+
+                    public Map.Entry<Long, V> next() {
+                        if (zeroPending) {
+                            zeroPending = false;
+                            return new AbstractMap.SimpleImmutableEntry<>(0L, zeroValue);
+                        }
+                        if (slot >= keys.length) throw new NoSuchElementException();
+                        Map.Entry<Long, V> entry = new AbstractMap.SimpleImmutableEntry<>(keys[slot], valueAt(slot));
+                        slot = nextSlot(slot + 1);
+                        return entry;
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,44 @@
+import java.util.*;
+
+// Bounded LRU cache: an access-ordered LinkedHashMap that drops its least recently used
+// entry once a put takes it past capacity. get() and put() count as uses; containsKey()
+// does not. Not thread-safe, and since get() reorders the map, iterating while calling
+// get() throws ConcurrentModificationException.
+public class LruLinkedHashMap<K, V> extends LinkedHashMap<K, V> {
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private final int capacity;
+    private long evictions;
+
+    public LruLinkedHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LruLinkedHashMap(int capacity) {
+        // The table never holds more than capacity + 1 entries, so size it once
+        super(CollectionRegistry.tableCapacity(checkCapacity(capacity) + 1, CollectionRegistry.DEFAULT_LOAD_FACTOR),
+            CollectionRegistry.DEFAULT_LOAD_FACTOR, true);
+        this.capacity = capacity;
+    }
+
+    static int checkCapacity(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        return capacity;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        if (size() <= capacity) return false;
+        evictions++;
+        return true;
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.*;
+
+// Trigram index for fuzzy key search. Each key is lower-cased, padded with two spaces
+// on both sides and cut into overlapping three-character grams; every gram has a
+// posting list of the keys that contain it. One edit destroys at most three of the
+// query's grams, so a key within d edits still shares all but 3d of the query's
+// distinct grams. Counting shared grams over the query's posting lists leaves a few
+// candidates, and only those get an edit-distance check. A query too short for the
+// bound to exclude anything checks every key. Matching ignores case.
+public class NGramIndex {
+
+    public static class Match {
+        public final String key;
+        public final int distance;
+
+        Match(String key, int distance) {
+            this.key = key;
+            this.distance = distance;
+        }
+    }
+
+    private final String[] keys;
+    private final String[] folded;
+    private final LongObjectHashMap<int[]> postings;
+    private long postingEntries;
+
+    // keys are the ids of the postings; ties in distance come back in this order
+    public NGramIndex(String[] keys) {
+        this.keys = keys;
+        this.folded = new String[keys.length];
+        LongObjectHashMap<IntArrayList> lists = new LongObjectHashMap<>();
+        for (int id = 0; id < keys.length; id++) {
+            folded[id] = keys[id].toLowerCase(Locale.ROOT);
+            for (long gram : grams(folded[id])) {
+                IntArrayList list = lists.getLong(gram);
+                if (list == null) {
+                    list = new IntArrayList(4);
+                    lists.putLong(gram, list);
+                }
+                list.addInt(id);
+            }
+        }
+        postings = new LongObjectHashMap<>(lists.size());
+        for (Map.Entry<Long, IntArrayList> entry : lists.entrySet()) {
+            int[] ids = entry.getValue().toIntArray();
+            postings.putLong(entry.getKey(), ids);
+            postingEntries += ids.length;
+        }
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public int gramCount() {
+        return postings.size();
+    }
+
+    // Key ids across all posting lists; each costs 4 bytes
+    public long postingEntries() {
+        return postingEntries;
+    }
+
+    // Keys within maxEdits insertions, deletions or substitutions of the query, closest
+    // first
+    public List<Match> search(String query, int maxEdits) {
+        String q = query.toLowerCase(Locale.ROOT);
+        long[] queryGrams = grams(q);
+        int needed = queryGrams.length - 3 * maxEdits;
+        List<Match> matches = new ArrayList<>();
+        if (needed <= 0) {
+            for (int id = 0; id < keys.length; id++) check(id, q, maxEdits, matches);
+        } else {
+            int[] shared = new int[keys.length];
+            IntArrayList candidates = new IntArrayList();
+            for (long gram : queryGrams) {
+                int[] ids = postings.getLong(gram);
+                if (ids == null) continue;
+                for (int id : ids) {
+                    if (++shared[id] == needed) candidates.addInt(id);
+                }
+            }
+            for (int i = 0; i < candidates.size(); i++) check(candidates.getInt(i), q, maxEdits, matches);
+        }
+        // Ids are in key order, so a stable sort keeps equal distances in key order
+        matches.sort((a, b) -> Integer.compare(a.distance, b.distance));
+        return matches;
+    }
+
+    private void check(int id, String query, int maxEdits, List<Match> matches) {
+        int distance = distance(folded[id], query, maxEdits);
+        if (distance <= maxEdits) matches.add(new Match(keys[id], distance));
+    }
+
+    // The distinct grams of a folded key, each packed as three 16-bit chars
+    private static long[] grams(String s) {
+        String padded = "  " + s + "  ";
+        long[] grams = new long[padded.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = (long) padded.charAt(i) << 32 | (long) padded.charAt(i + 1) << 16 | padded.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+        int n = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) grams[n++] = grams[i];
+        }
+        return Arrays.copyOf(grams, n);
+    }
+
+    // Levenshtein distance, or max + 1 as soon as it must exceed max
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) return max + 1;
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) return max + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+}
@@ -0,0 +1,213 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Append-only slab allocator in native memory (ByteBuffer.allocateDirect) holding
+// serialized string records. Records are addressed by a long: slab index in the high
+// 32 bits, byte offset in the low 32. Nothing here is scanned by the garbage collector,
+// which is what lets the off-heap collections grow past the Java heap.
+//
+// Record layout: [int hash][int keyLength][key UTF-8] and, when the arena stores
+// values, [int valueLength][value UTF-8]. A value length of -1 encodes null.
+public final class OffHeapArena {
+
+    public static final int DEFAULT_SLAB_SIZE = 64 << 20;
+
+    private final boolean withValues;
+    private final int slabSize;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private ByteBuffer current;
+    private long reservedBytes;
+    private long usedBytes;
+    private long releasedBytes;
+
+    public OffHeapArena(boolean withValues) {
+        this(withValues, DEFAULT_SLAB_SIZE);
+    }
+
+    public OffHeapArena(boolean withValues, int slabSize) {
+        this.withValues = withValues;
+        this.slabSize = slabSize;
+    }
+
+    public static byte[] encode(String text) {
+        if (text == null) throw new NullPointerException("Off-heap collections do not store null keys or elements");
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public long append(int hash, byte[] key, byte[] value) {
+        int length = 8 + key.length + (withValues ? 4 + (value != null ? value.length : 0) : 0);
+        if (current == null || current.remaining() < length) newSlab(length);
+        int offset = current.position();
+        current.putInt(hash).putInt(key.length).put(key);
+        if (withValues) {
+            if (value != null) {
+                current.putInt(value.length).put(value);
+            } else {
+                current.putInt(-1);
+            }
+        }
+        usedBytes += length;
+        return ((long) (slabs.size() - 1) << 32) | offset;
+    }
+
+    private void newSlab(int minimum) {
+        int size = Math.max(slabSize, minimum);
+        current = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+        slabs.add(current);
+        reservedBytes += size;
+    }
+
+    public int hashAt(long address) {
+        return slab(address).getInt(offset(address));
+    }
+
+    public boolean keyEquals(long address, byte[] key) {
+        ByteBuffer slab = slab(address);
+        int offset = offset(address);
+        if (slab.getInt(offset + 4) != key.length) return false;
+        int base = offset + 8;
+        for (int i = 0; i < key.length; i++) {
+            if (slab.get(base + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    public String keyAt(long address) {
+        ByteBuffer slab = slab(address);
+        int offset = offset(address);
+        return decode(slab, offset + 8, slab.getInt(offset + 4));
+    }
+
+    public String valueAt(long address) {
+        ByteBuffer slab = slab(address);
+        int offset = offset(address);
+        int valueOffset = offset + 8 + slab.getInt(offset + 4);
+        int length = slab.getInt(valueOffset);
+        return length < 0 ? null : decode(slab, valueOffset + 4, length);
+    }
+
+    // Marks a record as garbage; the space comes back on compaction or clear()
+    public void release(long address) {
+        ByteBuffer slab = slab(address);
+        int offset = offset(address);
+        int keyLength = slab.getInt(offset + 4);
+        int length = 8 + keyLength;
+        if (withValues) {
+            int valueLength = slab.getInt(offset + 8 + keyLength);
+            length += 4 + Math.max(0, valueLength);
+        }
+        releasedBytes += length;
+    }
+
+    // Copies a live record into another arena, returning its new address
+    public long copyTo(OffHeapArena target, long address) {
+        ByteBuffer slab = slab(address);
+        int offset = offset(address);
+        byte[] key = bytes(slab, offset + 8, slab.getInt(offset + 4));
+        byte[] value = null;
+        if (withValues) {
+            int valueOffset = offset + 8 + key.length;
+            int length = slab.getInt(valueOffset);
+            if (length >= 0) value = bytes(slab, valueOffset + 4, length);
+        }
+        return target.append(slab.getInt(offset), key, value);
+    }
+
+    // True once more than half of a multi-slab arena is released records
+    public boolean needsCompaction() {
+        return slabs.size() > 1 && releasedBytes > usedBytes / 2;
+    }
+
+    public void clear() {
+        slabs.clear();
+        current = null;
+        reservedBytes = 0;
+        usedBytes = 0;
+        releasedBytes = 0;
+    }
+
+    public long reservedBytes() {
+        return reservedBytes;
+    }
+
+    public long liveBytes() {
+        return usedBytes - releasedBytes;
+    }
+
+    public long releasedBytes() {
+        return releasedBytes;
+    }
+
+    private ByteBuffer slab(long address) {
+        return slabs.get((int) (address >>> 32));
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    private static byte[] bytes(ByteBuffer slab, int offset, int length) {
+        byte[] data = new byte[length];
+        ByteBuffer view = slab.duplicate();
+        view.position(offset);
+        view.get(data);
+        return data;
+    }
+
+    private static String decode(ByteBuffer slab, int offset, int length) {
+        return new String(bytes(slab, offset, length), StandardCharsets.UTF_8);
+    }
+
+    // Spreads String.hashCode() before masking, as the open-addressing tables use
+    // the low bits directly
+    static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // Fixed-capacity long array in native memory, split into 8 MB chunks so it is not
+    // limited by the 2 GB ByteBuffer size. Used for record address tables.
+    public static final class LongArray {
+        private static final int CHUNK_SHIFT = 20;
+        private static final int CHUNK_LONGS = 1 << CHUNK_SHIFT;
+        private static final int CHUNK_MASK = CHUNK_LONGS - 1;
+
+        private final ByteBuffer[] chunks;
+        private final long capacity;
+
+        public LongArray(long capacity) {
+            this.capacity = capacity;
+            int count = (int) ((capacity + CHUNK_LONGS - 1) >>> CHUNK_SHIFT);
+            chunks = new ByteBuffer[Math.max(1, count)];
+            for (int i = 0; i < chunks.length; i++) {
+                long longs = Math.min(CHUNK_LONGS, capacity - ((long) i << CHUNK_SHIFT));
+                chunks[i] = ByteBuffer.allocateDirect((int) Math.max(1, longs) * 8).order(ByteOrder.nativeOrder());
+            }
+        }
+
+        public long get(long index) {
+            return chunks[(int) (index >>> CHUNK_SHIFT)].getLong(((int) index & CHUNK_MASK) << 3);
+        }
+
+        public void set(long index, long value) {
+            chunks[(int) (index >>> CHUNK_SHIFT)].putLong(((int) index & CHUNK_MASK) << 3, value);
+        }
+
+        public long capacity() {
+            return capacity;
+        }
+
+        public long reservedBytes() {
+            return capacity * 8;
+        }
+
+        // Copies the first count entries into a new array of the given capacity
+        public LongArray resize(long newCapacity, long count) {
+            LongArray copy = new LongArray(newCapacity);
+            for (long i = 0; i < count; i++) copy.set(i, get(i));
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+import java.util.*;
+
+// String-to-string hash map kept in native memory. Each entry is one arena record
+// holding the key and value bytes; the slot table stores record addresses. Replacing
+// a value appends a new record and releases the old one, and the arena is compacted
+// once more than half of it is released records.
+public class OffHeapHashMap extends AbstractMap<String, String> {
+
+    private final float loadFactor;
+    private OffHeapArena arena = new OffHeapArena(true);
+    private OffHeapArena.LongArray table;
+    private long mask;
+    private long resizeAt;
+    private int size;
+
+    public OffHeapHashMap() {
+        this(16);
+    }
+
+    public OffHeapHashMap(int expectedSize) {
+        this(expectedSize, LongHashSet.DEFAULT_LOAD_FACTOR);
+    }
+
+    public OffHeapHashMap(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Negative size: " + expectedSize);
+        if (!(loadFactor > 0 && loadFactor < 1)) throw new IllegalArgumentException("Load factor must be in (0, 1): " + loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(LongHashSet.tableSizeFor(expectedSize, loadFactor));
+    }
+
+    @Override
+    public String put(String key, String value) {
+        byte[] keyBytes = OffHeapArena.encode(key);
+        byte[] valueBytes = value == null ? null : OffHeapArena.encode(value);
+        int hash = key.hashCode();
+        long slot = probe(keyBytes, hash);
+        long entry = table.get(slot);
+        long address = arena.append(hash, keyBytes, valueBytes);
+        table.set(slot, address + 1);
+        if (entry != 0) {
+            String old = arena.valueAt(entry - 1);
+            arena.release(entry - 1);
+            if (arena.needsCompaction()) compact();
+            return old;
+        }
+        if (++size > resizeAt) rehash(table.capacity() << 1);
+        return null;
+    }
+
+    @Override
+    public String get(Object key) {
+        long entry = entry(key);
+        return entry == 0 ? null : arena.valueAt(entry - 1);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return entry(key) != 0;
+    }
+
+    @Override
+    public String remove(Object key) {
+        if (!(key instanceof String)) return null;
+        String text = (String) key;
+        long slot = probe(OffHeapArena.encode(text), text.hashCode());
+        long entry = table.get(slot);
+        if (entry == 0) return null;
+        String old = arena.valueAt(entry - 1);
+        arena.release(entry - 1);
+        shiftBack(slot);
+        size--;
+        if (arena.needsCompaction()) compact();
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        arena.clear();
+        allocate(table.capacity());
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<Map.Entry<String, String>>() {
+            public int size() {
+                return size;
+            }
+
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new Iterator<Map.Entry<String, String>>() {
+                    private long slot = nextSlot(0);
+
+                    private long nextSlot(long from) {
+                        while (from < table.capacity() && table.get(from) == 0) from++;
+                        return from;
+                    }
+
+                    public boolean hasNext() {
+                        return slot < table.capacity();
+                    }
+
+                    public Map.Entry<String, String> next() {
+                        if (slot >= table.capacity()) throw new NoSuchElementException();
+                        long address = table.get(slot) - 1;
+                        slot = nextSlot(slot + 1);
+                        return new AbstractMap.SimpleImmutableEntry<>(arena.keyAt(address), arena.valueAt(address));
+                    }
+                };
+            }
+        };
+    }
+
+    // Native memory held by records and the slot table, for footprint diagnostics
+    public long nativeBytes() {
+        return arena.reservedBytes() + table.reservedBytes();
+    }
+
+    public long capacity() {
+        return table.capacity();
+    }
+
+    public float loadFactor() {
+        return loadFactor;
+    }
+
+    private long entry(Object key) {
+        if (!(key instanceof String)) return 0;
+        String text = (String) key;
+        return table.get(probe(OffHeapArena.encode(text), text.hashCode()));
+    }
+
+    // Returns the slot holding key, or the empty slot where it would be inserted
+    private long probe(byte[] key, int hash) {
+        long slot = OffHeapArena.spread(hash) & mask;
+        long entry;
+        while ((entry = table.get(slot)) != 0) {
+            long address = entry - 1;
+            if (arena.hashAt(address) == hash && arena.keyEquals(address, key)) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private long home(long entry) {
+        return OffHeapArena.spread(arena.hashAt(entry - 1)) & mask;
+    }
+
+    private void shiftBack(long free) {
+        long slot = (free + 1) & mask;
+        long entry;
+        while ((entry = table.get(slot)) != 0) {
+            long home = home(entry);
+            if (((slot - home) & mask) >= ((slot - free) & mask)) {
+                table.set(free, entry);
+                free = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table.set(free, 0);
+    }
+
+    private void rehash(long newCapacity) {
+        OffHeapArena.LongArray old = table;
+        allocate(newCapacity);
+        for (long i = 0; i < old.capacity(); i++) {
+            long entry = old.get(i);
+            if (entry == 0) continue;
+            long slot = home(entry);
+            while (table.get(slot) != 0) slot = (slot + 1) & mask;
+            table.set(slot, entry);
+        }
+    }
+
+    private void compact() {
+        OffHeapArena fresh = new OffHeapArena(true);
+        for (long i = 0; i < table.capacity(); i++) {
+            long entry = table.get(i);
+            if (entry != 0) table.set(i, arena.copyTo(fresh, entry - 1) + 1);
+        }
+        arena = fresh;
+    }
+
+    private void allocate(long capacity) {
+        table = new OffHeapArena.LongArray(capacity);
+        mask = capacity - 1;
+        resizeAt = Math.min(capacity - 1, (long) (capacity * loadFactor));
+    }
+}
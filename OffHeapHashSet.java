@@ -0,0 +1,170 @@
+import java.util.*;
+
+// Hash set of strings kept entirely in native memory: elements are UTF-8 records in
+// an OffHeapArena and the open-addressing table of record addresses is itself a
+// direct buffer, so the heap only holds a handful of objects whatever the size.
+// Lookups compare the stored String.hashCode() first and the raw bytes second,
+// without decoding. Removal uses backward-shift deletion like LongHashSet.
+public class OffHeapHashSet extends AbstractSet<String> {
+
+    private final float loadFactor;
+    private OffHeapArena arena = new OffHeapArena(false);
+    private OffHeapArena.LongArray table;
+    private long mask;
+    private long resizeAt;
+    private int size;
+
+    public OffHeapHashSet() {
+        this(16);
+    }
+
+    public OffHeapHashSet(int expectedSize) {
+        this(expectedSize, LongHashSet.DEFAULT_LOAD_FACTOR);
+    }
+
+    public OffHeapHashSet(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Negative size: " + expectedSize);
+        if (!(loadFactor > 0 && loadFactor < 1)) throw new IllegalArgumentException("Load factor must be in (0, 1): " + loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(LongHashSet.tableSizeFor(expectedSize, loadFactor));
+    }
+
+    @Override
+    public boolean add(String element) {
+        byte[] key = OffHeapArena.encode(element);
+        int hash = element.hashCode();
+        long slot = probe(key, hash);
+        if (table.get(slot) != 0) return false;
+        table.set(slot, arena.append(hash, key, null) + 1);
+        if (++size > resizeAt) rehash(table.capacity() << 1);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String)) return false;
+        String element = (String) o;
+        return table.get(probe(OffHeapArena.encode(element), element.hashCode())) != 0;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof String)) return false;
+        String element = (String) o;
+        long slot = probe(OffHeapArena.encode(element), element.hashCode());
+        long entry = table.get(slot);
+        if (entry == 0) return false;
+        arena.release(entry - 1);
+        shiftBack(slot);
+        size--;
+        if (arena.needsCompaction()) compact();
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        arena.clear();
+        allocate(table.capacity());
+        size = 0;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private long slot = nextSlot(0);
+
+            private long nextSlot(long from) {
+                while (from < table.capacity() && table.get(from) == 0) from++;
+                return from;
+            }
+
+            public boolean hasNext() {
+                return slot < table.capacity();
+            }
+
+            public String next() {
+                if (slot >= table.capacity()) throw new NoSuchElementException();
+                String element = arena.keyAt(table.get(slot) - 1);
+                slot = nextSlot(slot + 1);
+                return element;
+            }
+        };
+    }
+
+    // Native memory held by records and the slot table, for footprint diagnostics
+    public long nativeBytes() {
+        return arena.reservedBytes() + table.reservedBytes();
+    }
+
+    public long capacity() {
+        return table.capacity();
+    }
+
+    public float loadFactor() {
+        return loadFactor;
+    }
+
+    // Returns the slot holding key, or the empty slot where it would be inserted
+    private long probe(byte[] key, int hash) {
+        long slot = OffHeapArena.spread(hash) & mask;
+        long entry;
+        while ((entry = table.get(slot)) != 0) {
+            long address = entry - 1;
+            if (arena.hashAt(address) == hash && arena.keyEquals(address, key)) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private long home(long entry) {
+        return OffHeapArena.spread(arena.hashAt(entry - 1)) & mask;
+    }
+
+    private void shiftBack(long free) {
+        long slot = (free + 1) & mask;
+        long entry;
+        while ((entry = table.get(slot)) != 0) {
+            long home = home(entry);
+            if (((slot - home) & mask) >= ((slot - free) & mask)) {
+                table.set(free, entry);
+                free = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table.set(free, 0);
+    }
+
+    // Rehashing only moves addresses; the stored hash avoids touching the key bytes
+    private void rehash(long newCapacity) {
+        OffHeapArena.LongArray old = table;
+        allocate(newCapacity);
+        for (long i = 0; i < old.capacity(); i++) {
+            long entry = old.get(i);
+            if (entry == 0) continue;
+            long slot = home(entry);
+            while (table.get(slot) != 0) slot = (slot + 1) & mask;
+            table.set(slot, entry);
+        }
+    }
+
+    // Copies live records into a fresh arena so released space is returned to the OS
+    private void compact() {
+        OffHeapArena fresh = new OffHeapArena(false);
+        for (long i = 0; i < table.capacity(); i++) {
+            long entry = table.get(i);
+            if (entry != 0) table.set(i, arena.copyTo(fresh, entry - 1) + 1);
+        }
+        arena = fresh;
+    }
+
+    private void allocate(long capacity) {
+        table = new OffHeapArena.LongArray(capacity);
+        mask = capacity - 1;
+        resizeAt = Math.min(capacity - 1, (long) (capacity * loadFactor));
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.*;
+
+// List of strings kept in native memory: elements are UTF-8 records in an
+// OffHeapArena and the index is a direct-buffer array of record addresses, so a
+// multi-GB list adds almost nothing to the heap or to GC pause times. get(i) decodes
+// the element on demand; indexOf compares hashes and raw bytes without decoding.
+public class OffHeapList extends AbstractList<String> implements RandomAccess {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private OffHeapArena arena = new OffHeapArena(false);
+    private OffHeapArena.LongArray addresses;
+    private int size;
+
+    public OffHeapList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public OffHeapList(int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("Negative capacity: " + initialCapacity);
+        addresses = new OffHeapArena.LongArray(Math.max(1, initialCapacity));
+    }
+
+    @Override
+    public boolean add(String element) {
+        ensureCapacity(size + 1);
+        addresses.set(size++, store(element));
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, String element) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        ensureCapacity(size + 1);
+        for (int i = size; i > index; i--) addresses.set(i, addresses.get(i - 1));
+        addresses.set(index, store(element));
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public String get(int index) {
+        checkIndex(index);
+        return arena.keyAt(addresses.get(index));
+    }
+
+    @Override
+    public String set(int index, String element) {
+        checkIndex(index);
+        long address = addresses.get(index);
+        String old = arena.keyAt(address);
+        arena.release(address);
+        addresses.set(index, store(element));
+        return old;
+    }
+
+    @Override
+    public String remove(int index) {
+        checkIndex(index);
+        long address = addresses.get(index);
+        String old = arena.keyAt(address);
+        arena.release(address);
+        for (int i = index + 1; i < size; i++) addresses.set(i - 1, addresses.get(i));
+        size--;
+        modCount++;
+        if (arena.needsCompaction()) compact();
+        return old;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0) return false;
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof String)) return -1;
+        String element = (String) o;
+        byte[] key = OffHeapArena.encode(element);
+        int hash = element.hashCode();
+        for (int i = 0; i < size; i++) {
+            long address = addresses.get(i);
+            if (arena.hashAt(address) == hash && arena.keyEquals(address, key)) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        if (!(o instanceof String)) return -1;
+        String element = (String) o;
+        byte[] key = OffHeapArena.encode(element);
+        int hash = element.hashCode();
+        for (int i = size - 1; i >= 0; i--) {
+            long address = addresses.get(i);
+            if (arena.hashAt(address) == hash && arena.keyEquals(address, key)) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        arena.clear();
+        size = 0;
+        modCount++;
+    }
+
+    public void ensureCapacity(int minCapacity) {
+        long capacity = addresses.capacity();
+        if (minCapacity <= capacity) return;
+        long newCapacity = Math.max(minCapacity, capacity + (capacity >> 1));
+        addresses = addresses.resize(Math.min(newCapacity, Integer.MAX_VALUE), size);
+    }
+
+    // Native memory held by records and the address index, for footprint diagnostics
+    public long nativeBytes() {
+        return arena.reservedBytes() + addresses.reservedBytes();
+    }
+
+    private long store(String element) {
+        return arena.append(element.hashCode(), OffHeapArena.encode(element), null);
+    }
+
+    private void compact() {
+        OffHeapArena fresh = new OffHeapArena(false);
+        for (int i = 0; i < size; i++) addresses.set(i, arena.copyTo(fresh, addresses.get(i)));
+        arena = fresh;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+}
@@ -0,0 +1,166 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.*;
+
+// Table model over a live collection that only materializes the rows being painted.
+// RandomAccess lists are read by index. Everything else is read a page at a time from
+// an iterator that is kept open between pages, so scrolling forward is sequential; a
+// few pages are cached for scrolling back. Memory stays constant however large the
+// collection is. Sorted collections also record a key every CHECKPOINT_PAGES pages and
+// resume from it with tailSet/tailMap, so a jump backwards does not rescan from the start.
+public class PagedContentsModel extends AbstractTableModel {
+
+    static final int PAGE_SIZE = 256;
+    private static final int CACHED_PAGES = 8;
+    private static final int CHECKPOINT_PAGES = 16;
+    private static final int MAX_CELL_CHARS = 500;
+
+    private final Object source;
+    private final boolean keyValue;
+    private final List<?> indexed;
+    private final Collection<?> rows;
+    private final int size;
+
+    private final Map<Integer, Object[]> pages = new LinkedHashMap<Integer, Object[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+    private final TreeMap<Integer, Object> checkpoints = new TreeMap<>();
+    private Iterator<?> cursor;
+    private int cursorIndex;
+
+    // source is a Collection or a Map (possibly a subSet/subMap view)
+    public PagedContentsModel(Object source) {
+        this.source = source;
+        this.keyValue = source instanceof Map;
+        if (keyValue) {
+            rows = ((Map<?, ?>) source).entrySet();
+            indexed = null;
+        } else {
+            rows = (Collection<?>) source;
+            indexed = source instanceof List && source instanceof RandomAccess ? (List<?>) source : null;
+        }
+        this.size = rows.size();
+    }
+
+    public boolean isSorted() {
+        return source instanceof NavigableMap || source instanceof NavigableSet;
+    }
+
+    public boolean isKeyValue() {
+        return keyValue;
+    }
+
+    @Override
+    public int getRowCount() {
+        return size;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return keyValue ? 3 : 2;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        if (column == 0) return "#";
+        if (!keyValue) return source instanceof List ? "Element" : "Value";
+        return column == 1 ? "Key" : "Value";
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 0 ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (column == 0) return row;
+        Object item = rowAt(row);
+        if (item == null) return "";
+        if (keyValue) {
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) item;
+            return abbreviate(column == 1 ? entry.getKey() : entry.getValue());
+        }
+        return abbreviate(item);
+    }
+
+    // The element (or Map.Entry) at row, or null when the collection shrank underneath
+    public Object rowAt(int row) {
+        if (row < 0 || row >= size) return null;
+        if (indexed != null) return row < indexed.size() ? indexed.get(row) : null;
+        int page = row / PAGE_SIZE;
+        Object[] items = pages.get(page);
+        if (items == null) {
+            items = loadPage(page);
+            pages.put(page, items);
+        }
+        int offset = row - page * PAGE_SIZE;
+        return offset < items.length ? items[offset] : null;
+    }
+
+    private Object[] loadPage(int page) {
+        int start = page * PAGE_SIZE;
+        seek(start);
+        int count = Math.min(PAGE_SIZE, size - start);
+        List<Object> items = new ArrayList<>(count);
+        while (items.size() < count && cursor.hasNext()) items.add(next());
+        return items.toArray();
+    }
+
+    // Positions the cursor so its next element is at index target
+    private void seek(int target) {
+        if (cursor == null || cursorIndex > target) {
+            Map.Entry<Integer, Object> checkpoint = checkpoints.floorEntry(target);
+            if (checkpoint != null) {
+                cursor = tailIterator(checkpoint.getValue());
+                cursorIndex = checkpoint.getKey();
+            } else {
+                cursor = rows.iterator();
+                cursorIndex = 0;
+            }
+        }
+        while (cursorIndex < target && cursor.hasNext()) next();
+    }
+
+    private Object next() {
+        Object item = cursor.next();
+        if (isSorted() && cursorIndex % (PAGE_SIZE * CHECKPOINT_PAGES) == 0) {
+            checkpoints.put(cursorIndex, keyValue ? ((Map.Entry<?, ?>) item).getKey() : item);
+        }
+        cursorIndex++;
+        return item;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Iterator<?> tailIterator(Object fromKey) {
+        if (source instanceof NavigableMap) return ((NavigableMap) source).tailMap(fromKey, true).entrySet().iterator();
+        return ((NavigableSet) source).tailSet(fromKey, true).iterator();
+    }
+
+    // Key-range slice of a sorted collection; a null bound leaves that side open
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Object slice(Object source, Object from, Object to) {
+        if (source instanceof NavigableMap) {
+            NavigableMap map = (NavigableMap) source;
+            if (from != null && to != null) return map.subMap(from, true, to, true);
+            if (from != null) return map.tailMap(from, true);
+            if (to != null) return map.headMap(to, true);
+            return map;
+        }
+        if (source instanceof NavigableSet) {
+            NavigableSet set = (NavigableSet) source;
+            if (from != null && to != null) return set.subSet(from, true, to, true);
+            if (from != null) return set.tailSet(from, true);
+            if (to != null) return set.headSet(to, true);
+            return set;
+        }
+        throw new IllegalArgumentException("Key ranges need a sorted collection");
+    }
+
+    private static String abbreviate(Object value) {
+        String text = String.valueOf(value);
+        return text.length() <= MAX_CELL_CHARS ? text : text.substring(0, MAX_CELL_CHARS) + "...";
+    }
+}
@@ -0,0 +1,83 @@
+import javax.swing.*;
+import javax.swing.border.*;
+import java.awt.*;
+
+// Modal progress dialog for work that runs on a background thread. Being modal keeps
+// the user from touching the collection while a worker is still writing to it.
+public class ProgressDialog extends JDialog {
+
+    private final JProgressBar progressBar;
+    private final JLabel statusLabel;
+    private final JButton cancelBtn;
+    private Runnable cancelAction;
+
+    public ProgressDialog(Frame owner, String title, String message) {
+        super(owner, title, true);
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+
+        JPanel panel = new JPanel(new BorderLayout(0, 12));
+        panel.setBorder(new EmptyBorder(20, 20, 20, 20));
+        panel.setBackground(Color.WHITE);
+
+        JLabel messageLabel = new JLabel(message);
+        messageLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
+
+        progressBar = new JProgressBar(0, 1000);
+        progressBar.setStringPainted(true);
+        progressBar.setPreferredSize(new Dimension(460, 24));
+
+        statusLabel = new JLabel("Starting...");
+        statusLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        statusLabel.setForeground(new Color(107, 114, 128));
+
+        cancelBtn = new JButton("Cancel");
+        cancelBtn.setFocusPainted(false);
+        cancelBtn.addActionListener(e -> requestCancel());
+
+        JPanel center = new JPanel(new BorderLayout(0, 8));
+        center.setOpaque(false);
+        center.add(progressBar, BorderLayout.NORTH);
+        center.add(statusLabel, BorderLayout.SOUTH);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+        buttons.setOpaque(false);
+        buttons.add(cancelBtn);
+
+        panel.add(messageLabel, BorderLayout.NORTH);
+        panel.add(center, BorderLayout.CENTER);
+        panel.add(buttons, BorderLayout.SOUTH);
+
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                requestCancel();
+            }
+        });
+
+        setContentPane(panel);
+        pack();
+        setLocationRelativeTo(owner);
+    }
+
+    public void onCancel(Runnable action) {
+        this.cancelAction = action;
+    }
+
+    public void setProgress(double fraction, String status) {
+        progressBar.setValue((int) Math.round(Math.max(0, Math.min(1, fraction)) * 1000));
+        progressBar.setString(String.format("%.1f%%", fraction * 100));
+        statusLabel.setText(status);
+    }
+
+    // For work with no known total; the bar animates until the dialog is disposed
+    public void setIndeterminate(String status) {
+        progressBar.setIndeterminate(true);
+        progressBar.setStringPainted(false);
+        statusLabel.setText(status);
+    }
+
+    private void requestCancel() {
+        cancelBtn.setEnabled(false);
+        cancelBtn.setText("Cancelling...");
+        if (cancelAction != null) cancelAction.run();
+    }
+}
@@ -0,0 +1,192 @@
+import java.util.*;
+
+// Compressed prefix tree (radix tree) over strings. Each edge holds a run of characters
+// and a node only branches where keys diverge, so n keys need at most 2n nodes however
+// long they are. Every node counts the keys below it, so a prefix query knows its result
+// size before reading a key, and withPrefix() returns a lazy view that walks the
+// matching subtree in sorted order as it is iterated. Not thread-safe while keys are
+// being added; once built, any number of threads may query it.
+public class RadixTree {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final class Node {
+        // Characters on the edge from the parent to this node
+        String edge;
+        // Sorted by first character
+        Node[] children = NO_CHILDREN;
+        boolean terminal;
+        // Keys in this subtree
+        int count;
+
+        Node(String edge) {
+            this.edge = edge;
+        }
+    }
+
+    // A node and the full string its path spells, which may extend past the query
+    private static final class Position {
+        final Node node;
+        final String path;
+
+        Position(Node node, String path) {
+            this.node = node;
+            this.path = path;
+        }
+    }
+
+    private final Node root = new Node("");
+    private int nodes = 1;
+
+    // Returns false when the key was already present
+    public boolean add(String key) {
+        if (contains(key)) return false;
+        Node node = root;
+        node.count++;
+        int i = 0;
+        while (i < key.length()) {
+            int c = childIndex(node, key.charAt(i));
+            if (c < 0) {
+                Node leaf = new Node(key.substring(i));
+                leaf.terminal = true;
+                leaf.count = 1;
+                insertChild(node, -c - 1, leaf);
+                nodes++;
+                return true;
+            }
+            Node child = node.children[c];
+            int common = commonPrefix(child.edge, key, i);
+            if (common < child.edge.length()) {
+                // Split the edge where the key leaves it
+                Node split = new Node(child.edge.substring(0, common));
+                split.count = child.count;
+                split.children = new Node[] {child};
+                child.edge = child.edge.substring(common);
+                node.children[c] = split;
+                nodes++;
+                child = split;
+            }
+            node = child;
+            node.count++;
+            i += common;
+        }
+        node.terminal = true;
+        return true;
+    }
+
+    public boolean contains(String key) {
+        Position position = locate(key);
+        return position != null && position.path.length() == key.length() && position.node.terminal;
+    }
+
+    public int size() {
+        return root.count;
+    }
+
+    public int nodeCount() {
+        return nodes;
+    }
+
+    // Live view of the keys starting with prefix, in sorted order
+    public Collection<String> withPrefix(String prefix) {
+        Position position = locate(prefix);
+        return new AbstractCollection<String>() {
+            @Override
+            public int size() {
+                return position == null ? 0 : position.node.count;
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                return position == null ? Collections.<String>emptyIterator() : new Walk(position);
+            }
+        };
+    }
+
+    // The highest node whose path starts with prefix, or null when no key does
+    private Position locate(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int c = childIndex(node, prefix.charAt(i));
+            if (c < 0) return null;
+            Node child = node.children[c];
+            int rest = prefix.length() - i;
+            if (child.edge.length() >= rest) {
+                if (!child.edge.startsWith(prefix.substring(i))) return null;
+                return new Position(child, prefix.substring(0, i) + child.edge);
+            }
+            if (!prefix.startsWith(child.edge, i)) return null;
+            node = child;
+            i += child.edge.length();
+        }
+        return new Position(node, prefix);
+    }
+
+    private static int childIndex(Node node, char first) {
+        Node[] children = node.children;
+        int low = 0, high = children.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char c = children[mid].edge.charAt(0);
+            if (c < first) low = mid + 1;
+            else if (c > first) high = mid - 1;
+            else return mid;
+        }
+        return -(low + 1);
+    }
+
+    private static void insertChild(Node node, int at, Node child) {
+        Node[] children = new Node[node.children.length + 1];
+        System.arraycopy(node.children, 0, children, 0, at);
+        children[at] = child;
+        System.arraycopy(node.children, at, children, at + 1, node.children.length - at);
+        node.children = children;
+    }
+
+    private static int commonPrefix(String edge, String key, int from) {
+        int max = Math.min(edge.length(), key.length() - from);
+        int n = 0;
+        while (n < max && edge.charAt(n) == key.charAt(from + n)) n++;
+        return n;
+    }
+
+    // Depth-first walk; a key comes before its extensions, so keys come out sorted
+    private static final class Walk implements Iterator<String> {
+        private final ArrayDeque<Node> nodes = new ArrayDeque<>();
+        private final ArrayDeque<String> paths = new ArrayDeque<>();
+        private String next;
+
+        Walk(Position start) {
+            nodes.push(start.node);
+            paths.push(start.path);
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && !nodes.isEmpty()) {
+                Node node = nodes.pop();
+                String path = paths.pop();
+                for (int i = node.children.length - 1; i >= 0; i--) {
+                    nodes.push(node.children[i]);
+                    paths.push(path + node.children[i].edge);
+                }
+                if (node.terminal) next = path;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (next == null) throw new NoSuchElementException();
+            String key = next;
+            advance();
+            return key;
+        }
+    }
+}
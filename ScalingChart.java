@@ -0,0 +1,93 @@
+import javax.swing.*;
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+
+// Line chart of throughput against thread count, one line per load-test target.
+// Thread counts are spaced evenly (they are usually powers of two).
+public class ScalingChart extends JPanel {
+
+    private static final Color[] PALETTE = {
+        new Color(99, 102, 241), new Color(16, 185, 129), new Color(245, 158, 11),
+        new Color(239, 68, 68), new Color(14, 165, 233), new Color(139, 92, 246),
+        new Color(107, 114, 128)
+    };
+
+    private final Map<String, List<ConcurrentLoadTest.Point>> series = new LinkedHashMap<>();
+    private final List<Integer> threadCounts;
+    private double maxOps;
+
+    public ScalingChart(List<ConcurrentLoadTest.Point> points) {
+        TreeSet<Integer> counts = new TreeSet<>();
+        for (ConcurrentLoadTest.Point p : points) {
+            series.computeIfAbsent(p.target, k -> new ArrayList<>()).add(p);
+            counts.add(p.threads);
+            if (!p.stalled) maxOps = Math.max(maxOps, p.opsPerSecond);
+        }
+        threadCounts = new ArrayList<>(counts);
+        setBackground(Color.WHITE);
+        setPreferredSize(new Dimension(640, 320));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setFont(new Font("Segoe UI", Font.PLAIN, 11));
+
+        int left = 60, right = 190, top = 20, bottom = 40;
+        int width = getWidth() - left - right;
+        int height = getHeight() - top - bottom;
+        if (width <= 0 || height <= 0 || threadCounts.isEmpty()) {
+            g2.dispose();
+            return;
+        }
+        double yMax = maxOps > 0 ? maxOps * 1.1 : 1;
+
+        // Axes and grid
+        g2.setColor(new Color(229, 231, 235));
+        for (int i = 0; i <= 4; i++) {
+            int y = top + height - i * height / 4;
+            g2.drawLine(left, y, left + width, y);
+            g2.setColor(new Color(107, 114, 128));
+            g2.drawString(ConcurrentLoadTest.formatOps(yMax * i / 4), 8, y + 4);
+            g2.setColor(new Color(229, 231, 235));
+        }
+        g2.setColor(new Color(107, 114, 128));
+        for (int i = 0; i < threadCounts.size(); i++) {
+            int x = xFor(i, left, width);
+            g2.drawString(String.valueOf(threadCounts.get(i)), x - 4, top + height + 16);
+        }
+        g2.drawString("threads", left + width / 2 - 20, top + height + 32);
+
+        // One line per target, with the legend on the right
+        int colorIndex = 0;
+        int legendY = top + 10;
+        for (Map.Entry<String, List<ConcurrentLoadTest.Point>> entry : series.entrySet()) {
+            Color color = PALETTE[colorIndex++ % PALETTE.length];
+            g2.setColor(color);
+            g2.setStroke(new BasicStroke(2f));
+            int prevX = -1, prevY = -1;
+            for (ConcurrentLoadTest.Point p : entry.getValue()) {
+                if (p.stalled) continue;
+                int x = xFor(threadCounts.indexOf(p.threads), left, width);
+                int y = top + height - (int) (p.opsPerSecond / yMax * height);
+                g2.fillOval(x - 3, y - 3, 6, 6);
+                if (prevX >= 0) g2.drawLine(prevX, prevY, x, y);
+                prevX = x;
+                prevY = y;
+            }
+            g2.fillRect(left + width + 15, legendY - 8, 10, 10);
+            g2.setColor(new Color(17, 24, 39));
+            g2.drawString(entry.getKey(), left + width + 30, legendY + 1);
+            legendY += 18;
+        }
+        g2.dispose();
+    }
+
+    private int xFor(int index, int left, int width) {
+        if (threadCounts.size() == 1) return left + width / 2;
+        return left + index * width / (threadCounts.size() - 1);
+    }
+}
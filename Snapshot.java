@@ -0,0 +1,509 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Binary snapshot of a loaded collection, so it can be reloaded after a restart without
+// re-parsing the CSV. Layout:
+//
+//   int magic, int version, UTF class name, byte layout, byte key encoding,
+//   boolean key-value, long count, then count records
+//
+// A record is the key (or element) followed, for maps, by its value. Strings are an int
+// byte length (-1 for null) plus UTF-8 bytes; IntArrayList elements are raw ints and
+// LongHashSet/LongObjectHashMap keys raw longs. Records are in iteration order, so
+// lists and linked classes keep their order and sorted classes are written ascending.
+//
+// Reading maps the file and decodes straight out of the mapping, a window at a time,
+// with no stream buffers in between. Sorted classes are rebuilt in O(n) from a sorted
+// view over the records (the TreeMap/TreeSet/ConcurrentSkipListMap copy constructors
+// link pre-sorted input without comparing); everything else goes into an instance
+// pre-sized for the record count.
+public class Snapshot {
+
+    private static final int MAGIC = 0x434F4C53;
+    private static final int VERSION = 1;
+    private static final int MAP_WINDOW = 1 << 30;
+    private static final int WRITE_BUFFER = 1 << 20;
+    private static final int PROGRESS_EVERY = 1 << 16;
+
+    public enum Layout { SEQUENCE, HASHED, SORTED }
+
+    private enum Encoding { STRING, INT, LONG }
+
+    public interface ProgressListener {
+        void progress(long records, long total);
+    }
+
+    public static class Loaded {
+        public final String className;
+        public final Object collection;
+        public final Layout layout;
+        public final long records;
+        public final long bytes;
+        public final long elapsedNanos;
+
+        Loaded(String className, Object collection, Layout layout, long records, long bytes, long elapsedNanos) {
+            this.className = className;
+            this.collection = collection;
+            this.layout = layout;
+            this.records = records;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String summary() {
+            return String.format("%,d elements, %.1f MB in %.2f s (%,.0f elements/s)",
+                records, bytes / (1024.0 * 1024.0), elapsedNanos / 1e9,
+                elapsedNanos == 0 ? 0 : records / (elapsedNanos / 1e9));
+        }
+    }
+
+    private final File file;
+    private volatile boolean cancelled;
+
+    public Snapshot(File file) {
+        this.file = file;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Writes to a temporary file next to the target and moves it into place, so a
+    // failed or cancelled save never leaves a truncated snapshot behind. Returns the
+    // bytes written, or -1 when cancelled.
+    public long write(String className, Object collection, ProgressListener listener) throws IOException {
+        if (!CollectionRegistry.contains(className)) {
+            throw new IllegalArgumentException("Unknown collection: " + className);
+        }
+        boolean keyValue = collection instanceof Map;
+        Collection<?> rows = keyValue ? ((Map<?, ?>) collection).entrySet() : (Collection<?>) collection;
+        Encoding encoding = encodingFor(collection);
+        long total = rows.size();
+
+        File temp = new File(file.getPath() + ".part");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp), WRITE_BUFFER))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(className);
+            out.writeByte(layoutFor(collection).ordinal());
+            out.writeByte(encoding.ordinal());
+            out.writeBoolean(keyValue);
+            out.writeLong(total);
+
+            long written = 0;
+            for (Object row : rows) {
+                if (written == total) break;
+                if (keyValue) {
+                    Map.Entry<?, ?> entry = (Map.Entry<?, ?>) row;
+                    writeKey(out, entry.getKey(), encoding);
+                    writeString(out, entry.getValue());
+                } else {
+                    writeKey(out, row, encoding);
+                }
+                if (++written % PROGRESS_EVERY == 0) {
+                    if (cancelled) break;
+                    if (listener != null) listener.progress(written, total);
+                }
+            }
+            if (!cancelled && written != total) {
+                throw new ConcurrentModificationException("Collection changed while saving");
+            }
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            throw e;
+        }
+
+        if (cancelled) {
+            temp.delete();
+            return -1;
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        if (listener != null) listener.progress(total, total);
+        return file.length();
+    }
+
+    private static Layout layoutFor(Object collection) {
+        if (collection instanceof SortedMap && ((SortedMap<?, ?>) collection).comparator() == null) return Layout.SORTED;
+        if (collection instanceof SortedSet && ((SortedSet<?>) collection).comparator() == null) return Layout.SORTED;
+        if (collection instanceof List || collection instanceof Deque) return Layout.SEQUENCE;
+        String name = CollectionRegistry.nameForClass(collection.getClass());
+        boolean ordered = name != null && CollectionRegistry.traits(name).contains(CollectionRegistry.Trait.INSERTION_ORDER);
+        return ordered ? Layout.SEQUENCE : Layout.HASHED;
+    }
+
+    private static Encoding encodingFor(Object collection) {
+        if (collection instanceof IntArrayList) return Encoding.INT;
+        if (collection instanceof LongHashSet || collection instanceof LongObjectHashMap) return Encoding.LONG;
+        return Encoding.STRING;
+    }
+
+    private static void writeKey(DataOutputStream out, Object key, Encoding encoding) throws IOException {
+        switch (encoding) {
+            case INT: out.writeInt((Integer) key); break;
+            case LONG: out.writeLong((Long) key); break;
+            default: writeString(out, key);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // Returns null when cancelled
+    public Loaded read(ProgressListener listener) throws Exception {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedInput in = new MappedInput(channel);
+            if (in.readInt() != MAGIC) throw new IOException(file.getName() + " is not a collection snapshot");
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+            String className = in.readUTF();
+            if (!CollectionRegistry.contains(className)) throw new IOException("Unknown collection in snapshot: " + className);
+            Layout layout = ordinal(Layout.values(), in.readByte());
+            Encoding encoding = ordinal(Encoding.values(), in.readByte());
+            boolean keyValue = in.readBoolean();
+            long total = in.readLong();
+            if (total < 0 || total > Integer.MAX_VALUE) throw new IOException("Bad element count " + total);
+            if (keyValue != CollectionRegistry.isKeyValue(className)) {
+                throw new IOException("Snapshot layout does not match " + className);
+            }
+
+            Records records = new Records(in, encoding, keyValue, (int) total, layout == Layout.SORTED, listener);
+            Object collection = layout == Layout.SORTED
+                ? buildSorted(className, records)
+                : build(className, records);
+            if (cancelled) return null;
+            if (listener != null) listener.progress(total, total);
+            return new Loaded(className, collection, layout, total, channel.size(), System.nanoTime() - start);
+        }
+    }
+
+    private static <E> E ordinal(E[] values, int ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= values.length) throw new IOException("Corrupt snapshot header");
+        return values[ordinal];
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object build(String className, Records records) throws Exception {
+        // A cache gets at least its default capacity back, so reloading does not leave it full
+        Object instance = CollectionRegistry.isBounded(className)
+            ? CollectionRegistry.newCache(className, Math.max(records.total, LruLinkedHashMap.DEFAULT_CAPACITY),
+                TtlCache.DEFAULT_TTL_MILLIS)
+            : CollectionRegistry.newInstance(className, records.total, CollectionRegistry.DEFAULT_LOAD_FACTOR);
+        if (instance instanceof IntArrayList) {
+            IntArrayList list = (IntArrayList) instance;
+            while (records.advance()) list.addInt(records.intKey);
+        } else if (instance instanceof LongHashSet) {
+            LongHashSet set = (LongHashSet) instance;
+            while (records.advance()) set.addLong(records.longKey);
+        } else if (instance instanceof LongObjectHashMap) {
+            LongObjectHashMap<String> map = (LongObjectHashMap<String>) instance;
+            while (records.advance()) map.putLong(records.longKey, records.value);
+        } else if (instance instanceof Map) {
+            Map<String, String> map = (Map<String, String>) instance;
+            while (records.advance()) map.put(records.key, records.value);
+        } else {
+            Collection<String> collection = (Collection<String>) instance;
+            while (records.advance()) collection.add(records.key);
+        }
+        return instance;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object buildSorted(String className, Records records) throws Exception {
+        try {
+            switch (className) {
+                case "TreeMap": return new TreeMap<>(new SortedRecordMap(records));
+                case "ConcurrentSkipListMap": return new ConcurrentSkipListMap<>(new SortedRecordMap(records));
+                case "SortedArrayMap": return new SortedArrayMap<>(new SortedRecordMap(records));
+                case "TreeSet": return new TreeSet<>(new SortedRecordSet(records));
+                // ConcurrentSkipListSet's copy constructor re-inserts every key with a full
+                // search, O(n log n), so it is built by plain adds in build() instead
+                default: return build(className, records);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (NoSuchElementException e) {
+            // The copy constructors pull exactly size() records; a cancel cuts them short
+            if (cancelled) return null;
+            throw e;
+        }
+    }
+
+    // Sequential cursor over the records; the sorted views iterate it exactly once
+    private class Records {
+        final MappedInput in;
+        final Encoding encoding;
+        final boolean keyValue;
+        final int total;
+        final boolean checkOrder;
+        final ProgressListener listener;
+        int read;
+        String key;
+        String value;
+        int intKey;
+        long longKey;
+
+        Records(MappedInput in, Encoding encoding, boolean keyValue, int total, boolean checkOrder,
+                ProgressListener listener) {
+            this.in = in;
+            this.encoding = encoding;
+            this.keyValue = keyValue;
+            this.total = total;
+            this.checkOrder = checkOrder;
+            this.listener = listener;
+        }
+
+        boolean advance() throws IOException {
+            if (read == total || cancelled) return false;
+            String previous = key;
+            switch (encoding) {
+                case INT: intKey = in.readInt(); break;
+                case LONG: longKey = in.readLong(); break;
+                default: key = in.readString();
+            }
+            if (keyValue) value = in.readString();
+            // The O(n) sorted build trusts its input, so a damaged file must not reach it
+            if (checkOrder && previous != null && previous.compareTo(key) >= 0) {
+                throw new IOException("Snapshot records are not in ascending order at element " + read);
+            }
+            if (++read % PROGRESS_EVERY == 0 && listener != null) listener.progress(read, total);
+            return true;
+        }
+
+        boolean advanceUnchecked() {
+            try {
+                return advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Minimal SortedMap/SortedSet views over the records for the copy constructors;
+    // they only need comparator(), size() and one pass of the iterator
+    private static class SortedRecordMap extends AbstractMap<String, String> implements SortedMap<String, String> {
+        private final Records records;
+
+        SortedRecordMap(Records records) {
+            this.records = records;
+        }
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet() {
+            return new AbstractSet<Map.Entry<String, String>>() {
+                @Override
+                public int size() {
+                    return records.total;
+                }
+
+                @Override
+                public Iterator<Map.Entry<String, String>> iterator() {
+                    return new RecordIterator<Map.Entry<String, String>>(records) {
+                        @Override
+                        Map.Entry<String, String> current() {
+                            return new AbstractMap.SimpleImmutableEntry<>(records.key, records.value);
+                        }
+                    };
+                }
+            };
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            return null;
+        }
+
+        @Override
+        public SortedMap<String, String> subMap(String fromKey, String toKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedMap<String, String> headMap(String toKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedMap<String, String> tailMap(String fromKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String firstKey() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String lastKey() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class SortedRecordSet extends AbstractSet<String> implements SortedSet<String> {
+        private final Records records;
+
+        SortedRecordSet(Records records) {
+            this.records = records;
+        }
+
+        @Override
+        public int size() {
+            return records.total;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new RecordIterator<String>(records) {
+                @Override
+                String current() {
+                    return records.key;
+                }
+            };
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            return null;
+        }
+
+        @Override
+        public SortedSet<String> subSet(String fromElement, String toElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<String> headSet(String toElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<String> tailSet(String fromElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String first() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String last() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private abstract static class RecordIterator<T> implements Iterator<T> {
+        private final Records records;
+        private boolean ready;
+        private boolean more;
+
+        RecordIterator(Records records) {
+            this.records = records;
+        }
+
+        abstract T current();
+
+        @Override
+        public boolean hasNext() {
+            if (!ready) {
+                more = records.advanceUnchecked();
+                ready = true;
+            }
+            return more;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            ready = false;
+            return current();
+        }
+    }
+
+    // Reads primitives and strings from the file through read-only mappings of up to
+    // MAP_WINDOW bytes, remapping at the current position when a value would cross
+    // the end of the window
+    private static class MappedInput {
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+        private byte[] scratch = new byte[256];
+
+        MappedInput(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0);
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position));
+        }
+
+        private void require(int bytes) throws IOException {
+            if (window.remaining() >= bytes) return;
+            long position = windowStart + window.position();
+            if (size - position < bytes) throw new EOFException("Snapshot is truncated");
+            map(position);
+        }
+
+        int readInt() throws IOException {
+            require(4);
+            return window.getInt();
+        }
+
+        long readLong() throws IOException {
+            require(8);
+            return window.getLong();
+        }
+
+        byte readByte() throws IOException {
+            require(1);
+            return window.get();
+        }
+
+        boolean readBoolean() throws IOException {
+            return readByte() != 0;
+        }
+
+        // Same encoding as DataOutputStream.writeUTF, which is plain UTF-8 for class names
+        String readUTF() throws IOException {
+            require(2);
+            int length = window.getShort() & 0xFFFF;
+            return decode(length);
+        }
+
+        String readString() throws IOException {
+            int length = readInt();
+            if (length < 0) return null;
+            return decode(length);
+        }
+
+        private String decode(int length) throws IOException {
+            require(length);
+            if (scratch.length < length) scratch = new byte[Math.max(length, scratch.length * 2)];
+            window.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,529 @@
+import java.util.*;
+
+// Sorted map over two parallel arrays, keys ascending and found by binary search. A
+// lookup or an in-order scan reads two contiguous arrays instead of chasing tree nodes,
+// and an entry costs two array slots instead of a 40-byte TreeMap node. An insert or
+// remove in the middle shifts the tail of both arrays, so it suits read-mostly data
+// loaded in bulk: putAll() sorts the incoming entries once and merges them in a single
+// linear pass, and already-ascending input (such as another SortedMap) skips the sort.
+// Not thread-safe; iterators fail fast, as in TreeMap.
+public class SortedArrayMap<K, V> extends AbstractMap<K, V> implements SortedMap<K, V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    private static final Object[] EMPTY = {};
+
+    private final Comparator<? super K> comparator;
+    private Object[] keys = EMPTY;
+    private Object[] values = EMPTY;
+    private int size;
+    private int modCount;
+
+    public SortedArrayMap() {
+        this((Comparator<? super K>) null);
+    }
+
+    public SortedArrayMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    public SortedArrayMap(int initialCapacity) {
+        this((Comparator<? super K>) null);
+        ensureCapacity(initialCapacity);
+    }
+
+    // Keeps the source's ordering; its entries arrive ascending, so this is one copy
+    public SortedArrayMap(SortedMap<K, ? extends V> source) {
+        this(source.comparator());
+        putAll(source);
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(Object a, Object b) {
+        return comparator != null ? comparator.compare((K) a, (K) b) : ((Comparable<Object>) a).compareTo(b);
+    }
+
+    // Index of key, or -(insertion point) - 1
+    private int search(Object key) {
+        if (key == null && comparator == null) throw new NullPointerException();
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compare(keys[mid], key);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    // Index of the first key >= key
+    private int ceilingIndex(Object key) {
+        int i = search(key);
+        return i >= 0 ? i : -(i + 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int i = search(key);
+        return i >= 0 ? (V) values[i] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return search(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        int i = search(key);
+        if (i >= 0) {
+            V old = (V) values[i];
+            values[i] = value;
+            return old;
+        }
+        i = -(i + 1);
+        ensureCapacity(size + 1);
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(values, i, values, i + 1, size - i);
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int i = search(key);
+        if (i < 0) return null;
+        V old = (V) values[i];
+        removeAt(i);
+        return old;
+    }
+
+    private void removeAt(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(values, i + 1, values, i, size - i - 1);
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    // Collects the entries, sorts them unless they already ascend (stable, so the last of
+    // several equal keys wins as with put), then merges them with the current contents
+    // in one pass: O(n + m) plus the sort, instead of m inserts that each shift the tail
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        int n = m.size();
+        if (n == 0) return;
+        Object[] newKeys = new Object[n];
+        Object[] newValues = new Object[n];
+        int count = 0;
+        boolean ascending = true;
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+            if (count == n) {
+                newKeys = Arrays.copyOf(newKeys, n + (n >> 1) + 1);
+                newValues = Arrays.copyOf(newValues, newKeys.length);
+                n = newKeys.length;
+            }
+            Object key = e.getKey();
+            if (key == null && comparator == null) throw new NullPointerException();
+            if (ascending && count > 0 && compare(newKeys[count - 1], key) >= 0) ascending = false;
+            newKeys[count] = key;
+            newValues[count] = e.getValue();
+            count++;
+        }
+        if (!ascending) count = sortAndCollapse(newKeys, newValues, count);
+        merge(newKeys, newValues, count);
+    }
+
+    private int sortAndCollapse(Object[] newKeys, Object[] newValues, int count) {
+        sortPairs(newKeys, newValues, count, this::compare);
+        int w = 0;
+        for (int i = 0; i < count; i++) {
+            if (w > 0 && compare(newKeys[w - 1], newKeys[i]) == 0) {
+                newValues[w - 1] = newValues[i];
+            } else {
+                newKeys[w] = newKeys[i];
+                newValues[w] = newValues[i];
+                w++;
+            }
+        }
+        Arrays.fill(newKeys, w, count, null);
+        Arrays.fill(newValues, w, count, null);
+        return w;
+    }
+
+    // Stable merge sort of keys[0..n) that moves each value with its key, using two
+    // scratch arrays rather than an entry object per row
+    static void sortPairs(Object[] keys, Object[] values, int n, Comparator<Object> order) {
+        Object[] keyCopy = Arrays.copyOf(keys, n);
+        Object[] valueCopy = Arrays.copyOf(values, n);
+        mergeSort(keyCopy, valueCopy, keys, values, 0, n, order);
+    }
+
+    // Sorts the src range into dest; both hold the same rows on entry
+    private static void mergeSort(Object[] srcKeys, Object[] srcValues, Object[] destKeys, Object[] destValues,
+                                  int low, int high, Comparator<Object> order) {
+        if (high - low < 7) {
+            for (int i = low + 1; i < high; i++) {
+                for (int j = i; j > low && order.compare(destKeys[j - 1], destKeys[j]) > 0; j--) {
+                    swap(destKeys, j - 1, j);
+                    swap(destValues, j - 1, j);
+                }
+            }
+            return;
+        }
+        int mid = (low + high) >>> 1;
+        mergeSort(destKeys, destValues, srcKeys, srcValues, low, mid, order);
+        mergeSort(destKeys, destValues, srcKeys, srcValues, mid, high, order);
+        if (order.compare(srcKeys[mid - 1], srcKeys[mid]) <= 0) {
+            System.arraycopy(srcKeys, low, destKeys, low, high - low);
+            System.arraycopy(srcValues, low, destValues, low, high - low);
+            return;
+        }
+        // Ties take the left row first, which keeps the sort stable
+        for (int i = low, p = low, q = mid; i < high; i++) {
+            if (q >= high || (p < mid && order.compare(srcKeys[p], srcKeys[q]) <= 0)) {
+                destKeys[i] = srcKeys[p];
+                destValues[i] = srcValues[p++];
+            } else {
+                destKeys[i] = srcKeys[q];
+                destValues[i] = srcValues[q++];
+            }
+        }
+    }
+
+    private static void swap(Object[] a, int i, int j) {
+        Object t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    // newKeys[0..count) strictly ascending; on equal keys the new value wins
+    private void merge(Object[] newKeys, Object[] newValues, int count) {
+        modCount++;
+        if (size == 0) {
+            keys = newKeys;
+            values = newValues;
+            size = count;
+            return;
+        }
+        if (compare(keys[size - 1], newKeys[0]) < 0) {
+            ensureCapacity(size + count);
+            System.arraycopy(newKeys, 0, keys, size, count);
+            System.arraycopy(newValues, 0, values, size, count);
+            size += count;
+            return;
+        }
+        int capacity = (int) Math.min(MAX_CAPACITY, (long) size + count);
+        Object[] mergedKeys = new Object[capacity];
+        Object[] mergedValues = new Object[capacity];
+        int i = 0, j = 0, w = 0;
+        while (i < size && j < count) {
+            int c = compare(keys[i], newKeys[j]);
+            if (c < 0) {
+                mergedKeys[w] = keys[i];
+                mergedValues[w++] = values[i++];
+            } else {
+                // The existing key object stays, as with put
+                mergedKeys[w] = c == 0 ? keys[i++] : newKeys[j];
+                mergedValues[w++] = newValues[j++];
+            }
+        }
+        while (i < size) {
+            mergedKeys[w] = keys[i];
+            mergedValues[w++] = values[i++];
+        }
+        while (j < count) {
+            mergedKeys[w] = newKeys[j];
+            mergedValues[w++] = newValues[j++];
+        }
+        keys = mergedKeys;
+        values = mergedValues;
+        size = w;
+    }
+
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity <= keys.length) return;
+        long grown = keys.length < DEFAULT_CAPACITY ? DEFAULT_CAPACITY : keys.length + (keys.length >> 1);
+        int capacity = (int) Math.min(MAX_CAPACITY, Math.max(minCapacity, grown));
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    public void trimToSize() {
+        if (size == keys.length) return;
+        keys = size == 0 ? EMPTY : Arrays.copyOf(keys, size);
+        values = size == 0 ? EMPTY : Arrays.copyOf(values, size);
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public K firstKey() {
+        if (size == 0) throw new NoSuchElementException();
+        return (K) keys[0];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public K lastKey() {
+        if (size == 0) throw new NoSuchElementException();
+        return (K) keys[size - 1];
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        if (compare(fromKey, toKey) > 0) throw new IllegalArgumentException("fromKey > toKey");
+        return new SubMap(fromKey, true, toKey, true);
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+        compare(toKey, toKey);
+        return new SubMap(null, false, toKey, true);
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+        compare(fromKey, fromKey);
+        return new SubMap(fromKey, true, null, false);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet(this) {
+            int from() {
+                return 0;
+            }
+
+            int to() {
+                return size;
+            }
+        };
+    }
+
+    private abstract class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        private final Map<K, V> owner;
+
+        EntrySet(Map<K, V> owner) {
+            this.owner = owner;
+        }
+
+        abstract int from();
+
+        abstract int to();
+
+        @Override
+        public int size() {
+            return Math.max(0, to() - from());
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry)) return false;
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            Object key = e.getKey();
+            return owner.containsKey(key) && Objects.equals(owner.get(key), e.getValue());
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator(from(), to());
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private int next;
+        private int end;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        EntryIterator(int from, int to) {
+            this.next = from;
+            this.end = to;
+        }
+
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            if (next >= end) throw new NoSuchElementException();
+            int i = next++;
+            last = i;
+            // setValue writes through, as TreeMap's entries do
+            return new AbstractMap.SimpleEntry<K, V>((K) keys[i], (V) values[i]) {
+                @Override
+                public V setValue(V value) {
+                    if (modCount != expectedModCount) throw new ConcurrentModificationException();
+                    values[i] = value;
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        public void remove() {
+            if (last < 0) throw new IllegalStateException();
+            if (modCount != expectedModCount) throw new ConcurrentModificationException();
+            removeAt(last);
+            next = last;
+            end--;
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    // Live view of the keys in [fromKey, toKey); the index range is found again on each
+    // call, so it follows inserts and removes in the backing map
+    private final class SubMap extends AbstractMap<K, V> implements SortedMap<K, V> {
+        private final K fromKey;
+        private final boolean hasFrom;
+        private final K toKey;
+        private final boolean hasTo;
+
+        SubMap(K fromKey, boolean hasFrom, K toKey, boolean hasTo) {
+            this.fromKey = fromKey;
+            this.hasFrom = hasFrom;
+            this.toKey = toKey;
+            this.hasTo = hasTo;
+        }
+
+        private int from() {
+            return hasFrom ? ceilingIndex(fromKey) : 0;
+        }
+
+        private int to() {
+            return hasTo ? ceilingIndex(toKey) : size;
+        }
+
+        private boolean inRange(Object key) {
+            return (!hasFrom || compare(key, fromKey) >= 0) && (!hasTo || compare(key, toKey) < 0);
+        }
+
+        private void checkRange(Object key) {
+            if (!inRange(key) && !(hasTo && compare(key, toKey) == 0)) {
+                throw new IllegalArgumentException("key out of range");
+            }
+        }
+
+        @Override
+        public int size() {
+            return Math.max(0, to() - from());
+        }
+
+        @Override
+        public V get(Object key) {
+            return inRange(key) ? SortedArrayMap.this.get(key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return inRange(key) && SortedArrayMap.this.containsKey(key);
+        }
+
+        @Override
+        public V put(K key, V value) {
+            if (!inRange(key)) throw new IllegalArgumentException("key out of range");
+            return SortedArrayMap.this.put(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return inRange(key) ? SortedArrayMap.this.remove(key) : null;
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new EntrySet(this) {
+                int from() {
+                    return SubMap.this.from();
+                }
+
+                int to() {
+                    return SubMap.this.to();
+                }
+            };
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return comparator;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K firstKey() {
+            int i = from();
+            if (i >= to()) throw new NoSuchElementException();
+            return (K) keys[i];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K lastKey() {
+            int i = to() - 1;
+            if (i < from()) throw new NoSuchElementException();
+            return (K) keys[i];
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(K from, K to) {
+            checkRange(from);
+            checkRange(to);
+            if (compare(from, to) > 0) throw new IllegalArgumentException("fromKey > toKey");
+            return new SubMap(from, true, to, true);
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(K to) {
+            checkRange(to);
+            return new SubMap(fromKey, hasFrom, to, true);
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(K from) {
+            checkRange(from);
+            return new SubMap(from, true, toKey, hasTo);
+        }
+    }
+}
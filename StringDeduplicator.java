@@ -0,0 +1,117 @@
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded canonicalization table for strings parsed during an import, so a value that
+// repeats on many rows (a country, a status, a category) is stored once and every row
+// refers to the same String. Unlike String.intern() the table has a fixed number of
+// slots and never grows: each slot holds the last string that hashed to it, so
+// low-cardinality values stay resident while one-off values just pass through. ASCII
+// text is matched against the slot straight from the CSV bytes, so a duplicate is never
+// decoded at all. Safe to share between parse threads; a racing replacement of a slot
+// only costs a missed match.
+public final class StringDeduplicator {
+
+    public static final int DEFAULT_SLOTS = 1 << 16;
+    public static final int MAX_SLOTS = 1 << 24;
+
+    private final String[] table;
+    private final int shift;
+    private final LongAdder strings = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    public StringDeduplicator() {
+        this(DEFAULT_SLOTS);
+    }
+
+    // Rounded up to a power of two
+    public StringDeduplicator(int slots) {
+        if (slots < 1 || slots > MAX_SLOTS) {
+            throw new IllegalArgumentException("Deduplication table size must be between 1 and " + MAX_SLOTS + ": " + slots);
+        }
+        int size = slots <= 2 ? 2 : Integer.highestOneBit(slots - 1) << 1;
+        table = new String[size];
+        shift = Integer.SIZE - Integer.numberOfTrailingZeros(size);
+    }
+
+    public int slots() {
+        return table.length;
+    }
+
+    // UTF-8 bytes[from..to) as a String, the canonical instance when one is in the table
+    public String dedup(byte[] bytes, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            int b = bytes[i];
+            if (b < 0) return dedup(new String(bytes, from, to - from, StandardCharsets.UTF_8));
+            h = 31 * h + b;
+        }
+        // For ASCII, h is exactly the decoded string's hashCode()
+        int slot = slot(h);
+        String candidate = table[slot];
+        if (candidate != null && candidate.hashCode() == h && sameAscii(candidate, bytes, from, to)) {
+            return hit(candidate);
+        }
+        String s = new String(bytes, from, to - from, StandardCharsets.ISO_8859_1);
+        table[slot] = s;
+        strings.increment();
+        return s;
+    }
+
+    public String dedup(String s) {
+        int slot = slot(s.hashCode());
+        String candidate = table[slot];
+        if (candidate != null && candidate.equals(s)) return hit(candidate);
+        table[slot] = s;
+        strings.increment();
+        return s;
+    }
+
+    private String hit(String canonical) {
+        strings.increment();
+        duplicates.increment();
+        savedBytes.add(HeapFootprint.stringSize(canonical));
+        return canonical;
+    }
+
+    private int slot(int h) {
+        return (h * 0x9E3779B9) >>> shift;
+    }
+
+    private static boolean sameAscii(String s, byte[] bytes, int from, int to) {
+        if (s.length() != to - from) return false;
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i - from) != bytes[i]) return false;
+        }
+        return true;
+    }
+
+    public Stats stats() {
+        return new Stats(strings.sum(), duplicates.sum(), savedBytes.sum(), table.length);
+    }
+
+    public static class Stats {
+        public final long strings;
+        // Strings replaced by an instance already in the table
+        public final long duplicates;
+        // Heap the duplicates would have taken as separate String objects
+        public final long savedBytes;
+        public final int slots;
+
+        Stats(long strings, long duplicates, long savedBytes, int slots) {
+            this.strings = strings;
+            this.duplicates = duplicates;
+            this.savedBytes = savedBytes;
+            this.slots = slots;
+        }
+
+        public double duplicateRatio() {
+            return strings == 0 ? 0 : duplicates / (double) strings;
+        }
+
+        public String summary() {
+            return String.format("Deduplicated %,d of %,d strings (%.1f%%), saving %s (%,d-slot table)",
+                duplicates, strings, 100 * duplicateRatio(), EmpiricalAdvisor.formatBytes(savedBytes), slots);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Thread-safe sorted map built from several TreeMaps, each guarded by its own
+// read-write lock. Keys are assigned to a stripe by hash, so writers to different
+// stripes never wait for each other, unlike Collections.synchronizedSortedMap where
+// every writer takes the same lock. Point operations cost one O(log n/stripes) tree
+// lookup; iteration merges per-stripe snapshots back into key order.
+public class StripedTreeMap<K extends Comparable<? super K>, V> extends AbstractMap<K, V>
+        implements ConcurrentMap<K, V> {
+
+    private final TreeMap<K, V>[] stripes;
+    private final ReadWriteLock[] locks;
+    private final int mask;
+
+    public StripedTreeMap() {
+        this(defaultStripes());
+    }
+
+    @SuppressWarnings("unchecked")
+    public StripedTreeMap(int stripeCount) {
+        if (stripeCount < 1) throw new IllegalArgumentException("Stripe count must be positive: " + stripeCount);
+        int count = Integer.highestOneBit(stripeCount - 1) << 1;
+        if (stripeCount == 1) count = 1;
+        stripes = (TreeMap<K, V>[]) new TreeMap<?, ?>[count];
+        locks = new ReadWriteLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new TreeMap<>();
+            locks[i] = new ReentrantReadWriteLock();
+        }
+        mask = count - 1;
+    }
+
+    // Enough stripes that two busy cores rarely land on the same lock
+    private static int defaultStripes() {
+        return Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    private int stripe(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    @Override
+    public V get(Object key) {
+        int s = stripe(key);
+        locks[s].readLock().lock();
+        try {
+            return stripes[s].get(key);
+        } finally {
+            locks[s].readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int s = stripe(key);
+        locks[s].readLock().lock();
+        try {
+            return stripes[s].containsKey(key);
+        } finally {
+            locks[s].readLock().unlock();
+        }
+    }
+
+    @Override
+    public V put(K key, V value) {
+        checkNotNull(key, value);
+        int s = stripe(key);
+        locks[s].writeLock().lock();
+        try {
+            return stripes[s].put(key, value);
+        } finally {
+            locks[s].writeLock().unlock();
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        int s = stripe(key);
+        locks[s].writeLock().lock();
+        try {
+            return stripes[s].remove(key);
+        } finally {
+            locks[s].writeLock().unlock();
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        checkNotNull(key, value);
+        int s = stripe(key);
+        locks[s].writeLock().lock();
+        try {
+            V current = stripes[s].get(key);
+            if (current == null) stripes[s].put(key, value);
+            return current;
+        } finally {
+            locks[s].writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        int s = stripe(key);
+        locks[s].writeLock().lock();
+        try {
+            V current = stripes[s].get(key);
+            if (current == null || !current.equals(value)) return false;
+            stripes[s].remove(key);
+            return true;
+        } finally {
+            locks[s].writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        checkNotNull(key, newValue);
+        int s = stripe(key);
+        locks[s].writeLock().lock();
+        try {
+            V current = stripes[s].get(key);
+            if (current == null || !current.equals(oldValue)) return false;
+            stripes[s].put(key, newValue);
+            return true;
+        } finally {
+            locks[s].writeLock().unlock();
+        }
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        checkNotNull(key, value);
+        int s = stripe(key);
+        locks[s].writeLock().lock();
+        try {
+            return stripes[s].containsKey(key) ? stripes[s].put(key, value) : null;
+        } finally {
+            locks[s].writeLock().unlock();
+        }
+    }
+
+    // Like ConcurrentHashMap, nulls are rejected so a null result always means "absent"
+    private static void checkNotNull(Object key, Object value) {
+        if (key == null || value == null) throw new NullPointerException("StripedTreeMap does not accept null keys or values");
+    }
+
+    // Sum of the stripe sizes; like ConcurrentHashMap.size() it is only a snapshot
+    @Override
+    public int size() {
+        int size = 0;
+        for (int s = 0; s < stripes.length; s++) {
+            locks[s].readLock().lock();
+            try {
+                size += stripes[s].size();
+            } finally {
+                locks[s].readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int s = 0; s < stripes.length; s++) {
+            locks[s].writeLock().lock();
+            try {
+                stripes[s].clear();
+            } finally {
+                locks[s].writeLock().unlock();
+            }
+        }
+    }
+
+    public K firstKey() {
+        K first = null;
+        for (int s = 0; s < stripes.length; s++) {
+            locks[s].readLock().lock();
+            try {
+                if (!stripes[s].isEmpty()) {
+                    K key = stripes[s].firstKey();
+                    if (first == null || key.compareTo(first) < 0) first = key;
+                }
+            } finally {
+                locks[s].readLock().unlock();
+            }
+        }
+        if (first == null) throw new NoSuchElementException();
+        return first;
+    }
+
+    public K lastKey() {
+        K last = null;
+        for (int s = 0; s < stripes.length; s++) {
+            locks[s].readLock().lock();
+            try {
+                if (!stripes[s].isEmpty()) {
+                    K key = stripes[s].lastKey();
+                    if (last == null || key.compareTo(last) > 0) last = key;
+                }
+            } finally {
+                locks[s].readLock().unlock();
+            }
+        }
+        if (last == null) throw new NoSuchElementException();
+        return last;
+    }
+
+    // Sorted copy of the whole map; each stripe is consistent, the map as a whole is not
+    // an atomic snapshot
+    public TreeMap<K, V> snapshot() {
+        TreeMap<K, V> copy = new TreeMap<>();
+        for (Map.Entry<K, V> entry : entrySet()) copy.put(entry.getKey(), entry.getValue());
+        return copy;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            public int size() {
+                return StripedTreeMap.this.size();
+            }
+
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return mergedIterator();
+            }
+        };
+    }
+
+    // Copies every stripe under its read lock, then merges the sorted copies with a
+    // heap keyed on each copy's next entry
+    private Iterator<Map.Entry<K, V>> mergedIterator() {
+        List<Iterator<Map.Entry<K, V>>> copies = new ArrayList<>(stripes.length);
+        for (int s = 0; s < stripes.length; s++) {
+            locks[s].readLock().lock();
+            try {
+                if (stripes[s].isEmpty()) continue;
+                List<Map.Entry<K, V>> entries = new ArrayList<>(stripes[s].size());
+                for (Map.Entry<K, V> entry : stripes[s].entrySet()) {
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+                }
+                copies.add(entries.iterator());
+            } finally {
+                locks[s].readLock().unlock();
+            }
+        }
+
+        PriorityQueue<Head<K, V>> heap = new PriorityQueue<>(Math.max(1, copies.size()));
+        for (Iterator<Map.Entry<K, V>> copy : copies) heap.add(new Head<>(copy.next(), copy));
+
+        return new Iterator<Map.Entry<K, V>>() {
+            private K lastReturned;
+
+            public boolean hasNext() {
+                return !heap.isEmpty();
+            }
+
+            public Map.Entry<K, V> next() {
+                Head<K, V> head = heap.poll();
+                if (head == null) throw new NoSuchElementException();
+                if (head.rest.hasNext()) heap.add(new Head<>(head.rest.next(), head.rest));
+                lastReturned = head.entry.getKey();
+                return head.entry;
+            }
+
+            public void remove() {
+                if (lastReturned == null) throw new IllegalStateException();
+                StripedTreeMap.this.remove(lastReturned);
+                lastReturned = null;
+            }
+        };
+    }
+
+    private static final class Head<K extends Comparable<? super K>, V> implements Comparable<Head<K, V>> {
+        final Map.Entry<K, V> entry;
+        final Iterator<Map.Entry<K, V>> rest;
+
+        Head(Map.Entry<K, V> entry, Iterator<Map.Entry<K, V>> rest) {
+            this.entry = entry;
+            this.rest = rest;
+        }
+
+        public int compareTo(Head<K, V> other) {
+            return entry.getKey().compareTo(other.entry.getKey());
+        }
+    }
+}
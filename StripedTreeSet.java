@@ -0,0 +1,62 @@
+import java.util.*;
+
+// Thread-safe sorted set over a StripedTreeMap, in the same way TreeSet is a view of a
+// TreeMap: elements are assigned to a stripe by hash, so writers to different stripes
+// never wait for each other, and iteration merges the stripes back into sorted order.
+// For write-heavy sets with many threads, where ConcurrentSkipListSet writers retry
+// their CAS on the same few index levels.
+public class StripedTreeSet<E extends Comparable<? super E>> extends AbstractSet<E> {
+
+    private final StripedTreeMap<E, Boolean> map;
+
+    public StripedTreeSet() {
+        map = new StripedTreeMap<>();
+    }
+
+    public StripedTreeSet(int stripeCount) {
+        map = new StripedTreeMap<>(stripeCount);
+    }
+
+    public int stripeCount() {
+        return map.stripeCount();
+    }
+
+    @Override
+    public boolean add(E e) {
+        return map.putIfAbsent(e, Boolean.TRUE) == null;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return map.containsKey(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return map.remove(o) != null;
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+
+    public E first() {
+        return map.firstKey();
+    }
+
+    public E last() {
+        return map.lastKey();
+    }
+
+    // Sorted; each stripe is copied under its read lock, as in StripedTreeMap.entrySet()
+    @Override
+    public Iterator<E> iterator() {
+        return map.keySet().iterator();
+    }
+}
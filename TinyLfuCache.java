@@ -0,0 +1,316 @@
+import java.util.*;
+
+// Bounded cache with W-TinyLFU admission and eviction. New entries enter a small LRU
+// window (1% of the capacity); an entry pushed out of the window only gets into the main
+// area if it has been requested more often than the entry it would displace, judged by a
+// count-min sketch of recent request frequencies. The main area is a segmented LRU: a hit
+// in the probation segment promotes an entry to the protected segment (80% of the main
+// area). This keeps popular keys through a one-off scan that would flush a plain LRU.
+// Not thread-safe.
+public class TinyLfuCache<K, V> extends AbstractMap<K, V> {
+
+    private static final int WINDOW = 0, PROBATION = 1, PROTECTED = 2;
+
+    private final int capacity;
+    private final int windowCapacity;
+    private final int protectedCapacity;
+    private final HashMap<K, Node<K, V>> data;
+    private final Node<K, V>[] heads;
+    private final int[] sizes = new int[3];
+    private final FrequencySketch sketch;
+    private long evictions;
+
+    public TinyLfuCache() {
+        this(LruLinkedHashMap.DEFAULT_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    public TinyLfuCache(int capacity) {
+        LruLinkedHashMap.checkCapacity(capacity);
+        this.capacity = capacity;
+        windowCapacity = Math.max(1, capacity / 100);
+        protectedCapacity = (int) ((capacity - windowCapacity) * 0.8);
+        data = new HashMap<>(CollectionRegistry.tableCapacity(capacity + 1, CollectionRegistry.DEFAULT_LOAD_FACTOR));
+        heads = (Node<K, V>[]) new Node<?, ?>[3];
+        for (int q = 0; q < 3; q++) {
+            Node<K, V> head = new Node<>(null, null, q);
+            head.prev = head;
+            head.next = head;
+            heads[q] = head;
+        }
+        sketch = new FrequencySketch(capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = data.get(key);
+        if (key != null) sketch.increment(key);
+        if (node == null) return null;
+        onHit(node);
+        return node.value;
+    }
+
+    // Does not count as a request
+    @Override
+    public boolean containsKey(Object key) {
+        return data.containsKey(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (key == null || value == null) throw new NullPointerException("TinyLfuCache does not accept null keys or values");
+        sketch.increment(key);
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            V old = node.value;
+            node.value = value;
+            onHit(node);
+            return old;
+        }
+        node = new Node<>(key, value, WINDOW);
+        data.put(key, node);
+        link(node, WINDOW);
+        evict();
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        Node<K, V> node = data.remove(key);
+        if (node == null) return null;
+        unlink(node);
+        return node.value;
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public void clear() {
+        data.clear();
+        for (int q = 0; q < 3; q++) {
+            heads[q].prev = heads[q];
+            heads[q].next = heads[q];
+            sizes[q] = 0;
+        }
+        sketch.clear();
+    }
+
+    // Window and protected hits move to the back of their LRU order; a probation hit
+    // earns promotion, pushing the protected segment's least recent entry back to probation
+    private void onHit(Node<K, V> node) {
+        if (node.queue == PROBATION) {
+            unlink(node);
+            link(node, PROTECTED);
+            if (sizes[PROTECTED] > protectedCapacity) {
+                Node<K, V> demoted = heads[PROTECTED].next;
+                unlink(demoted);
+                link(demoted, PROBATION);
+            }
+        } else {
+            int queue = node.queue;
+            unlink(node);
+            link(node, queue);
+        }
+    }
+
+    // Runs after every insert: the window's oldest entry becomes a candidate for the main
+    // area and, when the cache is over capacity, competes with probation's least recent
+    // entry on estimated frequency; the less frequent one is evicted
+    private void evict() {
+        Node<K, V> candidate = null;
+        if (sizes[WINDOW] > windowCapacity) {
+            candidate = heads[WINDOW].next;
+            unlink(candidate);
+            link(candidate, PROBATION);
+        }
+        if (data.size() <= capacity) return;
+
+        Node<K, V> victim = first(PROBATION);
+        if (victim == candidate) victim = first(PROTECTED);
+        if (victim == null) victim = first(WINDOW);
+        Node<K, V> evicted;
+        if (candidate == null || victim == null) {
+            evicted = candidate != null ? candidate : victim;
+        } else {
+            evicted = sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+        }
+        unlink(evicted);
+        data.remove(evicted.key);
+        evictions++;
+    }
+
+    private Node<K, V> first(int queue) {
+        Node<K, V> node = heads[queue].next;
+        return node != heads[queue] ? node : null;
+    }
+
+    private void link(Node<K, V> node, int queue) {
+        Node<K, V> head = heads[queue];
+        node.queue = queue;
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+        sizes[queue]++;
+    }
+
+    private void unlink(Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        sizes[node.queue]--;
+    }
+
+    // Iteration order is hash order and does not count as a request
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            public int size() {
+                return data.size();
+            }
+
+            public Iterator<Map.Entry<K, V>> iterator() {
+                Iterator<Node<K, V>> it = data.values().iterator();
+                return new Iterator<Map.Entry<K, V>>() {
+                    private Node<K, V> lastReturned;
+
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    public Map.Entry<K, V> next() {
+                        lastReturned = it.next();
+                        return lastReturned;
+                    }
+
+                    public void remove() {
+                        if (lastReturned == null) throw new IllegalStateException();
+                        it.remove();
+                        unlink(lastReturned);
+                        lastReturned = null;
+                    }
+                };
+            }
+        };
+    }
+
+    private static final class Node<K, V> implements Map.Entry<K, V> {
+        final K key;
+        V value;
+        int queue;
+        Node<K, V> prev, next;
+
+        Node(K key, V value, int queue) {
+            this.key = key;
+            this.value = value;
+            this.queue = queue;
+        }
+
+        public K getKey() { return key; }
+        public V getValue() { return value; }
+
+        public V setValue(V value) {
+            if (value == null) throw new NullPointerException();
+            V old = this.value;
+            this.value = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) return false;
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return Objects.equals(key, e.getKey()) && Objects.equals(value, e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+    }
+
+    // Count-min sketch with four 4-bit counters per key, packed sixteen to a long. Once
+    // the number of increments reaches ten times the cache capacity every counter is
+    // halved, so the estimates follow recent popularity rather than all-time totals.
+    static final class FrequencySketch {
+        private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int length = Integer.highestOneBit(Math.max(16, Math.min(capacity, 1 << 24)) - 1) << 1;
+            table = new long[length];
+            mask = length - 1;
+            sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * capacity);
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            int frequency = 15;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                added |= incrementAt(indexOf(hash, i), start + i);
+            }
+            if (added && ++additions == sampleSize) reset();
+        }
+
+        private boolean incrementAt(int index, int counter) {
+            int offset = counter << 2;
+            long counterMask = 0xfL << offset;
+            if ((table[index] & counterMask) == counterMask) return false;
+            table[index] += 1L << offset;
+            return true;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) table[i] = (table[i] >>> 1) & RESET_MASK;
+            additions /= 2;
+        }
+
+        void clear() {
+            Arrays.fill(table, 0L);
+            additions = 0;
+        }
+
+        private int indexOf(int hash, int i) {
+            long h = (SEEDS[i] + hash) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h & mask;
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+import java.util.*;
+
+// Replays a WorkloadTrace at full speed against candidate collection classes and
+// compares throughput, per-operation latency and allocation. Every pass starts from a
+// fresh empty instance and runs the whole trace, so each class sees exactly the same
+// sequence. Candidates are registry names or fully qualified names of any Collection
+// or Map class with a public no-arg constructor.
+public class TraceReplayer {
+
+    public static class Result {
+        public final String className;
+        public final long passes;
+        public final double opsPerSecond;
+        public final LatencyHistogram.Snapshot latency;
+        // -1 when the JVM cannot report per-thread allocation
+        public final double bytesPerOp;
+        public final double allocationMBPerSecond;
+        public final String error;
+
+        Result(String className, long passes, double opsPerSecond, LatencyHistogram.Snapshot latency,
+               double bytesPerOp, double allocationMBPerSecond, String error) {
+            this.className = className;
+            this.passes = passes;
+            this.opsPerSecond = opsPerSecond;
+            this.latency = latency;
+            this.bytesPerOp = bytesPerOp;
+            this.allocationMBPerSecond = allocationMBPerSecond;
+            this.error = error;
+        }
+
+        public boolean failed() {
+            return error != null;
+        }
+    }
+
+    private final WorkloadTrace trace;
+    private long trialNanos = 1_000_000_000L;
+    private volatile boolean cancelled;
+    private volatile long sink;
+
+    public TraceReplayer(WorkloadTrace trace) {
+        if (trace.size() == 0) throw new IllegalArgumentException("Trace contains no operations");
+        this.trace = trace;
+    }
+
+    // Minimum time spent replaying each class; at least one full pass always runs
+    public TraceReplayer trialMillis(long millis) {
+        this.trialNanos = millis * 1_000_000L;
+        return this;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // Registry classes of the trace's family (map vs collection) that can hold its keys.
+    // Caches are left out: they drop entries, so CacheSimulator compares them instead.
+    public static List<String> candidates(WorkloadTrace trace) {
+        boolean keyValue = trace.isKeyValue();
+        CsvImporter.NumericProfile keys = trace.keyProfile();
+        List<String> names = new ArrayList<>();
+        for (String name : CollectionRegistry.names()) {
+            if (CollectionRegistry.isKeyValue(name) != keyValue || CollectionRegistry.isBounded(name)) continue;
+            if (!CollectionRegistry.accepts(name, keys)) continue;
+            names.add(name);
+        }
+        return names;
+    }
+
+    public List<Result> run(List<String> classNames, EmpiricalAdvisor.Listener listener) {
+        // Warm every candidate first so the shared replay loop is compiled before any
+        // class is measured, as EmpiricalAdvisor does
+        for (String name : classNames) {
+            if (cancelled) break;
+            try {
+                long deadline = System.nanoTime() + trialNanos / 4;
+                do {
+                    replay(newOps(name), null);
+                } while (System.nanoTime() < deadline && !cancelled);
+            } catch (Exception | LinkageError e) {
+                // reported by the measured run
+            }
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (int c = 0; c < classNames.size() && !cancelled; c++) {
+            String name = classNames.get(c);
+            if (listener != null) listener.trialStarted(name, c, classNames.size());
+            try {
+                results.add(measure(name));
+            } catch (Exception | LinkageError e) {
+                String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                results.add(new Result(name, 0, 0, null, -1, -1, message));
+            }
+        }
+        results.sort((a, b) -> {
+            if (a.failed() != b.failed()) return a.failed() ? 1 : -1;
+            return Double.compare(b.opsPerSecond, a.opsPerSecond);
+        });
+        return results;
+    }
+
+    private Result measure(String className) throws Exception {
+        // Throughput pass: whole-trace passes with no per-op clock reads
+        long passes = 0;
+        long allocatedBefore = AllocationProfiler.threadAllocatedBytes();
+        long start = System.nanoTime();
+        long now;
+        do {
+            replay(newOps(className), null);
+            passes++;
+            now = System.nanoTime();
+        } while (now - start < trialNanos / 2 && !cancelled);
+        long allocated = AllocationProfiler.threadAllocatedBytes() - allocatedBefore;
+        double seconds = (now - start) / 1e9;
+        long operations = passes * trace.size();
+        double opsPerSecond = operations / seconds;
+        double bytesPerOp = allocatedBefore < 0 ? -1 : allocated / (double) operations;
+        double allocationRate = allocatedBefore < 0 ? -1 : allocated / (1024.0 * 1024.0) / seconds;
+
+        // Latency pass: every operation timed into a histogram
+        LatencyHistogram histogram = new LatencyHistogram();
+        long deadline = System.nanoTime() + trialNanos / 2;
+        do {
+            replay(newOps(className), histogram);
+        } while (System.nanoTime() < deadline && !cancelled);
+
+        return new Result(className, passes, opsPerSecond, histogram.snapshot(), bytesPerOp, allocationRate, null);
+    }
+
+    private void replay(CollectionOps target, LatencyHistogram histogram) {
+        boolean keyValue = target.isKeyValue();
+        Object collection = target.target();
+        long acc = 0;
+        for (int i = 0, n = trace.size(); i < n && !cancelled; i++) {
+            long t0 = histogram != null ? System.nanoTime() : 0;
+            String key = trace.key(i);
+            switch (trace.op(i)) {
+                case ADD:
+                    if (keyValue) target.put(key, key);
+                    else target.add(key);
+                    break;
+                case PUT:
+                    if (keyValue) target.put(key, trace.value(i));
+                    else target.add(key);
+                    break;
+                case REMOVE:
+                    if (target.remove(key)) acc++;
+                    break;
+                case CONTAINS:
+                    if (target.contains(key)) acc++;
+                    break;
+                case GET:
+                    if (keyValue) {
+                        if (target.get(key) != null) acc++;
+                    } else if (target.contains(key)) {
+                        acc++;
+                    }
+                    break;
+                case ITERATE:
+                    acc += iterate(collection);
+                    break;
+                default:
+                    target.clear();
+            }
+            if (histogram != null) histogram.record(System.nanoTime() - t0);
+        }
+        sink += acc;
+    }
+
+    private static long iterate(Object collection) {
+        Iterable<?> items = collection instanceof Map ? ((Map<?, ?>) collection).entrySet()
+            : collection instanceof Iterable ? (Iterable<?>) collection : Collections.emptyList();
+        long acc = 0;
+        for (Object item : items) acc += item.hashCode();
+        return acc;
+    }
+
+    private CollectionOps newOps(String className) throws Exception {
+        return CollectionOps.of(newInstance(className));
+    }
+
+    // Registry name, or a Collection/Map class on the classpath
+    static Object newInstance(String className) throws Exception {
+        if (CollectionRegistry.contains(className)) return CollectionRegistry.newInstance(className);
+        Class<?> clazz;
+        try {
+            clazz = Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Class not found: " + className);
+        }
+        if (!Collection.class.isAssignableFrom(clazz) && !Map.class.isAssignableFrom(clazz)) {
+            throw new IllegalArgumentException(className + " is not a Collection or Map");
+        }
+        return clazz.getDeclaredConstructor().newInstance();
+    }
+
+    public static String report(List<Result> results, WorkloadTrace trace) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Trace replay\n");
+        sb.append("Trace: ").append(trace.summary()).append("\n\n");
+        Result fastest = null, lowestP99 = null, leastAllocation = null;
+        int rank = 1;
+        for (Result r : results) {
+            if (r.failed()) {
+                sb.append(String.format("-. %s\n   failed: %s\n", r.className, r.error));
+                continue;
+            }
+            LatencyHistogram.Snapshot s = r.latency;
+            sb.append(String.format("%d. %s\n   %,.0f ops/s  |  p50 %s  |  p99 %s  |  p99.9 %s  |  max %s\n",
+                rank++, r.className, r.opsPerSecond,
+                LatencyHistogram.formatNanos(s.percentile(50)), LatencyHistogram.formatNanos(s.percentile(99)),
+                LatencyHistogram.formatNanos(s.percentile(99.9)), LatencyHistogram.formatNanos(s.max)));
+            if (r.bytesPerOp >= 0) {
+                sb.append(String.format("   %,.1f bytes allocated per op  |  %,.1f MB/s allocation\n",
+                    r.bytesPerOp, r.allocationMBPerSecond));
+            }
+            if (fastest == null) fastest = r;
+            if (lowestP99 == null || s.percentile(99) < lowestP99.latency.percentile(99)) lowestP99 = r;
+            if (r.bytesPerOp >= 0 && (leastAllocation == null || r.bytesPerOp < leastAllocation.bytesPerOp)) {
+                leastAllocation = r;
+            }
+        }
+        if (fastest == null) {
+            sb.append("No replay completed.\n");
+            return sb.toString();
+        }
+        sb.append("\nHighest throughput: ").append(fastest.className).append("\n");
+        sb.append("Lowest p99 latency: ").append(lowestP99.className).append("\n");
+        if (leastAllocation != null) sb.append("Least allocation: ").append(leastAllocation.className).append("\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,166 @@
+import java.util.*;
+import java.util.function.LongSupplier;
+
+// Bounded cache whose entries expire a fixed time after they were last written. Entries
+// are kept in write order, which with a single TTL is also expiry order, so expired
+// entries are dropped from the front: on every write, and lazily when a read finds one.
+// When a write takes the cache past capacity the oldest write is evicted even if it has
+// not expired yet. Every method locks the cache, so it is thread-safe, but all threads
+// share the one lock.
+public class TtlCache<K, V> extends AbstractMap<K, V> {
+
+    public static final long DEFAULT_TTL_MILLIS = 60_000;
+
+    private final int capacity;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Timed<V>> data;
+    private long evictions;
+    private long expirations;
+
+    public TtlCache() {
+        this(LruLinkedHashMap.DEFAULT_CAPACITY, DEFAULT_TTL_MILLIS);
+    }
+
+    public TtlCache(int capacity, long ttlMillis) {
+        this(capacity, ttlMillis, System::nanoTime);
+    }
+
+    // clock returns nanoseconds; a simulation passes a logical clock
+    public TtlCache(int capacity, long ttlMillis, LongSupplier clock) {
+        LruLinkedHashMap.checkCapacity(capacity);
+        if (ttlMillis <= 0) throw new IllegalArgumentException("TTL must be positive: " + ttlMillis);
+        this.capacity = capacity;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.clock = clock;
+        data = new LinkedHashMap<>(CollectionRegistry.tableCapacity(capacity + 1, CollectionRegistry.DEFAULT_LOAD_FACTOR));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long ttlMillis() {
+        return ttlNanos / 1_000_000L;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized long expirations() {
+        return expirations;
+    }
+
+    @Override
+    public synchronized V get(Object key) {
+        Timed<V> timed = data.get(key);
+        if (timed == null) return null;
+        if (clock.getAsLong() - timed.expiresAt >= 0) {
+            data.remove(key);
+            expirations++;
+            return null;
+        }
+        return timed.value;
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public synchronized V put(K key, V value) {
+        if (key == null || value == null) throw new NullPointerException("TtlCache does not accept null keys or values");
+        long now = clock.getAsLong();
+        expire(now);
+        // Removing first moves a rewritten key to the back of the write order
+        Timed<V> old = data.remove(key);
+        data.put(key, new Timed<>(value, now + ttlNanos));
+        if (data.size() > capacity) {
+            Iterator<Timed<V>> oldest = data.values().iterator();
+            oldest.next();
+            oldest.remove();
+            evictions++;
+        }
+        return old != null ? old.value : null;
+    }
+
+    @Override
+    public synchronized V remove(Object key) {
+        Timed<V> old = data.remove(key);
+        return old != null ? old.value : null;
+    }
+
+    // Drops expired entries first, so the count only includes live ones
+    @Override
+    public synchronized int size() {
+        expire(clock.getAsLong());
+        return data.size();
+    }
+
+    @Override
+    public synchronized void clear() {
+        data.clear();
+    }
+
+    private void expire(long now) {
+        Iterator<Timed<V>> it = data.values().iterator();
+        while (it.hasNext() && now - it.next().expiresAt >= 0) {
+            it.remove();
+            expirations++;
+        }
+    }
+
+    private synchronized List<Map.Entry<K, V>> liveEntries() {
+        expire(clock.getAsLong());
+        List<Map.Entry<K, V>> entries = new ArrayList<>(data.size());
+        for (Map.Entry<K, Timed<V>> entry : data.entrySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().value));
+        }
+        return entries;
+    }
+
+    // Iterates over a copy of the live entries, oldest write first
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            public int size() {
+                return TtlCache.this.size();
+            }
+
+            public Iterator<Map.Entry<K, V>> iterator() {
+                Iterator<Map.Entry<K, V>> it = liveEntries().iterator();
+                return new Iterator<Map.Entry<K, V>>() {
+                    private K lastReturned;
+
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    public Map.Entry<K, V> next() {
+                        Map.Entry<K, V> entry = it.next();
+                        lastReturned = entry.getKey();
+                        return entry;
+                    }
+
+                    public void remove() {
+                        if (lastReturned == null) throw new IllegalStateException();
+                        TtlCache.this.remove(lastReturned);
+                        lastReturned = null;
+                    }
+                };
+            }
+        };
+    }
+
+    private static final class Timed<V> {
+        final V value;
+        final long expiresAt;
+
+        Timed(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
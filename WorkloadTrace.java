@@ -0,0 +1,298 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// A recorded sequence of collection operations, replayed by TraceReplayer. Traces are
+// captured from the UI through record(), read from a trace file, or derived from an
+// access log. The file format is one operation per line, tab separated:
+//
+//   # comment
+//   put<TAB>key<TAB>value
+//   get<TAB>key
+//   iterate
+//
+// Tabs, newlines and backslashes inside keys and values are backslash-escaped.
+public class WorkloadTrace {
+
+    public enum Op {
+        ADD, PUT, REMOVE, CONTAINS, GET, ITERATE, CLEAR;
+
+        final String label = name().toLowerCase(Locale.ROOT);
+
+        static Op parse(String text) {
+            for (Op op : values()) {
+                if (op.label.equals(text)) return op;
+            }
+            throw new IllegalArgumentException("Unknown operation: " + text);
+        }
+    }
+
+    // Common/combined log format request line: "GET /path HTTP/1.1"
+    public static final String DEFAULT_LOG_PATTERN =
+        "\"(?<op>GET|HEAD|POST|PUT|PATCH|DELETE) (?<key>[^ \"]+)[^\"]*\"";
+
+    private static final String HEADER = "# collection-advisor trace v1";
+
+    private byte[] ops = new byte[1024];
+    private String[] keys = new String[1024];
+    private String[] values = new String[1024];
+    private int size;
+
+    // Synchronized because unordered parallel imports insert from several workers
+    public synchronized void append(Op op, String key, String value) {
+        if (size == ops.length) {
+            int capacity = size * 2;
+            ops = Arrays.copyOf(ops, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        ops[size] = (byte) op.ordinal();
+        keys[size] = key;
+        values[size] = value;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Op op(int index) {
+        return Op.values()[ops[index]];
+    }
+
+    public String key(int index) {
+        return keys[index];
+    }
+
+    public String value(int index) {
+        return values[index];
+    }
+
+    // Traces that put or get by key are replayed against maps, others against collections
+    public boolean isKeyValue() {
+        for (int i = 0; i < size; i++) {
+            if (ops[i] == Op.PUT.ordinal() || ops[i] == Op.GET.ordinal()) return true;
+        }
+        return false;
+    }
+
+    public CsvImporter.NumericProfile keyProfile() {
+        CsvImporter.NumericProfile profile = new CsvImporter.NumericProfile();
+        for (int i = 0; i < size; i++) {
+            if (keys[i] != null) profile.observe(keys[i]);
+        }
+        return profile;
+    }
+
+    public Map<Op, Integer> counts() {
+        Map<Op, Integer> counts = new EnumMap<>(Op.class);
+        for (int i = 0; i < size; i++) counts.merge(op(i), 1, Integer::sum);
+        return counts;
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder(String.format("%,d operations", size));
+        for (Map.Entry<Op, Integer> entry : counts().entrySet()) {
+            sb.append(String.format(", %,d %s", entry.getValue(), entry.getKey().label));
+        }
+        return sb.toString();
+    }
+
+    // Adapter that appends every operation to this trace before running it on ops.
+    // Bulk inserts are recorded row by row, so an import replays as individual adds.
+    public CollectionOps record(CollectionOps ops) {
+        return new RecordingOps(ops, this);
+    }
+
+    public void write(File file) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            out.write(HEADER);
+            out.write('\n');
+            for (int i = 0; i < size; i++) {
+                out.write(op(i).label);
+                if (keys[i] != null) {
+                    out.write('\t');
+                    out.write(escape(keys[i]));
+                    if (values[i] != null) {
+                        out.write('\t');
+                        out.write(escape(values[i]));
+                    }
+                }
+                out.write('\n');
+            }
+        }
+    }
+
+    public static WorkloadTrace read(File file) throws IOException {
+        WorkloadTrace trace = new WorkloadTrace();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] fields = line.split("\t", 3);
+                try {
+                    Op op = Op.parse(fields[0].trim().toLowerCase(Locale.ROOT));
+                    String key = fields.length > 1 ? unescape(fields[1]) : null;
+                    String value = fields.length > 2 ? unescape(fields[2]) : null;
+                    if (key == null && op != Op.ITERATE && op != Op.CLEAR) {
+                        throw new IllegalArgumentException(op.label + " needs a key");
+                    }
+                    trace.append(op, key, value);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file.getName() + " line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+        }
+        return trace;
+    }
+
+    // Builds a trace from an access log. The pattern needs named groups "op" and "key",
+    // and may have "value". HTTP methods map to map operations (GET -> get, HEAD ->
+    // contains, POST/PUT/PATCH -> put, DELETE -> remove); other op text must be a
+    // trace operation name. Lines that do not match are skipped.
+    public static WorkloadTrace fromAccessLog(File file, String regex) throws IOException {
+        Pattern pattern = Pattern.compile(regex);
+        boolean hasValue = regex.contains("(?<value>");
+        WorkloadTrace trace = new WorkloadTrace();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                Matcher m = pattern.matcher(line);
+                if (!m.find()) continue;
+                Op op = logOp(m.group("op"));
+                String key = m.group("key");
+                String value = hasValue ? m.group("value") : null;
+                if (op == Op.PUT && value == null) value = key;
+                trace.append(op, key, value);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Access log pattern: " + e.getMessage());
+        }
+        return trace;
+    }
+
+    private static Op logOp(String text) {
+        switch (text.toUpperCase(Locale.ROOT)) {
+            case "GET": return Op.GET;
+            case "HEAD": return Op.CONTAINS;
+            case "POST": case "PUT": case "PATCH": return Op.PUT;
+            case "DELETE": return Op.REMOVE;
+            default: return Op.parse(text.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    private static String escape(String text) {
+        if (text.indexOf('\t') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0 && text.indexOf('\\') < 0) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\t': sb.append("\\t"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\\': sb.append("\\\\"); break;
+                default: sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String text) {
+        if (text.indexOf('\\') < 0) return text;
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '\\' || i + 1 == text.length()) {
+                sb.append(c);
+                continue;
+            }
+            char e = text.charAt(++i);
+            switch (e) {
+                case 't': sb.append('\t'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                default: sb.append(e);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final class RecordingOps implements CollectionOps {
+        private final CollectionOps delegate;
+        private final WorkloadTrace trace;
+
+        RecordingOps(CollectionOps delegate, WorkloadTrace trace) {
+            this.delegate = delegate;
+            this.trace = trace;
+        }
+
+        public Object target() { return delegate.target(); }
+        public boolean isKeyValue() { return delegate.isKeyValue(); }
+        public int size() { return delegate.size(); }
+
+        public void add(String value) {
+            trace.append(Op.ADD, value, null);
+            delegate.add(value);
+        }
+
+        public void put(String key, String value) {
+            trace.append(Op.PUT, key, value);
+            delegate.put(key, value);
+        }
+
+        public boolean remove(String value) {
+            trace.append(Op.REMOVE, value, null);
+            return delegate.remove(value);
+        }
+
+        public Object removeKey(String key) {
+            trace.append(Op.REMOVE, key, null);
+            return delegate.removeKey(key);
+        }
+
+        public boolean contains(String key) {
+            trace.append(Op.CONTAINS, key, null);
+            return delegate.contains(key);
+        }
+
+        public Object get(String key) {
+            trace.append(Op.GET, key, null);
+            return delegate.get(key);
+        }
+
+        public int indexOf(String value) {
+            trace.append(Op.CONTAINS, value, null);
+            return delegate.indexOf(value);
+        }
+
+        public void clear() {
+            trace.append(Op.CLEAR, null, null);
+            delegate.clear();
+        }
+
+        @Override
+        public void addAll(String[] values, int count) {
+            synchronized (trace) {
+                for (int i = 0; i < count; i++) trace.append(Op.ADD, values[i], null);
+            }
+            delegate.addAll(values, count);
+        }
+
+        @Override
+        public void putAll(String[] keys, String[] values, int count) {
+            synchronized (trace) {
+                for (int i = 0; i < count; i++) trace.append(Op.PUT, keys[i], values[i]);
+            }
+            delegate.putAll(keys, values, count);
+        }
+    }
+}